@@ -0,0 +1,41 @@
+package com.db.awmd.challenge;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count, reporting throughput, sampled latency
+ * percentiles and allocation rate. Arguments: include regex (default all), result directory
+ * (default {@code build/reports/jmh}) and a comma separated list of thread counts (default
+ * {@code 1,4,16,64}).
+ */
+public final class BenchmarkSweep {
+
+	private BenchmarkSweep() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : ".*";
+		File resultDirectory = new File(args.length > 1 ? args[1] : "build/reports/jmh");
+		String threadCounts = args.length > 2 ? args[2] : "1,4,16,64";
+
+		resultDirectory.mkdirs();
+		for (String threadCount : threadCounts.split(",")) {
+			int threads = Integer.parseInt(threadCount.trim());
+			ChainedOptionsBuilder options = new OptionsBuilder()
+					.include(include)
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result(new File(resultDirectory, "sweep-" + threads + "-threads.json").getPath());
+			new Runner(options.build()).run();
+		}
+	}
+
+}
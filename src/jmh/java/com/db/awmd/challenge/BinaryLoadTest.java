@@ -0,0 +1,102 @@
+package com.db.awmd.challenge;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.db.awmd.challenge.transfer.binary.BinaryTransferClient;
+
+/**
+ * Sends transfers to a running application over the binary transfer protocol, the counterpart of
+ * {@link LoadTest} for comparing it with the REST API. Every connection keeps a fixed number of
+ * pipelined transfers in flight, sending the next one as soon as a response arrives. Accounts are
+ * created over REST first. Arguments: base URL of the REST API (default
+ * {@code http://localhost:18080}), binary protocol port (default 18090), connections (default 16),
+ * transfers in flight per connection (default 64), measured duration in seconds (default 30) and
+ * number of accounts (default 1000).
+ */
+public final class BinaryLoadTest {
+
+	private static final Duration WARMUP = Duration.ofSeconds(10);
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	private final int accounts;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	private volatile boolean recording;
+
+	private volatile boolean stopped;
+
+	private CountDownLatch finished;
+
+	private BinaryLoadTest(int accounts) {
+		this.accounts = accounts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		URI baseUri = URI.create(args.length > 0 ? args[0] : "http://localhost:18080");
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 18090;
+		int connections = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int inFlight = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		Duration duration = Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 30);
+		int accounts = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+
+		LoadTest.createAccounts(HttpClient.newHttpClient(), baseUri, accounts);
+		List<BinaryTransferClient> clients = new ArrayList<>();
+		for (int i = 0; i < connections; i++) {
+			clients.add(BinaryTransferClient.connect(baseUri.getHost(), port));
+		}
+		try {
+			new BinaryLoadTest(accounts).run(clients, inFlight, duration);
+		} finally {
+			for (BinaryTransferClient client : clients) {
+				client.close();
+			}
+		}
+	}
+
+	private void run(List<BinaryTransferClient> clients, int inFlight, Duration duration) throws InterruptedException {
+		finished = new CountDownLatch(clients.size() * inFlight);
+		for (BinaryTransferClient client : clients) {
+			for (int i = 0; i < inFlight; i++) {
+				send(client);
+			}
+		}
+		Thread.sleep(WARMUP.toMillis());
+		recording = true;
+		long start = System.nanoTime();
+		Thread.sleep(duration.toMillis());
+		recording = false;
+		long elapsed = System.nanoTime() - start;
+		stopped = true;
+		finished.await(1, TimeUnit.MINUTES);
+		System.out.printf("in flight per connection=%d%n", inFlight);
+		latencies.report(clients.size(), elapsed);
+	}
+
+	private void send(BinaryTransferClient client) {
+		if (stopped) {
+			finished.countDown();
+			return;
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(accounts);
+		int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+		long start = System.nanoTime();
+		client.transferAsync("load-" + from, "load-" + to, AMOUNT).whenComplete((result, failure) -> {
+			if (recording) {
+				latencies.record(System.nanoTime() - start, failure == null && result.isCompleted());
+			}
+			send(client);
+		});
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.db.awmd.challenge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts response latencies of the load tests and reports throughput and percentiles.
+ */
+final class LatencyHistogram {
+
+	/**
+	 * Latencies are counted in buckets of 100 microseconds up to 10 seconds; slower responses fall
+	 * into the last bucket.
+	 */
+	private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private static final int BUCKETS = 100_000;
+
+	private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+
+	void record(long latency, boolean succeeded) {
+		if (!succeeded) {
+			errors.increment();
+		}
+		latencies.incrementAndGet((int) Math.min(latency / BUCKET_NANOS, BUCKETS - 1));
+		maxLatency.accumulate(latency);
+	}
+
+	void report(int connections, long elapsed) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = latencies.get(i);
+			total += counts[i];
+		}
+		System.out.printf("connections=%d requests=%d errors=%d throughput=%.0f req/s%n", connections, total,
+				errors.sum(), total / (elapsed / 1e9));
+		System.out.printf("latency p50=%.1f ms p99=%.1f ms p99.9=%.1f ms max=%.1f ms%n", percentile(counts, total, 0.5),
+				percentile(counts, total, 0.99), percentile(counts, total, 0.999), maxLatency.get() / 1e6);
+	}
+
+	private static double percentile(long[] counts, long total, double percentile) {
+		long rank = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return (i + 1) * BUCKET_NANOS / 1e6;
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.db.awmd.challenge;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends transfers to a running application from a fixed number of concurrent connections. Each
+ * connection sends its next transfer as soon as the previous response arrives, so the server sees
+ * exactly that many requests in flight. Responses are only counted after a warm-up, while every
+ * connection is open. Arguments: base URL (default {@code http://localhost:18080}), connections
+ * (default 10000), measured duration in seconds (default 30) and number of accounts (default 1000).
+ */
+public final class LoadTest {
+
+	private static final Duration WARMUP = Duration.ofSeconds(10);
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+	private static final long BALANCE = 1_000_000_000L;
+
+	private final HttpClient client;
+
+	private final URI transferUri;
+
+	private final int accounts;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	private volatile boolean recording;
+
+	private volatile boolean stopped;
+
+	private CountDownLatch finished;
+
+	private LoadTest(HttpClient client, URI baseUri, int accounts) {
+		this.client = client;
+		this.transferUri = baseUri.resolve("/v1/accounts/transfer");
+		this.accounts = accounts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		URI baseUri = URI.create(args.length > 0 ? args[0] : "http://localhost:18080");
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+		int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(REQUEST_TIMEOUT)
+				.build();
+		createAccounts(client, baseUri, accounts);
+		new LoadTest(client, baseUri, accounts).run(connections, duration);
+	}
+
+	static void createAccounts(HttpClient client, URI baseUri, int accounts) throws Exception {
+		for (int i = 0; i < accounts; i++) {
+			HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/v1/accounts"))
+					.header("Content-Type", "application/json")
+					.POST(BodyPublishers.ofString("{\"accountId\":\"load-" + i + "\",\"balance\":" + BALANCE + "}"))
+					.build();
+			HttpResponse<Void> response = client.send(request, BodyHandlers.discarding());
+			// 400 means the account exists from an earlier run.
+			if (response.statusCode() != 201 && response.statusCode() != 400) {
+				throw new IllegalStateException("Creating account load-" + i + " returned " + response.statusCode());
+			}
+		}
+	}
+
+	private void run(int connections, Duration duration) throws InterruptedException {
+		finished = new CountDownLatch(connections);
+		for (int i = 0; i < connections; i++) {
+			send();
+		}
+		Thread.sleep(WARMUP.toMillis());
+		recording = true;
+		long start = System.nanoTime();
+		Thread.sleep(duration.toMillis());
+		recording = false;
+		long elapsed = System.nanoTime() - start;
+		stopped = true;
+		finished.await(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+		latencies.report(connections, elapsed);
+	}
+
+	private void send() {
+		if (stopped) {
+			finished.countDown();
+			return;
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(accounts);
+		int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+		HttpRequest request = HttpRequest.newBuilder(transferUri)
+				.header("Content-Type", "application/json")
+				.timeout(REQUEST_TIMEOUT)
+				.POST(BodyPublishers.ofString(
+						"{\"accountFromId\":\"load-" + from + "\",\"accountToId\":\"load-" + to + "\",\"amount\":1}"))
+				.build();
+		long start = System.nanoTime();
+		client.sendAsync(request, BodyHandlers.discarding()).whenComplete((response, failure) -> {
+			if (recording) {
+				latencies.record(System.nanoTime() - start, failure == null && response.statusCode() == 200);
+			}
+			send();
+		});
+	}
+
+}
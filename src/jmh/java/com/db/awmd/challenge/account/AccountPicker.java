@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.account;
+
+import java.util.Random;
+
+/**
+ * Per-thread sequence of distinct account index pairs, sampled up front so the benchmarks measure
+ * the repository rather than the random number generator. Benchmarks extend it with their own
+ * thread-scoped state.
+ */
+public class AccountPicker {
+
+	private static final int SAMPLES = 1 << 16;
+
+	private final int[] from = new int[SAMPLES];
+
+	private final int[] to = new int[SAMPLES];
+
+	private int next;
+
+	private int current;
+
+	void sample(String distribution, int accounts, long seed) {
+		Random random = new Random(seed);
+		ZipfianDistribution zipfian = "zipfian".equals(distribution)
+				? new ZipfianDistribution(accounts, ZipfianDistribution.DEFAULT_THETA)
+				: null;
+		for (int i = 0; i < SAMPLES; i++) {
+			int a = zipfian != null ? zipfian.next(random) : random.nextInt(accounts);
+			int b;
+			do {
+				b = zipfian != null ? zipfian.next(random) : random.nextInt(accounts);
+			} while (b == a);
+			// Alternate direction so balances drift around their initial value.
+			from[i] = (i & 1) == 0 ? a : b;
+			to[i] = (i & 1) == 0 ? b : a;
+		}
+	}
+
+	/**
+	 * Advances to the next pair and returns its source index.
+	 */
+	int nextFrom() {
+		current = next;
+		next = (next + 1) & (SAMPLES - 1);
+		return from[current];
+	}
+
+	/**
+	 * Returns the destination index of the pair last returned by {@link #nextFrom()}.
+	 */
+	int currentTo() {
+		return to[current];
+	}
+
+}
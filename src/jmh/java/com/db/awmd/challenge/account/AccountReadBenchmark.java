@@ -0,0 +1,87 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.db.awmd.challenge.account.web.AccountResponse;
+import com.db.awmd.challenge.account.web.AccountResponseCache;
+import com.db.awmd.challenge.account.web.StripedAccountResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Read path of {@code GET /v1/accounts/{id}} below the web layer: the account lookup and the
+ * serialized body with its ETag. With {@code cache=none} every read serializes the account, as
+ * before the response cache; {@code -prof gc} shows the allocation saved. {@code transferPercent}
+ * of the reads first transfer between two accounts, so their cached responses go stale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountReadBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "none", "striped" })
+	String cache;
+
+	@Param({ "uniform", "zipfian" })
+	String distribution;
+
+	@Param({ "10000" })
+	int accounts;
+
+	@Param({ "0", "10" })
+	int transferPercent;
+
+	AccountsRepository repository;
+
+	AccountResponseCache responseCache;
+
+	String[] accountIds;
+
+	private final AtomicInteger threadSeeds = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void createRepository() {
+		accountIds = Repositories.accountIds(accounts);
+		repository = Repositories.create("in-memory");
+		Repositories.populate(repository, accountIds);
+		ObjectMapper objectMapper = new ObjectMapper();
+		responseCache = "none".equals(cache) ? account -> AccountResponse.of(account, objectMapper)
+				: new StripedAccountResponseCache(64, accounts, objectMapper);
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState extends AccountPicker {
+
+		int reads;
+
+		@Setup(Level.Trial)
+		public void setup(AccountReadBenchmark benchmark) {
+			sample(benchmark.distribution, benchmark.accounts, benchmark.threadSeeds.incrementAndGet());
+		}
+
+	}
+
+	@Benchmark
+	public AccountResponse getAccount(ThreadState thread) {
+		String accountId = accountIds[thread.nextFrom()];
+		if (transferPercent > 0 && thread.reads++ % (100 / transferPercent) == 0) {
+			repository.tryTransfer(accountId, accountIds[thread.currentTo()], AMOUNT);
+		}
+		return responseCache.responseFor(repository.getAccount(accountId));
+	}
+
+}
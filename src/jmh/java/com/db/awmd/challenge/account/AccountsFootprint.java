@@ -0,0 +1,117 @@
+package com.db.awmd.challenge.account;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Measures the heap retained per account by a repository and the garbage collection pauses seen
+ * while it is populated and then serves transfers. Arguments: repository type as in
+ * {@code accounts.repository.type} (default {@code in-memory}), number of accounts (default
+ * 10,000,000) and seconds of transfers (default 30). Run it in a JVM of its own with the heap and
+ * collector under test, e.g. {@code -Xmx4g -XX:+UseG1GC}.
+ */
+public final class AccountsFootprint {
+
+	private AccountsFootprint() {
+	}
+
+	public static void main(String[] args) {
+		String type = args.length > 0 ? args[0] : "in-memory";
+		int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+		long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+
+		Pauses pauses = new Pauses();
+		long heapBefore = usedHeapAfterGc();
+		AccountsRepository repository = Repositories.create(type);
+		long started = System.nanoTime();
+		pauses.reset();
+		for (int i = 0; i < accounts; i++) {
+			// Distinct balances, as real accounts have, rather than one shared instance.
+			repository.createAccount(new Account("Id-" + i, BigDecimal.valueOf(1_000_000 + i)));
+		}
+		System.out.printf("%s: populated %,d accounts in %d ms, %s%n", type, accounts,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), pauses);
+		long heapAfter = usedHeapAfterGc();
+		System.out.printf("%s: %,d bytes retained, %.1f bytes per account%n", type, heapAfter - heapBefore,
+				(heapAfter - heapBefore) / (double) accounts);
+
+		pauses.reset();
+		long transfers = 0;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (System.nanoTime() < deadline) {
+			for (int i = 0; i < 1000; i++) {
+				int from = random.nextInt(accounts);
+				int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+				repository.tryTransfer("Id-" + from, "Id-" + to, BigDecimal.ONE);
+			}
+			transfers += 1000;
+		}
+		System.out.printf("%s: %,d transfers in %d s, %s%n", type, transfers, seconds, pauses);
+		if (repository.countAccounts() != accounts) {
+			throw new IllegalStateException("Lost accounts");
+		}
+	}
+
+	private static long usedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Counts the collections reported since the last reset, with their total and longest duration.
+	 */
+	private static final class Pauses {
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong totalMillis = new AtomicLong();
+
+		private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+		Pauses() {
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+					if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+						GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+								.from((CompositeData) notification.getUserData());
+						long duration = info.getGcInfo().getDuration();
+						count.incrementAndGet();
+						totalMillis.addAndGet(duration);
+						maxMillis.accumulate(duration);
+					}
+				}, null, null);
+			}
+		}
+
+		void reset() {
+			count.set(0);
+			totalMillis.set(0);
+			maxMillis.reset();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d collections, %d ms in total, longest %d ms", count.get(), totalMillis.get(),
+					maxMillis.get());
+		}
+
+	}
+
+}
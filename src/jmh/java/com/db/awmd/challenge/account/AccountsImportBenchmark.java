@@ -0,0 +1,83 @@
+package com.db.awmd.challenge.account;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Time to import {@code accounts} accounts from NDJSON into an empty repository. Divide
+ * {@code accounts} by the average time for the import rate; the target is more than a million
+ * accounts a second. The in-memory repository is sized for the accounts up front, as
+ * {@code accounts.repository.expected-accounts} does, and the heap is fixed at its maximum, so that
+ * the numbers measure the import rather than the map and the heap growing under it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class AccountsImportBenchmark {
+
+	@Param({ "in-memory", "compact" })
+	String repositoryType;
+
+	@Param({ "1000000" })
+	int accounts;
+
+	@Param({ "10000" })
+	int chunkSize;
+
+	byte[] body;
+
+	AccountsRepository repository;
+
+	AccountsImportService importService;
+
+	@Setup(Level.Trial)
+	public void createBody() {
+		StringBuilder lines = new StringBuilder(accounts * 40);
+		for (int i = 0; i < accounts; i++) {
+			lines.append("{\"accountId\":\"Id-").append(i).append("\",\"balance\":").append(i % 100_000).append(".25}\n");
+		}
+		body = lines.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Setup(Level.Invocation)
+	public void createRepository() {
+		repository = "in-memory".equals(repositoryType) ? AccountsRepositoryInMemory.builder()
+				.lockStripes(Repositories.LOCK_STRIPES)
+				.expectedAccounts(accounts)
+				.build() : Repositories.create(repositoryType);
+		importService = new AccountsImportService(repository, new ObjectMapper(), chunkSize,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown(Level.Invocation)
+	public void shutdown() {
+		importService.destroy();
+	}
+
+	@Benchmark
+	public AccountImportSummary importAccounts() throws IOException {
+		return importService.importAccounts(new ByteArrayInputStream(body));
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+
+/**
+ * Hot paths of {@link AccountsRepository}. Run through {@code BenchmarkSweep} to cover 1, 4, 16 and
+ * 64 threads with the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsRepositoryBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "in-memory", "atomic", "compact" })
+	String repositoryType;
+
+	@Param({ "uniform", "zipfian" })
+	String distribution;
+
+	@Param({ "10000" })
+	int accounts;
+
+	AccountsRepository repository;
+
+	String[] accountIds;
+
+	private final AtomicInteger threadSeeds = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void createAccountIds() {
+		accountIds = Repositories.accountIds(accounts);
+	}
+
+	@Setup(Level.Iteration)
+	public void createRepository() {
+		// Recreated per iteration so createAccount does not grow the store without bound.
+		repository = Repositories.create(repositoryType);
+		Repositories.populate(repository, accountIds);
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState extends AccountPicker {
+
+		String newAccountPrefix;
+
+		long newAccounts;
+
+		@Setup(Level.Trial)
+		public void setup(AccountsRepositoryBenchmark benchmark) {
+			int seed = benchmark.threadSeeds.incrementAndGet();
+			sample(benchmark.distribution, benchmark.accounts, seed);
+			newAccountPrefix = "New-" + seed + "-";
+		}
+
+	}
+
+	@Benchmark
+	public void createAccount(ThreadState thread) {
+		repository.createAccount(new Account(thread.newAccountPrefix + thread.newAccounts++, AMOUNT));
+	}
+
+	@Benchmark
+	public Account getAccount(ThreadState thread) {
+		return repository.getAccount(accountIds[thread.nextFrom()]);
+	}
+
+	@Benchmark
+	public boolean transfer(ThreadState thread) {
+		String from = accountIds[thread.nextFrom()];
+		String to = accountIds[thread.currentTo()];
+		try {
+			repository.transfer(from, to, AMOUNT);
+			return true;
+		} catch (InsufficientBalanceException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositorySharded;
+
+/**
+ * Throughput of {@link AccountsRepositorySharded} by shard count. Compare with the
+ * {@code in-memory} results of {@link AccountsRepositoryBenchmark} at the same thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsRepositoryShardsBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "1", "2", "4", "8", "16" })
+	int shards;
+
+	@Param({ "uniform", "zipfian" })
+	String distribution;
+
+	@Param({ "10000" })
+	int accounts;
+
+	AccountsRepositorySharded repository;
+
+	String[] accountIds;
+
+	private final AtomicInteger threadSeeds = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void createRepository() {
+		accountIds = Repositories.accountIds(accounts);
+		repository = new AccountsRepositorySharded(shards);
+		Repositories.populate(repository, accountIds);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopShards() {
+		repository.destroy();
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState extends AccountPicker {
+
+		@Setup(Level.Trial)
+		public void setup(AccountsRepositoryShardsBenchmark benchmark) {
+			sample(benchmark.distribution, benchmark.accounts, benchmark.threadSeeds.incrementAndGet());
+		}
+
+	}
+
+	@Benchmark
+	public Account getAccount(ThreadState thread) {
+		return repository.getAccount(accountIds[thread.nextFrom()]);
+	}
+
+	@Benchmark
+	public boolean transfer(ThreadState thread) {
+		String from = accountIds[thread.nextFrom()];
+		String to = accountIds[thread.currentTo()];
+		try {
+			repository.transfer(from, to, AMOUNT);
+			return true;
+		} catch (InsufficientBalanceException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.db.awmd.challenge.account;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.LockMetrics;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.account.service.TransferMetrics;
+import com.db.awmd.challenge.metrics.MicrometerLockMetrics;
+import com.db.awmd.challenge.metrics.MicrometerTransferMetrics;
+import com.db.awmd.challenge.notification.AsyncNotificationService;
+import com.db.awmd.challenge.notification.BackpressurePolicy;
+import com.db.awmd.challenge.notification.EmailNotificationService;
+import com.db.awmd.challenge.notification.NotificationDispatchProperties;
+import com.db.awmd.challenge.notification.NotificationService;
+import com.db.awmd.challenge.transfer.repository.TransferLedger;
+import com.db.awmd.challenge.transfer.repository.TransferLedgerOffHeap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Full {@link AccountsService#transfer} path, including the two notifications and the account
+ * lookups they need. Log output of the notification service is discarded by the benchmark logback
+ * configuration, so the numbers include building the log event but not writing it. With
+ * {@code notifications=async} the notifications go through {@link AsyncNotificationService}, which
+ * looks the accounts up on its own thread, dropping the oldest notifications if the dispatcher falls
+ * behind so the queue never blocks the measured threads.
+ * With {@code ledger=off-heap} every transfer is also recorded in a {@link TransferLedgerOffHeap}.
+ * With {@code metrics=prometheus} transfers and account locks are instrumented as in the
+ * application, recording into a Prometheus registry; {@code -prof gc} shows whether recording
+ * allocates. {@code rejectedPercent} of the transfers ask for more than any account holds and are
+ * rejected for insufficient balance: {@code transfer} reports them as exceptions,
+ * {@code tryTransfer} as results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsServiceBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	private static final BigDecimal REJECTED_AMOUNT = Repositories.INITIAL_BALANCE.multiply(BigDecimal.TEN);
+
+	@Param({ "in-memory", "atomic" })
+	String repositoryType;
+
+	@Param({ "uniform", "zipfian" })
+	String distribution;
+
+	@Param({ "10000" })
+	int accounts;
+
+	@Param({ "sync", "async" })
+	String notifications;
+
+	@Param({ "none", "off-heap" })
+	String ledger;
+
+	@Param({ "none", "prometheus" })
+	String metrics;
+
+	@Param({ "0", "30" })
+	int rejectedPercent;
+
+	AccountsService accountsService;
+
+	private AsyncNotificationService asyncNotificationService;
+
+	private TransferLedger transferLedger = TransferLedger.NONE;
+
+	String[] accountIds;
+
+	private final AtomicInteger threadSeeds = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void createService() throws IOException {
+		accountIds = Repositories.accountIds(accounts);
+		NotificationService notificationService = new EmailNotificationService();
+		if ("async".equals(notifications)) {
+			NotificationDispatchProperties properties = new NotificationDispatchProperties();
+			properties.setBackpressure(BackpressurePolicy.DROP_OLDEST);
+			asyncNotificationService = new AsyncNotificationService(notificationService, properties);
+			notificationService = asyncNotificationService;
+		}
+		if ("off-heap".equals(ledger)) {
+			transferLedger = new TransferLedgerOffHeap(Paths.get(System.getProperty("java.io.tmpdir")), 65_536, 16,
+					Clock.systemUTC());
+		}
+		LockMetrics lockMetrics = LockMetrics.NONE;
+		TransferMetrics transferMetrics = TransferMetrics.NONE;
+		if ("prometheus".equals(metrics)) {
+			MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+			lockMetrics = new MicrometerLockMetrics(registry, Repositories.LOCK_STRIPES);
+			transferMetrics = new MicrometerTransferMetrics(registry);
+		}
+		accountsService = AccountsService.builder(Repositories.create(repositoryType, lockMetrics), notificationService)
+				.transferLedger(transferLedger)
+				.transferMetrics(transferMetrics)
+				.build();
+		Repositories.populate(accountsService.getAccountsRepository(), accountIds);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopNotifications() throws InterruptedException {
+		if (asyncNotificationService != null) {
+			asyncNotificationService.destroy();
+		}
+		transferLedger.close();
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState extends AccountPicker {
+
+		private final BigDecimal[] amounts = new BigDecimal[1024];
+
+		private int nextAmount;
+
+		@Setup(Level.Trial)
+		public void setup(AccountsServiceBenchmark benchmark) {
+			int seed = benchmark.threadSeeds.incrementAndGet();
+			sample(benchmark.distribution, benchmark.accounts, seed);
+			Random random = new Random(seed);
+			for (int i = 0; i < amounts.length; i++) {
+				amounts[i] = random.nextInt(100) < benchmark.rejectedPercent ? REJECTED_AMOUNT : AMOUNT;
+			}
+		}
+
+		BigDecimal nextAmount() {
+			nextAmount = (nextAmount + 1) & (amounts.length - 1);
+			return amounts[nextAmount];
+		}
+
+	}
+
+	@Benchmark
+	public boolean transfer(ThreadState thread) {
+		String from = accountIds[thread.nextFrom()];
+		String to = accountIds[thread.currentTo()];
+		try {
+			accountsService.transfer(from, to, thread.nextAmount());
+			return true;
+		} catch (InsufficientBalanceException e) {
+			return false;
+		}
+	}
+
+	@Benchmark
+	public boolean tryTransfer(ThreadState thread) {
+		String from = accountIds[thread.nextFrom()];
+		String to = accountIds[thread.currentTo()];
+		return accountsService.tryTransfer(from, to, thread.nextAmount()).isCompleted();
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+
+/**
+ * Transfers between random accounts of the {@code in-memory} repository, each holding
+ * {@code holds} holds. Transfers check the balance less the held total of the source, so the
+ * number of holds should make no difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BalanceHoldsBenchmark {
+
+	private static final BigDecimal AMOUNT = new BigDecimal("1.25");
+
+	@Param({ "0", "1", "100" })
+	int holds;
+
+	@Param({ "10000" })
+	int accounts;
+
+	AccountsRepositoryInMemory repository;
+
+	String[] accountIds;
+
+	@Setup(Level.Trial)
+	public void createRepository() {
+		repository = AccountsRepositoryInMemory.builder().lockStripes(Repositories.LOCK_STRIPES).build();
+		accountIds = Repositories.accountIds(accounts);
+		Repositories.populate(repository, accountIds);
+		for (String accountId : accountIds) {
+			for (int i = 0; i < holds; i++) {
+				repository.tryHold(accountId, BigDecimal.ONE);
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean transfer() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(accounts);
+		int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+		return repository.tryTransfer(accountIds[from], accountIds[to], AMOUNT).isCompleted();
+	}
+
+}
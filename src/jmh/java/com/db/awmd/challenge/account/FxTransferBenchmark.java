@@ -0,0 +1,84 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.notification.EmailNotificationService;
+
+/**
+ * Transfers between neighbouring accounts of the in-memory repository. With {@code same} every
+ * account is in the base currency; with {@code cross} every other account is in USD, so every
+ * transfer is priced at the published rates. {@code repository} measures the repository alone,
+ * {@code service} the {@link AccountsService#tryTransfer} path with its notifications.
+ * <p>
+ * Transfers across currencies are not expected to come within 10% of those within one. Pricing a
+ * transfer exactly takes a rate probe, a {@link BigDecimal} multiplication and a half-even rounding,
+ * about 30 ns of which the arithmetic is two thirds, and the credited amount is then formatted
+ * again for the notification. On one CPU this measured about 50% slower in {@code repository} and
+ * 30% in {@code service}, but only 25% slower between a fixed pair of accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FxTransferBenchmark {
+
+	private static final BigDecimal AMOUNT = new BigDecimal("1.25");
+
+	@Param({ "same", "cross" })
+	String currencies;
+
+	@Param({ "repository", "service" })
+	String layer;
+
+	@Param({ "10000" })
+	int accounts;
+
+	AccountsRepositoryInMemory repository;
+
+	AccountsService accountsService;
+
+	String[] accountIds;
+
+	@Setup(Level.Iteration)
+	public void createRepository() {
+		ExchangeRateTable exchangeRates = new ExchangeRateTable("EUR");
+		exchangeRates.publish(Map.of("USD", new BigDecimal("1.0842"), "GBP", new BigDecimal("0.8571"),
+				"JPY", new BigDecimal("162.35")));
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(Repositories.LOCK_STRIPES)
+				.exchangeRates(exchangeRates)
+				.build();
+		accountIds = Repositories.accountIds(accounts);
+		for (int i = 0; i < accounts; i++) {
+			String currency = "cross".equals(currencies) && i % 2 == 1 ? "USD" : null;
+			repository.createAccount(new Account(accountIds[i], Repositories.INITIAL_BALANCE, currency));
+		}
+		accountsService = AccountsService.builder(repository, new EmailNotificationService()).build();
+	}
+
+	@Benchmark
+	public boolean transfer() {
+		int from = ThreadLocalRandom.current().nextInt(accounts);
+		if ("service".equals(layer)) {
+			return accountsService.tryTransfer(accountIds[from], accountIds[from ^ 1], AMOUNT).isCompleted();
+		}
+		return repository.tryTransfer(accountIds[from], accountIds[from ^ 1], AMOUNT).isCompleted();
+	}
+
+}
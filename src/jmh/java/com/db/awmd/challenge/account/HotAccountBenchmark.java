@@ -0,0 +1,92 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.notification.EmailNotificationService;
+
+/**
+ * Every thread credits the same treasury account from an account of its own. With
+ * {@code hotAccountStripes=0} the treasury is a regular account and every transfer waits for its
+ * stripe; otherwise it is a hot account split into that many sub-balances. {@code repository}
+ * measures the repository alone, {@code service} the {@link AccountsService#tryTransfer} path with
+ * the notifications of both accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(64)
+public class HotAccountBenchmark {
+
+	private static final String TREASURY = "Treasury";
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@Param({ "0", "16" })
+	int hotAccountStripes;
+
+	@Param({ "1024" })
+	int accounts;
+
+	@Param({ "repository", "service" })
+	String layer;
+
+	AccountsRepositoryInMemory repository;
+
+	AccountsService accountsService;
+
+	String[] accountIds;
+
+	private final AtomicInteger threadSeeds = new AtomicInteger();
+
+	@Setup(Level.Iteration)
+	public void createRepository() {
+		AccountsRepositoryInMemory.Builder builder = AccountsRepositoryInMemory.builder()
+				.lockStripes(Repositories.LOCK_STRIPES);
+		if (hotAccountStripes > 0) {
+			builder.hotAccounts(Collections.singletonList(TREASURY), hotAccountStripes);
+		}
+		repository = builder.build();
+		accountIds = Repositories.accountIds(accounts);
+		Repositories.populate(repository, accountIds);
+		repository.createAccount(new Account(TREASURY, BigDecimal.ZERO));
+		accountsService = AccountsService.builder(repository, new EmailNotificationService()).build();
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		String accountId;
+
+		@Setup(Level.Trial)
+		public void setup(HotAccountBenchmark benchmark) {
+			accountId = "Id-" + benchmark.threadSeeds.getAndIncrement() % benchmark.accounts;
+		}
+
+	}
+
+	@Benchmark
+	public boolean credit(ThreadState thread) {
+		if ("service".equals(layer)) {
+			return accountsService.tryTransfer(thread.accountId, TREASURY, AMOUNT).isCompleted();
+		}
+		return repository.tryTransfer(thread.accountId, TREASURY, AMOUNT).isCompleted();
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryAtomic;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryCompact;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryPipeline;
+import com.db.awmd.challenge.account.repository.LockMetrics;
+import com.db.awmd.challenge.journal.AccountsJournal;
+
+/**
+ * Builds and populates the repository implementations compared by the benchmarks. Types use the
+ * same names as {@code accounts.repository.type}.
+ */
+final class Repositories {
+
+	static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+
+	static final int LOCK_STRIPES = 1024;
+
+	static final int PIPELINE_RING_SIZE = 1 << 16;
+
+	private Repositories() {
+	}
+
+	static AccountsRepository create(String type) {
+		return create(type, LockMetrics.NONE);
+	}
+
+	static AccountsRepository create(String type, LockMetrics lockMetrics) {
+		switch (type) {
+		case "in-memory":
+			return AccountsRepositoryInMemory.builder().lockStripes(LOCK_STRIPES).lockMetrics(lockMetrics).build();
+		case "atomic":
+			return new AccountsRepositoryAtomic(2);
+		case "compact":
+			return new AccountsRepositoryCompact(LOCK_STRIPES, 2, lockMetrics);
+		case "pipeline":
+			return new AccountsRepositoryPipeline(PIPELINE_RING_SIZE, AccountsJournal.NONE);
+		default:
+			throw new IllegalArgumentException("Unknown repository type " + type);
+		}
+	}
+
+	static String[] accountIds(int accounts) {
+		String[] ids = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			ids[i] = "Id-" + i;
+		}
+		return ids;
+	}
+
+	static void populate(AccountsRepository repository, String[] accountIds) {
+		for (String accountId : accountIds) {
+			repository.createAccount(new Account(accountId, INITIAL_BALANCE));
+		}
+	}
+
+}
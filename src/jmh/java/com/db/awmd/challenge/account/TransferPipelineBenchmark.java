@@ -0,0 +1,96 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.DisposableBean;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+
+/**
+ * Compares the locking {@code in-memory} repository with the single-writer {@code pipeline} on the
+ * hot-account workload of {@link HotAccountBenchmark}: every thread credits the same treasury
+ * account. {@code credit} waits for every transfer, {@code creditWindow} publishes
+ * {@value #WINDOW} transfers before waiting for the last one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(64)
+public class TransferPipelineBenchmark {
+
+	private static final String TREASURY = "Treasury";
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	static final int WINDOW = 64;
+
+	@Param({ "in-memory", "pipeline" })
+	String repositoryType;
+
+	@Param({ "1024" })
+	int accounts;
+
+	AccountsRepository repository;
+
+	private final AtomicInteger threadSeeds = new AtomicInteger();
+
+	// Once per trial: while an iteration is set up the other workers busy-wait, which on few cores
+	// starves the pipeline threads populating the repository.
+	@Setup(Level.Trial)
+	public void createRepository() {
+		repository = Repositories.create(repositoryType);
+		Repositories.populate(repository, Repositories.accountIds(accounts));
+		repository.createAccount(new Account(TREASURY, BigDecimal.ZERO));
+	}
+
+	@TearDown(Level.Trial)
+	public void destroyRepository() throws Exception {
+		if (repository instanceof DisposableBean) {
+			((DisposableBean) repository).destroy();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+
+		String accountId;
+
+		@Setup(Level.Trial)
+		public void setup(TransferPipelineBenchmark benchmark) {
+			accountId = "Id-" + benchmark.threadSeeds.getAndIncrement() % benchmark.accounts;
+		}
+
+	}
+
+	@Benchmark
+	public boolean credit(ThreadState thread) {
+		return repository.tryTransfer(thread.accountId, TREASURY, AMOUNT).isCompleted();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(WINDOW)
+	public boolean creditWindow(ThreadState thread) {
+		CompletableFuture<?> last = null;
+		for (int i = 0; i < WINDOW; i++) {
+			last = repository.tryTransferAsync(thread.accountId, TREASURY, AMOUNT);
+		}
+		return last.join() != null;
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.notification.EmailNotificationService;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.velocity.SlidingWindowVelocityCheck;
+import com.db.awmd.challenge.transfer.velocity.VelocityCheck;
+import com.db.awmd.challenge.transfer.velocity.VelocityRule;
+
+/**
+ * Transfers through {@link AccountsService#tryTransfer} between random accounts, without velocity
+ * rules ({@code none}) or with an outflow limit over 5 minutes and a transfer count limit over 1
+ * minute ({@code rules}), set high enough that every transfer passes. Every account has been
+ * counted before, as once the service has been up for a while. The difference in the sampled
+ * percentiles of {@code transfer} is the latency the rule stage adds to a transfer, and
+ * {@code reserve} times the stage on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VelocityCheckBenchmark {
+
+	private static final BigDecimal AMOUNT = new BigDecimal("1.25");
+
+	@Param({ "none", "rules" })
+	String velocity;
+
+	@Param({ "100000" })
+	int accounts;
+
+	VelocityCheck velocityCheck;
+
+	AccountsService accountsService;
+
+	String[] accountIds;
+
+	@Setup(Level.Iteration)
+	public void createService() {
+		AccountsRepositoryInMemory repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(Repositories.LOCK_STRIPES)
+				.build();
+		accountIds = Repositories.accountIds(accounts);
+		Repositories.populate(repository, accountIds);
+		velocityCheck = VelocityCheck.NONE;
+		if ("rules".equals(velocity)) {
+			velocityCheck = new SlidingWindowVelocityCheck(
+					List.of(VelocityRule.maxAmount(Duration.ofMinutes(5), new BigDecimal("1000000000")),
+							VelocityRule.maxTransfers(Duration.ofMinutes(1), Long.MAX_VALUE / 2)),
+					10, 64, 1_000_000, Clock.systemUTC());
+			for (String accountId : accountIds) {
+				velocityCheck.reserve(accountId, AMOUNT);
+			}
+		}
+		accountsService = AccountsService.builder(repository, new EmailNotificationService())
+				.velocityCheck(velocityCheck)
+				.build();
+	}
+
+	@Benchmark
+	public boolean transfer() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(accounts);
+		int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+		return accountsService.tryTransfer(accountIds[from], accountIds[to], AMOUNT).isCompleted();
+	}
+
+	@Benchmark
+	public TransferResult reserve() {
+		return velocityCheck.reserve(accountIds[ThreadLocalRandom.current().nextInt(accounts)], AMOUNT);
+	}
+
+}
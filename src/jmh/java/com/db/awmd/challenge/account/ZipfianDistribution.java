@@ -0,0 +1,51 @@
+package com.db.awmd.challenge.account;
+
+import java.util.Random;
+
+/**
+ * Zipfian sampler over {@code [0, items)} following Gray et al., "Quickly Generating
+ * Billion-Record Synthetic Databases" (the generator used by YCSB). Index 0 is the hottest item.
+ */
+final class ZipfianDistribution {
+
+	static final double DEFAULT_THETA = 0.99;
+
+	private final int items;
+
+	private final double theta;
+
+	private final double alpha;
+
+	private final double zetan;
+
+	private final double eta;
+
+	ZipfianDistribution(int items, double theta) {
+		this.items = items;
+		this.theta = theta;
+		this.alpha = 1.0 / (1.0 - theta);
+		this.zetan = zeta(items, theta);
+		this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+	}
+
+	int next(Random random) {
+		double u = random.nextDouble();
+		double uz = u * zetan;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < 1.0 + Math.pow(0.5, theta)) {
+			return 1;
+		}
+		return Math.min(items - 1, (int) (items * Math.pow(eta * u - eta + 1, alpha)));
+	}
+
+	private static double zeta(int n, double theta) {
+		double sum = 0;
+		for (int i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.db.awmd.challenge.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Durable transfer latency with group commit, and the time taken to replay a large journal on
+ * startup. Run {@code transfer} at several thread counts to see how many appenders share each
+ * fsync.
+ */
+public class JournalBenchmark {
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	@State(Scope.Benchmark)
+	public static class AppendState {
+
+		@Param({ "true", "false" })
+		boolean fsync;
+
+		@Param({ "0" })
+		long flushIntervalMicros;
+
+		@Param({ "10000" })
+		int accounts;
+
+		Path directory;
+
+		FileAccountsJournal journal;
+
+		@Setup(Level.Trial)
+		public void open() throws IOException {
+			directory = Files.createTempDirectory("journal-append");
+			journal = new FileAccountsJournal(directory, fsync, Duration.ofNanos(flushIntervalMicros * 1000), 1024);
+			journal.replay(new JournalRecordHandler() {
+
+				@Override
+				public void accountCreated(long sequence, String accountId, BigDecimal balance) {
+				}
+
+				@Override
+				public void transferred(long sequence, String accountFromId, String accountToId, BigDecimal amount) {
+				}
+
+				@Override
+				public void accountsCleared(long sequence) {
+				}
+
+			});
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws IOException {
+			journal.close();
+			delete(directory);
+		}
+
+	}
+
+	@State(Scope.Benchmark)
+	public static class ReplayState {
+
+		@Param({ "10000000" })
+		int records;
+
+		@Param({ "10000" })
+		int accounts;
+
+		Path directory;
+
+		@Setup(Level.Trial)
+		public void write() throws IOException {
+			directory = Files.createTempDirectory("journal-replay");
+			try (FileAccountsJournal journal = new FileAccountsJournal(directory, false, Duration.ZERO, 1024)) {
+				journal.replay(new CountingHandler());
+				for (int i = 0; i < accounts; i++) {
+					journal.appendAccountCreated("Id-" + i, BigDecimal.valueOf(1_000_000_000L));
+				}
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long sequence = 0;
+				for (int i = accounts; i < records; i++) {
+					int from = random.nextInt(accounts);
+					int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+					sequence = journal.appendTransfer("Id-" + from, "Id-" + to, AMOUNT);
+				}
+				journal.awaitDurable(sequence);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void delete() throws IOException {
+			JournalBenchmark.delete(directory);
+		}
+
+	}
+
+	private static class CountingHandler implements JournalRecordHandler {
+
+		long count;
+
+		@Override
+		public void accountCreated(long sequence, String accountId, BigDecimal balance) {
+			count++;
+		}
+
+		@Override
+		public void transferred(long sequence, String accountFromId, String accountToId, BigDecimal amount) {
+			count++;
+		}
+
+		@Override
+		public void accountsCleared(long sequence) {
+			count++;
+		}
+
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long transfer(AppendState state) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(state.accounts);
+		int to = (from + 1 + random.nextInt(state.accounts - 1)) % state.accounts;
+		long sequence = state.journal.appendTransfer("Id-" + from, "Id-" + to, AMOUNT);
+		state.journal.awaitDurable(sequence);
+		return sequence;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long replay(ReplayState state) throws IOException {
+		try (FileAccountsJournal journal = new FileAccountsJournal(state.directory, false, Duration.ZERO, 1024)) {
+			CountingHandler handler = new CountingHandler();
+			journal.replay(handler);
+			return handler.count;
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+}
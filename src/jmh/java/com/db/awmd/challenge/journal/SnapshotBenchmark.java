@@ -0,0 +1,211 @@
+package com.db.awmd.challenge.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+
+/**
+ * Restart time from a snapshot plus journal tail, and the effect of snapshots taken in the
+ * background on transfer latency. Compare the p99 of {@code transfer} with snapshots disabled
+ * ({@code snapshotIntervalMillis=0}) and enabled.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SnapshotBenchmark {
+
+	private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000_000L);
+
+	private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+	private static final int LOCK_STRIPES = 1024;
+
+	@State(Scope.Benchmark)
+	public static class RestartState {
+
+		@Param({ "5000000" })
+		int accounts;
+
+		@Param({ "100000" })
+		int tailRecords;
+
+		Path directory;
+
+		@Setup(Level.Trial)
+		public void write() throws IOException {
+			directory = Files.createTempDirectory("snapshot-restart");
+			try (FileAccountsJournal journal = open(directory)) {
+				AccountsRepositoryInMemory repository = repository(journal);
+				repository.recover();
+				long sequence = 0;
+				for (int i = 0; i < accounts; i++) {
+					sequence = journal.appendAccountCreated("Id-" + i, INITIAL_BALANCE);
+				}
+				journal.awaitDurable(sequence);
+			}
+			try (FileAccountsJournal journal = open(directory)) {
+				AccountsRepositoryInMemory repository = repository(journal);
+				repository.recover();
+				repository.snapshot();
+				long sequence = 0;
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < tailRecords; i++) {
+					int from = random.nextInt(accounts);
+					int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+					sequence = journal.appendTransfer("Id-" + from, "Id-" + to, AMOUNT);
+				}
+				journal.awaitDurable(sequence);
+			}
+		}
+
+		/**
+		 * Starts every restart from an empty heap, as a real restart would, rather than behind the
+		 * repository recovered by the previous iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void collectPreviousRepository() {
+			System.gc();
+		}
+
+		@TearDown(Level.Trial)
+		public void delete() throws IOException {
+			SnapshotBenchmark.delete(directory);
+		}
+
+	}
+
+	@State(Scope.Benchmark)
+	public static class TransferState {
+
+		@Param({ "0", "1000" })
+		long snapshotIntervalMillis;
+
+		@Param({ "1000000" })
+		int accounts;
+
+		Path directory;
+
+		FileAccountsJournal journal;
+
+		AccountsRepositoryInMemory repository;
+
+		String[] accountIds;
+
+		private volatile boolean running;
+
+		private Thread snapshots;
+
+		@Setup(Level.Trial)
+		public void start() throws IOException {
+			directory = Files.createTempDirectory("snapshot-pause");
+			journal = open(directory);
+			repository = repository(journal);
+			repository.recover();
+			accountIds = new String[accounts];
+			long sequence = 0;
+			for (int i = 0; i < accounts; i++) {
+				accountIds[i] = "Id-" + i;
+				sequence = journal.appendAccountCreated(accountIds[i], INITIAL_BALANCE);
+			}
+			journal.awaitDurable(sequence);
+			journal.close();
+
+			journal = open(directory);
+			repository = repository(journal);
+			repository.recover();
+			if (snapshotIntervalMillis > 0) {
+				running = true;
+				snapshots = new Thread(() -> {
+					while (running) {
+						repository.snapshot();
+						try {
+							Thread.sleep(snapshotIntervalMillis);
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}, "benchmark-snapshots");
+				snapshots.start();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() throws Exception {
+			running = false;
+			if (snapshots != null) {
+				snapshots.interrupt();
+				snapshots.join();
+			}
+			journal.close();
+			delete(directory);
+		}
+
+	}
+
+	/**
+	 * Sized heap with a young generation large enough to hold the recovered accounts; with the
+	 * default sizing, restart time is dominated by repeatedly copying them between generations.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g", "-Xmn2g", "-XX:+UseParallelGC" })
+	public AccountsRepositoryInMemory restart(RestartState state) throws IOException {
+		try (FileAccountsJournal journal = open(state.directory)) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			return repository;
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean transfer(TransferState state) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(state.accounts);
+		int to = (from + 1 + random.nextInt(state.accounts - 1)) % state.accounts;
+		try {
+			state.repository.transfer(state.accountIds[from], state.accountIds[to], AMOUNT);
+			return true;
+		} catch (InsufficientBalanceException e) {
+			return false;
+		}
+	}
+
+	private static AccountsRepositoryInMemory repository(FileAccountsJournal journal) {
+		return AccountsRepositoryInMemory.builder().lockStripes(LOCK_STRIPES).journal(journal).build();
+	}
+
+	private static FileAccountsJournal open(Path directory) throws IOException {
+		return new FileAccountsJournal(directory, false, Duration.ZERO, 1024, 64L << 20);
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+}
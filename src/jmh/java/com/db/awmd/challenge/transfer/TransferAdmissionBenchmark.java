@@ -0,0 +1,81 @@
+package com.db.awmd.challenge.transfer;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.transfer.admission.AdaptiveConcurrencyLimit;
+import com.db.awmd.challenge.transfer.admission.LimitingTransferAdmission;
+import com.db.awmd.challenge.transfer.admission.TokenBuckets;
+import com.db.awmd.challenge.transfer.admission.TransferAdmission;
+
+/**
+ * Latency added to every transfer request by admission control: admitting a request from a random
+ * client and source account and releasing it at once. {@code none} is the disabled admission,
+ * {@code rate-limit} the client and account token buckets, {@code concurrency-limit} the adaptive
+ * limit on requests in flight and {@code both} all of them. The limits are high enough that every
+ * request is admitted, so rejections do not shorten the measured path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferAdmissionBenchmark {
+
+	@Param({ "none", "rate-limit", "concurrency-limit", "both" })
+	String admission;
+
+	@Param({ "100000" })
+	int accounts;
+
+	@Param({ "1000" })
+	int clients;
+
+	TransferAdmission transferAdmission;
+
+	String[] accountIds;
+
+	String[] clientIds;
+
+	@Setup(Level.Trial)
+	public void createAdmission() {
+		boolean rateLimit = "rate-limit".equals(admission) || "both".equals(admission);
+		boolean concurrencyLimit = "concurrency-limit".equals(admission) || "both".equals(admission);
+		if (!rateLimit && !concurrencyLimit) {
+			transferAdmission = TransferAdmission.NONE;
+		} else {
+			transferAdmission = new LimitingTransferAdmission(
+					rateLimit ? new TokenBuckets(1e9, 1_000_000, 64, 1_000_000) : null,
+					rateLimit ? new TokenBuckets(1e9, 1_000_000, 64, 1_000_000) : null,
+					concurrencyLimit ? new AdaptiveConcurrencyLimit(Duration.ofSeconds(1), 1024, 1024, 1024, 0.9,
+							System.nanoTime()) : null);
+		}
+		accountIds = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountIds[i] = "Id-" + i;
+		}
+		clientIds = new String[clients];
+		for (int i = 0; i < clients; i++) {
+			clientIds[i] = "client-" + i;
+		}
+	}
+
+	@Benchmark
+	public long admitAndRelease() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long admittedAt = transferAdmission.admit(clientIds[random.nextInt(clients)],
+				accountIds[random.nextInt(accounts)], 1);
+		transferAdmission.release(admittedAt);
+		return admittedAt;
+	}
+
+}
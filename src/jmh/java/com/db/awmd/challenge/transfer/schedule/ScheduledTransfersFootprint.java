@@ -0,0 +1,73 @@
+package com.db.awmd.challenge.transfer.schedule;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+
+/**
+ * Measures the heap retained per pending transfer by the {@link TransferScheduler}. Arguments:
+ * number of pending transfers (default 1,000,000) between how many accounts (default 10,000), due
+ * at random within the next 30 days. The account ids are shared with the accounts and every amount
+ * is distinct, as in a real schedule. Run it in a JVM of its own, e.g. {@code -Xmx2g}.
+ */
+public final class ScheduledTransfersFootprint {
+
+	private ScheduledTransfersFootprint() {
+	}
+
+	public static void main(String[] args) {
+		int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+		AccountsService accountsService = AccountsService.builder(
+				AccountsRepositoryInMemory.builder().lockStripes(1024).build(),
+				(account, description) -> {
+				}).build();
+		String[] accountIds = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], BigDecimal.valueOf(1_000_000)));
+		}
+		Clock clock = Clock.systemUTC();
+		TransferScheduler scheduler = new TransferScheduler(accountsService, new TransferScheduleProperties(), clock);
+		SplittableRandom random = new SplittableRandom(42);
+		long now = clock.millis();
+		long horizon = Duration.ofDays(30).toMillis();
+
+		long heapBefore = usedHeapAfterGc();
+		long started = System.nanoTime();
+		for (int i = 0; i < transfers; i++) {
+			int from = random.nextInt(accounts);
+			scheduler.schedule(accountIds[from], accountIds[(from + 1) % accounts], BigDecimal.valueOf(100 + i, 2),
+					Instant.ofEpochMilli(now + 60_000 + random.nextLong(horizon)), null, null);
+		}
+		long elapsed = System.nanoTime() - started;
+		long heapAfter = usedHeapAfterGc();
+		System.out.printf("scheduled %,d transfers in %d ms, %.0f ns each%n", transfers,
+				TimeUnit.NANOSECONDS.toMillis(elapsed), elapsed / (double) transfers);
+		System.out.printf("%,d bytes retained, %.1f bytes per pending transfer%n", heapAfter - heapBefore,
+				(heapAfter - heapBefore) / (double) transfers);
+		if (scheduler.countPending() != transfers) {
+			throw new IllegalStateException("Lost scheduled transfers");
+		}
+		scheduler.destroy();
+	}
+
+	private static long usedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+}
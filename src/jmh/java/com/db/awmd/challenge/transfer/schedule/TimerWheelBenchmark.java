@@ -0,0 +1,69 @@
+package com.db.awmd.challenge.transfer.schedule;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of one scheduler tick with {@code pending} transfers due at random within the next 30 days.
+ * Every transfer that expires is added again 30 days ahead at most, as a recurring transfer would
+ * be, so the number pending stays the same; the time includes expiring, moving transfers down the
+ * levels and adding them again, but not executing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimerWheelBenchmark {
+
+	private static final long TICK_MILLIS = 1000;
+
+	private static final long HORIZON_MILLIS = Duration.ofDays(30).toMillis();
+
+	@Param({ "0", "1000", "1000000" })
+	int pending;
+
+	TimerWheel<ScheduledTransfer> wheel;
+
+	long nowMillis;
+
+	final List<ScheduledTransfer> due = new ArrayList<>();
+
+	final SplittableRandom random = new SplittableRandom(42);
+
+	@Setup(Level.Trial)
+	public void createWheel() {
+		wheel = new TimerWheel<>(TICK_MILLIS, nowMillis);
+		for (int i = 0; i < pending; i++) {
+			wheel.add(new ScheduledTransfer(i, "Id-" + i, "Id-" + (i + 1), BigDecimal.ONE,
+					nowMillis + 1 + random.nextLong(HORIZON_MILLIS), TICK_MILLIS, -1));
+		}
+	}
+
+	@Benchmark
+	public int tick() {
+		nowMillis += TICK_MILLIS;
+		wheel.advance(nowMillis, due);
+		int expired = due.size();
+		for (int i = 0; i < expired; i++) {
+			ScheduledTransfer transfer = due.get(i);
+			transfer.dueMillis = nowMillis + 1 + random.nextLong(HORIZON_MILLIS);
+			wheel.add(transfer);
+		}
+		due.clear();
+		return expired;
+	}
+
+}
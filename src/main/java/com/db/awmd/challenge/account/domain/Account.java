@@ -5,8 +5,11 @@ import java.math.BigDecimal;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.Data;
@@ -20,17 +23,37 @@ public class Account {
 
 	@NotNull
 	@Min(value = 0, message = "Initial balance must be positive.")
-	private BigDecimal balance;
+	private volatile BigDecimal balance;
+
+	/**
+	 * ISO 4217 code of the currency the balance is kept in, or {@code null} for the base currency
+	 * of the exchange rates.
+	 */
+	@Pattern(regexp = "[A-Z]{3}", message = "Currency must be a three-letter ISO 4217 code.")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private final String currency;
+
+	/**
+	 * Part of the balance reserved by holds, which transfers cannot spend. Kept by repositories that
+	 * support holds, under the same lock as the balance.
+	 */
+	@JsonIgnore
+	private volatile BigDecimal held = BigDecimal.ZERO;
 
 	public Account(String accountId) {
-		this.accountId = accountId;
-		this.balance = BigDecimal.ZERO;
+		this(accountId, BigDecimal.ZERO);
+	}
+
+	public Account(String accountId, BigDecimal balance) {
+		this(accountId, balance, null);
 	}
 
 	@JsonCreator
-	public Account(@JsonProperty("accountId") String accountId, @JsonProperty("balance") BigDecimal balance) {
+	public Account(@JsonProperty("accountId") String accountId, @JsonProperty("balance") BigDecimal balance,
+			@JsonProperty("currency") String currency) {
 		this.accountId = accountId;
 		this.balance = balance;
+		this.currency = currency;
 	}
 
-}
\ No newline at end of file
+}
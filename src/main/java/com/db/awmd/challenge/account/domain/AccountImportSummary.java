@@ -0,0 +1,65 @@
+package com.db.awmd.challenge.account.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of a bulk account import: how many accounts were created, and how many were skipped
+ * because their id already existed or because they were invalid. Only the first
+ * {@value #MAX_LISTED} skipped accounts of each kind are listed. Chunks of an import are created
+ * in parallel, so recording is thread-safe.
+ */
+public class AccountImportSummary {
+
+	public static final int MAX_LISTED = 100;
+
+	private final LongAdder created = new LongAdder();
+
+	private long duplicates;
+
+	private final List<String> duplicateAccountIds = new ArrayList<>();
+
+	private long invalid;
+
+	private final List<String> errors = new ArrayList<>();
+
+	public void created(int count) {
+		created.add(count);
+	}
+
+	public synchronized void duplicate(String accountId) {
+		duplicates++;
+		if (duplicateAccountIds.size() < MAX_LISTED) {
+			duplicateAccountIds.add(accountId);
+		}
+	}
+
+	public synchronized void invalid(String error) {
+		invalid++;
+		if (errors.size() < MAX_LISTED) {
+			errors.add(error);
+		}
+	}
+
+	public long getCreated() {
+		return created.sum();
+	}
+
+	public synchronized long getDuplicates() {
+		return duplicates;
+	}
+
+	public synchronized List<String> getDuplicateAccountIds() {
+		return new ArrayList<>(duplicateAccountIds);
+	}
+
+	public synchronized long getInvalid() {
+		return invalid;
+	}
+
+	public synchronized List<String> getErrors() {
+		return new ArrayList<>(errors);
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.account.domain;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a scan over every account.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountsPage {
+
+	private List<Account> accounts;
+
+	/**
+	 * Cursor to pass back for the next page, or {@code null} if there is none.
+	 */
+	private String nextCursor;
+
+}
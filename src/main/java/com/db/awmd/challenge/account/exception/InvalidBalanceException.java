@@ -0,0 +1,11 @@
+package com.db.awmd.challenge.account.exception;
+
+public class InvalidBalanceException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidBalanceException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.account.exception;
+
+public class ScanExpiredException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ScanExpiredException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,133 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.db.awmd.challenge.util.Stripes;
+
+/**
+ * Fixed pool of locks shared by all accounts. Every account id maps to one stripe by hash, so
+ * operations on unrelated accounts rarely contend. Operations touching two accounts always lock
+ * the lower stripe index first, which rules out deadlocks between opposite-direction transfers.
+ * A stripe is first tried without waiting, so only contended acquisitions read the clock to
+ * report their wait to the {@link LockMetrics}.
+ * <p>
+ * Dedicated stripes follow the hashed ones. No account id maps to them; they are handed out by
+ * index to guard the sub-balances of hot accounts, and are ordered and locked like any other.
+ */
+class AccountLockStripes {
+
+	static final int DEFAULT_STRIPES = 1024;
+
+	private final ReentrantLock[] locks;
+
+	private final int mask;
+
+	private final LockMetrics metrics;
+
+	AccountLockStripes(int stripes) {
+		this(stripes, LockMetrics.NONE);
+	}
+
+	AccountLockStripes(int stripes, LockMetrics metrics) {
+		this(stripes, 0, metrics);
+	}
+
+	AccountLockStripes(int stripes, int dedicatedStripes, LockMetrics metrics) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("Lock stripes must be greater than zero");
+		}
+		int size = Stripes.roundUp(stripes);
+		this.locks = new ReentrantLock[size + dedicatedStripes];
+		for (int i = 0; i < locks.length; i++) {
+			this.locks[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+		this.metrics = metrics;
+	}
+
+	int size() {
+		return locks.length;
+	}
+
+	int dedicatedStripe(int index) {
+		return mask + 1 + index;
+	}
+
+	int stripeOf(String accountId) {
+		return Stripes.indexOf(accountId, mask);
+	}
+
+	void lock(int stripe) {
+		ReentrantLock lock = locks[stripe];
+		if (!lock.tryLock()) {
+			long started = System.nanoTime();
+			lock.lock();
+			metrics.contended(stripe, System.nanoTime() - started);
+		}
+	}
+
+	void unlock(int stripe) {
+		locks[stripe].unlock();
+	}
+
+	void lockBoth(int first, int second) {
+		if (first == second) {
+			lock(first);
+		} else if (first < second) {
+			lock(first);
+			lock(second);
+		} else {
+			lock(second);
+			lock(first);
+		}
+	}
+
+	void unlockBoth(int first, int second) {
+		unlock(first);
+		if (first != second) {
+			unlock(second);
+		}
+	}
+
+	/**
+	 * Sorts and de-duplicates {@code stripes} in place, then locks them in ascending order.
+	 *
+	 * @return the number of distinct stripes now held, found at the start of {@code stripes}
+	 */
+	int lockAll(int[] stripes) {
+		Arrays.sort(stripes);
+		int count = 0;
+		for (int stripe : stripes) {
+			if (count == 0 || stripes[count - 1] != stripe) {
+				stripes[count++] = stripe;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			lock(stripes[i]);
+		}
+		return count;
+	}
+
+	void unlockAll(int[] stripes, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			unlock(stripes[i]);
+		}
+	}
+
+	/**
+	 * Locks every stripe in ascending order, which excludes every other operation on the accounts.
+	 */
+	void lockEvery() {
+		for (ReentrantLock lock : locks) {
+			lock.lock();
+		}
+	}
+
+	void unlockEvery() {
+		for (int i = locks.length - 1; i >= 0; i--) {
+			locks[i].unlock();
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.util.List;
+
+import com.db.awmd.challenge.account.domain.Account;
+
+/**
+ * Cursor over every account of a repository, read a page at a time. Accounts are returned as
+ * copies, in an order of the repository's choosing, each at most once. A scan is used by one
+ * thread at a time and must be closed, since a consistent scan keeps balances for as long as it is
+ * open.
+ */
+public interface AccountScan extends AutoCloseable {
+
+	/**
+	 * Returns up to {@code limit} more accounts, fewer only once every account was returned.
+	 */
+	List<Account> next(int limit);
+
+	@Override
+	void close();
+
+}
@@ -0,0 +1,149 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+/**
+ * One partition of {@link AccountsRepositorySharded}. Its accounts and reservations are only ever
+ * touched by the shard's own thread, so they need no locking; callers submit work and wait for it.
+ */
+final class AccountShard {
+
+	private final Map<String, Account> accounts = new HashMap<>();
+
+	private final Map<Long, Reservation> reservations = new HashMap<>();
+
+	private final ExecutorService writer;
+
+	AccountShard(int index) {
+		this.writer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "accounts-shard-" + index);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Runs {@code task} on the shard thread and waits for it, rethrowing its exception unchanged.
+	 */
+	<T> T call(Supplier<T> task) {
+		try {
+			return CompletableFuture.supplyAsync(task, writer).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	void run(Runnable task) {
+		call(() -> {
+			task.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Runs {@code task} on the shard thread without waiting for it.
+	 */
+	void submit(Runnable task) {
+		writer.execute(task);
+	}
+
+	void shutdown() {
+		writer.shutdown();
+	}
+
+	// The methods below must only be called from the shard thread.
+
+	boolean putIfAbsent(Account account) {
+		return accounts.putIfAbsent(account.getAccountId(), account) == null;
+	}
+
+	Account get(String accountId) {
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			throw new AccountNotFoundException("Account id " + accountId + " not found");
+		}
+		return account;
+	}
+
+	Account find(String accountId) {
+		return accounts.get(accountId);
+	}
+
+	int size() {
+		return accounts.size();
+	}
+
+	void clear() {
+		accounts.clear();
+		reservations.clear();
+	}
+
+	boolean tryDebit(Account account, BigDecimal amount) {
+		if (amount.compareTo(account.getBalance()) > 0) {
+			return false;
+		}
+		account.setBalance(account.getBalance().subtract(amount));
+		return true;
+	}
+
+	void credit(Account account, BigDecimal amount) {
+		account.setBalance(account.getBalance().add(amount));
+	}
+
+	/**
+	 * First phase of a cross-shard transfer: takes {@code amount} out of the account and holds it
+	 * under {@code reservationId} until it is committed or released.
+	 *
+	 * @return {@link TransferResult#completed()} once reserved, or why nothing was reserved
+	 */
+	TransferResult reserve(long reservationId, String accountId, BigDecimal amount) {
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			return TransferResult.accountNotFound(accountId);
+		}
+		if (!tryDebit(account, amount)) {
+			return TransferResult.insufficientBalance(accountId);
+		}
+		reservations.put(reservationId, new Reservation(account, amount));
+		return TransferResult.completed();
+	}
+
+	void commit(long reservationId) {
+		reservations.remove(reservationId);
+	}
+
+	void release(long reservationId) {
+		Reservation reservation = reservations.remove(reservationId);
+		if (reservation != null) {
+			credit(reservation.account, reservation.amount);
+		}
+	}
+
+	private static final class Reservation {
+
+		private final Account account;
+
+		private final BigDecimal amount;
+
+		private Reservation(Account account, BigDecimal amount) {
+			this.account = account;
+			this.amount = amount;
+		}
+
+	}
+
+}
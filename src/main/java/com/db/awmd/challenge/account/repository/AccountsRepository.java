@@ -1,18 +1,154 @@
 package com.db.awmd.challenge.account.repository;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
 import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.account.exception.InvalidBalanceException;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
 import com.db.awmd.challenge.transfer.exception.TransferException;
 
 public interface AccountsRepository {
 
+	/**
+	 * Creates an account.
+	 *
+	 * @throws UnsupportedOperationException if the account has a currency and this repository keeps
+	 *             every balance in the base currency
+	 */
 	void createAccount(Account account) throws DuplicateAccountIdException;
 
+	/**
+	 * Creates accounts in bulk. Accounts whose id already exists, or whose balance or currency this
+	 * repository cannot hold, are skipped and recorded in {@code summary}; the others are created.
+	 *
+	 * @return the number of accounts created
+	 */
+	default int createAccounts(List<Account> accounts, AccountImportSummary summary) {
+		int created = 0;
+		for (Account account : accounts) {
+			try {
+				createAccount(account);
+				created++;
+			} catch (DuplicateAccountIdException e) {
+				summary.duplicate(account.getAccountId());
+			} catch (InvalidBalanceException | UnsupportedOperationException e) {
+				summary.invalid(account.getAccountId() + ": " + e.getMessage());
+			}
+		}
+		return created;
+	}
+
 	Account getAccount(String accountId);
 
+	/**
+	 * Returns the account without waiting for locks, for callers that address its owner rather than
+	 * rely on its balance, such as notifications. The balance may leave out transfers in progress.
+	 * The default implementation is {@link #getAccount(String)}.
+	 */
+	default Account peekAccount(String accountId) {
+		return getAccount(accountId);
+	}
+
 	void clearAccounts();
 
-	void transfer(String accountFromId, String accountToId, BigDecimal amount) throws TransferException;
+	int countAccounts();
+
+	/**
+	 * Opens a scan over every account. A consistent scan returns every balance as it was when the
+	 * scan was opened, so the balances it returns always add up to the same total, and leaves out
+	 * accounts created since. Otherwise each balance is read when the scan reaches it.
+	 *
+	 * @throws UnsupportedOperationException if this repository does not support the scan
+	 */
+	default AccountScan openScan(boolean consistent) {
+		throw new UnsupportedOperationException("Account scans are not supported by " + getClass().getSimpleName());
+	}
+
+	/**
+	 * Moves {@code amount} between two accounts. Expected failures, such as an insufficient
+	 * balance or an unknown account, are returned rather than thrown.
+	 *
+	 * @return {@link TransferResult#completed()} or the reason the transfer was rejected
+	 */
+	TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount);
+
+	/**
+	 * Like {@link #tryTransfer(String, String, BigDecimal)}, but returns without waiting for a
+	 * repository that applies transfers on threads of its own. The default implementation
+	 * transfers on the calling thread.
+	 */
+	default CompletableFuture<TransferResult> tryTransferAsync(String accountFromId, String accountToId,
+			BigDecimal amount) {
+		try {
+			return CompletableFuture.completedFuture(tryTransfer(accountFromId, accountToId, amount));
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Moves {@code amount} between two accounts, throwing the exception matching the reason a
+	 * rejected transfer failed.
+	 */
+	default void transfer(String accountFromId, String accountToId, BigDecimal amount) throws TransferException {
+		TransferResult result = tryTransfer(accountFromId, accountToId, amount);
+		if (!result.isCompleted()) {
+			throw result.toException();
+		}
+	}
+
+	/**
+	 * Holds {@code amount} of the account's balance: the balance stays the same, but transfers can
+	 * only spend what is not held. Holds are counted as one total per account and are not journaled.
+	 *
+	 * @return {@link TransferResult#completed()} or the reason the amount cannot be held
+	 * @throws UnsupportedOperationException if this repository does not support holds
+	 */
+	default TransferResult tryHold(String accountId, BigDecimal amount) {
+		throw new UnsupportedOperationException("Holds are not supported by " + getClass().getSimpleName());
+	}
+
+	/**
+	 * Makes {@code amount} held by {@link #tryHold} available again. Nothing is released from an
+	 * account that no longer exists.
+	 */
+	default void releaseHold(String accountId, BigDecimal amount) {
+		throw new UnsupportedOperationException("Holds are not supported by " + getClass().getSimpleName());
+	}
+
+	/**
+	 * Releases {@code held} from the source account and moves {@code amount}, at most what was held,
+	 * to the destination as a single step, like {@link #tryTransfer}. A rejected capture releases
+	 * nothing.
+	 *
+	 * @throws UnsupportedOperationException if this repository does not support holds
+	 */
+	default TransferResult tryCapture(String accountFromId, String accountToId, BigDecimal held,
+			BigDecimal amount) {
+		throw new UnsupportedOperationException("Holds are not supported by " + getClass().getSimpleName());
+	}
+
+	/**
+	 * Applies a batch of transfers and returns one result per transfer, in order. The default
+	 * implementation applies them one by one and only supports {@link BatchMode#BEST_EFFORT}.
+	 *
+	 * @throws UnsupportedOperationException if the mode is not supported by this repository
+	 */
+	default List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) {
+		if (mode != BatchMode.BEST_EFFORT) {
+			throw new UnsupportedOperationException(mode + " batches are not supported by " + getClass().getSimpleName());
+		}
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		for (Transfer transfer : transfers) {
+			results.add(tryTransfer(transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmount()));
+		}
+		return results;
+	}
 }
@@ -0,0 +1,154 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.account.exception.InvalidBalanceException;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+/**
+ * Lock-free alternative to {@link AccountsRepositoryInMemory}. Balances are kept as fixed-scale
+ * minor units and updated with compare-and-set, so a transfer allocates nothing on the success
+ * path. The debit fails fast when funds are insufficient and is compensated if the credit would
+ * overflow. The two legs are not applied as one step: a concurrent reader may see the source
+ * already debited and the destination not yet credited, but never a negative balance. Accounts are
+ * exposed as {@link Account} snapshots, so callers keep working with {@link BigDecimal}. Hot
+ * accounts split into sub-balances are only supported by {@link AccountsRepositoryInMemory}.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "atomic")
+public class AccountsRepositoryAtomic implements AccountsRepository {
+
+	private final Map<String, AtomicBalance> balances = new ConcurrentHashMap<>();
+
+	private final FixedScale fixedScale;
+
+	@Autowired
+	public AccountsRepositoryAtomic(AccountsRepositoryProperties properties) {
+		this(properties.getBalanceScale());
+	}
+
+	public AccountsRepositoryAtomic(int balanceScale) {
+		this.fixedScale = new FixedScale(balanceScale);
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		if (account.getCurrency() != null) {
+			throw new UnsupportedOperationException(
+					"Accounts in a currency are not supported by " + getClass().getSimpleName());
+		}
+		long units;
+		try {
+			units = fixedScale.toUnits(account.getBalance());
+		} catch (ArithmeticException e) {
+			throw new InvalidBalanceException("Balance " + account.getBalance() + " exceeds " + fixedScale.getScale()
+					+ " decimal places or the maximum of " + fixedScale.getMaxValue());
+		}
+		AtomicBalance previous = balances.putIfAbsent(account.getAccountId(),
+				new AtomicBalance(account.getAccountId(), units));
+		if (previous != null) {
+			throw new DuplicateAccountIdException("Account id " + account.getAccountId() + " already exists!");
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) throws AccountNotFoundException {
+		AtomicBalance balance = getBalance(accountId);
+		return new Account(accountId, fixedScale.toBigDecimal(balance.get()));
+	}
+
+	@Override
+	public void clearAccounts() {
+		balances.clear();
+	}
+
+	@Override
+	public int countAccounts() {
+		return balances.size();
+	}
+
+	@Override
+	public TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		if (accountFromId.equals(accountToId)) {
+			return TransferResult.sameAccount();
+		}
+		if (amount.signum() <= 0) {
+			return TransferResult.invalidAmount();
+		}
+		long units;
+		try {
+			units = fixedScale.toUnits(amount);
+		} catch (ArithmeticException e) {
+			return TransferResult.invalidAmount("Transfer amount " + amount + " exceeds " + fixedScale.getScale()
+					+ " decimal places or the maximum of " + fixedScale.getMaxValue());
+		}
+
+		AtomicBalance accountFrom = balances.get(accountFromId);
+		if (accountFrom == null) {
+			return TransferResult.accountNotFound(accountFromId);
+		}
+		AtomicBalance accountTo = balances.get(accountToId);
+		if (accountTo == null) {
+			return TransferResult.accountNotFound(accountToId);
+		}
+
+		if (!accountFrom.tryDebit(units)) {
+			return TransferResult.insufficientBalance(accountFromId);
+		}
+		if (!accountTo.tryCredit(units)) {
+			accountFrom.tryCredit(units);
+			return TransferResult.invalidAmount("Transfer would overflow the balance of account " + accountToId);
+		}
+		return TransferResult.completed();
+	}
+
+	/**
+	 * Only scans reading each balance when it is reached are supported, since the two legs of a
+	 * transfer are not applied as one step.
+	 */
+	@Override
+	public AccountScan openScan(boolean consistent) {
+		if (consistent) {
+			throw new UnsupportedOperationException("Consistent scans are not supported by " + getClass().getSimpleName());
+		}
+		Iterator<AtomicBalance> iterator = balances.values().iterator();
+		return new AccountScan() {
+
+			@Override
+			public List<Account> next(int limit) {
+				List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+				while (page.size() < limit && iterator.hasNext()) {
+					AtomicBalance balance = iterator.next();
+					page.add(new Account(balance.getAccountId(), fixedScale.toBigDecimal(balance.get())));
+				}
+				return page;
+			}
+
+			@Override
+			public void close() {
+			}
+
+		};
+	}
+
+	private AtomicBalance getBalance(String accountId) {
+		AtomicBalance balance = balances.get(accountId);
+		if (balance == null) {
+			throw new AccountNotFoundException("Account id " + accountId + " not found");
+		}
+		return balance;
+	}
+
+}
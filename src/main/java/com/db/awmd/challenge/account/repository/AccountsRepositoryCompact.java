@@ -0,0 +1,214 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.account.exception.InvalidBalanceException;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+/**
+ * Accounts kept without an object per account, for stores of tens of millions of accounts. A
+ * {@link CompactAccountTable} holds the ids and the balances as fixed-scale minor units in
+ * primitive arrays, and balances are updated under the striped account locks. {@link Account}
+ * objects are only created by {@link #getAccount(String)}, at the API boundary, so the heap holds
+ * a few large arrays that the garbage collector scans without following any references. Not
+ * journaled.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "compact")
+public class AccountsRepositoryCompact implements AccountsRepository {
+
+	private final CompactAccountTable table = new CompactAccountTable();
+
+	private final AccountLockStripes lockStripes;
+
+	private final FixedScale fixedScale;
+
+	private final LockMetrics lockMetrics;
+
+	@Autowired
+	public AccountsRepositoryCompact(AccountsRepositoryProperties properties, LockMetrics lockMetrics) {
+		this(properties.getLockStripes(), properties.getBalanceScale(), lockMetrics);
+	}
+
+	public AccountsRepositoryCompact(int lockStripes, int balanceScale) {
+		this(lockStripes, balanceScale, LockMetrics.NONE);
+	}
+
+	public AccountsRepositoryCompact(int lockStripes, int balanceScale, LockMetrics lockMetrics) {
+		this.lockStripes = new AccountLockStripes(lockStripes, lockMetrics);
+		this.fixedScale = new FixedScale(balanceScale);
+		this.lockMetrics = lockMetrics;
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		if (account.getCurrency() != null) {
+			throw new UnsupportedOperationException(
+					"Accounts in a currency are not supported by " + getClass().getSimpleName());
+		}
+		if (table.add(account.getAccountId(), toUnits(account.getBalance())) < 0) {
+			throw new DuplicateAccountIdException("Account id " + account.getAccountId() + " already exists!");
+		}
+	}
+
+	@Override
+	public int createAccounts(List<Account> accounts, AccountImportSummary summary) {
+		int created = 0;
+		for (Account account : accounts) {
+			if (account.getCurrency() != null) {
+				summary.invalid(account.getAccountId() + ": accounts in a currency are not supported by "
+						+ getClass().getSimpleName());
+				continue;
+			}
+			long units;
+			try {
+				units = toUnits(account.getBalance());
+			} catch (InvalidBalanceException e) {
+				summary.invalid(account.getAccountId() + ": " + e.getMessage());
+				continue;
+			}
+			if (table.add(account.getAccountId(), units) < 0) {
+				summary.duplicate(account.getAccountId());
+			} else {
+				created++;
+			}
+		}
+		return created;
+	}
+
+	private long toUnits(BigDecimal balance) {
+		try {
+			return fixedScale.toUnits(balance);
+		} catch (ArithmeticException e) {
+			throw new InvalidBalanceException("Balance " + balance + " exceeds " + fixedScale.getScale()
+					+ " decimal places or the maximum of " + fixedScale.getMaxValue());
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) throws AccountNotFoundException {
+		int stripe = lockStripes.stripeOf(accountId);
+		long units;
+		lockStripes.lock(stripe);
+		try {
+			int number = table.find(accountId);
+			if (number < 0) {
+				throw new AccountNotFoundException("Account id " + accountId + " not found");
+			}
+			units = table.balance(number);
+		} finally {
+			lockStripes.unlock(stripe);
+		}
+		return new Account(accountId, fixedScale.toBigDecimal(units));
+	}
+
+	@Override
+	public void clearAccounts() {
+		lockStripes.lockEvery();
+		try {
+			table.clear();
+		} finally {
+			lockStripes.unlockEvery();
+		}
+	}
+
+	@Override
+	public int countAccounts() {
+		return table.size();
+	}
+
+	/**
+	 * Scans the accounts in the order they were created. Only scans reading each balance when it is
+	 * reached are supported, since balances are not kept as of a cut.
+	 */
+	@Override
+	public AccountScan openScan(boolean consistent) {
+		if (consistent) {
+			throw new UnsupportedOperationException("Consistent scans are not supported by " + getClass().getSimpleName());
+		}
+		return new AccountScan() {
+
+			private int number;
+
+			@Override
+			public List<Account> next(int limit) {
+				List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+				String accountId;
+				while (page.size() < limit && (accountId = table.accountId(number++)) != null) {
+					try {
+						page.add(getAccount(accountId));
+					} catch (AccountNotFoundException e) {
+						// Cleared since its id was read.
+					}
+				}
+				return page;
+			}
+
+			@Override
+			public void close() {
+			}
+
+		};
+	}
+
+	/**
+	 * Accounts are looked up with their stripes held, which keeps {@link #clearAccounts()} from
+	 * renumbering them in between.
+	 */
+	@Override
+	public TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		if (accountFromId.equals(accountToId)) {
+			return TransferResult.sameAccount();
+		}
+		if (amount.signum() <= 0) {
+			return TransferResult.invalidAmount();
+		}
+		long units;
+		try {
+			units = fixedScale.toUnits(amount);
+		} catch (ArithmeticException e) {
+			return TransferResult.invalidAmount("Transfer amount " + amount + " exceeds " + fixedScale.getScale()
+					+ " decimal places or the maximum of " + fixedScale.getMaxValue());
+		}
+
+		int stripeFrom = lockStripes.stripeOf(accountFromId);
+		int stripeTo = lockStripes.stripeOf(accountToId);
+		lockStripes.lockBoth(stripeFrom, stripeTo);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			int accountFrom = table.find(accountFromId);
+			if (accountFrom < 0) {
+				return TransferResult.accountNotFound(accountFromId);
+			}
+			int accountTo = table.find(accountToId);
+			if (accountTo < 0) {
+				return TransferResult.accountNotFound(accountToId);
+			}
+			long balanceFrom = table.balance(accountFrom);
+			if (units > balanceFrom) {
+				return TransferResult.insufficientBalance(accountFromId);
+			}
+			long balanceTo = table.balance(accountTo);
+			if (balanceTo > Long.MAX_VALUE - units) {
+				return TransferResult.invalidAmount("Transfer would overflow the balance of account " + accountToId);
+			}
+			table.setBalance(accountFrom, balanceFrom - units);
+			table.setBalance(accountTo, balanceTo + units);
+		} finally {
+			lockStripes.unlockBoth(stripeFrom, stripeTo);
+			lockMetrics.held(lockedAt);
+		}
+		return TransferResult.completed();
+	}
+
+}
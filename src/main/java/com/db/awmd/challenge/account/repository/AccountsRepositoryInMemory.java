@@ -1,90 +1,1005 @@
 package com.db.awmd.challenge.account.repository;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
 import com.db.awmd.challenge.account.exception.AccountNotFoundException;
 import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
-import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
-import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
-import com.db.awmd.challenge.transfer.exception.SameAccountTransferException;
-import com.db.awmd.challenge.transfer.exception.TransferException;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.fx.ExchangeRates;
+import com.db.awmd.challenge.journal.AccountsJournal;
+import com.db.awmd.challenge.journal.JournalException;
+import com.db.awmd.challenge.journal.JournalRecordHandler;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.util.Stripes;
+
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Accounts kept in a {@link ConcurrentHashMap} and updated under striped account locks. When an
+ * {@link AccountsJournal} is configured, every change is journaled while its locks are held and
+ * acknowledged once durable, and {@link #recover()} rebuilds the accounts from the journal on
+ * startup. {@link #snapshot()} writes every balance to the journal as of a consistent cut, without
+ * stopping transfers, so that older journal records can be discarded. Consistent scans read the
+ * balances through a cut of their own.
+ * <p>
+ * Accounts configured as hot are kept as {@link HotAccount}s, whose sub-balances are guarded by
+ * dedicated lock stripes instead of the stripe of the account id.
+ * <p>
+ * Accounts may be kept in different currencies. A transfer between them debits the amount in the
+ * currency of the source and credits it converted at the {@link ExchangeRates} in effect, read
+ * without locks before the account stripes are taken; the journal records both amounts.
+ * <p>
+ * Holds add to the held total of an account under its stripe, and transfers check the balance
+ * less that total, so a balance check costs the same however many holds there are. Hot accounts
+ * cannot be held.
+ * <p>
+ * Changes are applied before they are journaled, so once the journal fails the accounts may hold
+ * changes it does not. The repository then fails closed: every later read and change fails until
+ * the application is restarted and recovers from the journal.
+ */
 @Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "in-memory", matchIfMissing = true)
+@Slf4j
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-	private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+	private static final SnapshotCut[] NO_CUTS = {};
+
+	// Replaced rather than emptied by clearAccounts(), so open cuts keep the accounts they cover.
+	private volatile Map<String, Account> accounts;
+
+	private final int expectedAccounts;
+
+	private final AccountLockStripes lockStripes;
+
+	private final AccountsJournal journal;
+
+	private final LockMetrics lockMetrics;
+
+	private final ExchangeRateTable exchangeRates;
+
+	/**
+	 * Index of every hot account id, which selects its dedicated lock stripes.
+	 */
+	private final Map<String, Integer> hotAccountIndexes = new HashMap<>();
+
+	private final int hotAccountStripes;
+
+	private final ReentrantLock snapshotLock = new ReentrantLock();
+
+	// Cuts open over the current map, copied on write and guarded by this.
+	private volatile SnapshotCut[] cuts = NO_CUTS;
+
+	// Guarded by snapshotLock.
+	private long snapshotSequence;
+
+	// Set by the first change the journal fails to append or make durable.
+	private volatile RuntimeException journalFailure;
+
+	@Autowired
+	public AccountsRepositoryInMemory(AccountsRepositoryProperties properties, AccountsJournal journal,
+			LockMetrics lockMetrics, ExchangeRateTable exchangeRates) {
+		if (properties.getHotAccountStripes() <= 0) {
+			throw new IllegalArgumentException("Hot account stripes must be greater than zero");
+		}
+		if (properties.getExpectedAccounts() < 0) {
+			throw new IllegalArgumentException("Expected accounts must not be negative");
+		}
+		this.expectedAccounts = properties.getExpectedAccounts();
+		this.accounts = new ConcurrentHashMap<>(expectedAccounts);
+		int subBalances = Stripes.roundUp(properties.getHotAccountStripes());
+		for (String accountId : properties.getHotAccounts()) {
+			hotAccountIndexes.putIfAbsent(accountId, hotAccountIndexes.size());
+		}
+		this.hotAccountStripes = subBalances;
+		this.lockStripes = new AccountLockStripes(properties.getLockStripes(), hotAccountIndexes.size() * subBalances,
+				lockMetrics);
+		this.journal = journal;
+		this.lockMetrics = lockMetrics;
+		this.exchangeRates = exchangeRates;
+	}
+
+	/**
+	 * Returns a builder for repositories created outside Spring, such as in tests and benchmarks.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Rebuilds the accounts by replaying the journal. Journaled transfers were validated when they
+	 * were applied, so they are replayed without checks other than that both accounts exist.
+	 *
+	 * @throws JournalException if a transfer names an account that does not exist at that point
+	 */
+	@PostConstruct
+	public void recover() {
+		long started = System.nanoTime();
+		long records = journal.replay(new JournalRecordHandler() {
+
+			@Override
+			public void accountCreated(long sequence, String accountId, BigDecimal balance) {
+				accountCreated(sequence, accountId, balance, null);
+			}
+
+			@Override
+			public void accountCreated(long sequence, String accountId, BigDecimal balance, String currency) {
+				accounts.put(accountId, newAccount(accountId, balance, currency));
+			}
+
+			@Override
+			public void transferred(long sequence, String accountFromId, String accountToId, BigDecimal amount) {
+				exchanged(sequence, accountFromId, accountToId, amount, amount);
+			}
+
+			@Override
+			public void exchanged(long sequence, String accountFromId, String accountToId, BigDecimal debited,
+					BigDecimal credited) {
+				withdraw(replayed(sequence, accountFromId), debited);
+				deposit(replayed(sequence, accountToId), credited);
+			}
+
+			private Account replayed(long sequence, String accountId) {
+				Account account = accounts.get(accountId);
+				if (account == null) {
+					throw new JournalException("Journal record " + sequence + " transfers with account " + accountId
+							+ ", which does not exist");
+				}
+				return account;
+			}
+
+			@Override
+			public void accountsCleared(long sequence) {
+				accounts.clear();
+			}
+
+		});
+		if (records > 0) {
+			log.info("Recovered {} accounts from {} journal records in {} ms", accounts.size(), records,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		}
+	}
 
 	@Override
 	public void createAccount(Account account) throws DuplicateAccountIdException {
-		Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
-		if (previousAccount != null) {
+		checkJournal();
+		long sequence = create(account);
+		if (sequence < 0) {
 			throw new DuplicateAccountIdException("Account id " + account.getAccountId() + " already exists!");
 		}
+		awaitDurable(sequence);
+	}
+
+	/**
+	 * Creates the accounts a stripe at a time, taking every stripe once for all of its accounts
+	 * rather than once per account, and waits once for all of them to be durable. A stripe is held
+	 * for its own accounts only, a handful for a chunk of an import.
+	 */
+	@Override
+	public int createAccounts(List<Account> newAccounts, AccountImportSummary summary) {
+		checkJournal();
+		// Counting sort by stripe, which keeps the order of the accounts of each stripe.
+		int[] stripes = new int[newAccounts.size()];
+		int[] ends = new int[lockStripes.size()];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = lockStripes.stripeOf(newAccounts.get(i).getAccountId());
+			if (stripes[i] + 1 < ends.length) {
+				ends[stripes[i] + 1]++;
+			}
+		}
+		for (int stripe = 1; stripe < ends.length; stripe++) {
+			ends[stripe] += ends[stripe - 1];
+		}
+		Account[] sorted = new Account[stripes.length];
+		for (int i = 0; i < stripes.length; i++) {
+			sorted[ends[stripes[i]]++] = newAccounts.get(i);
+		}
+
+		long lastSequence = 0;
+		int created = 0;
+		for (int stripe = 0, start = 0; stripe < ends.length; start = ends[stripe++]) {
+			if (start == ends[stripe]) {
+				continue;
+			}
+			lockStripes.lock(stripe);
+			long lockedAt = lockMetrics.startTime();
+			try {
+				Map<String, Account> accounts = this.accounts;
+				for (int i = start; i < ends[stripe]; i++) {
+					long sequence = create(accounts, sorted[i]);
+					if (sequence < 0) {
+						summary.duplicate(sorted[i].getAccountId());
+					} else {
+						lastSequence = sequence;
+						created++;
+					}
+				}
+			} finally {
+				lockStripes.unlock(stripe);
+				lockMetrics.held(lockedAt);
+			}
+		}
+		awaitDurable(lastSequence);
+		return created;
+	}
+
+	/**
+	 * Adds and journals the account without waiting for the journal.
+	 *
+	 * @return the journal sequence of the account, or {@code -1} if its id already exists
+	 */
+	private long create(Account account) {
+		int stripe = lockStripes.stripeOf(account.getAccountId());
+		lockStripes.lock(stripe);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			return create(accounts, account);
+		} finally {
+			lockStripes.unlock(stripe);
+			lockMetrics.held(lockedAt);
+		}
+	}
+
+	/**
+	 * Like {@link #create(Account)}, with the stripe of the account held.
+	 */
+	private long create(Map<String, Account> accounts, Account account) {
+		if (accounts.containsKey(account.getAccountId())) {
+			return -1;
+		}
+		for (SnapshotCut cut : cuts) {
+			cut.created(account.getAccountId());
+		}
+		accounts.put(account.getAccountId(), hotAccountIndexes.containsKey(account.getAccountId())
+				? newAccount(account.getAccountId(), account.getBalance(), account.getCurrency())
+				: account);
+		try {
+			return journal.appendAccountCreated(account.getAccountId(), account.getBalance(), account.getCurrency());
+		} catch (RuntimeException e) {
+			throw failJournal(e);
+		}
 	}
 
 	@Override
 	public Account getAccount(String accountId) throws AccountNotFoundException {
+		checkJournal();
 		Account account = accounts.get(accountId);
 		if (account == null) {
 			throw new AccountNotFoundException("Account id " + accountId + " not found");
 		}
+		if (account instanceof HotAccount) {
+			return totalOf((HotAccount) account);
+		}
+		return account;
+	}
+
+	/**
+	 * Returns a hot account without locking its sub-balances, with their sum as last seen by this
+	 * thread.
+	 */
+	@Override
+	public Account peekAccount(String accountId) {
+		checkJournal();
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			throw new AccountNotFoundException("Account id " + accountId + " not found");
+		}
+		if (account instanceof HotAccount) {
+			return new Account(accountId, account.getBalance(), account.getCurrency());
+		}
 		return account;
 	}
 
+	/**
+	 * Returns a copy of the hot account with the exact sum of its sub-balances, read while every
+	 * sub-balance is locked.
+	 */
+	private Account totalOf(HotAccount account) {
+		int[] stripes = account.stripes();
+		int lockCount = lockStripes.lockAll(stripes);
+		try {
+			return new Account(account.getAccountId(), account.getBalance(), account.getCurrency());
+		} finally {
+			lockStripes.unlockAll(stripes, lockCount);
+		}
+	}
+
+	/**
+	 * Starts over with an empty map, so that snapshots and scans in progress carry on over the
+	 * accounts as they were. The map they read no longer changes, so their cuts stop preserving
+	 * balances.
+	 */
 	@Override
 	public void clearAccounts() {
-		accounts.clear();
+		checkJournal();
+		long sequence;
+		lockStripes.lockEvery();
+		try {
+			accounts = new ConcurrentHashMap<>(expectedAccounts);
+			synchronized (this) {
+				cuts = NO_CUTS;
+			}
+			sequence = journal.appendAccountsCleared();
+		} catch (RuntimeException e) {
+			throw failJournal(e);
+		} finally {
+			lockStripes.unlockEvery();
+		}
+		awaitDurable(sequence);
 	}
 
-	private void deposit(Account account, BigDecimal amount) {
-		accounts.computeIfPresent(account.getAccountId(), (id, acc) -> {
-			acc.setBalance(acc.getBalance().add(amount));
-			return acc;
-		});
+	@Override
+	public int countAccounts() {
+		checkJournal();
+		return accounts.size();
+	}
+
+	/**
+	 * Writes a snapshot of every account to the journal. Every stripe is locked only long enough to
+	 * open a {@link SnapshotCut} at the current journal sequence; the accounts are then written
+	 * while transfers carry on, each with the balance it had at the cut. Nothing is written if
+	 * nothing was journaled since the previous snapshot.
+	 *
+	 * @return the journal sequence number the snapshot was taken at
+	 */
+	public long snapshot() {
+		checkJournal();
+		snapshotLock.lock();
+		try {
+			if (journal.lastSequence() == snapshotSequence) {
+				return snapshotSequence;
+			}
+			SnapshotCut cut = openCut();
+			try {
+				journal.writeSnapshot(cut.getSequence(), writer -> {
+					for (Account account : cut.getAccounts()) {
+						BigDecimal balance = cut.balanceAtCut(account);
+						if (balance != null) {
+							writer.write(account.getAccountId(), balance, account.getCurrency());
+						}
+					}
+				});
+			} finally {
+				closeCut(cut);
+			}
+			snapshotSequence = cut.getSequence();
+			return snapshotSequence;
+		} finally {
+			snapshotLock.unlock();
+		}
+	}
+
+	/**
+	 * Scans the live accounts, each copied with the balance it has when reached, or through a cut of
+	 * its own when consistent. The cut costs an entry for every account changed while the scan is
+	 * open.
+	 */
+	@Override
+	public AccountScan openScan(boolean consistent) {
+		checkJournal();
+		SnapshotCut cut = consistent ? openCut() : null;
+		Iterator<Account> iterator = (cut != null ? cut.getAccounts() : accounts.values()).iterator();
+		return new AccountScan() {
+
+			@Override
+			public List<Account> next(int limit) {
+				List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+				while (page.size() < limit && iterator.hasNext()) {
+					Account account = iterator.next();
+					if (cut == null) {
+						page.add(account instanceof HotAccount ? totalOf((HotAccount) account)
+								: new Account(account.getAccountId(), account.getBalance(), account.getCurrency()));
+					} else {
+						BigDecimal balance = cut.balanceAtCut(account);
+						if (balance != null) {
+							page.add(new Account(account.getAccountId(), balance, account.getCurrency()));
+						}
+					}
+				}
+				return page;
+			}
 
+			@Override
+			public void close() {
+				if (cut != null) {
+					closeCut(cut);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Opens a cut at the current journal sequence. Every stripe is locked only long enough to
+	 * register it, so no change is half applied at the cut.
+	 */
+	private SnapshotCut openCut() {
+		lockStripes.lockEvery();
+		try {
+			SnapshotCut cut = new SnapshotCut(journal.lastSequence(), accounts);
+			// Hot accounts change under their own stripes, so their totals are taken while every
+			// stripe is held.
+			for (String accountId : hotAccountIndexes.keySet()) {
+				Account account = accounts.get(accountId);
+				if (account != null) {
+					cut.preserve(account);
+				}
+			}
+			synchronized (this) {
+				cuts = Arrays.copyOf(cuts, cuts.length + 1);
+				cuts[cuts.length - 1] = cut;
+			}
+			return cut;
+		} finally {
+			lockStripes.unlockEvery();
+		}
+	}
+
+	private synchronized void closeCut(SnapshotCut cut) {
+		List<SnapshotCut> open = new ArrayList<>(Arrays.asList(cuts));
+		open.remove(cut);
+		cuts = open.isEmpty() ? NO_CUTS : open.toArray(NO_CUTS);
+	}
+
+	private Account newAccount(String accountId, BigDecimal balance, String currency) {
+		Integer index = hotAccountIndexes.get(accountId);
+		if (index == null) {
+			return new Account(accountId, balance, currency);
+		}
+		return new HotAccount(accountId, balance, currency, lockStripes.dedicatedStripe(index * hotAccountStripes),
+				hotAccountStripes);
+	}
+
+	private void deposit(Account account, BigDecimal amount) {
+		account.setBalance(account.getBalance().add(amount));
 	}
 
 	private void withdraw(Account account, BigDecimal amount) {
-		accounts.computeIfPresent(account.getAccountId(), (id, acc) -> {
-			acc.setBalance(acc.getBalance().subtract(amount));
-			return acc;
-		});
+		account.setBalance(account.getBalance().subtract(amount));
+	}
+
+	/**
+	 * Returns whether the account is still the one kept under its id. Accounts are read before their
+	 * stripes are locked, so this is checked once the stripe is held: {@link #clearAccounts()} holds
+	 * every stripe while it replaces the map, and a change to an account it dropped would be lost.
+	 */
+	private boolean isCurrent(Account account) {
+		return accounts.get(account.getAccountId()) == account;
+	}
+
+	/**
+	 * Returns why a transfer between accounts that {@link #clearAccounts()} dropped since they were
+	 * read cannot be applied, or {@code null}.
+	 */
+	private TransferResult checkCurrent(Account accountFrom, Account accountTo) {
+		if (!isCurrent(accountFrom)) {
+			return TransferResult.accountNotFound(accountFrom.getAccountId());
+		}
+		if (!isCurrent(accountTo)) {
+			return TransferResult.accountNotFound(accountTo.getAccountId());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns what transfers can spend of a balance with {@code held} of it held.
+	 */
+	private static BigDecimal spendable(BigDecimal balance, BigDecimal held) {
+		return held.signum() == 0 ? balance : balance.subtract(held);
+	}
+
+	/**
+	 * Returns the held total of the account once {@code released} is released. Holds on an account
+	 * cleared since are gone already, so the total never drops below zero.
+	 */
+	private static BigDecimal heldAfter(Account account, BigDecimal released) {
+		BigDecimal held = account.getHeld();
+		return released.signum() == 0 ? held : held.subtract(released).max(BigDecimal.ZERO);
+	}
+
+	/**
+	 * Moves {@code amount} between two accounts as a single step. Both account stripes are held
+	 * while the balance is checked and both balances are updated, so concurrent transfers can
+	 * neither overdraw the source nor observe a half-applied transfer.
+	 */
+	@Override
+	public TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		return tryTransfer(accountFromId, accountToId, amount, BigDecimal.ZERO);
+	}
+
+	@Override
+	public TransferResult tryHold(String accountId, BigDecimal amount) {
+		checkJournal();
+		if (amount.signum() <= 0) {
+			return TransferResult.invalidAmount();
+		}
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			return TransferResult.accountNotFound(accountId);
+		}
+		if (account instanceof HotAccount) {
+			throw new UnsupportedOperationException("Hot account " + accountId + " cannot be held");
+		}
+		int stripe = lockStripes.stripeOf(accountId);
+		lockStripes.lock(stripe);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			if (!isCurrent(account)) {
+				return TransferResult.accountNotFound(accountId);
+			}
+			if (amount.compareTo(spendable(account.getBalance(), account.getHeld())) > 0) {
+				return TransferResult.insufficientBalance(accountId);
+			}
+			account.setHeld(account.getHeld().add(amount));
+			return TransferResult.completed();
+		} finally {
+			lockStripes.unlock(stripe);
+			lockMetrics.held(lockedAt);
+		}
+	}
+
+	@Override
+	public void releaseHold(String accountId, BigDecimal amount) {
+		checkJournal();
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			return;
+		}
+		int stripe = lockStripes.stripeOf(accountId);
+		lockStripes.lock(stripe);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			if (isCurrent(account)) {
+				account.setHeld(heldAfter(account, amount));
+			}
+		} finally {
+			lockStripes.unlock(stripe);
+			lockMetrics.held(lockedAt);
+		}
+	}
+
+	@Override
+	public TransferResult tryCapture(String accountFromId, String accountToId, BigDecimal held, BigDecimal amount) {
+		if (amount.compareTo(held) > 0) {
+			return TransferResult.invalidAmount("Capture amount must not exceed the amount held");
+		}
+		return tryTransfer(accountFromId, accountToId, amount, held);
+	}
+
+	/**
+	 * Transfers {@code amount}, releasing {@code released} from the holds of the source in the same
+	 * step, so a capture can spend what it held without another transfer taking it first.
+	 */
+	private TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount,
+			BigDecimal released) {
+		checkJournal();
+		TransferResult invalid = validateTransfer(accountFromId, accountToId, amount);
+		if (invalid != null) {
+			return invalid;
+		}
+		Account accountFrom = accounts.get(accountFromId);
+		if (accountFrom == null) {
+			return TransferResult.accountNotFound(accountFromId);
+		}
+		Account accountTo = accounts.get(accountToId);
+		if (accountTo == null) {
+			return TransferResult.accountNotFound(accountToId);
+		}
+		BigDecimal credited = credited(accountFrom, accountTo, amount);
+		TransferResult unpriced = checkCredited(accountFrom, accountTo, credited);
+		if (unpriced != null) {
+			return unpriced;
+		}
+		if (accountFrom instanceof HotAccount || accountTo instanceof HotAccount) {
+			return tryTransferHot(accountFrom, accountTo, amount, credited, released);
+		}
+
+		int stripeFrom = lockStripes.stripeOf(accountFromId);
+		int stripeTo = lockStripes.stripeOf(accountToId);
+		long sequence;
+		lockStripes.lockBoth(stripeFrom, stripeTo);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			TransferResult cleared = checkCurrent(accountFrom, accountTo);
+			if (cleared != null) {
+				return cleared;
+			}
+			BigDecimal held = heldAfter(accountFrom, released);
+			if (amount.compareTo(spendable(accountFrom.getBalance(), held)) > 0) {
+				return TransferResult.insufficientBalance(accountFromId);
+			}
+
+			preserve(accountFrom);
+			preserve(accountTo);
+			if (released.signum() != 0) {
+				accountFrom.setHeld(held);
+			}
+			withdraw(accountFrom, amount);
+			deposit(accountTo, credited);
+			sequence = appendTransfer(accountFromId, accountToId, amount, credited);
+		} finally {
+			lockStripes.unlockBoth(stripeFrom, stripeTo);
+			lockMetrics.held(lockedAt);
+		}
+		awaitDurable(sequence);
+		return completed(amount, credited);
 	}
 
-	public void transfer(String accountFromId, String accountToId, BigDecimal amount) throws TransferException {
+	/**
+	 * Transfer from or to a hot account. Only the home sub-balance of the calling thread is locked
+	 * for a hot account, next to the stripe of the other account. A debit the home sub-balance
+	 * cannot cover is retried with every stripe of the hot account held, borrowing from its other
+	 * sub-balances. Hot accounts are never held, so only a source that is not hot releases
+	 * {@code released}.
+	 */
+	private TransferResult tryTransferHot(Account accountFrom, Account accountTo, BigDecimal amount,
+			BigDecimal credited, BigDecimal released) {
+		HotAccount hotFrom = accountFrom instanceof HotAccount ? (HotAccount) accountFrom : null;
+		HotAccount hotTo = accountTo instanceof HotAccount ? (HotAccount) accountTo : null;
+		int homeFrom = hotFrom != null ? hotFrom.homeIndex() : 0;
+		int homeTo = hotTo != null ? hotTo.homeIndex() : 0;
+		int stripeFrom = hotFrom != null ? hotFrom.stripeOf(homeFrom)
+				: lockStripes.stripeOf(accountFrom.getAccountId());
+		int stripeTo = hotTo != null ? hotTo.stripeOf(homeTo) : lockStripes.stripeOf(accountTo.getAccountId());
+
+		long sequence;
+		lockStripes.lockBoth(stripeFrom, stripeTo);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			TransferResult cleared = checkCurrent(accountFrom, accountTo);
+			if (cleared != null) {
+				return cleared;
+			}
+			if (hotFrom == null) {
+				BigDecimal held = heldAfter(accountFrom, released);
+				if (amount.compareTo(spendable(accountFrom.getBalance(), held)) > 0) {
+					return TransferResult.insufficientBalance(accountFrom.getAccountId());
+				}
+				preserve(accountFrom);
+				if (released.signum() != 0) {
+					accountFrom.setHeld(held);
+				}
+				withdraw(accountFrom, amount);
+				sequence = depositHot(accountFrom, accountTo, hotTo, homeTo, amount, credited);
+			} else if (hotFrom.tryWithdraw(homeFrom, amount)) {
+				sequence = depositHot(accountFrom, accountTo, hotTo, homeTo, amount, credited);
+			} else {
+				sequence = -1;
+			}
+		} finally {
+			lockStripes.unlockBoth(stripeFrom, stripeTo);
+			lockMetrics.held(lockedAt);
+		}
+
+		if (sequence < 0) {
+			int[] stripes = Arrays.copyOf(hotFrom.stripes(), hotAccountStripes + 1);
+			stripes[hotAccountStripes] = stripeTo;
+			int lockCount = lockStripes.lockAll(stripes);
+			lockedAt = lockMetrics.startTime();
+			try {
+				TransferResult cleared = checkCurrent(accountFrom, accountTo);
+				if (cleared != null) {
+					return cleared;
+				}
+				if (amount.compareTo(hotFrom.getBalance()) > 0) {
+					return TransferResult.insufficientBalance(hotFrom.getAccountId());
+				}
+				hotFrom.withdrawAcross(homeFrom, amount);
+				sequence = depositHot(accountFrom, accountTo, hotTo, homeTo, amount, credited);
+			} finally {
+				lockStripes.unlockAll(stripes, lockCount);
+				lockMetrics.held(lockedAt);
+			}
+		}
+		awaitDurable(sequence);
+		return completed(amount, credited);
+	}
 
-		validateTransfer(accountFromId, accountToId, amount);
+	/**
+	 * Credits the destination of a transfer from or to a hot account and journals the transfer.
+	 */
+	private long depositHot(Account accountFrom, Account accountTo, HotAccount hotTo, int homeTo,
+			BigDecimal amount, BigDecimal credited) {
+		if (hotTo != null) {
+			hotTo.deposit(homeTo, credited);
+		} else {
+			preserve(accountTo);
+			deposit(accountTo, credited);
+		}
+		return appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), amount, credited);
+	}
 
-		Account accountFrom = getAccount(accountFromId);
-		Account accountTo = getAccount(accountToId);
+	/**
+	 * Returns the amount credited for {@code amount} debited: the amount itself between accounts in
+	 * the same currency, otherwise the amount converted at the rates in effect, or {@code null} if
+	 * there is no rate between the currencies.
+	 */
+	private BigDecimal credited(Account accountFrom, Account accountTo, BigDecimal amount) {
+		if (Objects.equals(accountFrom.getCurrency(), accountTo.getCurrency())) {
+			return amount;
+		}
+		return exchangeRates.current().convert(amount, accountFrom.getCurrency(), accountTo.getCurrency());
+	}
 
-		checkBalance(accountFrom, amount);
+	/**
+	 * Returns why a transfer that credits {@code credited} cannot be applied, or {@code null}.
+	 */
+	private TransferResult checkCredited(Account accountFrom, Account accountTo, BigDecimal credited) {
+		if (credited == null) {
+			ExchangeRates rates = exchangeRates.current();
+			return TransferResult.noExchangeRate(rates.currencyOf(accountFrom.getCurrency()),
+					rates.currencyOf(accountTo.getCurrency()));
+		}
+		if (credited.signum() <= 0) {
+			return TransferResult.invalidAmount("Transfer amount is too small to convert to "
+					+ exchangeRates.current().currencyOf(accountTo.getCurrency()));
+		}
+		return null;
+	}
 
-		withdraw(accountFrom, amount);
-		deposit(accountTo, amount);
+	private static TransferResult completed(BigDecimal amount, BigDecimal credited) {
+		return credited == amount ? TransferResult.completed() : TransferResult.exchanged(credited);
+	}
 
+	/**
+	 * Journals a transfer, as an exchange if it was converted. {@link #credited} returns the amount
+	 * itself when there was nothing to convert.
+	 */
+	private long appendTransfer(String accountFromId, String accountToId, BigDecimal amount, BigDecimal credited) {
+		try {
+			if (credited == amount) {
+				return journal.appendTransfer(accountFromId, accountToId, amount);
+			}
+			return journal.appendExchange(accountFromId, accountToId, amount, credited);
+		} catch (RuntimeException e) {
+			throw failJournal(e);
+		}
 	}
 
-	private void validateTransfer(String accountFromId, String accountToId, BigDecimal amount)
-			throws TransferException {
-		if (accountFromId.equals(accountToId)) {
-			throw new SameAccountTransferException("Cannot transfer money to the same account");
+	private void awaitDurable(long sequence) {
+		try {
+			journal.awaitDurable(sequence);
+		} catch (RuntimeException e) {
+			throw failJournal(e);
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if the journal failed
+	 */
+	private void checkJournal() {
+		RuntimeException failure = journalFailure;
+		if (failure != null) {
+			throw new IllegalStateException("Accounts journal failed; restart to recover the accounts from it",
+					failure);
+		}
+	}
+
+	/**
+	 * Fails the repository closed and returns {@code failure} to rethrow to the caller of the change
+	 * the journal failed.
+	 */
+	private RuntimeException failJournal(RuntimeException failure) {
+		if (journalFailure == null) {
+			log.error("Accounts journal failed, rejecting every read and change until restarted", failure);
+			journalFailure = failure;
+		}
+		return failure;
+	}
+
+	/**
+	 * Preserves the balance of an account about to change under its stripe for every open cut. Hot
+	 * accounts were preserved when the cuts were opened.
+	 */
+	private void preserve(Account account) {
+		for (SnapshotCut cut : cuts) {
+			cut.preserve(account);
+		}
+	}
+
+	/**
+	 * Best-effort batches lock the stripes of one transfer at a time, so a large batch never holds a
+	 * hot account for longer than a single transfer. All-or-nothing batches lock every stripe they
+	 * touch in ascending order, check the whole batch against working balances and only then apply
+	 * it.
+	 */
+	@Override
+	public List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) {
+		checkJournal();
+		if (mode == BatchMode.BEST_EFFORT) {
+			return AccountsRepository.super.transferBatch(transfers, mode);
+		}
+
+		int size = transfers.size();
+		List<TransferResult> results = new ArrayList<>(Collections.nCopies(size, TransferResult.notApplied()));
+		Account[] accountsFrom = new Account[size];
+		Account[] accountsTo = new Account[size];
+		BigDecimal[] credited = new BigDecimal[size];
+		boolean valid = true;
+		for (int i = 0; i < size; i++) {
+			Transfer transfer = transfers.get(i);
+			TransferResult invalid = validateTransfer(transfer.getAccountFromId(), transfer.getAccountToId(),
+					transfer.getAmount());
+			if (invalid == null) {
+				accountsFrom[i] = accounts.get(transfer.getAccountFromId());
+				accountsTo[i] = accounts.get(transfer.getAccountToId());
+				if (accountsFrom[i] == null) {
+					invalid = TransferResult.accountNotFound(transfer.getAccountFromId());
+				} else if (accountsTo[i] == null) {
+					invalid = TransferResult.accountNotFound(transfer.getAccountToId());
+				} else {
+					credited[i] = credited(accountsFrom[i], accountsTo[i], transfer.getAmount());
+					invalid = checkCredited(accountsFrom[i], accountsTo[i], credited[i]);
+				}
+			}
+			if (invalid != null) {
+				results.set(i, invalid);
+				valid = false;
+			}
+		}
+		if (!valid) {
+			return results;
+		}
+		int[] stripes = stripesOf(accountsFrom, accountsTo);
+
+		long sequence = 0;
+		int lockCount = lockStripes.lockAll(stripes);
+		long lockedAt = lockMetrics.startTime();
+		try {
+			for (int i = 0; i < size; i++) {
+				TransferResult cleared = checkCurrent(accountsFrom[i], accountsTo[i]);
+				if (cleared != null) {
+					results.set(i, cleared);
+					return results;
+				}
+			}
+			Map<Account, BigDecimal> balances = new IdentityHashMap<>();
+			for (int i = 0; i < size; i++) {
+				BigDecimal amount = transfers.get(i).getAmount();
+				BigDecimal balanceFrom = balances.getOrDefault(accountsFrom[i], accountsFrom[i].getBalance());
+				if (amount.compareTo(spendable(balanceFrom, accountsFrom[i].getHeld())) > 0) {
+					results.set(i, TransferResult.insufficientBalance(accountsFrom[i].getAccountId()));
+					return results;
+				}
+				balances.put(accountsFrom[i], balanceFrom.subtract(amount));
+				balances.put(accountsTo[i],
+						balances.getOrDefault(accountsTo[i], accountsTo[i].getBalance()).add(credited[i]));
+			}
+			balances.keySet().forEach(this::preserve);
+			balances.forEach(Account::setBalance);
+			for (int i = 0; i < size; i++) {
+				Transfer transfer = transfers.get(i);
+				sequence = appendTransfer(transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmount(),
+						credited[i]);
+			}
+		} finally {
+			lockStripes.unlockAll(stripes, lockCount);
+			lockMetrics.held(lockedAt);
+		}
+		awaitDurable(sequence);
+		for (int i = 0; i < size; i++) {
+			results.set(i, completed(transfers.get(i).getAmount(), credited[i]));
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the stripes of every account, including every stripe of a hot account.
+	 */
+	private int[] stripesOf(Account[] accountsFrom, Account[] accountsTo) {
+		IntStream.Builder stripes = IntStream.builder();
+		for (Account account : accountsFrom) {
+			addStripes(stripes, account);
+		}
+		for (Account account : accountsTo) {
+			addStripes(stripes, account);
+		}
+		return stripes.build().toArray();
+	}
+
+	private void addStripes(IntStream.Builder stripes, Account account) {
+		if (account instanceof HotAccount) {
+			for (int stripe : ((HotAccount) account).stripes()) {
+				stripes.add(stripe);
+			}
+		} else {
+			stripes.add(lockStripes.stripeOf(account.getAccountId()));
 		}
+	}
 
-		if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-			throw new InvalidTransferAmountException("Transfer amount must be greater than zero");
+	/**
+	 * Returns why the transfer is invalid regardless of the accounts involved, or {@code null}.
+	 */
+	private static TransferResult validateTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		if (accountFromId.equals(accountToId)) {
+			return TransferResult.sameAccount();
 		}
+		if (amount.signum() <= 0) {
+			return TransferResult.invalidAmount();
+		}
+		return null;
 	}
 
-	private void checkBalance(Account account, BigDecimal amount) throws InsufficientBalanceException {
-		if (amount.compareTo(account.getBalance()) > 0) {
-			throw new InsufficientBalanceException("Account "+ account.getAccountId() + " has insufficient balance");
+	/**
+	 * Builds a repository with the defaults of {@link AccountsRepositoryProperties}, no journal, no
+	 * lock metrics and no exchange rates unless set.
+	 */
+	public static final class Builder {
+
+		private final AccountsRepositoryProperties properties = new AccountsRepositoryProperties();
+
+		private AccountsJournal journal = AccountsJournal.NONE;
+
+		private LockMetrics lockMetrics = LockMetrics.NONE;
+
+		private ExchangeRateTable exchangeRates;
+
+		private Builder() {
+		}
+
+		public Builder lockStripes(int lockStripes) {
+			properties.setLockStripes(lockStripes);
+			return this;
+		}
+
+		/**
+		 * @param hotAccountStripes number of sub-balances of every hot account, rounded up to a power
+		 *            of two
+		 */
+		public Builder hotAccounts(Collection<String> hotAccounts, int hotAccountStripes) {
+			properties.setHotAccounts(new ArrayList<>(hotAccounts));
+			properties.setHotAccountStripes(hotAccountStripes);
+			return this;
+		}
+
+		public Builder expectedAccounts(int expectedAccounts) {
+			properties.setExpectedAccounts(expectedAccounts);
+			return this;
+		}
+
+		public Builder journal(AccountsJournal journal) {
+			this.journal = journal;
+			return this;
+		}
+
+		public Builder lockMetrics(LockMetrics lockMetrics) {
+			this.lockMetrics = lockMetrics;
+			return this;
+		}
+
+		public Builder exchangeRates(ExchangeRateTable exchangeRates) {
+			this.exchangeRates = exchangeRates;
+			return this;
 		}
+
+		public AccountsRepositoryInMemory build() {
+			return new AccountsRepositoryInMemory(properties, journal, lockMetrics,
+					exchangeRates != null ? exchangeRates : new ExchangeRateTable(ExchangeRates.DEFAULT_BASE_CURRENCY));
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,355 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.journal.AccountsJournal;
+import com.db.awmd.challenge.journal.JournalException;
+import com.db.awmd.challenge.journal.JournalRecordHandler;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Applies every change on a single business-logic thread instead of under locks. Account
+ * creations, transfers and clears are published to a preallocated {@link PipelineRing} and pass
+ * through three stages, each on its own thread:
+ * <ol>
+ * <li>{@code accounts-pipeline-apply} applies the change to the accounts, which no other thread
+ * writes, so it needs no locks and changes are applied in exactly the order they were published;</li>
+ * <li>{@code accounts-pipeline-journal} appends the applied changes to the {@link AccountsJournal} in
+ * the same order;</li>
+ * <li>{@code accounts-pipeline-publish} waits for them to be durable and completes the callers'
+ * futures, which runs their continuations, such as the notifications of
+ * {@code AccountsService.tryTransferAsync}, on this thread in order.</li>
+ * </ol>
+ * Reads go straight to the accounts map and return copies. Only best-effort batches are supported;
+ * their transfers are published together and awaited once. Once the repository is destroyed, new
+ * changes are rejected, and changes still in the pipeline fail whether or not they were applied.
+ * <p>
+ * Changes are applied before they are journaled, so once the journal fails the accounts may hold
+ * changes it does not. The repository then fails closed: every later read and change, including the
+ * changes already in the pipeline, fails until the application is restarted and recovers from the
+ * journal.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "pipeline")
+@Slf4j
+public class AccountsRepositoryPipeline implements AccountsRepository, DisposableBean {
+
+	private static final String[] STAGE_NAMES = { "accounts-pipeline-apply", "accounts-pipeline-journal",
+			"accounts-pipeline-publish" };
+
+	// Written by the apply stage only, once started.
+	private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+	private final AccountsJournal journal;
+
+	private final PipelineRing ring;
+
+	private volatile boolean running;
+
+	private volatile boolean stopped;
+
+	// Set by the journal or publish stage, once.
+	private volatile RuntimeException journalFailure;
+
+	@Autowired
+	public AccountsRepositoryPipeline(AccountsRepositoryProperties properties, AccountsJournal journal) {
+		this(properties.getPipelineRingSize(), journal);
+	}
+
+	/**
+	 * @param ringSize number of changes that can be in flight, rounded up to a power of two
+	 */
+	public AccountsRepositoryPipeline(int ringSize, AccountsJournal journal) {
+		this.journal = journal;
+		this.ring = new PipelineRing(ringSize, STAGE_NAMES, List.of(this::apply, this::journal, this::publish));
+	}
+
+	/**
+	 * Rebuilds the accounts by replaying the journal, then starts the pipeline.
+	 */
+	@PostConstruct
+	public synchronized void recover() {
+		long started = System.nanoTime();
+		long records = journal.replay(new JournalRecordHandler() {
+
+			@Override
+			public void accountCreated(long sequence, String accountId, BigDecimal balance) {
+				accounts.put(accountId, new Account(accountId, balance));
+			}
+
+			@Override
+			public void transferred(long sequence, String accountFromId, String accountToId, BigDecimal amount) {
+				withdraw(replayed(sequence, accountFromId), amount);
+				deposit(replayed(sequence, accountToId), amount);
+			}
+
+			private Account replayed(long sequence, String accountId) {
+				Account account = accounts.get(accountId);
+				if (account == null) {
+					throw new JournalException(
+							"Journal record " + sequence + " transfers with account " + accountId + ", which does not exist");
+				}
+				return account;
+			}
+
+			@Override
+			public void accountsCleared(long sequence) {
+				accounts.clear();
+			}
+
+		});
+		if (records > 0) {
+			log.info("Recovered {} accounts from {} journal records in {} ms", accounts.size(), records,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		}
+		start();
+	}
+
+	private synchronized void start() {
+		if (!running) {
+			ring.start();
+			running = true;
+		}
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		if (account.getCurrency() != null) {
+			throw new UnsupportedOperationException(
+					"Accounts in a currency are not supported by " + getClass().getSimpleName());
+		}
+		await(publish(PipelineEvent.Type.CREATE, account.getAccountId(), null, account.getBalance()));
+	}
+
+	@Override
+	public Account getAccount(String accountId) throws AccountNotFoundException {
+		checkJournal();
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			throw new AccountNotFoundException("Account id " + accountId + " not found");
+		}
+		return new Account(accountId, account.getBalance());
+	}
+
+	@Override
+	public void clearAccounts() {
+		await(publish(PipelineEvent.Type.CLEAR, null, null, null));
+	}
+
+	@Override
+	public int countAccounts() {
+		checkJournal();
+		return accounts.size();
+	}
+
+	@Override
+	public TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		return await(tryTransferAsync(accountFromId, accountToId, amount));
+	}
+
+	@Override
+	public CompletableFuture<TransferResult> tryTransferAsync(String accountFromId, String accountToId,
+			BigDecimal amount) {
+		if (accountFromId.equals(accountToId)) {
+			return CompletableFuture.completedFuture(TransferResult.sameAccount());
+		}
+		if (amount.signum() <= 0) {
+			return CompletableFuture.completedFuture(TransferResult.invalidAmount());
+		}
+		return publish(PipelineEvent.Type.TRANSFER, accountFromId, accountToId, amount);
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) {
+		if (mode != BatchMode.BEST_EFFORT) {
+			return AccountsRepository.super.transferBatch(transfers, mode);
+		}
+		List<CompletableFuture<TransferResult>> futures = new ArrayList<>(transfers.size());
+		for (Transfer transfer : transfers) {
+			futures.add(tryTransferAsync(transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmount()));
+		}
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		for (CompletableFuture<TransferResult> future : futures) {
+			results.add(await(future));
+		}
+		return results;
+	}
+
+	@Override
+	public void destroy() {
+		stopped = true;
+		ring.stop(AccountsRepositoryPipeline::stoppedException);
+	}
+
+	/**
+	 * @throws IllegalStateException if the repository was destroyed or its journal failed
+	 */
+	private CompletableFuture<TransferResult> publish(PipelineEvent.Type type, String accountFromId,
+			String accountToId, BigDecimal amount) {
+		if (stopped) {
+			throw stoppedException();
+		}
+		checkJournal();
+		if (!running) {
+			start();
+		}
+		CompletableFuture<TransferResult> future = new CompletableFuture<>();
+		long sequence = ring.claim();
+		ring.get(sequence).set(type, accountFromId, accountToId, amount, future);
+		ring.publish(sequence);
+		if (!ring.isRunning()) {
+			// Possibly published after the ring failed what was left in it; a no-op if it was completed.
+			future.completeExceptionally(stoppedException());
+		}
+		return future;
+	}
+
+	private static IllegalStateException stoppedException() {
+		return new IllegalStateException("Accounts pipeline is stopped");
+	}
+
+	/**
+	 * @throws IllegalStateException if the journal failed
+	 */
+	private void checkJournal() {
+		RuntimeException failure = journalFailure;
+		if (failure != null) {
+			throw journalFailedException(failure);
+		}
+	}
+
+	private static IllegalStateException journalFailedException(RuntimeException failure) {
+		return new IllegalStateException("Accounts journal failed; restart to recover the accounts from it", failure);
+	}
+
+	private void failJournal(RuntimeException failure) {
+		if (journalFailure == null) {
+			log.error("Accounts journal failed, rejecting every read and change until restarted", failure);
+			journalFailure = failure;
+		}
+	}
+
+	/**
+	 * Waits for the change, rethrowing its exception unchanged.
+	 */
+	private static TransferResult await(CompletableFuture<TransferResult> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// The stages below run on their own threads, in the order they are declared.
+
+	private void apply(PipelineEvent event) {
+		RuntimeException failure = journalFailure;
+		if (failure != null) {
+			event.failure = journalFailedException(failure);
+			return;
+		}
+		switch (event.type) {
+		case CREATE:
+			if (accounts.putIfAbsent(event.accountFromId, new Account(event.accountFromId, event.amount)) != null) {
+				event.failure = new DuplicateAccountIdException("Account id " + event.accountFromId + " already exists!");
+				return;
+			}
+			break;
+		case TRANSFER:
+			Account accountFrom = accounts.get(event.accountFromId);
+			if (accountFrom == null) {
+				event.result = TransferResult.accountNotFound(event.accountFromId);
+				return;
+			}
+			Account accountTo = accounts.get(event.accountToId);
+			if (accountTo == null) {
+				event.result = TransferResult.accountNotFound(event.accountToId);
+				return;
+			}
+			if (event.amount.compareTo(accountFrom.getBalance()) > 0) {
+				event.result = TransferResult.insufficientBalance(event.accountFromId);
+				return;
+			}
+			withdraw(accountFrom, event.amount);
+			deposit(accountTo, event.amount);
+			break;
+		case CLEAR:
+			accounts.clear();
+			break;
+		}
+		event.result = TransferResult.completed();
+	}
+
+	private void journal(PipelineEvent event) {
+		if (!event.isApplied()) {
+			return;
+		}
+		RuntimeException failure = journalFailure;
+		if (failure != null) {
+			// Applied after the journal failed, so it cannot be journaled in order.
+			event.failure = journalFailedException(failure);
+			return;
+		}
+		try {
+			switch (event.type) {
+			case CREATE:
+				event.journalSequence = journal.appendAccountCreated(event.accountFromId, event.amount);
+				break;
+			case TRANSFER:
+				event.journalSequence = journal.appendTransfer(event.accountFromId, event.accountToId, event.amount);
+				break;
+			case CLEAR:
+				event.journalSequence = journal.appendAccountsCleared();
+				break;
+			}
+		} catch (RuntimeException e) {
+			failJournal(e);
+			event.failure = e;
+		}
+	}
+
+	private void publish(PipelineEvent event) {
+		try {
+			if (event.journalSequence > 0) {
+				journal.awaitDurable(event.journalSequence);
+			}
+		} catch (RuntimeException e) {
+			failJournal(e);
+			event.failure = e;
+		}
+		event.complete();
+	}
+
+	private static void deposit(Account account, BigDecimal amount) {
+		account.setBalance(account.getBalance().add(amount));
+	}
+
+	private static void withdraw(Account account, BigDecimal amount) {
+		account.setBalance(account.getBalance().subtract(amount));
+	}
+
+}
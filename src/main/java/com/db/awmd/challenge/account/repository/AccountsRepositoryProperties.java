@@ -0,0 +1,59 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.repository")
+public class AccountsRepositoryProperties {
+
+	/**
+	 * Repository implementation backing the accounts API: {@code in-memory} (default),
+	 * {@code atomic}, {@code sharded}, {@code compact} or {@code pipeline}.
+	 */
+	private String type = "in-memory";
+
+	/**
+	 * Number of lock stripes shared by all accounts, rounded up to a power of two.
+	 */
+	private int lockStripes = AccountLockStripes.DEFAULT_STRIPES;
+
+	/**
+	 * Ids of accounts that receive a large share of all transfers, such as treasury or fee
+	 * collection accounts. The {@code in-memory} repository splits their balance into
+	 * {@code hotAccountStripes} sub-balances, so concurrent transfers to them do not wait for each
+	 * other.
+	 */
+	private List<String> hotAccounts = new ArrayList<>();
+
+	/**
+	 * Number of sub-balances of every hot account, rounded up to a power of two.
+	 */
+	private int hotAccountStripes = 16;
+
+	/**
+	 * Number of accounts the {@code in-memory} repository sizes its map for up front, so that
+	 * recovering or importing that many does not grow and rehash it along the way.
+	 */
+	private int expectedAccounts = 0;
+
+	/**
+	 * Decimal places kept by repositories that store balances as fixed-scale minor units.
+	 */
+	private int balanceScale = 2;
+
+	/**
+	 * Number of partitions of the sharded repository, each with its own writer thread.
+	 */
+	private int shards = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Number of changes the pipeline repository holds in flight, rounded up to a power of two.
+	 */
+	private int pipelineRingSize = 1 << 16;
+
+}
@@ -0,0 +1,157 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+/**
+ * Partitions accounts into shards by consistent hashing of the account id. Every shard owns its
+ * accounts and applies all changes on a single writer thread, so shards never share a lock and
+ * throughput grows with the number of shards.
+ * <p>
+ * Transfers within one shard run as a single task. Transfers across shards use two phases: the
+ * source shard reserves the amount, the destination shard credits it, and the source shard then
+ * commits the reservation, or releases it back to the source if the credit failed. While a transfer
+ * is in flight the reserved amount is in neither balance, so money is never counted twice.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "sharded")
+public class AccountsRepositorySharded implements AccountsRepository, DisposableBean {
+
+	private final AccountShard[] shards;
+
+	private final ConsistentHashRing ring;
+
+	private final AtomicLong reservationIds = new AtomicLong();
+
+	@Autowired
+	public AccountsRepositorySharded(AccountsRepositoryProperties properties) {
+		this(properties.getShards());
+	}
+
+	public AccountsRepositorySharded(int shards) {
+		if (shards <= 0) {
+			throw new IllegalArgumentException("Shards must be greater than zero");
+		}
+		this.shards = new AccountShard[shards];
+		for (int i = 0; i < shards; i++) {
+			this.shards[i] = new AccountShard(i);
+		}
+		this.ring = new ConsistentHashRing(shards, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		if (account.getCurrency() != null) {
+			throw new UnsupportedOperationException(
+					"Accounts in a currency are not supported by " + getClass().getSimpleName());
+		}
+		Account copy = new Account(account.getAccountId(), account.getBalance());
+		AccountShard shard = shardOf(account.getAccountId());
+		if (!shard.call(() -> shard.putIfAbsent(copy))) {
+			throw new DuplicateAccountIdException("Account id " + account.getAccountId() + " already exists!");
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) throws AccountNotFoundException {
+		AccountShard shard = shardOf(accountId);
+		return shard.call(() -> {
+			Account account = shard.get(accountId);
+			return new Account(account.getAccountId(), account.getBalance());
+		});
+	}
+
+	@Override
+	public void clearAccounts() {
+		for (AccountShard shard : shards) {
+			shard.run(shard::clear);
+		}
+	}
+
+	@Override
+	public int countAccounts() {
+		int count = 0;
+		for (AccountShard shard : shards) {
+			count += shard.call(shard::size);
+		}
+		return count;
+	}
+
+	@Override
+	public TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		if (accountFromId.equals(accountToId)) {
+			return TransferResult.sameAccount();
+		}
+		if (amount.signum() <= 0) {
+			return TransferResult.invalidAmount();
+		}
+
+		AccountShard shardFrom = shardOf(accountFromId);
+		AccountShard shardTo = shardOf(accountToId);
+		if (shardFrom == shardTo) {
+			return shardFrom.call(() -> {
+				Account accountFrom = shardFrom.find(accountFromId);
+				if (accountFrom == null) {
+					return TransferResult.accountNotFound(accountFromId);
+				}
+				Account accountTo = shardFrom.find(accountToId);
+				if (accountTo == null) {
+					return TransferResult.accountNotFound(accountToId);
+				}
+				if (!shardFrom.tryDebit(accountFrom, amount)) {
+					return TransferResult.insufficientBalance(accountFromId);
+				}
+				shardFrom.credit(accountTo, amount);
+				return TransferResult.completed();
+			});
+		}
+
+		long reservationId = reservationIds.incrementAndGet();
+		TransferResult reserved = shardFrom.call(() -> shardFrom.reserve(reservationId, accountFromId, amount));
+		if (!reserved.isCompleted()) {
+			return reserved;
+		}
+		boolean credited;
+		try {
+			credited = shardTo.call(() -> {
+				Account accountTo = shardTo.find(accountToId);
+				if (accountTo == null) {
+					return false;
+				}
+				shardTo.credit(accountTo, amount);
+				return true;
+			});
+		} catch (RuntimeException e) {
+			shardFrom.run(() -> shardFrom.release(reservationId));
+			throw e;
+		}
+		if (!credited) {
+			shardFrom.run(() -> shardFrom.release(reservationId));
+			return TransferResult.accountNotFound(accountToId);
+		}
+		shardFrom.submit(() -> shardFrom.commit(reservationId));
+		return TransferResult.completed();
+	}
+
+	@Override
+	public void destroy() {
+		for (AccountShard shard : shards) {
+			shard.shutdown();
+		}
+	}
+
+	private AccountShard shardOf(String accountId) {
+		return shards[ring.shardOf(accountId)];
+	}
+
+}
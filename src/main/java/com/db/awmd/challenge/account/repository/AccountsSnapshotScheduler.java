@@ -0,0 +1,49 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.journal.JournalProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically snapshots the journaled in-memory repository, which bounds both the journal size
+ * and the time taken to replay it on restart.
+ */
+@Component
+@ConditionalOnExpression("${accounts.journal.enabled:false} and '${accounts.repository.type:in-memory}' == 'in-memory'")
+@Slf4j
+public class AccountsSnapshotScheduler implements DisposableBean {
+
+	private final ScheduledExecutorService executor;
+
+	public AccountsSnapshotScheduler(AccountsRepositoryInMemory repository, JournalProperties properties) {
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "accounts-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long intervalMillis = properties.getSnapshotInterval().toMillis();
+		if (intervalMillis > 0) {
+			executor.scheduleWithFixedDelay(() -> {
+				try {
+					repository.snapshot();
+				} catch (RuntimeException e) {
+					log.error("Failed to snapshot accounts", e);
+				}
+			}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+}
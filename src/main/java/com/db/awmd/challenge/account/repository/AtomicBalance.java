@@ -0,0 +1,73 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Balance of one account in minor units, updated with compare-and-set loops instead of locks.
+ */
+final class AtomicBalance {
+
+	private static final VarHandle UNITS;
+
+	static {
+		try {
+			UNITS = MethodHandles.lookup().findVarHandle(AtomicBalance.class, "units", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final String accountId;
+
+	@SuppressWarnings("unused")
+	private volatile long units;
+
+	AtomicBalance(String accountId, long units) {
+		this.accountId = accountId;
+		this.units = units;
+	}
+
+	String getAccountId() {
+		return accountId;
+	}
+
+	long get() {
+		return (long) UNITS.getVolatile(this);
+	}
+
+	/**
+	 * Subtracts {@code amount} unless that would make the balance negative.
+	 *
+	 * @return {@code false} without changing the balance when funds are insufficient
+	 */
+	boolean tryDebit(long amount) {
+		long current = get();
+		while (current >= amount) {
+			long witness = (long) UNITS.compareAndExchange(this, current, current - amount);
+			if (witness == current) {
+				return true;
+			}
+			current = witness;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds {@code amount} to the balance.
+	 *
+	 * @return {@code false} without changing the balance when the result would overflow
+	 */
+	boolean tryCredit(long amount) {
+		long current = get();
+		while (current <= Long.MAX_VALUE - amount) {
+			long witness = (long) UNITS.compareAndExchange(this, current, current + amount);
+			if (witness == current) {
+				return true;
+			}
+			current = witness;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Account ids and balances without an object per account. Accounts are numbered densely in the
+ * order they are added. Ids are kept UTF-8 encoded and length-prefixed in 1 MiB byte chunks, and
+ * an open-addressing table of account numbers, probed linearly from the id hash, finds them again.
+ * The hash, id offset and balance of every account are kept in segmented primitive arrays, which
+ * grow by adding segments and so never move an existing balance.
+ * <p>
+ * Lookups are optimistic reads of a {@link StampedLock} and only take its read lock when an
+ * account is added at the same time. Balances are read and written by account number; callers
+ * guard them, typically with the account's lock stripe.
+ */
+final class CompactAccountTable {
+
+	private static final int SEGMENT_BITS = 16;
+
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+	private static final int CHUNK_BITS = 20;
+
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/**
+	 * Ids are prefixed by their length in two bytes.
+	 */
+	static final int MAX_ID_BYTES = 0xFFFF;
+
+	private static final int INITIAL_SLOTS = 1024;
+
+	private final StampedLock lock = new StampedLock();
+
+	// Account number plus one, zero for an empty slot. At most half of the slots are used, so every
+	// probe ends at an empty slot.
+	private int[] slots;
+
+	private int[][] hashes;
+
+	private long[][] idOffsets;
+
+	private long[][] balances;
+
+	private byte[][] idChunks;
+
+	// Offset of the next id in the chunks, chunk index in the high bits.
+	private long idEnd;
+
+	private volatile int size;
+
+	CompactAccountTable() {
+		clear();
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of the account, or {@code -1} if it does not exist.
+	 */
+	int find(String accountId) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				int number = findUnlocked(accountId);
+				if (lock.validate(stamp)) {
+					return number;
+				}
+			} catch (RuntimeException e) {
+				// Saw an account being added half way; the lookup is repeated under the read lock.
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return findUnlocked(accountId);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Adds an account with the given balance in minor units.
+	 *
+	 * @return the number of the new account, or {@code -1} if the id already exists
+	 */
+	int add(String accountId, long balance) {
+		byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+		if (id.length > MAX_ID_BYTES) {
+			throw new IllegalArgumentException("Account ids are limited to " + MAX_ID_BYTES + " bytes");
+		}
+		long stamp = lock.writeLock();
+		try {
+			if (findUnlocked(accountId) >= 0) {
+				return -1;
+			}
+			int number = size;
+			int segment = number >>> SEGMENT_BITS;
+			if (segment == hashes.length) {
+				hashes = Arrays.copyOf(hashes, segment + 1);
+				hashes[segment] = new int[SEGMENT_MASK + 1];
+				idOffsets = Arrays.copyOf(idOffsets, segment + 1);
+				idOffsets[segment] = new long[SEGMENT_MASK + 1];
+				balances = Arrays.copyOf(balances, segment + 1);
+				balances[segment] = new long[SEGMENT_MASK + 1];
+			}
+			int hash = hash(accountId);
+			hashes[segment][number & SEGMENT_MASK] = hash;
+			idOffsets[segment][number & SEGMENT_MASK] = appendId(id);
+			balances[segment][number & SEGMENT_MASK] = balance;
+			if ((number + 1) * 2 > slots.length) {
+				slots = rehash(slots.length * 2, number);
+			}
+			insert(slots, hash, number);
+			size = number + 1;
+			return number;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the id of the account, or {@code null} if there is no account with that number.
+	 */
+	String accountId(int number) {
+		long stamp = lock.readLock();
+		try {
+			if (number >= size) {
+				return null;
+			}
+			long offset = idOffsets[number >>> SEGMENT_BITS][number & SEGMENT_MASK];
+			byte[] chunk = idChunks[(int) (offset >>> CHUNK_BITS)];
+			int position = (int) offset & (CHUNK_SIZE - 1);
+			int length = (chunk[position] & 0xFF) << 8 | chunk[position + 1] & 0xFF;
+			return new String(chunk, position + 2, length, StandardCharsets.UTF_8);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	long balance(int number) {
+		return balances[number >>> SEGMENT_BITS][number & SEGMENT_MASK];
+	}
+
+	void setBalance(int number, long balance) {
+		balances[number >>> SEGMENT_BITS][number & SEGMENT_MASK] = balance;
+	}
+
+	void clear() {
+		long stamp = lock.writeLock();
+		try {
+			slots = new int[INITIAL_SLOTS];
+			hashes = new int[0][];
+			idOffsets = new long[0][];
+			balances = new long[0][];
+			idChunks = new byte[0][];
+			idEnd = 0;
+			size = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private int findUnlocked(String accountId) {
+		int[] slots = this.slots;
+		int mask = slots.length - 1;
+		int hash = hash(accountId);
+		for (int i = hash & mask, probes = 0; probes < slots.length; i = (i + 1) & mask, probes++) {
+			int number = slots[i] - 1;
+			if (number < 0) {
+				return -1;
+			}
+			if (hashes[number >>> SEGMENT_BITS][number & SEGMENT_MASK] == hash && idEquals(number, accountId)) {
+				return number;
+			}
+		}
+		return -1;
+	}
+
+	private boolean idEquals(int number, String accountId) {
+		long offset = idOffsets[number >>> SEGMENT_BITS][number & SEGMENT_MASK];
+		byte[] chunk = idChunks[(int) (offset >>> CHUNK_BITS)];
+		int position = (int) offset & (CHUNK_SIZE - 1);
+		int length = (chunk[position] & 0xFF) << 8 | chunk[position + 1] & 0xFF;
+		position += 2;
+		// ASCII ids compare without encoding the id being looked up.
+		for (int i = 0; i < accountId.length(); i++) {
+			char c = accountId.charAt(i);
+			if (c >= 0x80) {
+				return equalsEncoded(chunk, position, length, accountId);
+			}
+			if (i >= length || chunk[position + i] != c) {
+				return false;
+			}
+		}
+		return length == accountId.length();
+	}
+
+	private static boolean equalsEncoded(byte[] chunk, int position, int length, String accountId) {
+		byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+		return Arrays.equals(chunk, position, position + length, id, 0, id.length);
+	}
+
+	private long appendId(byte[] id) {
+		int chunkIndex = (int) (idEnd >>> CHUNK_BITS);
+		int position = (int) idEnd & (CHUNK_SIZE - 1);
+		if (chunkIndex == idChunks.length || position + 2 + id.length > CHUNK_SIZE) {
+			if (chunkIndex < idChunks.length) {
+				chunkIndex++;
+			}
+			idChunks = Arrays.copyOf(idChunks, chunkIndex + 1);
+			idChunks[chunkIndex] = new byte[CHUNK_SIZE];
+			position = 0;
+		}
+		byte[] chunk = idChunks[chunkIndex];
+		chunk[position] = (byte) (id.length >>> 8);
+		chunk[position + 1] = (byte) id.length;
+		System.arraycopy(id, 0, chunk, position + 2, id.length);
+		long offset = (long) chunkIndex << CHUNK_BITS | position;
+		idEnd = offset + 2 + id.length;
+		return offset;
+	}
+
+	private int[] rehash(int length, int accounts) {
+		int[] rehashed = new int[length];
+		for (int number = 0; number < accounts; number++) {
+			insert(rehashed, hashes[number >>> SEGMENT_BITS][number & SEGMENT_MASK], number);
+		}
+		return rehashed;
+	}
+
+	private static void insert(int[] slots, int hash, int number) {
+		int mask = slots.length - 1;
+		int i = hash & mask;
+		while (slots[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		slots[i] = number + 1;
+	}
+
+	/**
+	 * Spreads the cached {@link String#hashCode()} so that ids differing only in their last
+	 * characters do not fill consecutive slots.
+	 */
+	private static int hash(String accountId) {
+		int h = accountId.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps account ids to shard indexes by consistent hashing. Each shard owns several virtual nodes on
+ * the ring, so adding a shard only moves about {@code 1/shards} of the accounts.
+ */
+final class ConsistentHashRing {
+
+	static final int DEFAULT_VIRTUAL_NODES = 64;
+
+	private final TreeMap<Integer, Integer> ring = new TreeMap<>();
+
+	ConsistentHashRing(int shards, int virtualNodes) {
+		if (shards <= 0) {
+			throw new IllegalArgumentException("Shards must be greater than zero");
+		}
+		for (int shard = 0; shard < shards; shard++) {
+			for (int node = 0; node < virtualNodes; node++) {
+				ring.put(hash("shard-" + shard + "#" + node), shard);
+			}
+		}
+	}
+
+	int shardOf(String accountId) {
+		Map.Entry<Integer, Integer> entry = ring.ceilingEntry(hash(accountId));
+		return (entry != null ? entry : ring.firstEntry()).getValue();
+	}
+
+	/**
+	 * 32-bit FNV-1a over the UTF-8 bytes, which spreads similar ids such as {@code Id-1} and
+	 * {@code Id-2} far better than {@link String#hashCode()}.
+	 */
+	static int hash(String key) {
+		int hash = 0x811c9dc5;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x01000193;
+		}
+		return hash;
+	}
+
+}
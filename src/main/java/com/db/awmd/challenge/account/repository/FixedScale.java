@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts between {@link BigDecimal} amounts and {@code long} minor units at a fixed number of
+ * decimal places, e.g. {@code 12.34} is {@code 1234} at scale 2.
+ */
+public final class FixedScale {
+
+	private final int scale;
+
+	private final long powerOfTen;
+
+	private final BigDecimal maxValue;
+
+	public FixedScale(int scale) {
+		if (scale < 0 || scale > 18) {
+			throw new IllegalArgumentException("Balance scale must be between 0 and 18");
+		}
+		this.scale = scale;
+		this.powerOfTen = BigDecimal.TEN.pow(scale).longValueExact();
+		this.maxValue = BigDecimal.valueOf(Long.MAX_VALUE, scale);
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public BigDecimal getMaxValue() {
+		return maxValue;
+	}
+
+	/**
+	 * Returns {@code value} in minor units.
+	 *
+	 * @throws ArithmeticException if {@code value} has more decimal places than this scale or does
+	 *                             not fit in a {@code long}
+	 */
+	public long toUnits(BigDecimal value) {
+		if (value.scale() == 0) {
+			// Whole amounts convert without allocating.
+			return Math.multiplyExact(value.longValueExact(), powerOfTen);
+		}
+		return value.scaleByPowerOfTen(scale).longValueExact();
+	}
+
+	public BigDecimal toBigDecimal(long units) {
+		return BigDecimal.valueOf(units, scale);
+	}
+
+}
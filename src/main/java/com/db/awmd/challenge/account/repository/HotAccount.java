@@ -0,0 +1,108 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import com.db.awmd.challenge.account.domain.Account;
+
+/**
+ * Account that receives a large share of all transfers, with its balance split into sub-balances
+ * in the manner of a {@link java.util.concurrent.atomic.LongAdder}. Every sub-balance is guarded
+ * by its own dedicated lock stripe and every thread has a home sub-balance, so transfers to the
+ * account from different threads rarely wait for each other. A debit its home sub-balance cannot
+ * cover borrows from the others while every stripe of the account is held.
+ * <p>
+ * {@link #getBalance()} and {@link #setBalance(BigDecimal)} work on the total and need every
+ * stripe of the account held, unless an approximate total is enough.
+ */
+class HotAccount extends Account {
+
+	private final BigDecimal[] balances;
+
+	private final int firstStripe;
+
+	private final int mask;
+
+	/**
+	 * @param subBalances number of sub-balances, a power of two
+	 */
+	HotAccount(String accountId, BigDecimal balance, String currency, int firstStripe, int subBalances) {
+		super(accountId, BigDecimal.ZERO, currency);
+		this.balances = new BigDecimal[subBalances];
+		Arrays.fill(balances, BigDecimal.ZERO);
+		balances[0] = balance;
+		this.firstStripe = firstStripe;
+		this.mask = subBalances - 1;
+	}
+
+	/**
+	 * Returns the sub-balance of the calling thread.
+	 */
+	int homeIndex() {
+		long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & mask;
+	}
+
+	int stripeOf(int index) {
+		return firstStripe + index;
+	}
+
+	int[] stripes() {
+		int[] stripes = new int[balances.length];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = firstStripe + i;
+		}
+		return stripes;
+	}
+
+	void deposit(int index, BigDecimal amount) {
+		balances[index] = balances[index].add(amount);
+	}
+
+	/**
+	 * Withdraws from one sub-balance, which only needs its stripe held.
+	 *
+	 * @return whether the sub-balance covered the amount
+	 */
+	boolean tryWithdraw(int index, BigDecimal amount) {
+		if (amount.compareTo(balances[index]) > 0) {
+			return false;
+		}
+		balances[index] = balances[index].subtract(amount);
+		return true;
+	}
+
+	/**
+	 * Withdraws from the sub-balance at {@code index} first and borrows the rest from the others.
+	 * The total must cover the amount.
+	 */
+	void withdrawAcross(int index, BigDecimal amount) {
+		BigDecimal remaining = amount;
+		for (int i = 0; i < balances.length && remaining.signum() > 0; i++) {
+			int borrowFrom = (index + i) & mask;
+			BigDecimal taken = remaining.min(balances[borrowFrom]);
+			balances[borrowFrom] = balances[borrowFrom].subtract(taken);
+			remaining = remaining.subtract(taken);
+		}
+	}
+
+	@Override
+	public BigDecimal getBalance() {
+		BigDecimal total = BigDecimal.ZERO;
+		for (BigDecimal balance : balances) {
+			total = total.add(balance);
+		}
+		return total;
+	}
+
+	@Override
+	public void setBalance(BigDecimal balance) {
+		BigDecimal difference = balance.subtract(getBalance());
+		if (difference.signum() >= 0) {
+			deposit(0, difference);
+		} else {
+			withdrawAcross(0, difference.negate());
+		}
+	}
+
+}
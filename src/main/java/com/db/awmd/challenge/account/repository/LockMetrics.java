@@ -0,0 +1,43 @@
+package com.db.awmd.challenge.account.repository;
+
+/**
+ * Records how long account stripes are waited for and held. Called on every locked update, so
+ * implementations must not allocate.
+ */
+public interface LockMetrics {
+
+	/**
+	 * Metrics that record nothing and never read the clock.
+	 */
+	LockMetrics NONE = new LockMetrics() {
+
+		@Override
+		public void contended(int stripe, long waitNanos) {
+		}
+
+		@Override
+		public long startTime() {
+			return 0;
+		}
+
+		@Override
+		public void held(long startTime) {
+		}
+
+	};
+
+	/**
+	 * A stripe was already held and the caller waited {@code waitNanos} for it. Uncontended
+	 * acquisitions are not reported.
+	 */
+	void contended(int stripe, long waitNanos);
+
+	/**
+	 * Returns the time the caller's stripes were locked, to be passed to {@link #held(long)} once
+	 * they are released.
+	 */
+	long startTime();
+
+	void held(long startTime);
+
+}
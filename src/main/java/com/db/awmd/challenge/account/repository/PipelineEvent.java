@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+/**
+ * Slot of a {@link PipelineRing}, reused for every change that passes through it. Filled by the
+ * producer that claimed it, then updated by each stage in turn; the ring's sequence numbers make
+ * every write visible to the next stage.
+ */
+final class PipelineEvent {
+
+	enum Type {
+		CREATE, TRANSFER, CLEAR
+	}
+
+	Type type;
+
+	/**
+	 * Id of the new account, or of the source account of a transfer.
+	 */
+	String accountFromId;
+
+	String accountToId;
+
+	/**
+	 * Initial balance of the new account, or the amount of a transfer.
+	 */
+	BigDecimal amount;
+
+	CompletableFuture<TransferResult> future;
+
+	/**
+	 * Set by the stage that applies the change, unless it failed.
+	 */
+	TransferResult result;
+
+	RuntimeException failure;
+
+	/**
+	 * Journal sequence number of an applied change, {@code 0} if it was not journaled.
+	 */
+	long journalSequence;
+
+	void set(Type type, String accountFromId, String accountToId, BigDecimal amount,
+			CompletableFuture<TransferResult> future) {
+		this.type = type;
+		this.accountFromId = accountFromId;
+		this.accountToId = accountToId;
+		this.amount = amount;
+		this.future = future;
+		this.result = null;
+		this.failure = null;
+		this.journalSequence = 0;
+	}
+
+	boolean isApplied() {
+		return failure == null && result.isCompleted();
+	}
+
+	/**
+	 * Completes the future of the change and drops every reference the slot holds.
+	 */
+	void complete() {
+		CompletableFuture<TransferResult> future = this.future;
+		TransferResult result = this.result;
+		RuntimeException failure = this.failure;
+		set(null, null, null, null, null);
+		if (failure != null) {
+			future.completeExceptionally(failure);
+		} else {
+			future.complete(result);
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.db.awmd.challenge.util.Stripes;
+
+/**
+ * Preallocated ring of {@link PipelineEvent}s passed through a fixed chain of stages, in the style
+ * of the LMAX Disruptor. Producers claim the next sequence number, fill the event in its slot and
+ * publish it. Every stage runs on a thread of its own and processes, in sequence order, the events
+ * its predecessor has finished; a slot is reused once the last stage is done with it. Producers
+ * and stages coordinate through sequence numbers alone, and wait by spinning, then yielding, then
+ * parking briefly.
+ */
+final class PipelineRing {
+
+	private static final int SPINS = 100;
+
+	private static final int YIELDS = 100;
+
+	private static final long PARK_NANOS = 50_000;
+
+	private final PipelineEvent[] events;
+
+	private final int mask;
+
+	/**
+	 * Sequence number last published in each slot.
+	 */
+	private final AtomicLongArray published;
+
+	private final AtomicLong claimed = new AtomicLong();
+
+	private final List<Consumer<PipelineEvent>> stages;
+
+	/**
+	 * Sequence number last finished by each stage.
+	 */
+	private final AtomicLong[] finished;
+
+	private final Thread[] threads;
+
+	private volatile boolean running = true;
+
+	/**
+	 * @param size number of slots, rounded up to a power of two
+	 * @param names thread name of every stage
+	 * @param stages the stages in order; a stage that throws fails the event it was processing
+	 */
+	PipelineRing(int size, String[] names, List<Consumer<PipelineEvent>> stages) {
+		if (size <= 0 || names.length != stages.size()) {
+			throw new IllegalArgumentException("Size must be greater than zero and every stage needs a name");
+		}
+		int slots = Stripes.roundUp(size);
+		this.events = new PipelineEvent[slots];
+		this.published = new AtomicLongArray(slots);
+		for (int i = 0; i < slots; i++) {
+			events[i] = new PipelineEvent();
+			published.set(i, -1);
+		}
+		this.mask = slots - 1;
+		this.stages = List.copyOf(stages);
+		this.finished = new AtomicLong[names.length];
+		this.threads = new Thread[names.length];
+		for (int i = 0; i < names.length; i++) {
+			finished[i] = new AtomicLong(-1);
+			int stage = i;
+			threads[i] = new Thread(() -> run(stage), names[i]);
+			threads[i].setDaemon(true);
+		}
+	}
+
+	void start() {
+		for (Thread thread : threads) {
+			thread.start();
+		}
+	}
+
+	/**
+	 * Claims the next slot, waiting while the ring is full.
+	 *
+	 * @throws IllegalStateException if the ring stopped while full
+	 */
+	long claim() {
+		long sequence = claimed.getAndIncrement();
+		AtomicLong last = finished[finished.length - 1];
+		for (int idle = 0; sequence - events.length > last.get(); idle++) {
+			if (!running) {
+				throw new IllegalStateException("Pipeline stopped");
+			}
+			idle(idle);
+		}
+		return sequence;
+	}
+
+	PipelineEvent get(long sequence) {
+		return events[(int) sequence & mask];
+	}
+
+	void publish(long sequence) {
+		published.set((int) sequence & mask, sequence);
+	}
+
+	boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Stops every stage once it is done with the events it is processing, then completes the events
+	 * published but not finished with a {@code failure}, so no producer waits for them forever. An
+	 * event published after this is never processed: its producer must check {@link #isRunning()}.
+	 */
+	synchronized void stop(Supplier<RuntimeException> failure) {
+		if (!running) {
+			return;
+		}
+		running = false;
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		for (long sequence = finished[finished.length - 1].get() + 1; published.get((int) sequence & mask) == sequence;
+				sequence++) {
+			PipelineEvent event = events[(int) sequence & mask];
+			event.failure = failure.get();
+			event.complete();
+		}
+	}
+
+	private void run(int stage) {
+		Consumer<PipelineEvent> handler = stages.get(stage);
+		AtomicLong finished = this.finished[stage];
+		long next = finished.get() + 1;
+		int idle = 0;
+		while (running) {
+			long available = availableTo(stage, next);
+			if (available < next) {
+				idle(idle++);
+				continue;
+			}
+			idle = 0;
+			for (long sequence = next; sequence <= available; sequence++) {
+				PipelineEvent event = events[(int) sequence & mask];
+				try {
+					handler.accept(event);
+				} catch (RuntimeException e) {
+					event.failure = e;
+				}
+			}
+			finished.set(available);
+			next = available + 1;
+		}
+	}
+
+	/**
+	 * Returns the last sequence number the stage may process, which is below {@code next} if there
+	 * is none yet.
+	 */
+	private long availableTo(int stage, long next) {
+		if (stage > 0) {
+			return finished[stage - 1].get();
+		}
+		long sequence = next;
+		while (published.get((int) sequence & mask) == sequence) {
+			sequence++;
+		}
+		return sequence - 1;
+	}
+
+	private static void idle(int idle) {
+		if (idle < SPINS) {
+			Thread.onSpinWait();
+		} else if (idle < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+}
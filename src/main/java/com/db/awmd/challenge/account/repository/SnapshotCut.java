@@ -0,0 +1,67 @@
+package com.db.awmd.challenge.account.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.db.awmd.challenge.account.domain.Account;
+
+/**
+ * Copy-on-write view of the account balances as they were at one journal sequence number, so a
+ * snapshot or a consistent scan can read them while transfers carry on.
+ * <p>
+ * While the cut is open, writers call {@link #preserve(Account)} before changing a balance and
+ * {@link #created(String)} before adding an account, both under the account's stripe lock. Only
+ * the first change to each account after the cut costs a map entry.
+ */
+class SnapshotCut {
+
+	private final long sequence;
+
+	private final Map<String, Account> accounts;
+
+	private final Map<String, BigDecimal> balancesAtCut = new ConcurrentHashMap<>();
+
+	private final Set<String> createdAfterCut = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param accounts the accounts at the cut, which may later include accounts created after it
+	 */
+	SnapshotCut(long sequence, Map<String, Account> accounts) {
+		this.sequence = sequence;
+		this.accounts = accounts;
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	Collection<Account> getAccounts() {
+		return accounts.values();
+	}
+
+	void preserve(Account account) {
+		balancesAtCut.putIfAbsent(account.getAccountId(), account.getBalance());
+	}
+
+	void created(String accountId) {
+		createdAfterCut.add(accountId);
+	}
+
+	/**
+	 * Returns the balance the account had at the cut, or {@code null} if it was created after it.
+	 * Needs no lock: the live balance is read before the preserved one, and a balance is always
+	 * preserved before it changes, so a live balance is only used if it had not changed yet.
+	 */
+	BigDecimal balanceAtCut(Account account) {
+		if (createdAfterCut.contains(account.getAccountId())) {
+			return null;
+		}
+		BigDecimal balance = account.getBalance();
+		BigDecimal preserved = balancesAtCut.get(account.getAccountId());
+		return preserved != null ? preserved : balance;
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.account.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.import")
+public class AccountsImportProperties {
+
+	/**
+	 * Number of lines parsed, validated and created together by one import thread.
+	 */
+	private int chunkSize = 10_000;
+
+	/**
+	 * Number of import threads shared by all imports.
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+}
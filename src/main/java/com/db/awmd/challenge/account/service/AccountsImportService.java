@@ -0,0 +1,283 @@
+package com.db.awmd.challenge.account.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Imports accounts from newline-delimited JSON, one account per line, for migrations of millions
+ * of accounts. The input is split into lines and handed over in chunks, so an import holds at most
+ * a few chunks in memory however large it is. Chunks are parsed, validated and created in bulk on
+ * a pool of import threads while the next ones are read. Lines are kept as the bytes they were read
+ * as and parsed from those, without decoding every line into a string first. Duplicate and invalid
+ * accounts are recorded in the returned summary instead of failing the import.
+ */
+@Service
+public class AccountsImportService implements DisposableBean {
+
+	private final AccountsRepository accountsRepository;
+
+	private final JsonFactory jsonFactory;
+
+	private final int chunkSize;
+
+	private final int maxChunksInFlight;
+
+	private final ExecutorService executor;
+
+	@Autowired
+	public AccountsImportService(AccountsRepository accountsRepository, ObjectMapper objectMapper,
+			AccountsImportProperties properties) {
+		this(accountsRepository, objectMapper, properties.getChunkSize(), properties.getThreads());
+	}
+
+	public AccountsImportService(AccountsRepository accountsRepository, ObjectMapper objectMapper, int chunkSize,
+			int threads) {
+		if (chunkSize <= 0 || threads <= 0) {
+			throw new IllegalArgumentException("Chunk size and threads must be greater than zero");
+		}
+		this.accountsRepository = accountsRepository;
+		this.jsonFactory = objectMapper.getFactory();
+		this.chunkSize = chunkSize;
+		this.maxChunksInFlight = threads * 2;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "accounts-import-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Imports every account of the input. Blank lines are skipped. Accounts of chunks already
+	 * handed over stay created if reading the input fails.
+	 */
+	public AccountImportSummary importAccounts(InputStream input) throws IOException {
+		AccountImportSummary summary = new AccountImportSummary();
+		Semaphore chunksInFlight = new Semaphore(maxChunksInFlight);
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		try {
+			byte[] buffer = new byte[1 << 16];
+			Chunk chunk = new Chunk(1, chunkSize, 64 * chunkSize);
+			for (int read; failure.get() == null && (read = input.read(buffer)) >= 0;) {
+				int lineStart = 0;
+				for (int i = 0; i < read; i++) {
+					if (buffer[i] == '\n') {
+						chunk.endLine(buffer, lineStart, i);
+						lineStart = i + 1;
+						if (chunk.lines == chunkSize) {
+							submit(chunk, summary, chunksInFlight, failure);
+							chunk = new Chunk(chunk.firstLine + chunkSize, chunkSize, chunk.length);
+						}
+					}
+				}
+				chunk.append(buffer, lineStart, read);
+			}
+			if (chunk.length > chunk.lineStart()) {
+				chunk.endLine(buffer, 0, 0);
+			}
+			if (chunk.lines > 0) {
+				submit(chunk, summary, chunksInFlight, failure);
+			}
+		} finally {
+			chunksInFlight.acquireUninterruptibly(maxChunksInFlight);
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return summary;
+	}
+
+	private void submit(Chunk chunk, AccountImportSummary summary, Semaphore chunksInFlight,
+			AtomicReference<RuntimeException> failure) {
+		chunksInFlight.acquireUninterruptibly();
+		executor.execute(() -> {
+			try {
+				importChunk(chunk, summary);
+			} catch (RuntimeException e) {
+				failure.compareAndSet(null, e);
+			} finally {
+				chunksInFlight.release();
+			}
+		});
+	}
+
+	private void importChunk(Chunk chunk, AccountImportSummary summary) {
+		List<Account> accounts = new ArrayList<>(chunk.lines);
+		for (int i = 0, start = 0; i < chunk.lines; start = chunk.ends[i++]) {
+			if (isBlank(chunk.bytes, start, chunk.ends[i])) {
+				continue;
+			}
+			Account account;
+			try {
+				account = parse(chunk.bytes, start, chunk.ends[i] - start);
+			} catch (JsonProcessingException e) {
+				summary.invalid("Line " + (chunk.firstLine + i) + ": " + e.getOriginalMessage());
+				continue;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			String error = validate(account);
+			if (error != null) {
+				summary.invalid("Line " + (chunk.firstLine + i) + ": " + error);
+			} else {
+				accounts.add(account);
+			}
+		}
+		summary.created(accountsRepository.createAccounts(accounts, summary));
+	}
+
+	/**
+	 * Reads the account fields straight from the parser rather than binding through
+	 * {@link ObjectMapper}, which costs more than creating the account. Unknown fields are skipped,
+	 * as they are when binding.
+	 */
+	private Account parse(byte[] bytes, int offset, int length) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(bytes, offset, length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected an account object");
+			}
+			String accountId = null;
+			BigDecimal balance = null;
+			String currency = null;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("accountId".equals(field)) {
+					accountId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+				} else if ("balance".equals(field)) {
+					balance = value == JsonToken.VALUE_NULL ? null : parser.getDecimalValue();
+				} else if ("currency".equals(field)) {
+					currency = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+				} else {
+					parser.skipChildren();
+				}
+			}
+			if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+				throw new JsonParseException(parser, "Expected a single account object");
+			}
+			return new Account(accountId, balance, currency);
+		}
+	}
+
+	/**
+	 * Checks the constraints {@code @Valid} enforces on a single new {@link Account}. They are
+	 * written out because the bean validator costs more per account than creating it.
+	 */
+	private static String validate(Account account) {
+		if (account.getAccountId() == null || account.getAccountId().isEmpty()) {
+			return "accountId must not be empty";
+		}
+		if (account.getBalance() == null) {
+			return "balance must not be null";
+		}
+		if (account.getBalance().signum() < 0) {
+			return "balance Initial balance must be positive.";
+		}
+		if (account.getCurrency() != null && !isCurrencyCode(account.getCurrency())) {
+			return "currency Currency must be a three-letter ISO 4217 code.";
+		}
+		return null;
+	}
+
+	private static boolean isBlank(byte[] bytes, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (bytes[i] < 0 || !Character.isWhitespace(bytes[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isCurrencyCode(String currency) {
+		if (currency.length() != 3) {
+			return false;
+		}
+		for (int i = 0; i < 3; i++) {
+			char c = currency.charAt(i);
+			if (c < 'A' || c > 'Z') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Lines of the input read one after another into one array, each ending where the next starts.
+	 */
+	private static final class Chunk {
+
+		private final long firstLine;
+
+		private final int[] ends;
+
+		private int lines;
+
+		private byte[] bytes;
+
+		private int length;
+
+		private Chunk(long firstLine, int maxLines, int expectedBytes) {
+			this.firstLine = firstLine;
+			this.ends = new int[maxLines];
+			this.bytes = new byte[Math.max(expectedBytes, 64)];
+		}
+
+		private int lineStart() {
+			return lines == 0 ? 0 : ends[lines - 1];
+		}
+
+		/**
+		 * Appends the bytes of {@code buffer} from {@code start} up to {@code end} to the current
+		 * line.
+		 */
+		private void append(byte[] buffer, int start, int end) {
+			if (length + end - start > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + end - start));
+			}
+			System.arraycopy(buffer, start, bytes, length, end - start);
+			length += end - start;
+		}
+
+		/**
+		 * Appends the rest of the current line and ends it.
+		 */
+		private void endLine(byte[] buffer, int start, int end) {
+			append(buffer, start, end);
+			ends[lines++] = length;
+		}
+
+	}
+
+}
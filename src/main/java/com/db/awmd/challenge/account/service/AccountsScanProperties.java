@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.account.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.scan")
+public class AccountsScanProperties {
+
+	/**
+	 * How long a scan stays open after its last page was read.
+	 */
+	private Duration ttl = Duration.ofMinutes(1);
+
+	/**
+	 * Maximum number of open scans; the least recently read is closed first.
+	 */
+	private int maxOpen = 100;
+
+}
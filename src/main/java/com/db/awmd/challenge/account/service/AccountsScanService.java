@@ -0,0 +1,195 @@
+package com.db.awmd.challenge.account.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountsPage;
+import com.db.awmd.challenge.account.exception.ScanExpiredException;
+import com.db.awmd.challenge.account.repository.AccountScan;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads every account, either a page at a time or as a single newline-delimited JSON stream, for
+ * reconciliation jobs. Paging keeps the {@link AccountScan} open between pages under a random
+ * cursor, so a consistent scan returns every page as of the same point in time. Scans not read for
+ * {@code accounts.scan.ttl} are closed in the background, and once {@code accounts.scan.max-open}
+ * scans are open the least recently read is closed to make room.
+ */
+@Service
+public class AccountsScanService implements DisposableBean {
+
+	private static final int EXPORT_PAGE_SIZE = 1000;
+
+	private final AccountsRepository accountsRepository;
+
+	private final ObjectMapper objectMapper;
+
+	private final long ttlMillis;
+
+	private final int maxOpen;
+
+	private final Clock clock;
+
+	private final ScheduledExecutorService expiry;
+
+	// In access order, so the least recently read scan comes first. Guarded by this.
+	private final Map<String, OpenScan> openScans = new LinkedHashMap<>(16, 0.75f, true);
+
+	@Autowired
+	public AccountsScanService(AccountsRepository accountsRepository, ObjectMapper objectMapper,
+			AccountsScanProperties properties) {
+		this(accountsRepository, objectMapper, properties.getTtl(), properties.getMaxOpen(), Clock.systemUTC());
+	}
+
+	public AccountsScanService(AccountsRepository accountsRepository, ObjectMapper objectMapper, Duration ttl,
+			int maxOpen, Clock clock) {
+		if (maxOpen <= 0 || ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("Max open scans and the TTL must be positive");
+		}
+		this.accountsRepository = accountsRepository;
+		this.objectMapper = objectMapper;
+		this.ttlMillis = ttl.toMillis();
+		this.maxOpen = maxOpen;
+		this.clock = clock;
+		this.expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "accounts-scan-expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		expiry.scheduleWithFixedDelay(this::closeExpired, ttlMillis, ttlMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the first page of a new scan when {@code cursor} is {@code null}, and otherwise the
+	 * next page of the scan the cursor names, which keeps its own consistency. A cursor is read by
+	 * one request at a time.
+	 *
+	 * @throws ScanExpiredException if the cursor is unknown, expired or being read
+	 * @throws UnsupportedOperationException if the repository does not support the scan
+	 */
+	public AccountsPage scanAccounts(String cursor, int limit, boolean consistent) {
+		OpenScan scan = cursor == null ? new OpenScan(UUID.randomUUID().toString(), openScan(consistent))
+				: take(cursor);
+		List<Account> accounts;
+		try {
+			accounts = scan.scan.next(limit);
+		} catch (RuntimeException e) {
+			scan.scan.close();
+			throw e;
+		}
+		if (accounts.size() < limit) {
+			scan.scan.close();
+			return new AccountsPage(accounts, null);
+		}
+		keep(scan);
+		return new AccountsPage(accounts, scan.cursor);
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if the repository does not support the scan
+	 */
+	public AccountScan openScan(boolean consistent) {
+		return accountsRepository.openScan(consistent);
+	}
+
+	/**
+	 * Writes the accounts of the scan to {@code out} as newline-delimited JSON, a page at a time,
+	 * so the memory used does not grow with the number of accounts.
+	 */
+	public void exportAccounts(AccountScan scan, OutputStream out) throws IOException {
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			// Accounts are separated by the new line alone.
+			generator.setRootValueSeparator(null);
+			List<Account> accounts;
+			do {
+				accounts = scan.next(EXPORT_PAGE_SIZE);
+				for (Account account : accounts) {
+					generator.writeStartObject();
+					generator.writeStringField("accountId", account.getAccountId());
+					generator.writeNumberField("balance", account.getBalance());
+					generator.writeEndObject();
+					generator.writeRaw('\n');
+				}
+			} while (accounts.size() == EXPORT_PAGE_SIZE);
+		}
+	}
+
+	private synchronized OpenScan take(String cursor) {
+		OpenScan scan = openScans.remove(cursor);
+		if (scan == null || scan.expiresAt <= clock.millis()) {
+			if (scan != null) {
+				scan.scan.close();
+			}
+			throw new ScanExpiredException("Cursor " + cursor + " is unknown or expired");
+		}
+		return scan;
+	}
+
+	private void keep(OpenScan scan) {
+		synchronized (this) {
+			scan.expiresAt = clock.millis() + ttlMillis;
+			openScans.put(scan.cursor, scan);
+		}
+		closeExpired();
+	}
+
+	/**
+	 * Closes the scans past their TTL, and the least recently read ones beyond the maximum.
+	 */
+	private void closeExpired() {
+		List<OpenScan> closed = new ArrayList<>();
+		synchronized (this) {
+			long now = clock.millis();
+			for (Iterator<OpenScan> iterator = openScans.values().iterator(); iterator.hasNext();) {
+				OpenScan oldest = iterator.next();
+				if (oldest.expiresAt > now && openScans.size() <= maxOpen) {
+					break;
+				}
+				iterator.remove();
+				closed.add(oldest);
+			}
+		}
+		closed.forEach(oldest -> oldest.scan.close());
+	}
+
+	@Override
+	public synchronized void destroy() {
+		expiry.shutdownNow();
+		openScans.values().forEach(scan -> scan.scan.close());
+		openScans.clear();
+	}
+
+	private static class OpenScan {
+
+		final String cursor;
+
+		final AccountScan scan;
+
+		long expiresAt;
+
+		OpenScan(String cursor, AccountScan scan) {
+			this.cursor = cursor;
+			this.scan = scan;
+		}
+
+	}
+
+}
@@ -1,6 +1,11 @@
 package com.db.awmd.challenge.account.service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -8,7 +13,13 @@ import org.springframework.stereotype.Service;
 import com.db.awmd.challenge.account.domain.Account;
 import com.db.awmd.challenge.account.repository.AccountsRepository;
 import com.db.awmd.challenge.notification.NotificationService;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferHistoryPage;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
 import com.db.awmd.challenge.transfer.exception.TransferException;
+import com.db.awmd.challenge.transfer.repository.TransferLedger;
+import com.db.awmd.challenge.transfer.velocity.VelocityCheck;
 
 import lombok.Getter;
 
@@ -18,12 +29,33 @@ public class AccountsService {
 	@Getter
 	private final AccountsRepository accountsRepository;
 
-	@Autowired
-	NotificationService notificationService;
+	private final NotificationService notificationService;
+
+	private final TransferLedger transferLedger;
+
+	private final TransferMetrics transferMetrics;
+
+	private final VelocityCheck velocityCheck;
+
+	// Looks up the accounts to notify, on the thread that sends the notification.
+	private final Function<String, Account> notifiedAccounts;
 
 	@Autowired
-	public AccountsService(AccountsRepository accountsRepository) {
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferLedger transferLedger, TransferMetrics transferMetrics, VelocityCheck velocityCheck) {
 		this.accountsRepository = accountsRepository;
+		this.notificationService = notificationService;
+		this.transferLedger = transferLedger;
+		this.transferMetrics = transferMetrics;
+		this.velocityCheck = velocityCheck;
+		this.notifiedAccounts = accountsRepository::peekAccount;
+	}
+
+	/**
+	 * Returns a builder for services created outside Spring, such as in tests and benchmarks.
+	 */
+	public static Builder builder(AccountsRepository accountsRepository, NotificationService notificationService) {
+		return new Builder(accountsRepository, notificationService);
 	}
 
 	public void createAccount(Account account) {
@@ -35,16 +67,229 @@ public class AccountsService {
 	}
 
 	public void transfer(String accountFromId, String accountToId, BigDecimal amount) throws TransferException {
-		this.accountsRepository.transfer(accountFromId, accountToId, amount);
-		sendTransferNotifications(accountFromId, accountToId, amount);
+		TransferResult result = tryTransfer(accountFromId, accountToId, amount);
+		if (!result.isCompleted()) {
+			throw result.toException();
+		}
+	}
+
+	/**
+	 * Like {@link #transfer(String, String, BigDecimal)}, but returns expected failures such as an
+	 * insufficient balance as the result instead of throwing them. The velocity rules of the source
+	 * account are checked first.
+	 */
+	public TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		return tryTransfer(accountFromId, accountToId, amount, null);
+	}
+
+	/**
+	 * Holds {@code amount} of the account's balance, which transfers can then no longer spend.
+	 *
+	 * @throws UnsupportedOperationException if the repository does not support holds
+	 */
+	public TransferResult tryHold(String accountId, BigDecimal amount) {
+		return this.accountsRepository.tryHold(accountId, amount);
+	}
+
+	public void releaseHold(String accountId, BigDecimal amount) {
+		this.accountsRepository.releaseHold(accountId, amount);
+	}
+
+	/**
+	 * Releases {@code held} and transfers {@code amount} of it as one step. The capture is checked
+	 * against the velocity rules, recorded and notified like any other transfer.
+	 */
+	public TransferResult tryCapture(String accountFromId, String accountToId, BigDecimal held, BigDecimal amount) {
+		return tryTransfer(accountFromId, accountToId, amount, held);
+	}
+
+	/**
+	 * Transfers {@code amount}, capturing it from {@code held} unless that is {@code null}.
+	 */
+	private TransferResult tryTransfer(String accountFromId, String accountToId, BigDecimal amount,
+			BigDecimal held) {
+		long startTime = transferMetrics.startTime();
+		TransferResult rejected = velocityCheck.reserve(accountFromId, amount);
+		if (rejected != null) {
+			transferMetrics.transferred(rejected.getStatus(), startTime);
+			return rejected;
+		}
+		TransferResult result;
+		try {
+			result = held == null ? this.accountsRepository.tryTransfer(accountFromId, accountToId, amount)
+					: this.accountsRepository.tryCapture(accountFromId, accountToId, held, amount);
+		} catch (RuntimeException e) {
+			velocityCheck.release(accountFromId, amount);
+			transferMetrics.failed(e, startTime);
+			throw e;
+		}
+		if (!result.isCompleted()) {
+			velocityCheck.release(accountFromId, amount);
+		}
+		return transferred(accountFromId, accountToId, amount, result, startTime);
+	}
+
+	/**
+	 * Like {@link #tryTransfer(String, String, BigDecimal)}, but returns without waiting for
+	 * repositories that apply transfers on threads of their own. The ledger entry and notifications
+	 * of a completed transfer are made before the returned future completes.
+	 */
+	public CompletableFuture<TransferResult> tryTransferAsync(String accountFromId, String accountToId,
+			BigDecimal amount) {
+		long startTime = transferMetrics.startTime();
+		TransferResult rejected = velocityCheck.reserve(accountFromId, amount);
+		if (rejected != null) {
+			transferMetrics.transferred(rejected.getStatus(), startTime);
+			return CompletableFuture.completedFuture(rejected);
+		}
+		return this.accountsRepository.tryTransferAsync(accountFromId, accountToId, amount)
+				.whenComplete((result, failure) -> {
+					if (failure != null || !result.isCompleted()) {
+						velocityCheck.release(accountFromId, amount);
+					}
+					if (failure instanceof RuntimeException) {
+						transferMetrics.failed((RuntimeException) failure, startTime);
+					}
+				}).thenApply(result -> transferred(accountFromId, accountToId, amount, result, startTime));
+	}
+
+	/**
+	 * Applies the transfers that pass the velocity rules of their source accounts. In
+	 * {@link BatchMode#ALL_OR_NOTHING} mode, a transfer that does not pass fails the whole batch.
+	 */
+	public List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode) {
+		List<TransferResult> results = velocityCheck == VelocityCheck.NONE
+				? this.accountsRepository.transferBatch(transfers, mode)
+				: checkedTransferBatch(transfers, mode);
+		for (int i = 0; i < results.size(); i++) {
+			transferMetrics.batchTransfer(results.get(i).getStatus());
+			if (results.get(i).isCompleted()) {
+				Transfer transfer = transfers.get(i);
+				transferLedger.append(transfer);
+				sendTransferNotifications(transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmount(),
+						results.get(i));
+			}
+		}
+		return results;
 	}
 
-	private void sendTransferNotifications(String accountFromId, String accountToId, BigDecimal amount) {
-		notificationService.notifyAboutTransfer(getAccount(accountFromId),
+	private List<TransferResult> checkedTransferBatch(List<Transfer> transfers, BatchMode mode) {
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		List<Transfer> passed = new ArrayList<>(transfers.size());
+		for (Transfer transfer : transfers) {
+			TransferResult rejected = velocityCheck.reserve(transfer.getAccountFromId(), transfer.getAmount());
+			results.add(rejected);
+			if (rejected == null) {
+				passed.add(transfer);
+			}
+		}
+		if (mode == BatchMode.ALL_OR_NOTHING && passed.size() < transfers.size()) {
+			for (int i = 0; i < results.size(); i++) {
+				if (results.get(i) == null) {
+					release(transfers.get(i));
+					results.set(i, TransferResult.notApplied());
+				}
+			}
+			return results;
+		}
+		List<TransferResult> applied;
+		try {
+			applied = passed.isEmpty() ? List.of() : this.accountsRepository.transferBatch(passed, mode);
+		} catch (RuntimeException e) {
+			passed.forEach(this::release);
+			throw e;
+		}
+		for (int i = 0, next = 0; i < results.size(); i++) {
+			if (results.get(i) == null) {
+				TransferResult result = applied.get(next++);
+				if (!result.isCompleted()) {
+					release(transfers.get(i));
+				}
+				results.set(i, result);
+			}
+		}
+		return results;
+	}
+
+	private void release(Transfer transfer) {
+		velocityCheck.release(transfer.getAccountFromId(), transfer.getAmount());
+	}
+
+	/**
+	 * Returns a page of the account's transfer history, newest first.
+	 *
+	 * @throws com.db.awmd.challenge.account.exception.AccountNotFoundException if the account does not exist
+	 */
+	public TransferHistoryPage getTransferHistory(String accountId, Instant from, Instant to, long cursor, int limit) {
+		getAccount(accountId);
+		return transferLedger.history(accountId, from, to, cursor, limit);
+	}
+
+	private TransferResult transferred(String accountFromId, String accountToId, BigDecimal amount,
+			TransferResult result, long startTime) {
+		if (result.isCompleted()) {
+			transferLedger.append(accountFromId, accountToId, amount);
+			sendTransferNotifications(accountFromId, accountToId, amount, result);
+		}
+		transferMetrics.transferred(result.getStatus(), startTime);
+		return result;
+	}
+
+	/**
+	 * Notifies the owners of both accounts. Their owners are all that is needed, so the accounts are
+	 * peeked at rather than read with a consistent balance, which for a hot account would lock every
+	 * one of its sub-balances again. An asynchronous notification service looks them up on its own
+	 * threads.
+	 */
+	private void sendTransferNotifications(String accountFromId, String accountToId, BigDecimal amount,
+			TransferResult result) {
+		notificationService.notifyAboutTransfer(accountFromId, notifiedAccounts,
 				"Transfer completed - Sent " + amount + " to " + accountToId);
-		notificationService.notifyAboutTransfer(getAccount(accountToId),
-				"Transfer completed - Received " + amount + " from " + accountFromId);
+		notificationService.notifyAboutTransfer(accountToId, notifiedAccounts,
+				"Transfer completed - Received " + (result.getCredited() != null ? result.getCredited() : amount)
+						+ " from " + accountFromId);
+	}
+
+	/**
+	 * Builds a service without a ledger, metrics or velocity rules unless set.
+	 */
+	public static final class Builder {
+
+		private final AccountsRepository accountsRepository;
+
+		private final NotificationService notificationService;
+
+		private TransferLedger transferLedger = TransferLedger.NONE;
+
+		private TransferMetrics transferMetrics = TransferMetrics.NONE;
+
+		private VelocityCheck velocityCheck = VelocityCheck.NONE;
+
+		private Builder(AccountsRepository accountsRepository, NotificationService notificationService) {
+			this.accountsRepository = accountsRepository;
+			this.notificationService = notificationService;
+		}
+
+		public Builder transferLedger(TransferLedger transferLedger) {
+			this.transferLedger = transferLedger;
+			return this;
+		}
+
+		public Builder transferMetrics(TransferMetrics transferMetrics) {
+			this.transferMetrics = transferMetrics;
+			return this;
+		}
+
+		public Builder velocityCheck(VelocityCheck velocityCheck) {
+			this.velocityCheck = velocityCheck;
+			return this;
+		}
+
+		public AccountsService build() {
+			return new AccountsService(accountsRepository, notificationService, transferLedger, transferMetrics,
+					velocityCheck);
+		}
 
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.account.service;
+
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+
+/**
+ * Records the latency and outcome of transfers. Called on every transfer, so implementations must
+ * not allocate once a given outcome has been seen.
+ */
+public interface TransferMetrics {
+
+	/**
+	 * Metrics that record nothing and never read the clock.
+	 */
+	TransferMetrics NONE = new TransferMetrics() {
+
+		@Override
+		public long startTime() {
+			return 0;
+		}
+
+		@Override
+		public void transferred(TransferStatus status, long startTime) {
+		}
+
+		@Override
+		public void failed(RuntimeException e, long startTime) {
+		}
+
+		@Override
+		public void batchTransfer(TransferStatus status) {
+		}
+
+	};
+
+	/**
+	 * Returns the time a transfer started, to be passed back once it completes or fails.
+	 */
+	long startTime();
+
+	/**
+	 * Records a transfer that completed or was rejected with an expected failure.
+	 */
+	void transferred(TransferStatus status, long startTime);
+
+	/**
+	 * Records a transfer that failed with an unexpected exception.
+	 */
+	void failed(RuntimeException e, long startTime);
+
+	/**
+	 * Counts the outcome of one transfer of a batch. Batches are timed as a whole by the endpoint.
+	 */
+	void batchTransfer(TransferStatus status);
+
+}
@@ -0,0 +1,71 @@
+package com.db.awmd.challenge.account.web;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON body of an account, serialized once, with a strong ETag derived from its bytes. The balance
+ * and currency it was serialized from tell whether it still represents the account.
+ */
+public final class AccountResponse {
+
+	private final BigDecimal balance;
+
+	private final String currency;
+
+	private final byte[] body;
+
+	private final String eTag;
+
+	private AccountResponse(BigDecimal balance, String currency, byte[] body) {
+		this.balance = balance;
+		this.currency = currency;
+		this.body = body;
+		this.eTag = eTagOf(body);
+	}
+
+	public static AccountResponse of(Account account, ObjectMapper objectMapper) {
+		BigDecimal balance = account.getBalance();
+		try {
+			return new AccountResponse(balance, account.getCurrency(), objectMapper
+					.writeValueAsBytes(new Account(account.getAccountId(), balance, account.getCurrency())));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Failed to serialize account " + account.getAccountId(), e);
+		}
+	}
+
+	/**
+	 * Returns whether the body still represents the account, whose id it was cached under. The
+	 * body holds nothing but the id, the balance and the currency, so those two act as its version.
+	 */
+	public boolean isCurrent(Account account) {
+		return balance.equals(account.getBalance()) && Objects.equals(currency, account.getCurrency());
+	}
+
+	/**
+	 * Shared with every request for the account; must not be modified.
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the body, quoted.
+	 */
+	private static String eTagOf(byte[] body) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : body) {
+			hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+		}
+		return '"' + Long.toHexString(hash) + '"';
+	}
+
+}
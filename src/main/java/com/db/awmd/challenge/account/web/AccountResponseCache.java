@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.account.web;
+
+import com.db.awmd.challenge.account.domain.Account;
+
+/**
+ * Keeps the serialized response of frequently read accounts, so polling an account does not
+ * serialize it again until its balance changes.
+ */
+public interface AccountResponseCache {
+
+	/**
+	 * Returns the response for the account as just read from the repository, cached if it is still
+	 * current and serialized otherwise.
+	 */
+	AccountResponse responseFor(Account account);
+
+}
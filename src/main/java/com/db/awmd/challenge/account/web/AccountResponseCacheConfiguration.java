@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.account.web;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Configuration
+public class AccountResponseCacheConfiguration {
+
+	@Bean
+	public AccountResponseCache accountResponseCache(AccountResponseCacheProperties properties,
+			ObjectMapper objectMapper) {
+		if (!properties.isEnabled()) {
+			return account -> AccountResponse.of(account, objectMapper);
+		}
+		return new StripedAccountResponseCache(properties.getStripes(), properties.getMaxEntries(), objectMapper);
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.account.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.response-cache")
+public class AccountResponseCacheProperties {
+
+	/**
+	 * Whether serialized account responses are cached.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * Maximum number of cached responses; the least recently read are evicted first.
+	 */
+	private int maxEntries = 100_000;
+
+	private int stripes = 64;
+
+}
@@ -1,8 +1,22 @@
 package com.db.awmd.challenge.account.web;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,16 +24,33 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
 import com.db.awmd.challenge.account.exception.AccountNotFoundException;
 import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
-import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.exception.InvalidBalanceException;
+import com.db.awmd.challenge.account.exception.ScanExpiredException;
+import com.db.awmd.challenge.account.repository.AccountScan;
+import com.db.awmd.challenge.account.service.AccountsImportService;
+import com.db.awmd.challenge.account.service.AccountsScanService;
 import com.db.awmd.challenge.account.service.AccountsService;
-import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
-import com.db.awmd.challenge.transfer.exception.SameAccountTransferException;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.transfer.admission.ClientIdentifier;
+import com.db.awmd.challenge.transfer.admission.TransferAdmission;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+import com.db.awmd.challenge.transfer.idempotency.IdempotencyCache;
+import com.db.awmd.challenge.transfer.web.BatchTransferResponse;
 import com.db.awmd.challenge.transfer.web.TransferRequest;
 
 import lombok.extern.slf4j.Slf4j;
@@ -29,11 +60,42 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AccountsController {
 
+	private static final int MAX_HISTORY_LIMIT = 1000;
+
+	private static final int MAX_SCAN_LIMIT = 10_000;
+
 	private final AccountsService accountsService;
 
+	private final Validator validator;
+
+	private final IdempotencyCache idempotencyCache;
+
+	private final AccountsImportService accountsImportService;
+
+	private final AccountsScanService accountsScanService;
+
+	private final AccountResponseCache accountResponseCache;
+
+	private final ExchangeRateTable exchangeRates;
+
+	private final TransferAdmission transferAdmission;
+
+	private final ClientIdentifier clientIdentifier;
+
 	@Autowired
-	public AccountsController(AccountsService accountsService) {
+	public AccountsController(AccountsService accountsService, Validator validator,
+			IdempotencyCache idempotencyCache, AccountsImportService accountsImportService,
+			AccountsScanService accountsScanService, AccountResponseCache accountResponseCache,
+			ExchangeRateTable exchangeRates, TransferAdmission transferAdmission, ClientIdentifier clientIdentifier) {
 		this.accountsService = accountsService;
+		this.validator = validator;
+		this.idempotencyCache = idempotencyCache;
+		this.accountsImportService = accountsImportService;
+		this.accountsScanService = accountsScanService;
+		this.accountResponseCache = accountResponseCache;
+		this.exchangeRates = exchangeRates;
+		this.transferAdmission = transferAdmission;
+		this.clientIdentifier = clientIdentifier;
 	}
 
 	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -42,34 +104,278 @@ public class AccountsController {
 
 		try {
 			this.accountsService.createAccount(account);
-		} catch (DuplicateAccountIdException daie) {
-			return new ResponseEntity<>(daie.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch (DuplicateAccountIdException | InvalidBalanceException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch (UnsupportedOperationException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
 		}
 
 		return new ResponseEntity<>(HttpStatus.CREATED);
 	}
 
+	/**
+	 * Creates the accounts of a newline-delimited JSON body, one account per line, streaming it
+	 * rather than reading it whole. Duplicate and invalid accounts are skipped and reported in the
+	 * summary.
+	 */
+	@PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<AccountImportSummary> importAccounts(InputStream body) throws IOException {
+		AccountImportSummary summary = accountsImportService.importAccounts(body);
+		log.info("Imported {} accounts, skipped {} duplicate and {} invalid", summary.getCreated(),
+				summary.getDuplicates(), summary.getInvalid());
+		return ResponseEntity.ok(summary);
+	}
+
+	/**
+	 * Pages through every account. {@code cursor} is the {@code nextCursor} of the previous page;
+	 * with {@code consistent}, every page shows the balances as they were when the first page was
+	 * read.
+	 */
+	@GetMapping
+	public ResponseEntity<Object> scanAccounts(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "1000") int limit, @RequestParam(defaultValue = "false") boolean consistent) {
+		if (limit < 1 || limit > MAX_SCAN_LIMIT) {
+			return new ResponseEntity<>("limit must be between 1 and " + MAX_SCAN_LIMIT, HttpStatus.BAD_REQUEST);
+		}
+		try {
+			return ResponseEntity.ok(accountsScanService.scanAccounts(cursor, limit, consistent));
+		} catch (ScanExpiredException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.GONE);
+		} catch (UnsupportedOperationException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+		}
+	}
+
+	/**
+	 * Streams every account as newline-delimited JSON. The response is chunked and written as the
+	 * accounts are read; with {@code consistent}, it shows the balances as they were when the export
+	 * started.
+	 */
+	@GetMapping(path = "/export")
+	public void exportAccounts(@RequestParam(defaultValue = "false") boolean consistent, HttpServletResponse response)
+			throws IOException {
+		AccountScan scan;
+		try {
+			scan = accountsScanService.openScan(consistent);
+		} catch (UnsupportedOperationException e) {
+			response.setStatus(HttpStatus.NOT_IMPLEMENTED.value());
+			response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+			response.getWriter().write(e.getMessage());
+			return;
+		}
+		try (scan) {
+			log.info("Exporting accounts");
+			response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+			accountsScanService.exportAccounts(scan, response.getOutputStream());
+		}
+	}
+
+	/**
+	 * Returns the account, serialized again only when its balance changed since it was last read.
+	 * A request whose {@code If-None-Match} header carries the current ETag gets 304 without a
+	 * body.
+	 */
 	@GetMapping(path = "/{accountId}")
-	public ResponseEntity<Object> getAccount(@PathVariable String accountId) {
-		log.info("Retrieving account for id {}", accountId);
+	public ResponseEntity<Object> getAccount(@PathVariable String accountId, WebRequest request) {
+		log.debug("Retrieving account for id {}", accountId);
 		try {
-			Account account = accountsService.getAccount(accountId);
-			return ResponseEntity.ok(account);
+			AccountResponse response = accountResponseCache.responseFor(accountsService.getAccount(accountId));
+			if (request.checkNotModified(response.getETag())) {
+				return null;
+			}
+			return ResponseEntity.ok().eTag(response.getETag()).contentType(MediaType.APPLICATION_JSON)
+					.body(response.getBody());
 		} catch (AccountNotFoundException anfe) {
 			return new ResponseEntity<>(anfe.getMessage(), HttpStatus.NOT_FOUND);
 		}
 	}
 
-	@PostMapping(value = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE)
-	public ResponseEntity<Object> transfer(@RequestBody @Valid TransferRequest transferRequest) {
+	/**
+	 * Pages through the transfers from or to an account, newest first. {@code from} and {@code to}
+	 * are ISO-8601 instants bounding the transfer time, {@code to} excluded; {@code cursor} is the
+	 * {@code nextCursor} of the previous page.
+	 */
+	@GetMapping(path = "/{accountId}/transfers")
+	public ResponseEntity<Object> getTransfers(@PathVariable String accountId,
+			@RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to,
+			@RequestParam(defaultValue = "100") int limit, @RequestParam(required = false) Long cursor) {
+		if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+			return new ResponseEntity<>("limit must be between 1 and " + MAX_HISTORY_LIMIT, HttpStatus.BAD_REQUEST);
+		}
 		try {
-			accountsService.transfer(transferRequest.getAccountFromId(), transferRequest.getAccountToId(),
-					transferRequest.getAmount());
-			return ResponseEntity.ok("Transfer completed successfully");
-		} catch (InvalidTransferAmountException | SameAccountTransferException | InsufficientBalanceException e) {
-			return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+			return ResponseEntity.ok(accountsService.getTransferHistory(accountId, from != null ? from : Instant.MIN,
+					to != null ? to : Instant.MAX, cursor != null ? cursor : Long.MAX_VALUE, limit));
 		} catch (AccountNotFoundException e) {
 			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
 		}
 	}
+
+	/**
+	 * Transfers between two accounts. A request carrying an {@code Idempotency-Key} header is
+	 * applied at most once per key: a retry with the same key and transfer gets the original
+	 * response, and reusing the key for a different transfer is rejected. Requests over the rate
+	 * limits of their client or source account, or beyond the transfers the service can take in
+	 * flight, get 429 with a {@code Retry-After} header, as do keyed requests while too many keyed
+	 * transfers are in flight for their key to be remembered.
+	 */
+	@PostMapping(value = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Object> transfer(@RequestBody @Valid TransferRequest transferRequest,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+			HttpServletRequest request) {
+		long admittedAt;
+		try {
+			admittedAt = transferAdmission.admit(clientIdentifier.clientOf(request), transferRequest.getAccountFromId(),
+					1);
+		} catch (TransferRejectedException e) {
+			return tooManyRequests(e);
+		}
+		TransferResult result;
+		try {
+			if (idempotencyKey == null) {
+				result = transfer(transferRequest);
+			} else {
+				result = idempotencyCache.execute(idempotencyKey, idempotent(transferRequest),
+						() -> transfer(transferRequest));
+			}
+		} catch (IdempotencyKeyReusedException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+		} catch (TransferRejectedException e) {
+			return tooManyRequests(e);
+		} finally {
+			transferAdmission.release(admittedAt);
+		}
+		if (result.isCompleted()) {
+			return ResponseEntity.ok(result.getMessage());
+		}
+		return new ResponseEntity<>(result.getMessage(),
+				result.getStatus() == TransferStatus.ACCOUNT_NOT_FOUND ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST);
+	}
+
+	private static ResponseEntity<Object> tooManyRequests(TransferRejectedException e) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().getSeconds()))
+				.body(e.getMessage());
+	}
+
+	private TransferResult transfer(TransferRequest transferRequest) {
+		TransferResult wrongCurrency = checkCurrency(transferRequest);
+		if (wrongCurrency != null) {
+			return wrongCurrency;
+		}
+		return accountsService.tryTransfer(transferRequest.getAccountFromId(), transferRequest.getAccountToId(),
+				transferRequest.getAmount());
+	}
+
+	/**
+	 * Returns why the currency named by the request is not the currency of its source account, or
+	 * {@code null} if it names none or the right one.
+	 */
+	private TransferResult checkCurrency(TransferRequest transferRequest) {
+		if (transferRequest.getCurrency() == null) {
+			return null;
+		}
+		Account accountFrom;
+		try {
+			accountFrom = accountsService.getAccount(transferRequest.getAccountFromId());
+		} catch (AccountNotFoundException e) {
+			return TransferResult.accountNotFound(transferRequest.getAccountFromId());
+		}
+		String currency = exchangeRates.current().currencyOf(accountFrom.getCurrency());
+		if (currency.equals(transferRequest.getCurrency())) {
+			return null;
+		}
+		return TransferResult.invalidAmount("Transfer amount must be in " + currency + ", the currency of account "
+				+ accountFrom.getAccountId());
+	}
+
+	/**
+	 * Returns a copy of the request that equals the copy of any retry of the same transfer, whatever
+	 * the scale of its amount.
+	 */
+	private static TransferRequest idempotent(TransferRequest transferRequest) {
+		return new TransferRequest(transferRequest.getAccountFromId(), transferRequest.getAccountToId(),
+				transferRequest.getAmount().stripTrailingZeros(), transferRequest.getCurrency());
+	}
+
+	/**
+	 * Applies an array of transfers in one pass. Business failures, including a source account that
+	 * does not exist, are reported per transfer; a malformed transfer or an empty array rejects the
+	 * whole request. Every transfer counts against the rate limits of the client and of its source
+	 * account, and the whole request is rejected if any is over its limit.
+	 */
+	@PostMapping(value = "/transfers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Object> transferBatch(@RequestBody List<TransferRequest> transferRequests,
+			@RequestParam(defaultValue = "BEST_EFFORT") BatchMode mode, HttpServletRequest request) {
+		if (transferRequests.isEmpty()) {
+			return new ResponseEntity<>("A batch needs at least one transfer", HttpStatus.BAD_REQUEST);
+		}
+		List<Transfer> transfers = new ArrayList<>(transferRequests.size());
+		TransferResult[] accountsNotFound = new TransferResult[transferRequests.size()];
+		boolean anyAccountNotFound = false;
+		Map<String, Integer> transfersByAccount = new LinkedHashMap<>();
+		for (int i = 0; i < transferRequests.size(); i++) {
+			TransferRequest transferRequest = transferRequests.get(i);
+			Set<ConstraintViolation<TransferRequest>> violations = validator.validate(transferRequest);
+			if (!violations.isEmpty()) {
+				ConstraintViolation<TransferRequest> violation = violations.iterator().next();
+				return new ResponseEntity<>("Transfer " + i + ": " + violation.getPropertyPath() + " "
+						+ violation.getMessage(), HttpStatus.BAD_REQUEST);
+			}
+			TransferResult wrongCurrency = checkCurrency(transferRequest);
+			if (wrongCurrency != null && wrongCurrency.getStatus() == TransferStatus.ACCOUNT_NOT_FOUND) {
+				accountsNotFound[i] = wrongCurrency;
+				anyAccountNotFound = true;
+			} else if (wrongCurrency != null) {
+				return new ResponseEntity<>("Transfer " + i + ": " + wrongCurrency.getMessage(),
+						HttpStatus.BAD_REQUEST);
+			} else {
+				transfers.add(Transfer.builder()
+						.accountFromId(transferRequest.getAccountFromId())
+						.accountToId(transferRequest.getAccountToId())
+						.amount(transferRequest.getAmount())
+						.build());
+			}
+			transfersByAccount.merge(transferRequest.getAccountFromId(), 1, Integer::sum);
+		}
+
+		long admittedAt;
+		try {
+			admittedAt = transferAdmission.admitBatch(clientIdentifier.clientOf(request), transfersByAccount,
+					transferRequests.size());
+		} catch (TransferRejectedException e) {
+			return tooManyRequests(e);
+		}
+		try {
+			List<TransferResult> results = anyAccountNotFound ? transferBatch(transfers, mode, accountsNotFound)
+					: accountsService.transferBatch(transfers, mode);
+			BatchTransferResponse response = BatchTransferResponse.of(mode, results);
+			if (mode == BatchMode.ALL_OR_NOTHING && response.getFailed() > 0) {
+				return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+			}
+			return ResponseEntity.ok(response);
+		} catch (UnsupportedOperationException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+		} finally {
+			transferAdmission.release(admittedAt);
+		}
+	}
+
+	/**
+	 * Applies the transfers whose source account was found, unless in {@link BatchMode#ALL_OR_NOTHING}
+	 * mode, and returns their results in request order with those of the others.
+	 */
+	private List<TransferResult> transferBatch(List<Transfer> transfers, BatchMode mode,
+			TransferResult[] accountsNotFound) {
+		List<TransferResult> applied = mode == BatchMode.ALL_OR_NOTHING || transfers.isEmpty() ? List.of()
+				: accountsService.transferBatch(transfers, mode);
+		List<TransferResult> results = new ArrayList<>(accountsNotFound.length);
+		for (int i = 0, next = 0; i < accountsNotFound.length; i++) {
+			if (accountsNotFound[i] != null) {
+				results.add(accountsNotFound[i]);
+			} else {
+				results.add(applied.isEmpty() ? TransferResult.notApplied() : applied.get(next++));
+			}
+		}
+		return results;
+	}
 }
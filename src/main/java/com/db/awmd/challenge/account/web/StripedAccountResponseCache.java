@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.account.web;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.util.Stripes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link AccountResponseCache} split into stripes by account id hash, each a map in access order
+ * guarded by its own lock, so once a stripe is full its least recently read account makes room.
+ * A cached response is checked against the balance just read before it is returned, so transfers
+ * and account creations never need to invalidate it: the first read after a change serializes
+ * the account again and replaces the stale response. Serialization runs outside the lock.
+ */
+public class StripedAccountResponseCache implements AccountResponseCache {
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * @param stripes number of independently locked stripes, rounded up to a power of two
+	 * @param maxEntries maximum number of cached responses, split evenly between the stripes
+	 */
+	public StripedAccountResponseCache(int stripes, int maxEntries, ObjectMapper objectMapper) {
+		if (stripes <= 0 || maxEntries < stripes) {
+			throw new IllegalArgumentException("Stripes must be greater than zero and max entries at least the stripes");
+		}
+		int size = Stripes.roundUp(stripes);
+		this.stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new Stripe(Math.max(1, maxEntries / size));
+		}
+		this.mask = size - 1;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public AccountResponse responseFor(Account account) {
+		Stripe stripe = stripeOf(account.getAccountId());
+		AccountResponse cached;
+		stripe.lock.lock();
+		try {
+			cached = stripe.responses.get(account.getAccountId());
+		} finally {
+			stripe.lock.unlock();
+		}
+		if (cached != null && cached.isCurrent(account)) {
+			return cached;
+		}
+		AccountResponse response = AccountResponse.of(account, objectMapper);
+		stripe.lock.lock();
+		try {
+			stripe.responses.put(account.getAccountId(), response);
+		} finally {
+			stripe.lock.unlock();
+		}
+		return response;
+	}
+
+	/**
+	 * Number of cached responses.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				size += stripe.responses.size();
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	private Stripe stripeOf(String accountId) {
+		return stripes[Stripes.indexOf(accountId, mask)];
+	}
+
+	private static class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		final LinkedHashMap<String, AccountResponse> responses;
+
+		Stripe(int capacity) {
+			this.responses = Stripes.lruMap(capacity);
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.db.awmd.challenge.fx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes the rates of {@code accounts.fx.rates-file} on startup, and again whenever the file is
+ * modified. A file that fails to load on startup fails the application; later failures are logged
+ * and keep the rates in effect.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.fx.rates-file")
+@Slf4j
+public class ExchangeRateFileLoader implements DisposableBean {
+
+	private final ExchangeRateTable table;
+
+	private final Path file;
+
+	private final ScheduledExecutorService scheduler;
+
+	private FileTime loadedModified;
+
+	@Autowired
+	public ExchangeRateFileLoader(ExchangeRateTable table, FxProperties properties) {
+		this.table = table;
+		this.file = properties.getRatesFile();
+		load();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "accounts-fx-reload");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = properties.getReloadInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::reloadIfModified, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	private void reloadIfModified() {
+		try {
+			if (!Files.getLastModifiedTime(file).equals(loadedModified)) {
+				load();
+			}
+		} catch (IOException | RuntimeException e) {
+			log.warn("Failed to reload exchange rates from {}, keeping the rates in effect", file, e);
+		}
+	}
+
+	private synchronized void load() {
+		try {
+			FileTime modified = Files.getLastModifiedTime(file);
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			Map<String, BigDecimal> rates = new HashMap<>();
+			for (String currency : properties.stringPropertyNames()) {
+				rates.put(currency.trim(), new BigDecimal(properties.getProperty(currency).trim()));
+			}
+			table.publish(rates);
+			loadedModified = modified;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read exchange rates from " + file, e);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Exchange rates in " + file + " are not all decimals", e);
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.db.awmd.challenge.fx;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The exchange rates in effect. Updates build a new {@link ExchangeRates} and publish it with a
+ * single volatile write, so transfers read a consistent table without locks and never see a
+ * partially applied update.
+ */
+@Slf4j
+public class ExchangeRateTable {
+
+	private volatile ExchangeRates current;
+
+	/**
+	 * Creates a table without rates besides the base currency.
+	 */
+	public ExchangeRateTable(String baseCurrency) {
+		this.current = ExchangeRates.of(baseCurrency, Map.of());
+	}
+
+	public ExchangeRates current() {
+		return current;
+	}
+
+	/**
+	 * Replaces every rate.
+	 *
+	 * @param rates units of every currency per unit of the base currency
+	 * @return the published table
+	 * @throws IllegalArgumentException if a currency or rate is invalid, in which case the rates in
+	 *             effect are kept
+	 */
+	public ExchangeRates publish(Map<String, BigDecimal> rates) {
+		ExchangeRates updated = ExchangeRates.of(current.getBaseCurrency(), rates);
+		current = updated;
+		log.info("Published exchange rates of {} currencies against {}", updated.getRates().size(),
+				updated.getBaseCurrency());
+		return updated;
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.db.awmd.challenge.fx;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of exchange rates, quoted as units of every currency per unit of the base
+ * currency. Cross rates between every pair of currencies, together with the minor unit of the
+ * target currency, are computed when the table is built and kept in an open-addressing table keyed
+ * by the pair, so a conversion is one probe, a multiplication and a rounding. A {@code null}
+ * currency stands for the base currency.
+ */
+public final class ExchangeRates {
+
+	public static final String DEFAULT_BASE_CURRENCY = "EUR";
+
+	private static final MathContext CROSS_RATE_PRECISION = MathContext.DECIMAL64;
+
+	private final String baseCurrency;
+
+	private final Map<String, BigDecimal> rates;
+
+	// Number of three-letter codes, so that a pair of them numbers below CODES * CODES.
+	private static final int CODES = 26 * 26 * 26;
+
+	// Pair number plus one, zero for an empty slot. At most half of the slots are used.
+	private final int[] pairs;
+
+	private final CrossRate[] crossRates;
+
+	private ExchangeRates(String baseCurrency, Map<String, BigDecimal> rates) {
+		this.baseCurrency = baseCurrency;
+		this.rates = Collections.unmodifiableMap(new TreeMap<>(rates));
+		int slots = Integer.highestOneBit(Math.max(rates.size() * rates.size(), 1)) * 4;
+		this.pairs = new int[slots];
+		this.crossRates = new CrossRate[slots];
+		for (Map.Entry<String, BigDecimal> from : rates.entrySet()) {
+			for (Map.Entry<String, BigDecimal> to : rates.entrySet()) {
+				int pair = pairOf(from.getKey(), to.getKey());
+				int slot = slotOf(pair);
+				while (pairs[slot] != 0) {
+					slot = (slot + 1) & (slots - 1);
+				}
+				pairs[slot] = pair + 1;
+				crossRates[slot] = new CrossRate(to.getValue().divide(from.getValue(), CROSS_RATE_PRECISION),
+						Math.max(Currency.getInstance(to.getKey()).getDefaultFractionDigits(), 0));
+			}
+		}
+	}
+
+	/**
+	 * @param rates units of every currency per unit of the base currency; the base currency itself
+	 *            may be left out
+	 * @throws IllegalArgumentException if a currency is not an ISO 4217 code or a rate is not
+	 *             positive
+	 */
+	public static ExchangeRates of(String baseCurrency, Map<String, BigDecimal> rates) {
+		Map<String, BigDecimal> validated = new HashMap<>();
+		validated.put(validCurrency(baseCurrency), BigDecimal.ONE);
+		for (Map.Entry<String, BigDecimal> rate : rates.entrySet()) {
+			String currency = validCurrency(rate.getKey());
+			if (rate.getValue() == null || rate.getValue().signum() <= 0) {
+				throw new IllegalArgumentException("Rate of " + currency + " must be greater than zero");
+			}
+			if (currency.equals(baseCurrency) && rate.getValue().compareTo(BigDecimal.ONE) != 0) {
+				throw new IllegalArgumentException("Rate of the base currency " + currency + " must be 1");
+			}
+			validated.put(currency, rate.getValue());
+		}
+		return new ExchangeRates(baseCurrency, validated);
+	}
+
+	private static String validCurrency(String currency) {
+		if (currency == null || !currency.matches("[A-Z]{3}")) {
+			throw new IllegalArgumentException("Currency " + currency + " is not a three-letter ISO 4217 code");
+		}
+		Currency.getInstance(currency);
+		return currency;
+	}
+
+	public String getBaseCurrency() {
+		return baseCurrency;
+	}
+
+	/**
+	 * Returns the rate of every currency against the base currency, by currency code.
+	 */
+	public Map<String, BigDecimal> getRates() {
+		return rates;
+	}
+
+	/**
+	 * Converts an amount, rounding half-even to the minor unit of the target currency.
+	 *
+	 * @return the converted amount, {@code amount} itself if both currencies are the same, or
+	 *         {@code null} if either currency has no rate
+	 */
+	public BigDecimal convert(BigDecimal amount, String fromCurrency, String toCurrency) {
+		String from = currencyOf(fromCurrency);
+		String to = currencyOf(toCurrency);
+		if (from.equals(to)) {
+			return amount;
+		}
+		CrossRate rate = crossRate(from, to);
+		if (rate == null) {
+			return null;
+		}
+		return amount.multiply(rate.rate).setScale(rate.scale, RoundingMode.HALF_EVEN);
+	}
+
+	/**
+	 * Returns the currency, or the base currency for {@code null}.
+	 */
+	public String currencyOf(String currency) {
+		return currency == null ? baseCurrency : currency;
+	}
+
+	private CrossRate crossRate(String from, String to) {
+		int fromCode = codeOf(from);
+		int toCode = codeOf(to);
+		if (fromCode < 0 || toCode < 0) {
+			return null;
+		}
+		int pair = fromCode * CODES + toCode;
+		for (int slot = slotOf(pair);; slot = (slot + 1) & (pairs.length - 1)) {
+			if (pairs[slot] == pair + 1) {
+				return crossRates[slot];
+			}
+			if (pairs[slot] == 0) {
+				return null;
+			}
+		}
+	}
+
+	private int slotOf(int pair) {
+		int h = pair * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (pairs.length - 1);
+	}
+
+	private static int pairOf(String from, String to) {
+		return codeOf(from) * CODES + codeOf(to);
+	}
+
+	/**
+	 * Numbers a three-letter code below {@link #CODES}, or returns {@code -1} for anything else.
+	 */
+	private static int codeOf(String currency) {
+		if (currency.length() != 3) {
+			return -1;
+		}
+		int code = 0;
+		for (int i = 0; i < 3; i++) {
+			int letter = currency.charAt(i) - 'A';
+			if (letter < 0 || letter >= 26) {
+				return -1;
+			}
+			code = code * 26 + letter;
+		}
+		return code;
+	}
+
+	private static final class CrossRate {
+
+		final BigDecimal rate;
+
+		// Minor unit of the target currency.
+		final int scale;
+
+		CrossRate(BigDecimal rate, int scale) {
+			this.rate = rate;
+			this.scale = scale;
+		}
+
+	}
+
+}
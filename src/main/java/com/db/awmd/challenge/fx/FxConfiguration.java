@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.fx;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FxConfiguration {
+
+	@Bean
+	public ExchangeRateTable exchangeRateTable(FxProperties properties) {
+		return new ExchangeRateTable(properties.getBaseCurrency());
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.fx;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.fx")
+public class FxProperties {
+
+	/**
+	 * Currency of accounts created without one, and the currency rates are quoted against.
+	 */
+	private String baseCurrency = ExchangeRates.DEFAULT_BASE_CURRENCY;
+
+	/**
+	 * Properties file of rates, one {@code CODE=rate} line per currency in units per unit of the
+	 * base currency. Reloaded when it changes; rates can also be replaced through
+	 * {@code PUT /v1/fx/rates}.
+	 */
+	private Path ratesFile;
+
+	/**
+	 * How often the rates file is checked for changes.
+	 */
+	private Duration reloadInterval = Duration.ofMinutes(1);
+
+}
@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.fx.web;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.fx.ExchangeRates;
+
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/v1/fx/rates")
+@Slf4j
+public class ExchangeRatesController {
+
+	private final ExchangeRateTable exchangeRateTable;
+
+	@Autowired
+	public ExchangeRatesController(ExchangeRateTable exchangeRateTable) {
+		this.exchangeRateTable = exchangeRateTable;
+	}
+
+	@GetMapping
+	public ExchangeRates getRates() {
+		return exchangeRateTable.current();
+	}
+
+	/**
+	 * Replaces every rate at once with units of each currency per unit of the base currency.
+	 * Transfers already priced keep the rates they were priced with.
+	 */
+	@PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Object> publishRates(@RequestBody Map<String, BigDecimal> rates) {
+		log.info("Publishing exchange rates {}", rates);
+		try {
+			return ResponseEntity.ok(exchangeRateTable.publish(rates));
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		}
+	}
+
+}
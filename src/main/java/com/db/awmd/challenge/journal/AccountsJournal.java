@@ -0,0 +1,119 @@
+package com.db.awmd.challenge.journal;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of the changes made to the accounts, replayed on startup to rebuild them.
+ * <p>
+ * Appends only buffer the record and return its sequence number, so they are cheap enough to call
+ * while holding account locks; this keeps the journal order identical to the order in which
+ * changes were applied. Callers then release their locks and wait for {@link #awaitDurable(long)}
+ * before acknowledging the change.
+ */
+public interface AccountsJournal extends AutoCloseable {
+
+	/**
+	 * Journal that records nothing, used when journaling is disabled.
+	 */
+	AccountsJournal NONE = new AccountsJournal() {
+
+		@Override
+		public long appendAccountCreated(String accountId, BigDecimal balance) {
+			return 0;
+		}
+
+		@Override
+		public long appendAccountCreated(String accountId, BigDecimal balance, String currency) {
+			return 0;
+		}
+
+		@Override
+		public long appendTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+			return 0;
+		}
+
+		@Override
+		public long appendExchange(String accountFromId, String accountToId, BigDecimal debited,
+				BigDecimal credited) {
+			return 0;
+		}
+
+		@Override
+		public long appendAccountsCleared() {
+			return 0;
+		}
+
+		@Override
+		public long lastSequence() {
+			return 0;
+		}
+
+		@Override
+		public void awaitDurable(long sequence) {
+		}
+
+		@Override
+		public void writeSnapshot(long sequence, Consumer<SnapshotWriter> contents) {
+		}
+
+		@Override
+		public long replay(JournalRecordHandler handler) {
+			return 0;
+		}
+
+	};
+
+	long appendAccountCreated(String accountId, BigDecimal balance);
+
+	/**
+	 * Journals an account kept in a currency, {@code null} for the base currency.
+	 */
+	long appendAccountCreated(String accountId, BigDecimal balance, String currency);
+
+	long appendTransfer(String accountFromId, String accountToId, BigDecimal amount);
+
+	/**
+	 * Journals a transfer between accounts in different currencies, which debits and credits
+	 * different amounts.
+	 */
+	long appendExchange(String accountFromId, String accountToId, BigDecimal debited, BigDecimal credited);
+
+	long appendAccountsCleared();
+
+	/**
+	 * Returns the sequence number of the last record appended. It only stays current while every
+	 * appender is held off, for instance while all account locks are held.
+	 */
+	long lastSequence();
+
+	/**
+	 * Blocks until the record with the given sequence number, and every record before it, has been
+	 * written to durable storage.
+	 *
+	 * @throws JournalException if the journal failed to write
+	 */
+	void awaitDurable(long sequence);
+
+	/**
+	 * Writes a snapshot of the accounts as of {@code sequence}, feeding them to the writer passed to
+	 * {@code contents}. Once the snapshot is durable, the records it covers are no longer replayed
+	 * and their storage is reclaimed.
+	 *
+	 * @throws JournalException if the snapshot could not be written
+	 */
+	void writeSnapshot(long sequence, Consumer<SnapshotWriter> contents);
+
+	/**
+	 * Feeds the accounts of the latest snapshot, then every valid record to {@code handler},
+	 * discarding a torn or corrupt tail. Must be called once, before the first append.
+	 *
+	 * @return the number of records replayed
+	 */
+	long replay(JournalRecordHandler handler);
+
+	@Override
+	default void close() {
+	}
+
+}
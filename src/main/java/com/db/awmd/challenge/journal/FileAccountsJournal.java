@@ -0,0 +1,652 @@
+package com.db.awmd.challenge.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link AccountsJournal} stored as append-only segment files with group commit, plus snapshots.
+ * <p>
+ * Appenders encode their record into an in-memory batch and return at once. A dedicated writer
+ * thread swaps the batch out, writes it through a {@link FileChannel} and forces it to disk once,
+ * then wakes every appender waiting on a sequence number in that batch; so many concurrent
+ * transfers share a single fsync.
+ * <p>
+ * Each record is framed as {@code length (int), crc32 (int), body}, where the body is
+ * {@code sequence (long), type (byte), payload}. Replay stops at the first record that is
+ * incomplete, fails its checksum or breaks the sequence, and truncates the log there, so a write
+ * torn by a crash is discarded rather than misread.
+ * <p>
+ * Segments are named after the sequence number of their first record and rolled once they reach
+ * the configured size, or when a snapshot is taken. Once a snapshot is durable, every segment that
+ * only holds records it covers is deleted, so replay reads the latest snapshot and then the
+ * records after it.
+ */
+@Slf4j
+public class FileAccountsJournal implements AccountsJournal {
+
+	static final String SEGMENT_PREFIX = "accounts-";
+
+	static final String SEGMENT_SUFFIX = ".journal";
+
+	static final int HEADER_BYTES = 8;
+
+	static final byte ACCOUNT_CREATED = 1;
+
+	static final byte TRANSFER = 2;
+
+	static final byte ACCOUNTS_CLEARED = 3;
+
+	static final byte ACCOUNT_CREATED_IN_CURRENCY = 4;
+
+	static final byte EXCHANGE = 5;
+
+	private static final int MIN_BODY_BYTES = 9;
+
+	private static final int MAX_BODY_BYTES = 1 << 20;
+
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private static final int REPLAY_BUFFER_BYTES = 1 << 22;
+
+	private final Path directory;
+
+	private final boolean fsync;
+
+	private final long flushIntervalNanos;
+
+	private final int batchSize;
+
+	private final long segmentBytes;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition flushRequested = lock.newCondition();
+
+	private final Condition flushed = lock.newCondition();
+
+	private final CRC32 crc = new CRC32();
+
+	private final Thread writer;
+
+	// Guarded by lock.
+
+	private ByteBuffer active = ByteBuffer.allocate(BUFFER_BYTES);
+
+	private ByteBuffer flushing = ByteBuffer.allocate(BUFFER_BYTES);
+
+	private int pendingRecords;
+
+	private long lastSequence;
+
+	private long durableSequence;
+
+	private boolean rollRequested;
+
+	private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+	private boolean replayed;
+
+	private boolean closed;
+
+	private IOException failure;
+
+	// Set during replay, then owned by the writer thread.
+
+	private FileChannel channel;
+
+	private long channelBytes;
+
+	public FileAccountsJournal(Path directory, boolean fsync, Duration flushInterval, int batchSize) throws IOException {
+		this(directory, fsync, flushInterval, batchSize, Long.MAX_VALUE);
+	}
+
+	public FileAccountsJournal(Path directory, boolean fsync, Duration flushInterval, int batchSize, long segmentBytes)
+			throws IOException {
+		Files.createDirectories(directory);
+		this.directory = directory;
+		this.fsync = fsync;
+		this.flushIntervalNanos = flushInterval.toNanos();
+		this.batchSize = batchSize;
+		this.segmentBytes = segmentBytes;
+		this.writer = new Thread(this::writeLoop, "accounts-journal-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	static String segmentName(long firstSequence) {
+		return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+	}
+
+	@Override
+	public long appendAccountCreated(String accountId, BigDecimal balance) {
+		byte[] id = JournalCodec.encode(accountId);
+		byte[] unscaled = JournalCodec.unscaled(balance);
+		lock.lock();
+		try {
+			int start = beginRecord(ACCOUNT_CREATED, JournalCodec.stringBytes(id) + JournalCodec.decimalBytes(unscaled));
+			JournalCodec.putString(active, id);
+			JournalCodec.putDecimal(active, balance.scale(), unscaled);
+			return endRecord(start);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long appendAccountCreated(String accountId, BigDecimal balance, String currency) {
+		if (currency == null) {
+			return appendAccountCreated(accountId, balance);
+		}
+		byte[] id = JournalCodec.encode(accountId);
+		byte[] unscaled = JournalCodec.unscaled(balance);
+		byte[] code = JournalCodec.encode(currency);
+		lock.lock();
+		try {
+			int start = beginRecord(ACCOUNT_CREATED_IN_CURRENCY,
+					JournalCodec.stringBytes(id) + JournalCodec.decimalBytes(unscaled) + JournalCodec.stringBytes(code));
+			JournalCodec.putString(active, id);
+			JournalCodec.putDecimal(active, balance.scale(), unscaled);
+			JournalCodec.putString(active, code);
+			return endRecord(start);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long appendTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		byte[] from = JournalCodec.encode(accountFromId);
+		byte[] to = JournalCodec.encode(accountToId);
+		byte[] unscaled = JournalCodec.unscaled(amount);
+		lock.lock();
+		try {
+			int start = beginRecord(TRANSFER,
+					JournalCodec.stringBytes(from) + JournalCodec.stringBytes(to) + JournalCodec.decimalBytes(unscaled));
+			JournalCodec.putString(active, from);
+			JournalCodec.putString(active, to);
+			JournalCodec.putDecimal(active, amount.scale(), unscaled);
+			return endRecord(start);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long appendExchange(String accountFromId, String accountToId, BigDecimal debited, BigDecimal credited) {
+		byte[] from = JournalCodec.encode(accountFromId);
+		byte[] to = JournalCodec.encode(accountToId);
+		byte[] unscaledDebited = JournalCodec.unscaled(debited);
+		byte[] unscaledCredited = JournalCodec.unscaled(credited);
+		lock.lock();
+		try {
+			int start = beginRecord(EXCHANGE, JournalCodec.stringBytes(from) + JournalCodec.stringBytes(to)
+					+ JournalCodec.decimalBytes(unscaledDebited) + JournalCodec.decimalBytes(unscaledCredited));
+			JournalCodec.putString(active, from);
+			JournalCodec.putString(active, to);
+			JournalCodec.putDecimal(active, debited.scale(), unscaledDebited);
+			JournalCodec.putDecimal(active, credited.scale(), unscaledCredited);
+			return endRecord(start);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long appendAccountsCleared() {
+		lock.lock();
+		try {
+			return endRecord(beginRecord(ACCOUNTS_CLEARED, 0));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long lastSequence() {
+		lock.lock();
+		try {
+			return lastSequence;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void awaitDurable(long sequence) {
+		lock.lock();
+		try {
+			while (durableSequence < sequence) {
+				if (failure != null) {
+					throw new JournalException("Journal write to " + directory + " failed", failure);
+				}
+				if (closed && !writer.isAlive()) {
+					throw new JournalException("Journal " + directory + " is closed");
+				}
+				flushed.awaitUninterruptibly();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the snapshot, then deletes older snapshots and the segments it makes redundant. Not
+	 * meant to be called concurrently.
+	 */
+	@Override
+	public void writeSnapshot(long sequence, Consumer<SnapshotWriter> contents) {
+		lock.lock();
+		try {
+			checkWritable();
+			rollRequested = true;
+		} finally {
+			lock.unlock();
+		}
+		awaitDurable(sequence);
+
+		long started = System.nanoTime();
+		try {
+			Path snapshot = SnapshotFile.write(directory, sequence, contents, fsync);
+			syncDirectory();
+			log.info("Wrote snapshot {} in {} ms", snapshot,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			for (Path file : list()) {
+				if (SnapshotFile.isSnapshot(file) && SnapshotFile.sequenceOf(file) < sequence) {
+					Files.delete(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new JournalException("Failed to write snapshot " + sequence + " to " + directory, e);
+		}
+
+		lock.lock();
+		try {
+			compact(sequence);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long replay(JournalRecordHandler handler) {
+		lock.lock();
+		try {
+			if (replayed) {
+				throw new IllegalStateException("Journal " + directory + " has already been replayed");
+			}
+			long started = System.nanoTime();
+			long records = readAll(handler);
+			replayed = true;
+			log.info("Replayed {} records from {} in {} ms", records, directory,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			return records;
+		} catch (IOException e) {
+			throw new JournalException("Failed to replay journal " + directory, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			flushRequested.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			writer.join();
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			log.warn("Failed to close journal {}", directory, e);
+		}
+	}
+
+	private void checkWritable() {
+		if (!replayed) {
+			throw new IllegalStateException("Journal " + directory + " must be replayed before appending");
+		}
+		if (closed) {
+			throw new JournalException("Journal " + directory + " is closed");
+		}
+		if (failure != null) {
+			throw new JournalException("Journal write to " + directory + " failed", failure);
+		}
+	}
+
+	private int beginRecord(byte type, int payloadBytes) {
+		checkWritable();
+		int recordBytes = HEADER_BYTES + MIN_BODY_BYTES + payloadBytes;
+		if (active.remaining() < recordBytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + recordBytes));
+			active.flip();
+			larger.put(active);
+			active = larger;
+		}
+		int start = active.position();
+		active.position(start + HEADER_BYTES);
+		active.putLong(++lastSequence);
+		active.put(type);
+		return start;
+	}
+
+	private long endRecord(int start) {
+		int bodyBytes = active.position() - start - HEADER_BYTES;
+		crc.reset();
+		crc.update(active.array(), start + HEADER_BYTES, bodyBytes);
+		active.putInt(start, bodyBytes);
+		active.putInt(start + 4, (int) crc.getValue());
+		if (++pendingRecords == 1 || pendingRecords >= batchSize) {
+			flushRequested.signal();
+		}
+		return lastSequence;
+	}
+
+	/**
+	 * Deletes every segment whose records all precede {@code sequence}, that is every segment
+	 * followed by one starting no later than the record after it. The current segment is never
+	 * followed, so it is never deleted.
+	 */
+	private void compact(long sequence) {
+		Iterator<Map.Entry<Long, Path>> iterator = segments.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Long, Path> segment = iterator.next();
+			Long next = segments.higherKey(segment.getKey());
+			if (next == null || next > sequence + 1) {
+				break;
+			}
+			try {
+				Files.delete(segment.getValue());
+				iterator.remove();
+				log.debug("Deleted journal segment {}", segment.getValue());
+			} catch (IOException e) {
+				log.warn("Failed to delete journal segment {}", segment.getValue(), e);
+				break;
+			}
+		}
+	}
+
+	private void writeLoop() {
+		lock.lock();
+		try {
+			while (true) {
+				while (pendingRecords == 0 && !closed) {
+					flushRequested.awaitUninterruptibly();
+				}
+				if (pendingRecords == 0) {
+					return;
+				}
+				long remaining = flushIntervalNanos;
+				while (remaining > 0 && pendingRecords < batchSize && !closed) {
+					remaining = flushRequested.awaitNanos(remaining);
+				}
+
+				ByteBuffer batch = active;
+				active = flushing;
+				flushing = batch;
+				long firstSequence = durableSequence + 1;
+				long batchSequence = lastSequence;
+				pendingRecords = 0;
+				boolean roll = channel == null || (channelBytes > 0 && (rollRequested || channelBytes >= segmentBytes));
+				rollRequested = false;
+
+				lock.unlock();
+				Path rolled = null;
+				IOException error = null;
+				try {
+					if (roll) {
+						rolled = rollSegment(firstSequence);
+					}
+					batch.flip();
+					channelBytes += batch.remaining();
+					while (batch.hasRemaining()) {
+						channel.write(batch);
+					}
+					if (fsync) {
+						channel.force(false);
+					}
+				} catch (IOException e) {
+					error = e;
+				} finally {
+					batch.clear();
+					lock.lock();
+				}
+
+				if (error != null) {
+					log.error("Journal write to {} failed, rejecting further changes", directory, error);
+					failure = error;
+					flushed.signalAll();
+					return;
+				}
+				if (rolled != null) {
+					segments.put(firstSequence, rolled);
+				}
+				durableSequence = batchSequence;
+				flushed.signalAll();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			flushed.signalAll();
+			lock.unlock();
+		}
+	}
+
+	private Path rollSegment(long firstSequence) throws IOException {
+		Path segment = directory.resolve(segmentName(firstSequence));
+		FileChannel next = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		if (fsync) {
+			syncDirectory();
+		}
+		if (channel != null) {
+			channel.close();
+		}
+		channel = next;
+		channelBytes = 0;
+		return segment;
+	}
+
+	private void syncDirectory() throws IOException {
+		if (fsync) {
+			try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+				directoryChannel.force(true);
+			}
+		}
+	}
+
+	private List<Path> list() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	private long readAll(JournalRecordHandler handler) throws IOException {
+		Path snapshot = null;
+		for (Path file : list()) {
+			if (SnapshotFile.isTemporary(file)) {
+				Files.delete(file);
+			} else if (SnapshotFile.isSnapshot(file)) {
+				if (snapshot == null || SnapshotFile.sequenceOf(file) > SnapshotFile.sequenceOf(snapshot)) {
+					snapshot = file;
+				}
+			} else {
+				String name = file.getFileName().toString();
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())),
+							file);
+				}
+			}
+		}
+
+		long records = 0;
+		long snapshotSequence = 0;
+		if (snapshot != null) {
+			snapshotSequence = SnapshotFile.sequenceOf(snapshot);
+			records += SnapshotFile.read(snapshot, handler);
+		}
+
+		long sequence = snapshotSequence;
+		long segmentSequence = -1;
+		List<Path> discarded = new ArrayList<>();
+		Iterator<Map.Entry<Long, Path>> iterator = segments.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Long, Path> segment = iterator.next();
+			if (segment.getKey() > sequence + 1) {
+				throw new JournalException("Journal " + directory + " is missing records " + (sequence + 1) + " to "
+						+ (segment.getKey() - 1));
+			}
+			if (segmentSequence >= 0 && segment.getKey() != segmentSequence + 1) {
+				throw new JournalException("Journal segment " + segment.getValue() + " overlaps the one before it");
+			}
+			FileChannel segmentChannel = FileChannel.open(segment.getValue(), StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			SegmentReplay replay = readSegment(segmentChannel, segment.getValue(), segment.getKey(), snapshotSequence,
+					handler);
+			records += replay.records;
+			segmentSequence = replay.lastSequence;
+			sequence = Math.max(sequence, replay.lastSequence);
+			if (!iterator.hasNext() || replay.torn) {
+				while (iterator.hasNext()) {
+					discarded.add(iterator.next().getValue());
+					iterator.remove();
+				}
+				channel = segmentChannel;
+				channelBytes = segmentChannel.position();
+			} else {
+				segmentChannel.close();
+			}
+		}
+		for (Path file : discarded) {
+			log.warn("Discarding journal segment {} that follows a torn record", file);
+			Files.delete(file);
+		}
+
+		lastSequence = sequence;
+		durableSequence = sequence;
+		return records;
+	}
+
+	private static class SegmentReplay {
+
+		long records;
+
+		long lastSequence;
+
+		boolean torn;
+
+	}
+
+	private SegmentReplay readSegment(FileChannel segmentChannel, Path file, long firstSequence, long skipThrough,
+			JournalRecordHandler handler) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_BYTES);
+		buffer.limit(0);
+		SegmentReplay replay = new SegmentReplay();
+		long validEnd = 0;
+		long sequence = firstSequence - 1;
+		boolean endOfFile = false;
+
+		read: while (true) {
+			while (buffer.remaining() >= HEADER_BYTES) {
+				int start = buffer.position();
+				int bodyBytes = buffer.getInt(start);
+				if (bodyBytes < MIN_BODY_BYTES || bodyBytes > MAX_BODY_BYTES) {
+					break read;
+				}
+				if (buffer.remaining() < HEADER_BYTES + bodyBytes) {
+					break;
+				}
+				crc.reset();
+				crc.update(buffer.array(), start + HEADER_BYTES, bodyBytes);
+				if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+					break read;
+				}
+				buffer.position(start + HEADER_BYTES);
+				long recordSequence = buffer.getLong();
+				if (recordSequence != sequence + 1) {
+					break read;
+				}
+				if (recordSequence > skipThrough) {
+					if (!dispatch(buffer, recordSequence, handler)) {
+						break read;
+					}
+					replay.records++;
+				}
+				buffer.position(start + HEADER_BYTES + bodyBytes);
+				sequence = recordSequence;
+				validEnd += HEADER_BYTES + bodyBytes;
+			}
+			if (endOfFile) {
+				break;
+			}
+			buffer.compact();
+			endOfFile = segmentChannel.read(buffer) < 0;
+			buffer.flip();
+		}
+
+		long size = segmentChannel.size();
+		if (validEnd < size) {
+			log.warn("Discarding {} bytes of torn or corrupt records at the end of {}", size - validEnd, file);
+			segmentChannel.truncate(validEnd);
+			if (fsync) {
+				segmentChannel.force(true);
+			}
+			replay.torn = true;
+		}
+		segmentChannel.position(validEnd);
+		replay.lastSequence = sequence;
+		return replay;
+	}
+
+	private static boolean dispatch(ByteBuffer buffer, long sequence, JournalRecordHandler handler) {
+		byte type = buffer.get();
+		switch (type) {
+		case ACCOUNT_CREATED:
+			handler.accountCreated(sequence, JournalCodec.getString(buffer), JournalCodec.getDecimal(buffer));
+			return true;
+		case TRANSFER:
+			handler.transferred(sequence, JournalCodec.getString(buffer), JournalCodec.getString(buffer),
+					JournalCodec.getDecimal(buffer));
+			return true;
+		case ACCOUNTS_CLEARED:
+			handler.accountsCleared(sequence);
+			return true;
+		case ACCOUNT_CREATED_IN_CURRENCY:
+			handler.accountCreated(sequence, JournalCodec.getString(buffer), JournalCodec.getDecimal(buffer),
+					JournalCodec.getString(buffer));
+			return true;
+		case EXCHANGE:
+			handler.exchanged(sequence, JournalCodec.getString(buffer), JournalCodec.getString(buffer),
+					JournalCodec.getDecimal(buffer), JournalCodec.getDecimal(buffer));
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
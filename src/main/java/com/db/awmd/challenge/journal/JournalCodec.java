@@ -0,0 +1,84 @@
+package com.db.awmd.challenge.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of the account ids and amounts shared by journal records and snapshots. Strings
+ * are written as a {@code short} length and their UTF-8 bytes, decimals as an {@code int} scale, a
+ * length byte and the two's-complement bytes of the unscaled value.
+ */
+final class JournalCodec {
+
+	static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+	static final int MAX_UNSCALED_BYTES = 0xff;
+
+	private JournalCodec() {
+	}
+
+	static byte[] encode(String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		if (bytes.length > MAX_STRING_BYTES) {
+			throw new IllegalArgumentException("Account id is too long to journal");
+		}
+		return bytes;
+	}
+
+	static byte[] unscaled(BigDecimal value) {
+		byte[] bytes = value.unscaledValue().toByteArray();
+		if (bytes.length > MAX_UNSCALED_BYTES) {
+			throw new IllegalArgumentException("Amount " + value + " is too large to journal");
+		}
+		return bytes;
+	}
+
+	static int stringBytes(byte[] value) {
+		return 2 + value.length;
+	}
+
+	static int decimalBytes(byte[] unscaled) {
+		return 5 + unscaled.length;
+	}
+
+	static void putString(ByteBuffer buffer, byte[] value) {
+		buffer.putShort((short) value.length);
+		buffer.put(value);
+	}
+
+	static void putDecimal(ByteBuffer buffer, int scale, byte[] unscaled) {
+		buffer.putInt(scale);
+		buffer.put((byte) unscaled.length);
+		buffer.put(unscaled);
+	}
+
+	static String getString(ByteBuffer buffer) {
+		int length = buffer.getShort();
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	/**
+	 * Decodes a decimal, avoiding the intermediate {@link BigInteger} when the unscaled value fits in
+	 * a {@code long}, as practically every balance does.
+	 */
+	static BigDecimal getDecimal(ByteBuffer buffer) {
+		int scale = buffer.getInt();
+		int length = buffer.get() & 0xff;
+		if (length <= Long.BYTES) {
+			long unscaled = length == 0 ? 0 : buffer.get();
+			for (int i = 1; i < length; i++) {
+				unscaled = (unscaled << 8) | (buffer.get() & 0xff);
+			}
+			return BigDecimal.valueOf(unscaled, scale);
+		}
+		byte[] unscaled = new byte[length];
+		buffer.get(unscaled);
+		return new BigDecimal(new BigInteger(unscaled), scale);
+	}
+
+}
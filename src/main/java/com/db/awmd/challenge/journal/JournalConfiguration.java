@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.journal;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JournalConfiguration {
+
+	@Bean
+	public AccountsJournal accountsJournal(JournalProperties properties) throws IOException {
+		if (!properties.isEnabled()) {
+			return AccountsJournal.NONE;
+		}
+		return new FileAccountsJournal(Paths.get(properties.getDirectory()), properties.isFsync(),
+				properties.getFlushInterval(), properties.getBatchSize(), properties.getSegmentSize().toBytes());
+	}
+
+}
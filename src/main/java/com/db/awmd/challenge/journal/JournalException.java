@@ -0,0 +1,15 @@
+package com.db.awmd.challenge.journal;
+
+public class JournalException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public JournalException(String message) {
+		super(message);
+	}
+
+	public JournalException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
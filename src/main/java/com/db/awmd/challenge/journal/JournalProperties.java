@@ -0,0 +1,49 @@
+package com.db.awmd.challenge.journal;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.journal")
+public class JournalProperties {
+
+	/**
+	 * Whether account changes are journaled and replayed on startup.
+	 */
+	private boolean enabled = false;
+
+	private String directory = "data/journal";
+
+	/**
+	 * Whether every group commit is forced to the storage device.
+	 */
+	private boolean fsync = true;
+
+	/**
+	 * How long the writer waits for more records before a group commit. Zero writes as soon as the
+	 * previous commit completes, which still batches every record appended in the meantime.
+	 */
+	private Duration flushInterval = Duration.ZERO;
+
+	/**
+	 * Number of pending records that triggers a group commit before the flush interval elapses.
+	 */
+	private int batchSize = 1024;
+
+	/**
+	 * Size at which the journal moves on to a new segment file. Only whole segments are deleted
+	 * after a snapshot.
+	 */
+	private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+	/**
+	 * How often a snapshot of every account is written so that older journal segments can be
+	 * deleted. Zero disables snapshots.
+	 */
+	private Duration snapshotInterval = Duration.ofMinutes(5);
+
+}
@@ -0,0 +1,39 @@
+package com.db.awmd.challenge.journal;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives journal records in sequence order during replay. Accounts restored from a snapshot are
+ * delivered as accounts created at the snapshot's sequence number.
+ */
+public interface JournalRecordHandler {
+
+	void accountCreated(long sequence, String accountId, BigDecimal balance);
+
+	/**
+	 * An account kept in a currency, {@code null} for the base currency. Only repositories that
+	 * support currencies need to implement it.
+	 */
+	default void accountCreated(long sequence, String accountId, BigDecimal balance, String currency) {
+		if (currency != null) {
+			throw new UnsupportedOperationException("Cannot recover account " + accountId + " in " + currency
+					+ ": this repository does not support currencies");
+		}
+		accountCreated(sequence, accountId, balance);
+	}
+
+	void transferred(long sequence, String accountFromId, String accountToId, BigDecimal amount);
+
+	/**
+	 * A transfer between accounts in different currencies. Only repositories that support
+	 * currencies need to implement it.
+	 */
+	default void exchanged(long sequence, String accountFromId, String accountToId, BigDecimal debited,
+			BigDecimal credited) {
+		throw new UnsupportedOperationException("Cannot recover the exchange from " + accountFromId + " to "
+				+ accountToId + ": this repository does not support currencies");
+	}
+
+	void accountsCleared(long sequence);
+
+}
@@ -0,0 +1,187 @@
+package com.db.awmd.challenge.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes snapshot files. A snapshot holds the balance of every account as of a journal
+ * sequence number:
+ * {@code magic (int), version (int), sequence (long), accounts (long), crc32 (int)} followed by one
+ * {@code account id, balance, currency} entry per account, with an empty currency for the base
+ * currency. Version 1 snapshots, whose entries have no currency, are still read. The checksum
+ * covers every entry.
+ * <p>
+ * Snapshots are written to a temporary file and renamed into place once complete, so a snapshot
+ * file is either absent or whole.
+ */
+final class SnapshotFile {
+
+	static final String PREFIX = "snapshot-";
+
+	static final String SUFFIX = ".snapshot";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final int MAGIC = 0x41434e53;
+
+	private static final int VERSION = 2;
+
+	private static final int VERSION_WITHOUT_CURRENCY = 1;
+
+	private static final byte[] BASE_CURRENCY = {};
+
+	private static final int HEADER_BYTES = 28;
+
+	private static final int BUFFER_BYTES = 1 << 22;
+
+	private static final int MAX_ENTRY_BYTES = 2 * (2 + JournalCodec.MAX_STRING_BYTES) + 5
+			+ JournalCodec.MAX_UNSCALED_BYTES;
+
+	private SnapshotFile() {
+	}
+
+	static String name(long sequence) {
+		return String.format("%s%020d%s", PREFIX, sequence, SUFFIX);
+	}
+
+	static boolean isSnapshot(Path file) {
+		String name = file.getFileName().toString();
+		return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+	}
+
+	static boolean isTemporary(Path file) {
+		String name = file.getFileName().toString();
+		return name.startsWith(PREFIX) && name.endsWith(SUFFIX + TEMP_SUFFIX);
+	}
+
+	static long sequenceOf(Path file) {
+		String name = file.getFileName().toString();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+	/**
+	 * Writes the accounts fed to the writer by {@code contents} as the snapshot for
+	 * {@code sequence}.
+	 *
+	 * @return the snapshot file
+	 */
+	static Path write(Path directory, long sequence, Consumer<SnapshotWriter> contents, boolean fsync)
+			throws IOException {
+		Path target = directory.resolve(name(sequence));
+		Path temp = directory.resolve(name(sequence) + TEMP_SUFFIX);
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+			CRC32 crc = new CRC32();
+			long[] accounts = new long[1];
+			channel.position(HEADER_BYTES);
+			try {
+				contents.accept((accountId, balance, currency) -> {
+					byte[] id = JournalCodec.encode(accountId);
+					byte[] unscaled = JournalCodec.unscaled(balance);
+					byte[] code = currency == null ? BASE_CURRENCY : JournalCodec.encode(currency);
+					if (buffer.remaining() < JournalCodec.stringBytes(id) + JournalCodec.decimalBytes(unscaled)
+							+ JournalCodec.stringBytes(code)) {
+						flush(channel, buffer, crc);
+					}
+					JournalCodec.putString(buffer, id);
+					JournalCodec.putDecimal(buffer, balance.scale(), unscaled);
+					JournalCodec.putString(buffer, code);
+					accounts[0]++;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			flush(channel, buffer, crc);
+
+			buffer.clear();
+			buffer.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(accounts[0]).putInt((int) crc.getValue());
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, buffer.position());
+			}
+			if (fsync) {
+				channel.force(true);
+			}
+		}
+		Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		return target;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) {
+		buffer.flip();
+		crc.update(buffer.array(), 0, buffer.limit());
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Feeds every account in the snapshot to {@code handler} as an account created at the snapshot's
+	 * sequence number.
+	 *
+	 * @return the number of accounts read
+	 * @throws JournalException if the snapshot is truncated or fails its checksum
+	 */
+	static long read(Path file, JournalRecordHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+			while (buffer.position() < HEADER_BYTES && channel.read(buffer) >= 0) {
+			}
+			buffer.flip();
+			if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+				throw new JournalException("Snapshot " + file + " has no valid header");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION && version != VERSION_WITHOUT_CURRENCY) {
+				throw new JournalException("Snapshot " + file + " has unknown version " + version);
+			}
+			long sequence = buffer.getLong();
+			long accounts = buffer.getLong();
+			int expectedCrc = buffer.getInt();
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), buffer.position(), buffer.remaining());
+			boolean endOfFile = false;
+			try {
+				for (long i = 0; i < accounts; i++) {
+					if (buffer.remaining() < MAX_ENTRY_BYTES && !endOfFile) {
+						buffer.compact();
+						int start = buffer.position();
+						while (buffer.hasRemaining() && !endOfFile) {
+							endOfFile = channel.read(buffer) < 0;
+						}
+						crc.update(buffer.array(), start, buffer.position() - start);
+						buffer.flip();
+					}
+					String accountId = JournalCodec.getString(buffer);
+					BigDecimal balance = JournalCodec.getDecimal(buffer);
+					String currency = version == VERSION_WITHOUT_CURRENCY ? "" : JournalCodec.getString(buffer);
+					handler.accountCreated(sequence, accountId, balance, currency.isEmpty() ? null : currency);
+				}
+			} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+				throw new JournalException("Snapshot " + file + " is truncated");
+			}
+			if (buffer.hasRemaining() || channel.position() != channel.size() || (int) crc.getValue() != expectedCrc) {
+				throw new JournalException("Snapshot " + file + " is corrupt");
+			}
+			return accounts;
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.journal;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives the accounts of a snapshot, one call per account.
+ *
+ * @see AccountsJournal#writeSnapshot(long, java.util.function.Consumer)
+ */
+@FunctionalInterface
+public interface SnapshotWriter {
+
+	/**
+	 * @param currency currency of the account, {@code null} for the base currency
+	 */
+	void write(String accountId, BigDecimal balance, String currency);
+
+	default void write(String accountId, BigDecimal balance) {
+		write(accountId, balance, null);
+	}
+
+}
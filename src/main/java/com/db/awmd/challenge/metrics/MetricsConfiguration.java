@@ -0,0 +1,101 @@
+package com.db.awmd.challenge.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryProperties;
+import com.db.awmd.challenge.account.repository.LockMetrics;
+import com.db.awmd.challenge.account.service.TransferMetrics;
+import com.db.awmd.challenge.notification.AsyncNotificationService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricsConfiguration {
+
+	@Bean
+	public TransferMetrics transferMetrics(MetricsProperties properties, MeterRegistry registry) {
+		if (!properties.isEnabled()) {
+			return TransferMetrics.NONE;
+		}
+		return new MicrometerTransferMetrics(registry);
+	}
+
+	@Bean
+	public LockMetrics lockMetrics(MetricsProperties properties, AccountsRepositoryProperties repositoryProperties,
+			MeterRegistry registry) {
+		if (!properties.isEnabled()) {
+			return LockMetrics.NONE;
+		}
+		return new MicrometerLockMetrics(registry, repositoryProperties.getLockStripes());
+	}
+
+	/**
+	 * The repository is looked up when the gauge is read, since it is itself instrumented through
+	 * the registry this binder is applied to.
+	 */
+	@Bean
+	public MeterBinder accountsCount(ObjectProvider<AccountsRepository> accountsRepository) {
+		return registry -> Gauge.builder("accounts.count", () -> accountsRepository.getObject().countAccounts())
+				.description("Number of accounts")
+				.register(registry);
+	}
+
+	/**
+	 * Queue depth, outcomes and drain times of notifications sent asynchronously, read from the
+	 * notification service whenever the meters are.
+	 */
+	@Bean
+	public MeterBinder notificationMetrics(MetricsProperties properties,
+			ObjectProvider<AsyncNotificationService> notificationService) {
+		return registry -> {
+			AsyncNotificationService notifications = notificationService.getIfAvailable();
+			if (properties.isEnabled() && notifications != null) {
+				bindNotificationMetrics(notifications, registry);
+			}
+		};
+	}
+
+	static void bindNotificationMetrics(AsyncNotificationService notifications, MeterRegistry registry) {
+		Gauge.builder("notifications.queue.depth", notifications, AsyncNotificationService::getQueueDepth)
+				.description("Notifications waiting to be dispatched, including spilled ones")
+				.register(registry);
+		notificationCounter(notifications, registry, "delivered", AsyncNotificationService::getDeliveredCount);
+		notificationCounter(notifications, registry, "failed", AsyncNotificationService::getFailedCount);
+		notificationCounter(notifications, registry, "dropped", AsyncNotificationService::getDroppedCount);
+		FunctionCounter.builder("notifications.spilled", notifications, AsyncNotificationService::getSpilledCount)
+				.description("Notifications parked beyond the full queue")
+				.register(registry);
+		FunctionTimer.builder("notifications.drain", notifications, AsyncNotificationService::getDrainCount,
+				AsyncNotificationService::getDrainTimeNanos, TimeUnit.NANOSECONDS)
+				.description("Batches of notifications handed to the delegate")
+				.register(registry);
+		TimeGauge.builder("notifications.drain.last", notifications, TimeUnit.NANOSECONDS,
+				AsyncNotificationService::getLastDrainNanos)
+				.description("Time the most recent batch took to hand to the delegate")
+				.register(registry);
+		TimeGauge.builder("notifications.queue.wait", notifications, TimeUnit.NANOSECONDS,
+				AsyncNotificationService::getLastQueueWaitNanos)
+				.description("Time the oldest notification of the most recent batch spent queued")
+				.register(registry);
+	}
+
+	private static void notificationCounter(AsyncNotificationService notifications, MeterRegistry registry,
+			String outcome, ToDoubleFunction<AsyncNotificationService> count) {
+		FunctionCounter.builder("notifications", notifications, count)
+				.description("Notifications dispatched or dropped")
+				.tag("outcome", outcome)
+				.register(registry);
+	}
+
+}
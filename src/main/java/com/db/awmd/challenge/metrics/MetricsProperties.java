@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.metrics")
+public class MetricsProperties {
+
+	/**
+	 * Whether transfers and account locks are instrumented. Endpoint latency is recorded by
+	 * Spring Boot regardless.
+	 */
+	private boolean enabled = true;
+
+}
@@ -0,0 +1,79 @@
+package com.db.awmd.challenge.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.db.awmd.challenge.account.service.TransferMetrics;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times transfers in {@code accounts.transfer}, tagged with their {@code outcome} and the
+ * {@code exception} the throwing API reports it with, and counts batch transfers by outcome in
+ * {@code accounts.transfer.batch}. Meters are registered up front for every status, or on the
+ * first failure with an unexpected exception type, so recording is a lookup and an update.
+ */
+public class MicrometerTransferMetrics implements TransferMetrics {
+
+	static final String NO_EXCEPTION = "None";
+
+	static final String ERROR_OUTCOME = "ERROR";
+
+	private final MeterRegistry registry;
+
+	private final Timer[] transfers = new Timer[TransferStatus.values().length];
+
+	private final Map<Class<?>, Timer> failures = new ConcurrentHashMap<>();
+
+	private final Counter[] batchTransfers = new Counter[TransferStatus.values().length];
+
+	public MicrometerTransferMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		for (TransferStatus status : TransferStatus.values()) {
+			Class<? extends RuntimeException> exceptionType = status.getExceptionType();
+			transfers[status.ordinal()] = timer(status.name(),
+					exceptionType == null ? NO_EXCEPTION : exceptionType.getSimpleName());
+			batchTransfers[status.ordinal()] = Counter.builder("accounts.transfer.batch")
+					.description("Transfers applied as part of a batch")
+					.tag("outcome", status.name())
+					.register(registry);
+		}
+	}
+
+	@Override
+	public long startTime() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void transferred(TransferStatus status, long startTime) {
+		transfers[status.ordinal()].record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void failed(RuntimeException e, long startTime) {
+		Timer timer = failures.get(e.getClass());
+		if (timer == null) {
+			timer = failures.computeIfAbsent(e.getClass(), type -> timer(ERROR_OUTCOME, type.getSimpleName()));
+		}
+		timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void batchTransfer(TransferStatus status) {
+		batchTransfers[status.ordinal()].increment();
+	}
+
+	private Timer timer(String outcome, String exception) {
+		return Timer.builder("accounts.transfer")
+				.description("Transfers between two accounts, including their notifications")
+				.tag("outcome", outcome)
+				.tag("exception", exception)
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,273 @@
+package com.db.awmd.challenge.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.account.domain.Account;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decorator that moves notification delivery off the caller's thread. Notifications are queued in
+ * a bounded queue and handed to the delegate in batches by dedicated dispatch threads; a full queue
+ * is handled according to the configured {@link BackpressurePolicy}. Notifications queued by account
+ * id look their account up on the dispatch thread, just before they are handed to the delegate.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "notification.dispatch.async", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AsyncNotificationService implements NotificationService, DisposableBean {
+
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private final NotificationService delegate;
+
+	private final BackpressurePolicy backpressure;
+
+	private final int batchSize;
+
+	private final long shutdownTimeoutMillis;
+
+	private final int spillCapacity;
+
+	private final BlockingQueue<PendingNotification> queue;
+
+	private final Queue<PendingNotification> overflow = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger overflowSize = new AtomicInteger();
+
+	private final ExecutorService executor;
+
+	private final LongAdder delivered = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder spilled = new LongAdder();
+
+	private final LongAdder drains = new LongAdder();
+
+	private final LongAdder drainNanos = new LongAdder();
+
+	private volatile long lastDrainNanos;
+
+	private volatile long lastQueueWaitNanos;
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public AsyncNotificationService(@Qualifier("emailNotificationService") NotificationService delegate,
+			NotificationDispatchProperties properties) {
+		this.delegate = delegate;
+		this.backpressure = properties.getBackpressure();
+		this.batchSize = properties.getBatchSize();
+		this.shutdownTimeoutMillis = properties.getShutdownTimeout().toMillis();
+		this.spillCapacity = properties.getSpillCapacity();
+		this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(properties.getThreads(), runnable -> {
+			Thread thread = new Thread(runnable, "notification-dispatch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < properties.getThreads(); i++) {
+			executor.execute(this::drainLoop);
+		}
+	}
+
+	@Override
+	public void notifyAboutTransfer(Account account, String transferDescription) {
+		enqueue(new PendingNotification(account, account.getAccountId(), null, transferDescription, System.nanoTime()));
+	}
+
+	@Override
+	public void notifyAboutTransfer(String accountId, Function<String, Account> accounts,
+			String transferDescription) {
+		enqueue(new PendingNotification(null, accountId, accounts, transferDescription, System.nanoTime()));
+	}
+
+	private void enqueue(PendingNotification notification) {
+		switch (backpressure) {
+		case BLOCK:
+			try {
+				queue.put(notification);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped.increment();
+			}
+			break;
+		case DROP_OLDEST:
+			while (!queue.offer(notification)) {
+				if (queue.poll() != null) {
+					dropped.increment();
+				}
+			}
+			break;
+		case SPILL:
+			if (!queue.offer(notification)) {
+				if (overflowSize.incrementAndGet() > spillCapacity) {
+					overflowSize.decrementAndGet();
+					dropped.increment();
+				} else {
+					overflow.add(notification);
+					spilled.increment();
+				}
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unknown backpressure policy " + backpressure);
+		}
+	}
+
+	/**
+	 * Number of notifications waiting to be dispatched, including spilled ones.
+	 */
+	public int getQueueDepth() {
+		return queue.size() + overflowSize.get();
+	}
+
+	public long getDeliveredCount() {
+		return delivered.sum();
+	}
+
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	public long getSpilledCount() {
+		return spilled.sum();
+	}
+
+	public long getDrainCount() {
+		return drains.sum();
+	}
+
+	/**
+	 * Total time spent handing batches to the delegate.
+	 */
+	public long getDrainTimeNanos() {
+		return drainNanos.sum();
+	}
+
+	public long getLastDrainNanos() {
+		return lastDrainNanos;
+	}
+
+	/**
+	 * Time the oldest notification of the most recent batch spent queued.
+	 */
+	public long getLastQueueWaitNanos() {
+		return lastQueueWaitNanos;
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		running = false;
+		executor.shutdown();
+		if (!executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+			log.warn("Discarding {} undelivered notifications on shutdown", getQueueDepth());
+			executor.shutdownNow();
+		}
+	}
+
+	private void drainLoop() {
+		List<PendingNotification> batch = new ArrayList<>(batchSize);
+		while (running || getQueueDepth() > 0) {
+			try {
+				PendingNotification first = overflowSize.get() > 0 ? queue.poll()
+						: queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, batchSize - 1);
+				}
+				drainOverflow(batch);
+				if (!batch.isEmpty()) {
+					dispatch(batch);
+					batch.clear();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void drainOverflow(List<PendingNotification> batch) {
+		PendingNotification notification;
+		while (batch.size() < batchSize && (notification = overflow.poll()) != null) {
+			overflowSize.decrementAndGet();
+			batch.add(notification);
+		}
+	}
+
+	private void dispatch(List<PendingNotification> batch) {
+		long start = System.nanoTime();
+		lastQueueWaitNanos = start - batch.get(0).enqueuedAt;
+		for (PendingNotification notification : batch) {
+			try {
+				Account account = notification.account != null ? notification.account
+						: notification.accounts.apply(notification.accountId);
+				delegate.notifyAboutTransfer(account, notification.transferDescription);
+				delivered.increment();
+			} catch (RuntimeException e) {
+				failed.increment();
+				log.warn("Failed to notify owner of {}", notification.accountId, e);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		lastDrainNanos = elapsed;
+		drainNanos.add(elapsed);
+		drains.increment();
+	}
+
+	/**
+	 * Notification of either an account, or an account id to look up with {@code accounts}.
+	 */
+	private static final class PendingNotification {
+
+		private final Account account;
+
+		private final String accountId;
+
+		private final Function<String, Account> accounts;
+
+		private final String transferDescription;
+
+		private final long enqueuedAt;
+
+		private PendingNotification(Account account, String accountId, Function<String, Account> accounts,
+				String transferDescription, long enqueuedAt) {
+			this.account = account;
+			this.accountId = accountId;
+			this.accounts = accounts;
+			this.transferDescription = transferDescription;
+			this.enqueuedAt = enqueuedAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.notification;
+
+/**
+ * What {@link AsyncNotificationService} does when its queue is full.
+ */
+public enum BackpressurePolicy {
+
+	/**
+	 * Wait on the caller's thread until the queue has room.
+	 */
+	BLOCK,
+
+	/**
+	 * Discard the oldest queued notification to make room.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Park the notification in an overflow list that is drained once the queue has room. Once the
+	 * list holds the configured spill capacity, further notifications are dropped.
+	 */
+	SPILL
+
+}
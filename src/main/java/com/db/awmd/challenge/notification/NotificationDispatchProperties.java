@@ -0,0 +1,40 @@
+package com.db.awmd.challenge.notification;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "notification.dispatch")
+public class NotificationDispatchProperties {
+
+	/**
+	 * Whether notifications are queued and sent off the caller's thread.
+	 */
+	private boolean async = true;
+
+	private int queueCapacity = 10_000;
+
+	/**
+	 * Maximum number of notifications handed to the delegate per drain.
+	 */
+	private int batchSize = 256;
+
+	private int threads = 1;
+
+	private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+
+	/**
+	 * Maximum number of notifications parked beyond the queue with {@link BackpressurePolicy#SPILL};
+	 * further ones are dropped.
+	 */
+	private int spillCapacity = 100_000;
+
+	/**
+	 * How long pending notifications may take to drain on shutdown.
+	 */
+	private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+}
@@ -1,8 +1,19 @@
 package com.db.awmd.challenge.notification;
 
+import java.util.function.Function;
+
 import com.db.awmd.challenge.account.domain.Account;
 
 public interface NotificationService {
 
   void notifyAboutTransfer(Account account, String transferDescription);
+
+  /**
+   * Notifies the owner of the account with id {@code accountId}, which {@code accounts} looks up.
+   * Services that send notifications later look the account up only then, off the caller's thread.
+   */
+  default void notifyAboutTransfer(String accountId, Function<String, Account> accounts,
+      String transferDescription) {
+    notifyAboutTransfer(accounts.apply(accountId), transferDescription);
+  }
 }
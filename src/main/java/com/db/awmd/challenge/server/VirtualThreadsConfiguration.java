@@ -0,0 +1,40 @@
+package com.db.awmd.challenge.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs request handling on a virtual thread per request instead of the Tomcat worker pool, so a
+ * handler blocked on notifications or persistence does not hold one of a bounded number of
+ * threads. Enabled with {@code accounts.virtual-threads.enabled}, which the {@code virtual-threads}
+ * profile sets.
+ * <p>
+ * Virtual threads need a Java 21 runtime. The executor is looked up reflectively so the
+ * application still builds for Java 11, and startup fails if the runtime is older.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accounts.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfiguration {
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+		ExecutorService executor = newVirtualThreadPerTaskExecutor();
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Virtual threads need Java 21 or later, running on " + Runtime.version());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot create the virtual thread executor", e);
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.db.awmd.challenge.server;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.virtual-threads")
+public class VirtualThreadsProperties {
+
+	/**
+	 * Whether every request runs on a virtual thread of its own instead of the Tomcat worker pool.
+	 * Needs a Java 21 runtime.
+	 */
+	private boolean enabled = false;
+
+}
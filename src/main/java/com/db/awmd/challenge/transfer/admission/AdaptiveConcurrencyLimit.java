@@ -0,0 +1,107 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limit on the number of transfers in flight, adjusted to keep their latency under a target. The
+ * limit grows by one for every {@code limit} transfers that complete within the target while the
+ * limit is at least half used, and is multiplied by {@code backoffRatio} when a transfer takes
+ * longer, at most once per target latency so that the transfers queued behind a slow one do not
+ * cut it again. Requests beyond the limit are turned away at once instead of queueing for the
+ * account locks, which keeps the latency of those admitted near the target under overload.
+ * <p>
+ * Lock-free: the number in flight and the limit are updated by compare-and-set.
+ */
+public class AdaptiveConcurrencyLimit {
+
+	private final long targetNanos;
+
+	private final double minLimit;
+
+	private final double maxLimit;
+
+	private final double backoffRatio;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicLong limitBits;
+
+	private final AtomicLong lastDecreaseNanos;
+
+	public AdaptiveConcurrencyLimit(Duration targetLatency, int initialLimit, int minLimit, int maxLimit,
+			double backoffRatio, long nowNanos) {
+		if (targetLatency.isNegative() || targetLatency.isZero() || minLimit <= 0 || initialLimit < minLimit
+				|| maxLimit < initialLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("Invalid concurrency limit settings");
+		}
+		this.targetNanos = targetLatency.toNanos();
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+		this.lastDecreaseNanos = new AtomicLong(nowNanos - targetNanos);
+	}
+
+	/**
+	 * Takes a slot for a transfer if fewer than the limit are in flight.
+	 */
+	public boolean tryAcquire() {
+		int limit = getLimit();
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+		} while (!inFlight.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	/**
+	 * Gives back the slot of a transfer that took {@code latencyNanos} and adjusts the limit.
+	 */
+	public void release(long latencyNanos, long nowNanos) {
+		int current = inFlight.getAndDecrement();
+		if (latencyNanos > targetNanos) {
+			long last = lastDecreaseNanos.get();
+			if (nowNanos - last >= targetNanos && lastDecreaseNanos.compareAndSet(last, nowNanos)) {
+				decrease();
+			}
+		} else if (current * 2 >= getLimit()) {
+			increase();
+		}
+	}
+
+	public int getLimit() {
+		return (int) Double.longBitsToDouble(limitBits.get());
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private void decrease() {
+		long bits;
+		double limit;
+		do {
+			bits = limitBits.get();
+			limit = Math.max(minLimit, Double.longBitsToDouble(bits) * backoffRatio);
+		} while (!limitBits.compareAndSet(bits, Double.doubleToRawLongBits(limit)));
+	}
+
+	private void increase() {
+		long bits;
+		double limit;
+		do {
+			bits = limitBits.get();
+			limit = Double.longBitsToDouble(bits);
+			if (limit >= maxLimit) {
+				return;
+			}
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		} while (!limitBits.compareAndSet(bits, Double.doubleToRawLongBits(limit)));
+	}
+
+}
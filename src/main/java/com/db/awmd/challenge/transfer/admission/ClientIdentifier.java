@@ -0,0 +1,39 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.util.Collection;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Tells apart the clients whose transfer requests are rate limited. A client is identified by its
+ * address, unless its request was forwarded by one of the trusted proxies, which name the client
+ * with an {@value #CLIENT_ID_HEADER} header. The header of any other request is ignored, as a
+ * client could otherwise send a new id with every request to escape its limit.
+ */
+public class ClientIdentifier {
+
+	public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+	private final Set<String> trustedProxies;
+
+	/**
+	 * @param trustedProxies addresses of the proxies whose {@value #CLIENT_ID_HEADER} header is
+	 *            trusted
+	 */
+	public ClientIdentifier(Collection<String> trustedProxies) {
+		this.trustedProxies = Set.copyOf(trustedProxies);
+	}
+
+	/**
+	 * Returns the id of the client that sent the request.
+	 */
+	public String clientOf(HttpServletRequest request) {
+		String clientId = request.getHeader(CLIENT_ID_HEADER);
+		if (clientId != null && trustedProxies.contains(request.getRemoteAddr())) {
+			return clientId;
+		}
+		return request.getRemoteAddr();
+	}
+
+}
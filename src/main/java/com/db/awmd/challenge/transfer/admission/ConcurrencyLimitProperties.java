@@ -0,0 +1,34 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+	/**
+	 * Whether transfer requests beyond an adaptive limit on those in flight are rejected.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Latency above which the limit is lowered.
+	 */
+	private Duration targetLatency = Duration.ofMillis(50);
+
+	private int initialLimit = 64;
+
+	private int minLimit = 4;
+
+	private int maxLimit = 1024;
+
+	/**
+	 * Factor the limit is multiplied by when a transfer takes longer than the target.
+	 */
+	private double backoffRatio = 0.9;
+
+}
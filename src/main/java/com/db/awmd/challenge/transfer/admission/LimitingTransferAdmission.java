@@ -0,0 +1,129 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.time.Duration;
+import java.util.Map;
+
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+/**
+ * {@link TransferAdmission} that applies token bucket rate limits by client and by source account,
+ * and then an {@link AdaptiveConcurrencyLimit} on the requests in flight. Any of them may be
+ * {@code null} to leave it out. A request rejected by a later limit gets back the tokens it took
+ * from the earlier ones, so it only counts against the limit that rejected it.
+ */
+public class LimitingTransferAdmission implements TransferAdmission {
+
+	private static final Duration OVERLOAD_RETRY_AFTER = Duration.ofSeconds(1);
+
+	private final TokenBuckets clients;
+
+	private final TokenBuckets accounts;
+
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+	public LimitingTransferAdmission(TokenBuckets clients, TokenBuckets accounts,
+			AdaptiveConcurrencyLimit concurrencyLimit) {
+		this.clients = clients;
+		this.accounts = accounts;
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	@Override
+	public long admit(String clientId, String accountFromId, int transfers) {
+		long now = System.nanoTime();
+		acquireClient(clientId, transfers, now);
+		if (accounts != null && accountFromId != null) {
+			long wait = accounts.tryAcquire(accountFromId, transfers, now);
+			if (wait > 0) {
+				releaseClient(clientId, transfers);
+				throw accountRejected(accountFromId, wait);
+			}
+		}
+		if (concurrencyLimit != null && !concurrencyLimit.tryAcquire()) {
+			releaseClient(clientId, transfers);
+			if (accounts != null && accountFromId != null) {
+				accounts.release(accountFromId, transfers);
+			}
+			throw overloaded();
+		}
+		return now;
+	}
+
+	@Override
+	public long admitBatch(String clientId, Map<String, Integer> transfersByAccount, int transfers) {
+		long now = System.nanoTime();
+		acquireClient(clientId, transfers, now);
+		if (accounts != null) {
+			for (Map.Entry<String, Integer> account : transfersByAccount.entrySet()) {
+				long wait = accounts.tryAcquire(account.getKey(), account.getValue(), now);
+				if (wait > 0) {
+					releaseClient(clientId, transfers);
+					releaseAccounts(transfersByAccount, account.getKey());
+					throw accountRejected(account.getKey(), wait);
+				}
+			}
+		}
+		if (concurrencyLimit != null && !concurrencyLimit.tryAcquire()) {
+			releaseClient(clientId, transfers);
+			releaseAccounts(transfersByAccount, null);
+			throw overloaded();
+		}
+		return now;
+	}
+
+	private void acquireClient(String clientId, int transfers, long now) {
+		if (clients != null) {
+			long wait = clients.tryAcquire(clientId, transfers, now);
+			if (wait > 0) {
+				throw new TransferRejectedException("Too many transfers from client " + clientId, retryAfter(wait));
+			}
+		}
+	}
+
+	private void releaseClient(String clientId, int transfers) {
+		if (clients != null) {
+			clients.release(clientId, transfers);
+		}
+	}
+
+	/**
+	 * Puts back the tokens taken from the accounts before {@code rejected}, or from all of them if it
+	 * is {@code null}.
+	 */
+	private void releaseAccounts(Map<String, Integer> transfersByAccount, String rejected) {
+		if (accounts == null) {
+			return;
+		}
+		for (Map.Entry<String, Integer> account : transfersByAccount.entrySet()) {
+			if (account.getKey().equals(rejected)) {
+				return;
+			}
+			accounts.release(account.getKey(), account.getValue());
+		}
+	}
+
+	private static TransferRejectedException accountRejected(String accountFromId, long waitNanos) {
+		return new TransferRejectedException("Too many transfers from account " + accountFromId,
+				retryAfter(waitNanos));
+	}
+
+	private static TransferRejectedException overloaded() {
+		return new TransferRejectedException("Too many transfers in progress, try again later", OVERLOAD_RETRY_AFTER);
+	}
+
+	@Override
+	public void release(long admittedAt) {
+		if (concurrencyLimit != null) {
+			long now = System.nanoTime();
+			concurrencyLimit.release(now - admittedAt, now);
+		}
+	}
+
+	/**
+	 * Rounds up to whole seconds, as the Retry-After header takes.
+	 */
+	private static Duration retryAfter(long waitNanos) {
+		return Duration.ofSeconds((waitNanos + 999_999_999) / 1_000_000_000);
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.rate-limit")
+public class RateLimitProperties {
+
+	/**
+	 * Whether transfer requests are rate limited by client and by source account.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Transfers a second, with bursts of up to {@code burst}, from one source account.
+	 */
+	private Limit account = new Limit(50, 100);
+
+	/**
+	 * Transfers a second, with bursts of up to {@code burst}, from one client, identified by its
+	 * address. A batch counts each of its transfers.
+	 */
+	private Limit client = new Limit(1000, 2000);
+
+	/**
+	 * Addresses of the proxies trusted to identify the clients they forward requests for with an
+	 * X-Client-Id header, which is ignored on requests from any other address.
+	 */
+	private List<String> trustedProxies = new ArrayList<>();
+
+	/**
+	 * Maximum number of buckets kept for each of the two limits; idle buckets are dropped first.
+	 */
+	private int maxEntries = 1_000_000;
+
+	private int stripes = 64;
+
+	@Data
+	public static class Limit {
+
+		private double rate;
+
+		private int burst;
+
+		public Limit() {
+		}
+
+		public Limit(double rate, int burst) {
+			this.rate = rate;
+			this.burst = burst;
+		}
+
+	}
+
+}
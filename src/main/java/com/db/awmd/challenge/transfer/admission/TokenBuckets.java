@@ -0,0 +1,156 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.db.awmd.challenge.util.Stripes;
+
+/**
+ * Token buckets by key, each holding up to {@code burst} tokens and refilled at {@code rate}
+ * tokens a second. A bucket keeps only the time it is full again, from which the tokens it holds
+ * follow, so it is refilled lazily, with exact integer arithmetic, and an idle bucket costs nothing.
+ * Buckets are split into stripes by key hash, each a map in access order guarded by its own lock.
+ * <p>
+ * A bucket left idle long enough to refill completely is the same as no bucket, so such buckets
+ * are dropped from the head of their stripe on each access. Once a stripe is full its least
+ * recently used bucket makes room for the new one, which errs on the side of admitting requests.
+ */
+public class TokenBuckets {
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	// Time to add one token, and to fill an empty bucket.
+	private final long tokenNanos;
+
+	private final long burstNanos;
+
+	private final int burst;
+
+	/**
+	 * @param rate tokens added to a bucket per second
+	 * @param burst tokens a bucket holds when full
+	 * @param stripes number of independently locked stripes, rounded up to a power of two
+	 * @param maxEntries maximum number of buckets, split evenly between the stripes
+	 */
+	public TokenBuckets(double rate, int burst, int stripes, int maxEntries) {
+		if (rate <= 0 || burst <= 0 || stripes <= 0 || maxEntries < stripes) {
+			throw new IllegalArgumentException(
+					"Rate, burst and stripes must be greater than zero and max entries at least the stripes");
+		}
+		int size = Stripes.roundUp(stripes);
+		this.stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new Stripe(Math.max(1, maxEntries / size));
+		}
+		this.mask = size - 1;
+		this.tokenNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rate));
+		this.burstNanos = tokenNanos * burst;
+		this.burst = burst;
+	}
+
+	/**
+	 * Takes {@code permits} tokens from the bucket of {@code key} if it holds them. More permits than
+	 * the burst are taken once the bucket is full, leaving it in debt.
+	 *
+	 * @param nowNanos current {@link System#nanoTime()}
+	 * @return zero if the tokens were taken, otherwise the nanoseconds until the bucket holds them
+	 */
+	public long tryAcquire(String key, int permits, long nowNanos) {
+		Stripe stripe = stripeOf(key);
+		stripe.lock.lock();
+		try {
+			stripe.evictIdle(nowNanos);
+			Bucket bucket = stripe.buckets.get(key);
+			long fullAt = bucket == null || bucket.fullAtNanos - nowNanos < 0 ? nowNanos : bucket.fullAtNanos;
+			long waitNanos = fullAt - nowNanos + Math.min(permits, burst) * tokenNanos - burstNanos;
+			if (waitNanos > 0) {
+				return waitNanos;
+			}
+			if (bucket == null) {
+				bucket = new Bucket();
+				stripe.buckets.put(key, bucket);
+			}
+			bucket.fullAtNanos = fullAt + permits * tokenNanos;
+			return 0;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Puts back {@code permits} tokens taken from the bucket of {@code key} for a request that was
+	 * then rejected for another reason. Tokens of a bucket dropped since are not put back, as it was
+	 * full again anyway, or made room for another while it was least recently used.
+	 */
+	public void release(String key, int permits) {
+		Stripe stripe = stripeOf(key);
+		stripe.lock.lock();
+		try {
+			Bucket bucket = stripe.buckets.get(key);
+			if (bucket != null) {
+				bucket.fullAtNanos -= permits * tokenNanos;
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Number of buckets kept, including idle ones not yet dropped.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				size += stripe.buckets.size();
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	private Stripe stripeOf(String key) {
+		return stripes[Stripes.indexOf(key, mask)];
+	}
+
+	private static class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		final LinkedHashMap<String, Bucket> buckets;
+
+		Stripe(int capacity) {
+			this.buckets = Stripes.lruMap(capacity);
+		}
+
+		/**
+		 * Drops buckets full again from the head. The least recently used bucket has been idle the
+		 * longest, but not necessarily the one closest to full, so this stops at the first bucket still
+		 * refilling and may leave a few full ones behind it until they reach the head.
+		 */
+		void evictIdle(long nowNanos) {
+			Iterator<Bucket> iterator = buckets.values().iterator();
+			while (iterator.hasNext() && iterator.next().fullAtNanos - nowNanos <= 0) {
+				iterator.remove();
+			}
+		}
+
+	}
+
+	/**
+	 * Guarded by its stripe's lock.
+	 */
+	private static class Bucket {
+
+		// When the bucket is full again if left alone; every missing token puts it off by tokenNanos.
+		long fullAtNanos;
+
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import java.util.Map;
+
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+/**
+ * Decides whether a transfer request may run, before it reaches the accounts. Called on every
+ * transfer request, so implementations must be cheap and must not allocate when admitting.
+ */
+public interface TransferAdmission {
+
+	/**
+	 * Admission that admits everything and never reads the clock.
+	 */
+	TransferAdmission NONE = new TransferAdmission() {
+
+		@Override
+		public long admit(String clientId, String accountFromId, int transfers) {
+			return 0;
+		}
+
+		@Override
+		public long admitBatch(String clientId, Map<String, Integer> transfersByAccount, int transfers) {
+			return 0;
+		}
+
+		@Override
+		public void release(long admittedAt) {
+		}
+
+	};
+
+	/**
+	 * Admits a request of {@code transfers} transfers, to be passed back to {@link #release} once
+	 * it completes or fails.
+	 *
+	 * @param clientId identifies the client sending the request
+	 * @param accountFromId source account of the transfers, or {@code null} if they have none
+	 * @return the time the request was admitted
+	 * @throws TransferRejectedException if the request must not run
+	 */
+	long admit(String clientId, String accountFromId, int transfers);
+
+	/**
+	 * Like {@link #admit}, for a batch of {@code transfers} transfers from several source accounts,
+	 * which is rejected as a whole if any of them must not run.
+	 *
+	 * @param transfersByAccount number of transfers from each source account
+	 */
+	long admitBatch(String clientId, Map<String, Integer> transfersByAccount, int transfers);
+
+	/**
+	 * Records that a request admitted at {@code admittedAt} completed or failed.
+	 */
+	void release(long admittedAt);
+
+}
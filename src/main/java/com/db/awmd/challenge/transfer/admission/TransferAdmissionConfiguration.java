@@ -0,0 +1,37 @@
+package com.db.awmd.challenge.transfer.admission;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransferAdmissionConfiguration {
+
+	@Bean
+	public TransferAdmission transferAdmission(RateLimitProperties rateLimit,
+			ConcurrencyLimitProperties concurrencyLimit) {
+		if (!rateLimit.isEnabled() && !concurrencyLimit.isEnabled()) {
+			return TransferAdmission.NONE;
+		}
+		TokenBuckets clients = null;
+		TokenBuckets accounts = null;
+		if (rateLimit.isEnabled()) {
+			clients = new TokenBuckets(rateLimit.getClient().getRate(), rateLimit.getClient().getBurst(),
+					rateLimit.getStripes(), rateLimit.getMaxEntries());
+			accounts = new TokenBuckets(rateLimit.getAccount().getRate(), rateLimit.getAccount().getBurst(),
+					rateLimit.getStripes(), rateLimit.getMaxEntries());
+		}
+		AdaptiveConcurrencyLimit limit = null;
+		if (concurrencyLimit.isEnabled()) {
+			limit = new AdaptiveConcurrencyLimit(concurrencyLimit.getTargetLatency(),
+					concurrencyLimit.getInitialLimit(), concurrencyLimit.getMinLimit(), concurrencyLimit.getMaxLimit(),
+					concurrencyLimit.getBackoffRatio(), System.nanoTime());
+		}
+		return new LimitingTransferAdmission(clients, accounts, limit);
+	}
+
+	@Bean
+	public ClientIdentifier clientIdentifier(RateLimitProperties rateLimit) {
+		return new ClientIdentifier(rateLimit.getTrustedProxies());
+	}
+
+}
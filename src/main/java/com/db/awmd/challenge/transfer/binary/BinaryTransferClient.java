@@ -0,0 +1,188 @@
+package com.db.awmd.challenge.transfer.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.exception.TransferProtocolException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+/**
+ * Client of the {@link BinaryTransferServer} over one connection. It is thread-safe, and any
+ * number of transfers may be in flight at once: {@link #transferAsync(String, String, BigDecimal)}
+ * sends a request without waiting for earlier responses, and a reader thread completes the futures
+ * as responses arrive.
+ * <p>
+ * Transfers are reported as {@link TransferResult}s like {@code AccountsService.tryTransfer}
+ * returns them. Transfers the server turns away under its rate or concurrency limits complete the
+ * future with a {@link TransferRejectedException}, and malformed requests, unexpected server
+ * failures and a closed connection with a {@link TransferProtocolException}.
+ */
+public class BinaryTransferClient implements AutoCloseable {
+
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	private final SocketChannel channel;
+
+	private final Map<Long, CompletableFuture<TransferResult>> pending = new ConcurrentHashMap<>();
+
+	private final AtomicLong correlationIds = new AtomicLong();
+
+	// Guarded by itself.
+	private final ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+
+	private final Thread reader;
+
+	private volatile boolean closed;
+
+	private BinaryTransferClient(SocketChannel channel) {
+		this.channel = channel;
+		this.reader = new Thread(this::read, "binary-transfer-client");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	public static BinaryTransferClient connect(String host, int port) throws IOException {
+		SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		return new BinaryTransferClient(channel);
+	}
+
+	/**
+	 * Sends a transfer and waits for its result.
+	 *
+	 * @throws TransferRejectedException if the server turned the transfer away
+	 * @throws TransferProtocolException if the server could not process the transfer
+	 */
+	public TransferResult transfer(String accountFromId, String accountToId, BigDecimal amount) {
+		try {
+			return transferAsync(accountFromId, accountToId, amount).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Sends a transfer without waiting for earlier transfers to complete.
+	 *
+	 * @throws IllegalArgumentException if an account id or the amount do not fit into a request
+	 */
+	public CompletableFuture<TransferResult> transferAsync(String accountFromId, String accountToId,
+			BigDecimal amount) {
+		byte[] from = accountFromId.getBytes(UTF_8);
+		byte[] to = accountToId.getBytes(UTF_8);
+		if (BinaryTransferProtocol.transferFrameBytes(from, to) > BUFFER_BYTES) {
+			throw new IllegalArgumentException("Account ids are too long for a binary transfer");
+		}
+		CompletableFuture<TransferResult> future = new CompletableFuture<>();
+		long correlationId = correlationIds.incrementAndGet();
+		synchronized (out) {
+			out.clear();
+			BinaryTransferProtocol.writeTransfer(out, correlationId, from, to, amount);
+			out.flip();
+			pending.put(correlationId, future);
+			if (closed) {
+				fail(correlationId, "Connection is closed");
+				return future;
+			}
+			try {
+				while (out.hasRemaining()) {
+					channel.write(out);
+				}
+			} catch (IOException e) {
+				fail(correlationId, "Failed to send transfer: " + e.getMessage());
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * Closes the connection. Transfers still in flight fail; they may or may not have been applied.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		channel.close();
+	}
+
+	private void read() {
+		ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+		try {
+			while (channel.read(in) >= 0) {
+				in.flip();
+				while (in.remaining() >= BinaryTransferProtocol.LENGTH_BYTES
+						&& in.remaining() >= BinaryTransferProtocol.LENGTH_BYTES + in.getInt(in.position())) {
+					int end = in.position() + BinaryTransferProtocol.LENGTH_BYTES + in.getInt();
+					long correlationId = in.getLong();
+					byte status = in.get();
+					String message = BinaryTransferProtocol.readString(in, end);
+					complete(correlationId, status, message, in, end);
+					in.position(end);
+				}
+				in.compact();
+			}
+		} catch (IOException | RuntimeException e) {
+			if (!closed) {
+				closed = true;
+				closeQuietly();
+			}
+		} finally {
+			closed = true;
+			for (Long correlationId : pending.keySet()) {
+				fail(correlationId, "Connection closed before the response arrived");
+			}
+		}
+	}
+
+	/**
+	 * Completes the transfer of a response whose fields after the message are left in {@code in}
+	 * up to {@code end}.
+	 */
+	private void complete(long correlationId, byte status, String message, ByteBuffer in, int end) {
+		CompletableFuture<TransferResult> future = pending.remove(correlationId);
+		if (future == null) {
+			return;
+		}
+		try {
+			if (status == BinaryTransferProtocol.STATUS_ERROR) {
+				future.completeExceptionally(new TransferProtocolException(message));
+			} else if (status == BinaryTransferProtocol.STATUS_REJECTED) {
+				future.completeExceptionally(BinaryTransferProtocol.rejection(message, in, end));
+			} else {
+				future.complete(BinaryTransferProtocol.result(status, message, in, end));
+			}
+		} catch (TransferProtocolException e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	private void fail(long correlationId, String message) {
+		CompletableFuture<TransferResult> future = pending.remove(correlationId);
+		if (future != null) {
+			future.completeExceptionally(new TransferProtocolException(message));
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Already failing every transfer in flight.
+		}
+	}
+
+}
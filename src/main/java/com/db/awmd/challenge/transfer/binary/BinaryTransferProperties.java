@@ -0,0 +1,39 @@
+package com.db.awmd.challenge.transfer.binary;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.binary")
+public class BinaryTransferProperties {
+
+	/**
+	 * Whether transfers are also accepted over the binary protocol.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Address to listen on. Only local systems can connect by default; the protocol has no
+	 * authentication, so bind it to other interfaces only on a trusted network.
+	 */
+	private String address = "127.0.0.1";
+
+	private int port = 18090;
+
+	/**
+	 * Largest request accepted, in bytes after the length prefix. Longer frames close the
+	 * connection.
+	 */
+	private int maxFrameLength = 1024;
+
+	/**
+	 * Threads that run transfers. Unset, transfers run on the network thread with the
+	 * {@code pipeline} repository, whose transfers never block it, and otherwise on as many threads as
+	 * there are processors. With {@code 0} transfers always run on the network thread, which is
+	 * fastest while they never block, as with the {@code in-memory} repository and the journal
+	 * disabled.
+	 */
+	private Integer workerThreads;
+
+}
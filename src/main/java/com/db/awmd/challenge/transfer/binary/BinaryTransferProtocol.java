@@ -0,0 +1,205 @@
+package com.db.awmd.challenge.transfer.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.exception.TransferProtocolException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+/**
+ * Wire format of the binary transfer protocol. Every message is a frame of an {@code int} length
+ * followed by that many bytes, big-endian:
+ * <pre>
+ * request:  long correlationId, byte type ({@link #TYPE_TRANSFER}), string accountFromId,
+ *           string accountToId, long unscaled amount, byte amount scale
+ * response: long correlationId, byte status, string message[, string credited | int retryAfter]
+ * </pre>
+ * Strings are an unsigned {@code short} length and their UTF-8 bytes. The status of a response is
+ * the ordinal of its {@link TransferStatus}, {@link #STATUS_REJECTED} if the client or source
+ * account went over its rate limit or the server is overloaded, or {@link #STATUS_ERROR} if the
+ * request was malformed or failed unexpectedly. Completed transfers have an empty message, and
+ * those between currencies are followed by the amount credited to the destination account in its
+ * currency, in plain decimal notation. Rejected requests are followed by the seconds to wait before
+ * trying again. Clients may pipeline requests, sending many before reading any response.
+ * Responses carry the correlation id of their request and may arrive in a different order.
+ */
+public final class BinaryTransferProtocol {
+
+	public static final byte TYPE_TRANSFER = 1;
+
+	public static final byte STATUS_ERROR = -1;
+
+	public static final byte STATUS_REJECTED = -2;
+
+	static final int LENGTH_BYTES = 4;
+
+	static final int MAX_STRING_BYTES = 0xFFFF;
+
+	/**
+	 * Smallest transfer request: empty account ids.
+	 */
+	static final int MIN_REQUEST_BYTES = 8 + 1 + 2 + 2 + 8 + 1;
+
+	// Wire codes are ordinals, so statuses must only ever be appended to TransferStatus.
+	private static final TransferStatus[] STATUSES = TransferStatus.values();
+
+	private static final byte[] NO_BYTES = {};
+
+	private BinaryTransferProtocol() {
+	}
+
+	/**
+	 * Returns the size of the frame of a transfer request, length included.
+	 */
+	static int transferFrameBytes(byte[] accountFromId, byte[] accountToId) {
+		return LENGTH_BYTES + MIN_REQUEST_BYTES + accountFromId.length + accountToId.length;
+	}
+
+	static void writeTransfer(ByteBuffer buffer, long correlationId, byte[] accountFromId, byte[] accountToId,
+			BigDecimal amount) {
+		if (amount.unscaledValue().bitLength() > 63 || amount.scale() < Byte.MIN_VALUE
+				|| amount.scale() > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Amount " + amount + " cannot be sent as a binary transfer");
+		}
+		buffer.putInt(MIN_REQUEST_BYTES + accountFromId.length + accountToId.length);
+		buffer.putLong(correlationId);
+		buffer.put(TYPE_TRANSFER);
+		writeString(buffer, accountFromId);
+		writeString(buffer, accountToId);
+		buffer.putLong(amount.unscaledValue().longValue());
+		buffer.put((byte) amount.scale());
+	}
+
+	/**
+	 * Returns the size of the frame of a response, length included.
+	 *
+	 * @param credited the amount credited, or {@code null} if it is not sent
+	 */
+	static int responseFrameBytes(byte[] message, byte[] credited) {
+		return LENGTH_BYTES + responseBytes(message, credited);
+	}
+
+	static void writeResponse(ByteBuffer buffer, long correlationId, byte status, byte[] message, byte[] credited) {
+		buffer.putInt(responseBytes(message, credited));
+		buffer.putLong(correlationId);
+		buffer.put(status);
+		writeString(buffer, message);
+		if (credited != null) {
+			writeString(buffer, credited);
+		}
+	}
+
+	private static int responseBytes(byte[] message, byte[] credited) {
+		return 8 + 1 + 2 + message.length + (credited == null ? 0 : 2 + credited.length);
+	}
+
+	/**
+	 * Returns the size of the frame of a {@link #STATUS_REJECTED} response, length included.
+	 */
+	static int rejectionFrameBytes(byte[] message) {
+		return responseFrameBytes(message, null) + 4;
+	}
+
+	static void writeRejection(ByteBuffer buffer, long correlationId, byte[] message, Duration retryAfter) {
+		buffer.putInt(responseBytes(message, null) + 4);
+		buffer.putLong(correlationId);
+		buffer.put(STATUS_REJECTED);
+		writeString(buffer, message);
+		buffer.putInt((int) Math.min(retryAfter.getSeconds(), Integer.MAX_VALUE));
+	}
+
+	static byte statusCode(TransferResult result) {
+		return (byte) result.getStatus().ordinal();
+	}
+
+	/**
+	 * Returns the message bytes of a response, empty for completed transfers.
+	 */
+	static byte[] message(TransferResult result) {
+		return result.isCompleted() ? NO_BYTES : encode(result.getMessage());
+	}
+
+	/**
+	 * Returns the bytes of the amount credited by a response, or {@code null} if it is the amount
+	 * debited.
+	 */
+	static byte[] credited(TransferResult result) {
+		return result.getCredited() == null ? null : result.getCredited().toPlainString().getBytes(UTF_8);
+	}
+
+	/**
+	 * Returns the UTF-8 bytes of a string, cut to the longest length a frame can hold.
+	 */
+	static byte[] encode(String value) {
+		byte[] bytes = value == null ? NO_BYTES : value.getBytes(UTF_8);
+		if (bytes.length > MAX_STRING_BYTES) {
+			byte[] cut = new byte[MAX_STRING_BYTES];
+			System.arraycopy(bytes, 0, cut, 0, MAX_STRING_BYTES);
+			return cut;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Decodes the result of a response whose status is a {@link TransferStatus}, reading the amount
+	 * credited of a frame that ends at {@code end} if it has one.
+	 */
+	static TransferResult result(byte status, String message, ByteBuffer buffer, int end) {
+		if (status < 0 || status >= STATUSES.length) {
+			throw new TransferProtocolException("Unknown transfer status " + status);
+		}
+		TransferStatus transferStatus = STATUSES[status];
+		if (transferStatus != TransferStatus.COMPLETED) {
+			return new TransferResult(transferStatus, message);
+		}
+		if (buffer.position() == end) {
+			return TransferResult.completed();
+		}
+		String credited = readString(buffer, end);
+		try {
+			return TransferResult.exchanged(new BigDecimal(credited));
+		} catch (NumberFormatException e) {
+			throw new TransferProtocolException("Amount credited " + credited + " is not a number");
+		}
+	}
+
+	/**
+	 * Decodes the rejection of a {@link #STATUS_REJECTED} response that ends at {@code end}.
+	 */
+	static TransferRejectedException rejection(String message, ByteBuffer buffer, int end) {
+		if (end - buffer.position() < 4) {
+			throw new TransferProtocolException("Rejection ends within its retry delay");
+		}
+		return new TransferRejectedException(message, Duration.ofSeconds(buffer.getInt()));
+	}
+
+	/**
+	 * Reads a string of a frame that ends at {@code end}.
+	 */
+	static String readString(ByteBuffer buffer, int end) {
+		if (end - buffer.position() < 2) {
+			throw new TransferProtocolException("Frame ends within a string length");
+		}
+		int length = buffer.getShort() & 0xFFFF;
+		if (end - buffer.position() < length) {
+			throw new TransferProtocolException("String of " + length + " bytes exceeds the frame");
+		}
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	private static void writeString(ByteBuffer buffer, byte[] value) {
+		if (value.length > MAX_STRING_BYTES) {
+			throw new IllegalArgumentException("String of " + value.length + " bytes is too long for a frame");
+		}
+		buffer.putShort((short) value.length);
+		buffer.put(value);
+	}
+
+}
@@ -0,0 +1,427 @@
+package com.db.awmd.challenge.transfer.binary;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryPipeline;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.transfer.admission.TransferAdmission;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.exception.TransferProtocolException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Accepts transfers in the {@link BinaryTransferProtocol} alongside the REST API, for internal
+ * systems that send many transfers over few connections. A single thread multiplexes all
+ * connections with a {@link Selector}; transfers go through
+ * {@link AccountsService#tryTransferAsync(String, String, BigDecimal)}, so they are validated,
+ * journaled, recorded and notified exactly like REST transfers. They are admitted by the same
+ * {@link TransferAdmission} as REST transfers too, with the address of their connection as the
+ * client. Idempotency keys are not supported.
+ * <p>
+ * Requests are read in batches and their responses written in batches, so pipelining clients get
+ * many transfers per system call. Transfers that complete at once are answered in request order;
+ * the others are answered from the network thread once they complete. A connection is not read
+ * while it has {@value #MAX_PENDING} transfers in flight or its unsent responses exceed
+ * {@value #OUT_HIGH_WATER} bytes.
+ */
+@Component
+@ConditionalOnProperty(name = "transfers.binary.enabled", havingValue = "true")
+@Slf4j
+public class BinaryTransferServer implements DisposableBean {
+
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	static final int OUT_HIGH_WATER = 1024 * 1024;
+
+	static final int MAX_PENDING = 4096;
+
+	private final AccountsService accountsService;
+
+	private final TransferAdmission transferAdmission;
+
+	private final int maxFrameLength;
+
+	private final ExecutorService workers;
+
+	private final Selector selector;
+
+	private final ServerSocketChannel serverChannel;
+
+	private final Thread thread;
+
+	// Connections with transfers that completed off the network thread.
+	private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public BinaryTransferServer(AccountsService accountsService, TransferAdmission transferAdmission,
+			BinaryTransferProperties properties) throws IOException {
+		this(accountsService, transferAdmission, new InetSocketAddress(properties.getAddress(), properties.getPort()),
+				properties.getMaxFrameLength(), workerThreads(properties, accountsService.getAccountsRepository()));
+	}
+
+	/**
+	 * Returns the configured worker threads or, unset, none for the {@code pipeline} repository, which
+	 * only publishes transfers on the calling thread, and one per processor for the others, which may
+	 * block on locks and the journal.
+	 */
+	private static int workerThreads(BinaryTransferProperties properties, AccountsRepository accountsRepository) {
+		if (properties.getWorkerThreads() != null) {
+			return properties.getWorkerThreads();
+		}
+		return accountsRepository instanceof AccountsRepositoryPipeline ? 0
+				: Runtime.getRuntime().availableProcessors();
+	}
+
+	public BinaryTransferServer(AccountsService accountsService, TransferAdmission transferAdmission,
+			InetSocketAddress address, int maxFrameLength, int workerThreads) throws IOException {
+		if (maxFrameLength < BinaryTransferProtocol.MIN_REQUEST_BYTES) {
+			throw new IllegalArgumentException("Frames must hold at least " + BinaryTransferProtocol.MIN_REQUEST_BYTES
+					+ " bytes");
+		}
+		this.accountsService = accountsService;
+		this.transferAdmission = transferAdmission;
+		this.maxFrameLength = maxFrameLength;
+		this.workers = workerThreads > 0 ? newWorkers(workerThreads) : null;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		this.thread = new Thread(this::run, "accounts-binary-transfers");
+		thread.setDaemon(true);
+		thread.start();
+		log.info("Accepting binary transfers on {}", serverChannel.getLocalAddress());
+	}
+
+	/**
+	 * Returns the port the server listens on, which is chosen by the system if it was configured as
+	 * {@code 0}.
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		running = false;
+		selector.wakeup();
+		thread.join(1000);
+		if (workers != null) {
+			workers.shutdown();
+		}
+	}
+
+	private static ExecutorService newWorkers(int threads) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "accounts-binary-worker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				selector.select();
+				for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext();) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						((Connection) key.attachment()).ready(key);
+					}
+				}
+				for (Connection connection; (connection = completed.poll()) != null;) {
+					connection.sendCompleted();
+				}
+			} catch (IOException | RuntimeException e) {
+				log.warn("Binary transfer server failed to select", e);
+			}
+		}
+		for (SelectionKey key : selector.keys()) {
+			closeQuietly(key);
+		}
+		closeQuietly(selector);
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		Connection connection = new Connection(channel,
+				((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress());
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+
+	private static void closeQuietly(SelectionKey key) {
+		key.cancel();
+		closeQuietly(key.channel());
+	}
+
+	private static void closeQuietly(AutoCloseable closeable) {
+		try {
+			closeable.close();
+		} catch (Exception e) {
+			log.debug("Failed to close {}", closeable, e);
+		}
+	}
+
+	/**
+	 * State of one client connection. Everything but {@link #completions} is used by the network
+	 * thread only.
+	 */
+	private final class Connection {
+
+		private final SocketChannel channel;
+
+		// Address of the client, as which its transfers are admitted.
+		private final String clientId;
+
+		private final Queue<Completion> completions = new ConcurrentLinkedQueue<>();
+
+		private SelectionKey key;
+
+		private final ByteBuffer in = ByteBuffer.allocate(Math.max(BUFFER_BYTES,
+				BinaryTransferProtocol.LENGTH_BYTES + maxFrameLength));
+
+		// In write mode between flushes.
+		private ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+
+		private int pending;
+
+		private Connection(SocketChannel channel, String clientId) {
+			this.channel = channel;
+			this.clientId = clientId;
+		}
+
+		void ready(SelectionKey key) {
+			try {
+				if (key.isReadable()) {
+					read();
+				}
+				if (key.isValid()) {
+					flush();
+				}
+			} catch (IOException | TransferProtocolException e) {
+				log.debug("Closing binary transfer connection {}", channel, e);
+				closeQuietly(key);
+			}
+		}
+
+		void sendCompleted() {
+			if (!key.isValid()) {
+				return;
+			}
+			for (Completion completion; (completion = completions.poll()) != null;) {
+				pending--;
+				respond(completion.correlationId, completion.result, completion.failure);
+			}
+			try {
+				flush();
+			} catch (IOException e) {
+				log.debug("Closing binary transfer connection {}", channel, e);
+				closeQuietly(key);
+			}
+		}
+
+		private void read() throws IOException {
+			if (channel.read(in) < 0) {
+				closeQuietly(key);
+				return;
+			}
+			in.flip();
+			while (handleFrame()) {
+				// Every complete frame read so far.
+			}
+			in.compact();
+		}
+
+		/**
+		 * Handles the next request in {@link #in}, if it has been read completely.
+		 */
+		private boolean handleFrame() {
+			if (in.remaining() < BinaryTransferProtocol.LENGTH_BYTES) {
+				return false;
+			}
+			int length = in.getInt(in.position());
+			if (length < BinaryTransferProtocol.MIN_REQUEST_BYTES || length > maxFrameLength) {
+				throw new TransferProtocolException("Frame length " + length + " is out of bounds");
+			}
+			if (in.remaining() < BinaryTransferProtocol.LENGTH_BYTES + length) {
+				return false;
+			}
+			int end = in.position() + BinaryTransferProtocol.LENGTH_BYTES + length;
+			in.position(in.position() + BinaryTransferProtocol.LENGTH_BYTES);
+			long correlationId = in.getLong();
+			try {
+				byte type = in.get();
+				if (type != BinaryTransferProtocol.TYPE_TRANSFER) {
+					throw new TransferProtocolException("Unknown request type " + type);
+				}
+				String accountFromId = BinaryTransferProtocol.readString(in, end);
+				String accountToId = BinaryTransferProtocol.readString(in, end);
+				if (end - in.position() != 9) {
+					throw new TransferProtocolException("Transfer request has " + (end - in.position())
+							+ " bytes left for the amount instead of 9");
+				}
+				BigDecimal amount = BigDecimal.valueOf(in.getLong(), in.get());
+				if (accountFromId.isEmpty() || accountToId.isEmpty()) {
+					throw new TransferProtocolException("Account ids must not be empty");
+				}
+				transfer(correlationId, accountFromId, accountToId, amount);
+			} catch (TransferProtocolException e) {
+				respond(correlationId, null, e);
+			}
+			in.position(end);
+			return true;
+		}
+
+		private void transfer(long correlationId, String accountFromId, String accountToId, BigDecimal amount) {
+			long admittedAt;
+			try {
+				admittedAt = transferAdmission.admit(clientId, accountFromId, 1);
+			} catch (TransferRejectedException e) {
+				respond(correlationId, null, e);
+				return;
+			}
+			CompletableFuture<TransferResult> future;
+			try {
+				future = workers == null ? accountsService.tryTransferAsync(accountFromId, accountToId, amount)
+						: CompletableFuture.supplyAsync(
+								() -> accountsService.tryTransfer(accountFromId, accountToId, amount), workers);
+			} catch (RuntimeException e) {
+				transferAdmission.release(admittedAt);
+				respond(correlationId, null, e);
+				return;
+			}
+			if (future.isDone()) {
+				transferAdmission.release(admittedAt);
+				respond(correlationId, future);
+				return;
+			}
+			pending++;
+			future.whenComplete((result, failure) -> {
+				transferAdmission.release(admittedAt);
+				completions.add(new Completion(correlationId, result, failure));
+				completed.add(this);
+				selector.wakeup();
+			});
+		}
+
+		private void respond(long correlationId, CompletableFuture<TransferResult> future) {
+			try {
+				respond(correlationId, future.join(), null);
+			} catch (CompletionException e) {
+				respond(correlationId, null, e.getCause());
+			}
+		}
+
+		private void respond(long correlationId, TransferResult result, Throwable failure) {
+			if (failure instanceof CompletionException && failure.getCause() != null) {
+				failure = failure.getCause();
+			}
+			if (failure instanceof TransferRejectedException) {
+				byte[] message = BinaryTransferProtocol.encode(failure.getMessage());
+				reserve(BinaryTransferProtocol.rejectionFrameBytes(message));
+				BinaryTransferProtocol.writeRejection(out, correlationId, message,
+						((TransferRejectedException) failure).getRetryAfter());
+				return;
+			}
+			byte status;
+			byte[] message;
+			byte[] credited = null;
+			if (failure != null) {
+				if (!(failure instanceof TransferProtocolException)) {
+					log.warn("Binary transfer {} failed", correlationId, failure);
+				}
+				status = BinaryTransferProtocol.STATUS_ERROR;
+				message = BinaryTransferProtocol.encode(failure.getMessage());
+			} else {
+				status = BinaryTransferProtocol.statusCode(result);
+				message = BinaryTransferProtocol.message(result);
+				credited = BinaryTransferProtocol.credited(result);
+			}
+			reserve(BinaryTransferProtocol.responseFrameBytes(message, credited));
+			BinaryTransferProtocol.writeResponse(out, correlationId, status, message, credited);
+		}
+
+		/**
+		 * Grows {@link #out} until it has room for {@code bytes} more.
+		 */
+		private void reserve(int bytes) {
+			if (out.remaining() < bytes) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+				out.flip();
+				grown.put(out);
+				out = grown;
+			}
+		}
+
+		private void flush() throws IOException {
+			if (out.position() > 0) {
+				out.flip();
+				channel.write(out);
+				out.compact();
+			}
+			int interest = out.position() > 0 ? SelectionKey.OP_WRITE : 0;
+			if (out.position() < OUT_HIGH_WATER && pending < MAX_PENDING) {
+				interest |= SelectionKey.OP_READ;
+			}
+			if (key.interestOps() != interest) {
+				key.interestOps(interest);
+			}
+		}
+
+	}
+
+	private static final class Completion {
+
+		private final long correlationId;
+
+		private final TransferResult result;
+
+		private final Throwable failure;
+
+		private Completion(long correlationId, TransferResult result, Throwable failure) {
+			this.correlationId = correlationId;
+			this.result = result;
+			this.failure = failure;
+		}
+
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.db.awmd.challenge.transfer.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Part of the balance of an account held for a transfer to another, until it is captured, released
+ * or expires.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceHold {
+
+	private long id;
+
+	private String accountFromId;
+
+	private String accountToId;
+
+	private BigDecimal amount;
+
+	private Instant expiresAt;
+
+}
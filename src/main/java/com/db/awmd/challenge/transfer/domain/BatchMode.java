@@ -0,0 +1,15 @@
+package com.db.awmd.challenge.transfer.domain;
+
+public enum BatchMode {
+
+	/**
+	 * Either every transfer of the batch is applied or none is.
+	 */
+	ALL_OR_NOTHING,
+
+	/**
+	 * Every valid transfer with enough funds is applied; the others are reported as failed.
+	 */
+	BEST_EFFORT
+
+}
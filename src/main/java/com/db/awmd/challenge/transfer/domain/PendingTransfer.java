@@ -0,0 +1,56 @@
+package com.db.awmd.challenge.transfer.domain;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A scheduled transfer waiting for its next execution.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PendingTransfer {
+
+	private long id;
+
+	private String accountFromId;
+
+	private String accountToId;
+
+	private BigDecimal amount;
+
+	/**
+	 * When the transfer runs next, which is later than its occurrence while it is being retried.
+	 */
+	private Instant nextExecution;
+
+	/**
+	 * Time between occurrences of a recurring transfer; {@code null} for a transfer that runs once.
+	 */
+	private Duration interval;
+
+	/**
+	 * Occurrences left including the next one; {@code null} for a recurring transfer that runs until
+	 * cancelled.
+	 */
+	private Integer remainingOccurrences;
+
+	/**
+	 * Failed attempts of the next occurrence.
+	 */
+	private int attempts;
+
+	/**
+	 * Outcome of the last attempt, {@code null} before the first.
+	 */
+	private TransferStatus lastStatus;
+
+}
@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.transfer.domain;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of an account's transfer history, newest first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferHistoryPage {
+
+	private List<TransferRecord> transfers;
+
+	/**
+	 * Cursor to pass back for the next, older page, or {@code null} if there is none.
+	 */
+	private Long nextCursor;
+
+}
@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.transfer.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A completed transfer as recorded in the transfer ledger.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferRecord {
+
+	private long id;
+
+	private String accountFromId;
+
+	private String accountToId;
+
+	private BigDecimal amount;
+
+	private Instant timestamp;
+
+}
@@ -0,0 +1,143 @@
+package com.db.awmd.challenge.transfer.domain;
+
+import java.math.BigDecimal;
+
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.transfer.exception.ExchangeRateUnavailableException;
+import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
+import com.db.awmd.challenge.transfer.exception.SameAccountTransferException;
+import com.db.awmd.challenge.transfer.exception.VelocityLimitExceededException;
+import com.db.awmd.challenge.transfer.velocity.VelocityRule;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Value;
+
+/**
+ * Outcome of a transfer. Expected failures are reported as results rather than exceptions, so a
+ * rejected transfer costs no stack trace; results without account-specific details are shared
+ * constants, so results are immutable.
+ */
+@Value
+public class TransferResult {
+
+	private static final TransferResult COMPLETED = new TransferResult(TransferStatus.COMPLETED,
+			"Transfer completed successfully");
+
+	private static final TransferResult NOT_APPLIED = new TransferResult(TransferStatus.NOT_APPLIED,
+			"Transfer not applied because another transfer of the batch failed");
+
+	private static final TransferResult SAME_ACCOUNT = new TransferResult(TransferStatus.SAME_ACCOUNT,
+			"Cannot transfer money to the same account");
+
+	private static final TransferResult INVALID_AMOUNT = new TransferResult(TransferStatus.INVALID_AMOUNT,
+			"Transfer amount must be greater than zero");
+
+	private TransferStatus status;
+
+	private String message;
+
+	/**
+	 * Amount credited to the destination account of a completed transfer between currencies, in its
+	 * currency; {@code null} when the amount credited is the amount debited.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private BigDecimal credited;
+
+	public TransferResult(TransferStatus status, String message) {
+		this(status, message, null);
+	}
+
+	@JsonCreator
+	public TransferResult(@JsonProperty("status") TransferStatus status, @JsonProperty("message") String message,
+			@JsonProperty("credited") BigDecimal credited) {
+		this.status = status;
+		this.message = message;
+		this.credited = credited;
+	}
+
+	public static TransferResult completed() {
+		return COMPLETED;
+	}
+
+	/**
+	 * Completed between accounts in different currencies, crediting {@code credited}.
+	 */
+	public static TransferResult exchanged(BigDecimal credited) {
+		return new TransferResult(TransferStatus.COMPLETED, COMPLETED.message, credited);
+	}
+
+	public static TransferResult notApplied() {
+		return NOT_APPLIED;
+	}
+
+	public static TransferResult sameAccount() {
+		return SAME_ACCOUNT;
+	}
+
+	/**
+	 * The amount is not greater than zero.
+	 */
+	public static TransferResult invalidAmount() {
+		return INVALID_AMOUNT;
+	}
+
+	public static TransferResult invalidAmount(String message) {
+		return new TransferResult(TransferStatus.INVALID_AMOUNT, message);
+	}
+
+	public static TransferResult accountNotFound(String accountId) {
+		return new TransferResult(TransferStatus.ACCOUNT_NOT_FOUND, "Account id " + accountId + " not found");
+	}
+
+	public static TransferResult insufficientBalance(String accountId) {
+		return new TransferResult(TransferStatus.INSUFFICIENT_BALANCE,
+				"Account " + accountId + " has insufficient balance");
+	}
+
+	public static TransferResult noExchangeRate(String fromCurrency, String toCurrency) {
+		return new TransferResult(TransferStatus.NO_EXCHANGE_RATE,
+				"No exchange rate from " + fromCurrency + " to " + toCurrency);
+	}
+
+	public static TransferResult velocityLimitExceeded(String accountId, VelocityRule rule) {
+		return new TransferResult(TransferStatus.VELOCITY_LIMIT_EXCEEDED,
+				"Transfer would exceed the limit of " + rule + " for account " + accountId);
+	}
+
+	public static TransferResult failed(RuntimeException e) {
+		return new TransferResult(TransferStatus.of(e), e.getMessage());
+	}
+
+	/**
+	 * Returns the exception a failed transfer is reported with by the throwing API, the inverse of
+	 * {@link #failed(RuntimeException)}.
+	 */
+	public RuntimeException toException() {
+		switch (status) {
+		case INVALID_AMOUNT:
+			return new InvalidTransferAmountException(message);
+		case SAME_ACCOUNT:
+			return new SameAccountTransferException(message);
+		case ACCOUNT_NOT_FOUND:
+			return new AccountNotFoundException(message);
+		case INSUFFICIENT_BALANCE:
+			return new InsufficientBalanceException(message);
+		case NO_EXCHANGE_RATE:
+			return new ExchangeRateUnavailableException(message);
+		case VELOCITY_LIMIT_EXCEEDED:
+			return new VelocityLimitExceededException(message);
+		default:
+			throw new IllegalStateException("Transfer " + status + " is not a failure");
+		}
+	}
+
+	@JsonIgnore
+	public boolean isCompleted() {
+		return status == TransferStatus.COMPLETED;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.db.awmd.challenge.transfer.domain;
+
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.transfer.exception.ExchangeRateUnavailableException;
+import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
+import com.db.awmd.challenge.transfer.exception.SameAccountTransferException;
+import com.db.awmd.challenge.transfer.exception.VelocityLimitExceededException;
+
+public enum TransferStatus {
+
+	COMPLETED(null),
+
+	INVALID_AMOUNT(InvalidTransferAmountException.class),
+
+	SAME_ACCOUNT(SameAccountTransferException.class),
+
+	ACCOUNT_NOT_FOUND(AccountNotFoundException.class),
+
+	INSUFFICIENT_BALANCE(InsufficientBalanceException.class),
+
+	/**
+	 * The transfer was valid but not applied because another transfer of an all-or-nothing batch
+	 * failed.
+	 */
+	NOT_APPLIED(null),
+
+	/**
+	 * The accounts are in different currencies and there is no exchange rate between them.
+	 */
+	NO_EXCHANGE_RATE(ExchangeRateUnavailableException.class),
+
+	/**
+	 * The transfer would take its source account over a velocity rule.
+	 */
+	VELOCITY_LIMIT_EXCEEDED(VelocityLimitExceededException.class);
+
+	private final Class<? extends RuntimeException> exceptionType;
+
+	TransferStatus(Class<? extends RuntimeException> exceptionType) {
+		this.exceptionType = exceptionType;
+	}
+
+	/**
+	 * Returns the type of exception the throwing API reports this status with, or {@code null} if
+	 * the status is not a failure.
+	 */
+	public Class<? extends RuntimeException> getExceptionType() {
+		return exceptionType;
+	}
+
+	/**
+	 * Maps the exceptions thrown by {@code AccountsRepository.transfer} to their status.
+	 *
+	 * @throws RuntimeException {@code e} itself if it is not a transfer outcome
+	 */
+	public static TransferStatus of(RuntimeException e) {
+		for (TransferStatus status : values()) {
+			if (status.exceptionType != null && status.exceptionType.isInstance(e)) {
+				return status;
+			}
+		}
+		throw e;
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.transfer.exception;
+
+/**
+ * A transfer between accounts in different currencies found no exchange rate between them.
+ */
+public class ExchangeRateUnavailableException extends TransferException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ExchangeRateUnavailableException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.transfer.exception;
+
+/**
+ * An idempotency key was sent again with a different transfer than the one it was first used for.
+ */
+public class IdempotencyKeyReusedException extends TransferException {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyKeyReusedException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.db.awmd.challenge.transfer.exception;
+
+/**
+ * A request of the binary transfer protocol was malformed, the server failed to process it, or the
+ * connection it was sent on closed before the response arrived.
+ */
+public class TransferProtocolException extends TransferException {
+
+	private static final long serialVersionUID = 1L;
+
+	public TransferProtocolException(String message) {
+		super(message);
+	}
+
+}
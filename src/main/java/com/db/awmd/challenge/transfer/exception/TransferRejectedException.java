@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.transfer.exception;
+
+import java.time.Duration;
+
+/**
+ * A transfer was turned away before it ran, because its client or source account went over its
+ * rate limit or the service is overloaded.
+ */
+public class TransferRejectedException extends TransferException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Duration retryAfter;
+
+	public TransferRejectedException(String message, Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * How long the client should wait before trying again.
+	 */
+	public Duration getRetryAfter() {
+		return retryAfter;
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.db.awmd.challenge.transfer.exception;
+
+/**
+ * A transfer would take its source account over one of the velocity rules, such as a maximum
+ * outflow or number of transfers within a time window.
+ */
+public class VelocityLimitExceededException extends TransferException {
+
+	private static final long serialVersionUID = 1L;
+
+	public VelocityLimitExceededException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.db.awmd.challenge.transfer.hold;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.transfer.domain.BalanceHold;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.schedule.TimerWheel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Authorizes transfers by holding their amount on the source account, to be captured or released
+ * later. The repository keeps a held total per account, which transfers cannot spend; this keeps
+ * the holds themselves, by id and in a {@link TimerWheel} by expiry. Every tick a background thread
+ * releases the holds that expired, at a cost of the holds it releases, however many are active.
+ * <p>
+ * A hold is taken out of the wheel while it is being captured or released, so only one of them
+ * applies, and put back if the capture is rejected. Holds are kept in memory only: after a restart
+ * nothing is held.
+ * <p>
+ * Holds are only supported by the {@code in-memory} repository.
+ */
+@Service
+@Slf4j
+public class BalanceHolds implements DisposableBean {
+
+	private final AccountsService accountsService;
+
+	private final Clock clock;
+
+	private final Duration defaultExpiry;
+
+	private final Duration maxExpiry;
+
+	// Guarded by this.
+	private final TimerWheel<Hold> wheel;
+
+	private final Map<Long, Hold> holds = new HashMap<>();
+
+	private long lastId;
+
+	private final ScheduledExecutorService executor;
+
+	@Autowired
+	public BalanceHolds(AccountsService accountsService, HoldProperties properties) {
+		this(accountsService, properties, Clock.systemUTC());
+		long tick = properties.getTick().toMillis();
+		executor.scheduleWithFixedDelay(this::expireDueSafely, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates holds that expire only when {@link #expireDue()} is called.
+	 */
+	public BalanceHolds(AccountsService accountsService, HoldProperties properties, Clock clock) {
+		if (properties.getDefaultExpiry().isNegative() || properties.getDefaultExpiry().isZero()
+				|| properties.getMaxExpiry().compareTo(properties.getDefaultExpiry()) < 0) {
+			throw new IllegalArgumentException("Invalid hold settings " + properties);
+		}
+		this.accountsService = accountsService;
+		this.clock = clock;
+		this.defaultExpiry = properties.getDefaultExpiry();
+		this.maxExpiry = properties.getMaxExpiry();
+		this.wheel = new TimerWheel<>(properties.getTick().toMillis(), clock.millis());
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "accounts-hold-expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Holds {@code amount} on the source account for a transfer to the destination.
+	 *
+	 * @param expiresIn how long the hold lasts, or {@code null} for the default
+	 * @throws com.db.awmd.challenge.account.exception.AccountNotFoundException if either account does
+	 *             not exist
+	 * @throws IllegalArgumentException if the expiry is not positive or longer than allowed
+	 * @throws UnsupportedOperationException if the repository does not support holds
+	 * @throws RuntimeException matching the reason the amount cannot be held otherwise, as
+	 *             {@link TransferResult#toException()}
+	 */
+	public BalanceHold authorize(String accountFromId, String accountToId, BigDecimal amount, Duration expiresIn) {
+		Duration expiry = expiresIn == null ? defaultExpiry : expiresIn;
+		if (expiry.isNegative() || expiry.isZero() || expiry.compareTo(maxExpiry) > 0) {
+			throw new IllegalArgumentException("Holds must expire within " + maxExpiry);
+		}
+		if (accountFromId.equals(accountToId)) {
+			throw TransferResult.sameAccount().toException();
+		}
+		accountsService.getAccount(accountToId);
+		TransferResult result = accountsService.tryHold(accountFromId, amount);
+		if (!result.isCompleted()) {
+			throw result.toException();
+		}
+		synchronized (this) {
+			Hold hold = new Hold(++lastId, accountFromId, accountToId, amount,
+					clock.millis() + expiry.toMillis());
+			holds.put(hold.id, hold);
+			wheel.add(hold);
+			return toBalanceHold(hold);
+		}
+	}
+
+	/**
+	 * Returns the hold, or {@code null} once it was captured, released or expired.
+	 */
+	public synchronized BalanceHold getHold(long id) {
+		Hold hold = holds.get(id);
+		return hold == null ? null : toBalanceHold(hold);
+	}
+
+	/**
+	 * Transfers {@code amount} of the hold to its destination and releases the rest of it.
+	 *
+	 * @param amount amount to capture, or {@code null} for the whole hold
+	 * @return the result of the transfer, or {@code null} if the hold is not active; a rejected
+	 *         capture leaves the hold in place
+	 */
+	public TransferResult capture(long id, BigDecimal amount) {
+		Hold hold;
+		synchronized (this) {
+			hold = holds.get(id);
+			if (hold == null) {
+				return null;
+			}
+			if (amount != null && amount.compareTo(hold.amount) > 0) {
+				return TransferResult.invalidAmount("Capture amount must not exceed the amount held");
+			}
+			holds.remove(id);
+			wheel.remove(hold);
+		}
+		TransferResult result;
+		try {
+			result = accountsService.tryCapture(hold.accountFromId, hold.accountToId, hold.amount,
+					amount == null ? hold.amount : amount);
+		} catch (RuntimeException e) {
+			// Whether it was released is unknown, so it is left held rather than released twice.
+			log.error("Failed to capture hold {} on {}", id, hold.accountFromId, e);
+			throw e;
+		}
+		if (!result.isCompleted()) {
+			// Put back as it was; if it expired meanwhile, the next tick releases it.
+			synchronized (this) {
+				holds.put(hold.id, hold);
+				wheel.add(hold);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Releases the hold without transferring anything.
+	 *
+	 * @return whether the hold was active
+	 */
+	public boolean release(long id) {
+		Hold hold;
+		synchronized (this) {
+			hold = holds.remove(id);
+			if (hold == null) {
+				return false;
+			}
+			wheel.remove(hold);
+		}
+		accountsService.releaseHold(hold.accountFromId, hold.amount);
+		return true;
+	}
+
+	public synchronized int countHolds() {
+		return holds.size();
+	}
+
+	/**
+	 * Releases the holds that expired by now.
+	 *
+	 * @return the number of holds released
+	 */
+	public int expireDue() {
+		List<Hold> expired = new ArrayList<>();
+		synchronized (this) {
+			wheel.advance(clock.millis(), expired);
+			for (Hold hold : expired) {
+				holds.remove(hold.id);
+			}
+		}
+		for (Hold hold : expired) {
+			accountsService.releaseHold(hold.accountFromId, hold.amount);
+		}
+		return expired.size();
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private void expireDueSafely() {
+		try {
+			expireDue();
+		} catch (RuntimeException e) {
+			log.error("Failed to release expired holds", e);
+		}
+	}
+
+	private static BalanceHold toBalanceHold(Hold hold) {
+		return new BalanceHold(hold.id, hold.accountFromId, hold.accountToId, hold.amount,
+				Instant.ofEpochMilli(hold.expiresMillis()));
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.db.awmd.challenge.transfer.hold;
+
+import java.math.BigDecimal;
+
+import com.db.awmd.challenge.transfer.schedule.TimerWheel;
+
+/**
+ * An active hold, linked into a bucket of the {@link TimerWheel} until it expires.
+ */
+final class Hold extends TimerWheel.Timer {
+
+	final long id;
+
+	final String accountFromId;
+
+	final String accountToId;
+
+	final BigDecimal amount;
+
+	Hold(long id, String accountFromId, String accountToId, BigDecimal amount, long expiresMillis) {
+		super(expiresMillis);
+		this.id = id;
+		this.accountFromId = accountFromId;
+		this.accountToId = accountToId;
+		this.amount = amount;
+	}
+
+	long expiresMillis() {
+		return dueMillis;
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.transfer.hold;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.holds")
+public class HoldProperties {
+
+	/**
+	 * Resolution of expiry: holds are released at the first tick after they expire.
+	 */
+	private Duration tick = Duration.ofSeconds(1);
+
+	/**
+	 * How long a hold lasts unless it names its own expiry.
+	 */
+	private Duration defaultExpiry = Duration.ofDays(7);
+
+	/**
+	 * Longest expiry a hold may name.
+	 */
+	private Duration maxExpiry = Duration.ofDays(30);
+
+}
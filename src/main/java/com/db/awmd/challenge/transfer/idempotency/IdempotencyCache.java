@@ -0,0 +1,33 @@
+package com.db.awmd.challenge.transfer.idempotency;
+
+import java.util.function.Supplier;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+/**
+ * Remembers the result of each transfer request carrying an idempotency key, so that a client
+ * retrying the request gets the original result instead of moving the money again.
+ */
+public interface IdempotencyCache {
+
+	/**
+	 * Cache that remembers nothing, used when idempotency keys are disabled.
+	 */
+	IdempotencyCache NONE = (key, request, transfer) -> transfer.get();
+
+	/**
+	 * Returns the result remembered for {@code key}, or runs {@code transfer} and remembers its
+	 * result. Requests arriving with the key while the transfer runs wait for it and share its
+	 * result. If the transfer throws, nothing is remembered and the next request runs it again.
+	 *
+	 * @param request the fields identifying the transfer, compared with {@link Object#equals} so that
+	 *            a key reused for a different transfer is detected
+	 * @throws IdempotencyKeyReusedException if the key is remembered with a different request
+	 * @throws TransferRejectedException if the key cannot be remembered because too many transfers
+	 *             with keys are in progress
+	 */
+	TransferResult execute(String key, Object request, Supplier<TransferResult> transfer);
+
+}
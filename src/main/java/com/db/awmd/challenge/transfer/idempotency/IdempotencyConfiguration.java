@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.transfer.idempotency;
+
+import java.time.Clock;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdempotencyConfiguration {
+
+	@Bean
+	public IdempotencyCache idempotencyCache(IdempotencyProperties properties) {
+		if (!properties.isEnabled()) {
+			return IdempotencyCache.NONE;
+		}
+		return new StripedIdempotencyCache(properties.getStripes(), properties.getMaxEntries(), properties.getTtl(),
+				Clock.systemUTC());
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.db.awmd.challenge.transfer.idempotency;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.idempotency")
+public class IdempotencyProperties {
+
+	/**
+	 * Whether transfers honour the Idempotency-Key header.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * How long the result of a keyed transfer is remembered.
+	 */
+	private Duration ttl = Duration.ofHours(24);
+
+	/**
+	 * Maximum number of remembered results; the oldest are forgotten first.
+	 */
+	private int maxEntries = 100_000;
+
+	private int stripes = 64;
+
+}
@@ -0,0 +1,225 @@
+package com.db.awmd.challenge.transfer.idempotency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+import com.db.awmd.challenge.util.Stripes;
+
+/**
+ * {@link IdempotencyCache} split into stripes by key hash, each a map in insertion order guarded
+ * by its own lock. Every entry lives for the same time, so insertion order is also expiry order:
+ * expired entries are dropped from the head of the stripe on each access, and once a stripe is
+ * full its oldest completed entry makes room for the new one. Entries whose transfer is still
+ * running are never dropped, since a retry would run it again; they are skipped, at a cost of the
+ * transfers in flight, and a stripe full of them rejects new keys until one completes.
+ * <p>
+ * A completed entry holds the request, the expiry time and the result, which is shared with
+ * every other completed transfer when it succeeded. The transfer itself runs outside the lock.
+ */
+public class StripedIdempotencyCache implements IdempotencyCache {
+
+	private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	private final long ttlMillis;
+
+	private final Clock clock;
+
+	/**
+	 * @param stripes number of independently locked stripes, rounded up to a power of two
+	 * @param maxEntries maximum number of remembered results, split evenly between the stripes
+	 */
+	public StripedIdempotencyCache(int stripes, int maxEntries, Duration ttl, Clock clock) {
+		if (stripes <= 0 || maxEntries < stripes || ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException(
+					"Stripes must be greater than zero, max entries at least the stripes and the TTL positive");
+		}
+		int size = Stripes.roundUp(stripes);
+		this.stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new Stripe(Math.max(1, maxEntries / size));
+		}
+		this.mask = size - 1;
+		this.ttlMillis = ttl.toMillis();
+		this.clock = clock;
+	}
+
+	@Override
+	public TransferResult execute(String key, Object request, Supplier<TransferResult> transfer) {
+		Stripe stripe = stripeOf(key);
+		long now = clock.millis();
+		CachedTransfer entry;
+		CompletableFuture<TransferResult> pending;
+		boolean first;
+		stripe.lock.lock();
+		try {
+			stripe.expire(now);
+			entry = stripe.entries.get(key);
+			if (entry != null) {
+				if (!entry.request.equals(request)) {
+					throw new IdempotencyKeyReusedException(
+							"Idempotency key " + key + " was already used for a different transfer");
+				}
+				if (entry.result != null) {
+					return entry.result;
+				}
+				pending = entry.pending;
+				first = false;
+			} else {
+				if (stripe.entries.size() >= stripe.capacity && !stripe.evictCompleted()) {
+					throw new TransferRejectedException(
+							"Too many transfers with idempotency keys in progress, try again later", RETRY_AFTER);
+				}
+				pending = new CompletableFuture<>();
+				entry = new CachedTransfer(request, now + ttlMillis, pending);
+				stripe.entries.put(key, entry);
+				first = true;
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+		if (!first) {
+			return await(pending);
+		}
+
+		TransferResult result;
+		try {
+			result = transfer.get();
+		} catch (RuntimeException | Error e) {
+			stripe.lock.lock();
+			try {
+				stripe.entries.remove(key, entry);
+			} finally {
+				stripe.lock.unlock();
+			}
+			pending.completeExceptionally(e);
+			throw e;
+		}
+		stripe.lock.lock();
+		try {
+			entry.result = result;
+			entry.pending = null;
+		} finally {
+			stripe.lock.unlock();
+		}
+		pending.complete(result);
+		return result;
+	}
+
+	/**
+	 * Number of remembered results, including those still being computed.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				size += stripe.entries.size();
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	private Stripe stripeOf(String key) {
+		return stripes[Stripes.indexOf(key, mask)];
+	}
+
+	/**
+	 * Waits for the first request with the key and shares its outcome.
+	 */
+	private static TransferResult await(CompletableFuture<TransferResult> pending) {
+		try {
+			return pending.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		final LinkedHashMap<String, CachedTransfer> entries = new LinkedHashMap<>();
+
+		final int capacity;
+
+		Stripe(int capacity) {
+			this.capacity = capacity;
+		}
+
+		void expire(long now) {
+			Iterator<CachedTransfer> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				CachedTransfer entry = iterator.next();
+				if (entry.expiresAt > now) {
+					return;
+				}
+				if (entry.result != null) {
+					iterator.remove();
+				}
+			}
+		}
+
+		/**
+		 * Drops the oldest entry whose transfer completed.
+		 *
+		 * @return whether there was one
+		 */
+		boolean evictCompleted() {
+			Iterator<CachedTransfer> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().result != null) {
+					iterator.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Guarded by its stripe's lock.
+	 */
+	private static class CachedTransfer {
+
+		final Object request;
+
+		final long expiresAt;
+
+		/**
+		 * Completed by the first request with the key; only set while its transfer runs.
+		 */
+		CompletableFuture<TransferResult> pending;
+
+		TransferResult result;
+
+		CachedTransfer(Object request, long expiresAt, CompletableFuture<TransferResult> pending) {
+			this.request = request;
+			this.expiresAt = expiresAt;
+			this.pending = pending;
+		}
+
+	}
+
+}
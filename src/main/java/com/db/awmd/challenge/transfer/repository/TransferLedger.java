@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.transfer.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferHistoryPage;
+
+/**
+ * Append-only history of completed transfers, indexed by account.
+ */
+public interface TransferLedger extends AutoCloseable {
+
+	/**
+	 * Ledger that records nothing, used when the ledger is disabled.
+	 */
+	TransferLedger NONE = new TransferLedger() {
+
+		@Override
+		public long append(String accountFromId, String accountToId, BigDecimal amount) {
+			return 0;
+		}
+
+		@Override
+		public TransferHistoryPage history(String accountId, Instant from, Instant to, long cursor, int limit) {
+			return new TransferHistoryPage(Collections.emptyList(), null);
+		}
+
+	};
+
+	/**
+	 * Records a completed transfer, timestamped now. Safe to call from many threads at once.
+	 *
+	 * @return the id of the recorded transfer
+	 */
+	long append(String accountFromId, String accountToId, BigDecimal amount);
+
+	default long append(Transfer transfer) {
+		return append(transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmount());
+	}
+
+	/**
+	 * Returns up to {@code limit} transfers from or to the account that were recorded in
+	 * {@code [from, to)}, newest first. Transfers already returned on previous pages are skipped by
+	 * passing the previous page's {@link TransferHistoryPage#getNextCursor() next cursor}, or
+	 * {@link Long#MAX_VALUE} for the first page.
+	 */
+	TransferHistoryPage history(String accountId, Instant from, Instant to, long cursor, int limit);
+
+	@Override
+	default void close() {
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.transfer.repository;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransferLedgerConfiguration {
+
+	@Bean
+	public TransferLedger transferLedger(TransferLedgerProperties properties) throws IOException {
+		if (!properties.isEnabled()) {
+			return TransferLedger.NONE;
+		}
+		return new TransferLedgerOffHeap(Paths.get(properties.getSpillDirectory()), properties.getSegmentTransfers(),
+				properties.getResidentSegments(), Clock.systemUTC());
+	}
+
+}
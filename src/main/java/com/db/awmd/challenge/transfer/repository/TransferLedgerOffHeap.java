@@ -0,0 +1,400 @@
+package com.db.awmd.challenge.transfer.repository;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import com.db.awmd.challenge.transfer.domain.TransferHistoryPage;
+import com.db.awmd.challenge.transfer.domain.TransferRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link TransferLedger} keeping transfers as fixed-size records in off-heap segments.
+ * <p>
+ * Transfer ids are assigned in append order, starting at 1, and locate their record directly.
+ * Every record also holds the id of the previous transfer of both its accounts, so each account's
+ * history is a chain running back in time; walking a page costs one record read per transfer
+ * returned. Every {@value #SAMPLE_INTERVAL}th transfer of an account is sampled with its
+ * timestamp, which lets a time range be located by binary search instead of a walk from the
+ * newest transfer.
+ * <p>
+ * Once more than the configured number of segments is full, the oldest are written to disk and
+ * memory-mapped read-only, so the direct memory in use stays bounded while old history remains
+ * readable through the page cache. The direct buffer of a spilled segment is reused for the next
+ * new segment rather than left for the garbage collector, which frees direct memory too late to
+ * keep up with a steady stream of transfers.
+ */
+@Slf4j
+public class TransferLedgerOffHeap implements TransferLedger {
+
+	static final int RECORD_BYTES = 48;
+
+	static final int SAMPLE_INTERVAL = 64;
+
+	private static final int MAX_SEGMENT_TRANSFERS = 1 << 24;
+
+	private static final int FROM = 0;
+
+	private static final int TO = 4;
+
+	private static final int UNSCALED_AMOUNT = 8;
+
+	private static final int TIMESTAMP = 16;
+
+	private static final int PREVIOUS_FROM = 24;
+
+	private static final int PREVIOUS_TO = 32;
+
+	private static final int SCALE = 40;
+
+	private final int segmentShift;
+
+	private final long segmentMask;
+
+	private final int residentSegments;
+
+	private final Path directory;
+
+	private final Clock clock;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final ExecutorService spiller;
+
+	/**
+	 * Direct buffers of spilled segments, ready to be reused.
+	 */
+	private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+	// Guarded by lock.
+
+	private Segment[] segments = new Segment[16];
+
+	private int segmentCount;
+
+	private int firstResidentSegment;
+
+	private long lastId;
+
+	private long lastTimestamp;
+
+	private final Map<String, AccountHistory> histories = new HashMap<>();
+
+	private AccountHistory[] accounts = new AccountHistory[1024];
+
+	private int accountCount;
+
+	/**
+	 * Amounts whose unscaled value does not fit the record, by transfer id.
+	 */
+	private final Map<Long, BigDecimal> largeAmounts = new ConcurrentHashMap<>();
+
+	/**
+	 * @param directory where full segments are spilled, in a subdirectory removed on close
+	 * @param segmentTransfers transfers per segment, rounded up to a power of two
+	 * @param residentSegments full segments kept in direct memory before spilling the oldest
+	 */
+	public TransferLedgerOffHeap(Path directory, int segmentTransfers, int residentSegments, Clock clock)
+			throws IOException {
+		if (segmentTransfers <= 0 || segmentTransfers > MAX_SEGMENT_TRANSFERS || residentSegments < 0) {
+			throw new IllegalArgumentException("Segment transfers must be between 1 and " + MAX_SEGMENT_TRANSFERS
+					+ " and resident segments not negative");
+		}
+		this.segmentShift = 32 - Integer.numberOfLeadingZeros(segmentTransfers - 1);
+		this.segmentMask = (1L << segmentShift) - 1;
+		this.residentSegments = residentSegments;
+		Files.createDirectories(directory);
+		this.directory = Files.createTempDirectory(directory, "transfer-ledger-");
+		this.clock = clock;
+		this.spiller = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "transfer-ledger-spill");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public long append(String accountFromId, String accountToId, BigDecimal amount) {
+		BigInteger unscaled = amount.unscaledValue();
+		boolean large = unscaled.bitLength() >= Long.SIZE;
+		long now = clock.millis();
+		lock.lock();
+		try {
+			long id = ++lastId;
+			long timestamp = Math.max(now, lastTimestamp);
+			lastTimestamp = timestamp;
+			AccountHistory from = historyOf(accountFromId);
+			AccountHistory to = historyOf(accountToId);
+
+			ByteBuffer buffer = segmentFor(id).buffer;
+			int offset = offsetOf(id);
+			buffer.putInt(offset + FROM, from.index);
+			buffer.putInt(offset + TO, to.index);
+			buffer.putLong(offset + UNSCALED_AMOUNT, large ? 0 : unscaled.longValue());
+			buffer.putLong(offset + TIMESTAMP, timestamp);
+			buffer.putLong(offset + PREVIOUS_FROM, from.head);
+			buffer.putLong(offset + PREVIOUS_TO, to.head);
+			buffer.putInt(offset + SCALE, amount.scale());
+			if (large) {
+				largeAmounts.put(id, amount);
+			}
+			from.append(id, timestamp);
+			to.append(id, timestamp);
+			return id;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public TransferHistoryPage history(String accountId, Instant from, Instant to, long cursor, int limit) {
+		long fromMillis = toEpochMilli(from);
+		long toMillis = toEpochMilli(to);
+		long id;
+		int account;
+		Segment[] segments;
+		AccountHistory[] accounts;
+		lock.lock();
+		try {
+			AccountHistory history = histories.get(accountId);
+			if (history == null) {
+				return new TransferHistoryPage(new ArrayList<>(), null);
+			}
+			id = history.startBefore(cursor, toMillis);
+			account = history.index;
+			segments = this.segments;
+			accounts = this.accounts;
+		} finally {
+			lock.unlock();
+		}
+
+		// Records up to the account's head were written before the lock was released, and never change.
+		List<TransferRecord> transfers = new ArrayList<>(Math.min(limit, 256));
+		while (id > 0 && transfers.size() < limit) {
+			Segment segment = segments[segmentIndexOf(id)];
+			ByteBuffer buffer = segment.buffer;
+			int offset = offsetOf(id);
+			long timestamp = buffer.getLong(offset + TIMESTAMP);
+			int accountFrom = buffer.getInt(offset + FROM);
+			int accountTo = buffer.getInt(offset + TO);
+			long unscaledAmount = buffer.getLong(offset + UNSCALED_AMOUNT);
+			int scale = buffer.getInt(offset + SCALE);
+			long previous = buffer.getLong(offset + (accountFrom == account ? PREVIOUS_FROM : PREVIOUS_TO));
+			// A buffer is only reused after the segment has moved to its spilled copy, so the record
+			// read is intact if the segment still has the same buffer.
+			VarHandle.acquireFence();
+			if (segment.buffer != buffer) {
+				continue;
+			}
+			if (timestamp < fromMillis) {
+				break;
+			}
+			if (id < cursor && timestamp < toMillis) {
+				BigDecimal amount = largeAmounts.isEmpty() ? null : largeAmounts.get(id);
+				if (amount == null) {
+					amount = BigDecimal.valueOf(unscaledAmount, scale);
+				}
+				transfers.add(new TransferRecord(id, accounts[accountFrom].accountId, accounts[accountTo].accountId,
+						amount, Instant.ofEpochMilli(timestamp)));
+			}
+			id = previous;
+		}
+		Long nextCursor = null;
+		if (id > 0 && transfers.size() == limit && timestampOf(segments[segmentIndexOf(id)], id) >= fromMillis) {
+			nextCursor = transfers.get(limit - 1).getId();
+		}
+		return new TransferHistoryPage(transfers, nextCursor);
+	}
+
+	@Override
+	public void close() {
+		spiller.shutdown();
+		try {
+			spiller.awaitTermination(10, TimeUnit.SECONDS);
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			log.warn("Failed to delete spilled transfer segments in {}", directory, e);
+		}
+	}
+
+	private static long toEpochMilli(Instant instant) {
+		try {
+			return instant.toEpochMilli();
+		} catch (ArithmeticException e) {
+			return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
+	}
+
+	private long timestampOf(Segment segment, long id) {
+		while (true) {
+			ByteBuffer buffer = segment.buffer;
+			long timestamp = buffer.getLong(offsetOf(id) + TIMESTAMP);
+			VarHandle.acquireFence();
+			if (segment.buffer == buffer) {
+				return timestamp;
+			}
+		}
+	}
+
+	private int segmentIndexOf(long id) {
+		return (int) ((id - 1) >>> segmentShift);
+	}
+
+	private int offsetOf(long id) {
+		return (int) ((id - 1) & segmentMask) * RECORD_BYTES;
+	}
+
+	private AccountHistory historyOf(String accountId) {
+		AccountHistory history = histories.get(accountId);
+		if (history == null) {
+			if (accountCount == accounts.length) {
+				accounts = Arrays.copyOf(accounts, accountCount * 2);
+			}
+			history = new AccountHistory(accountCount, accountId);
+			accounts[accountCount++] = history;
+			histories.put(accountId, history);
+		}
+		return history;
+	}
+
+	private Segment segmentFor(long id) {
+		int index = segmentIndexOf(id);
+		if (index == segmentCount) {
+			if (segmentCount == segments.length) {
+				segments = Arrays.copyOf(segments, segmentCount * 2);
+			}
+			ByteBuffer buffer = freeBuffers.poll();
+			if (buffer == null) {
+				buffer = ByteBuffer.allocateDirect((int) (segmentMask + 1) * RECORD_BYTES);
+			}
+			segments[segmentCount++] = new Segment(index, buffer);
+			while (segmentCount - 1 - firstResidentSegment > residentSegments) {
+				Segment full = segments[firstResidentSegment++];
+				spiller.execute(() -> spill(full));
+			}
+		}
+		return segments[index];
+	}
+
+	private void spill(Segment segment) {
+		Path file = directory.resolve("segment-" + segment.index);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			ByteBuffer resident = segment.buffer;
+			ByteBuffer contents = resident.duplicate();
+			contents.clear();
+			while (contents.hasRemaining()) {
+				channel.write(contents);
+			}
+			segment.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			freeBuffers.offer(resident);
+		} catch (IOException e) {
+			log.warn("Failed to spill transfer segment {} to {}, keeping it in memory", segment.index, file, e);
+		}
+	}
+
+	private static class Segment {
+
+		final int index;
+
+		/**
+		 * Direct buffer while resident, then the read-only mapping of its spilled file.
+		 */
+		volatile ByteBuffer buffer;
+
+		Segment(int index, ByteBuffer buffer) {
+			this.index = index;
+			this.buffer = buffer;
+		}
+
+	}
+
+	/**
+	 * Head of an account's transfer chain, plus every {@value TransferLedgerOffHeap#SAMPLE_INTERVAL}th
+	 * of its transfers with their timestamps. Guarded by the ledger lock.
+	 */
+	private static class AccountHistory {
+
+		final int index;
+
+		final String accountId;
+
+		long head;
+
+		long transfers;
+
+		long[] sampleIds = new long[1];
+
+		long[] sampleTimestamps = new long[1];
+
+		int samples;
+
+		AccountHistory(int index, String accountId) {
+			this.index = index;
+			this.accountId = accountId;
+		}
+
+		void append(long id, long timestamp) {
+			if (transfers++ % SAMPLE_INTERVAL == 0) {
+				if (samples == sampleIds.length) {
+					sampleIds = Arrays.copyOf(sampleIds, samples * 2);
+					sampleTimestamps = Arrays.copyOf(sampleTimestamps, samples * 2);
+				}
+				sampleIds[samples] = id;
+				sampleTimestamps[samples] = timestamp;
+				samples++;
+			}
+			head = id;
+		}
+
+		/**
+		 * Returns a transfer to start walking back from: the oldest sample at or past the cursor or
+		 * the end of the time range, which is at most {@value TransferLedgerOffHeap#SAMPLE_INTERVAL}
+		 * transfers past the first one to return, or the head if there is none.
+		 */
+		long startBefore(long cursor, long toMillis) {
+			int low = 0;
+			int high = samples;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (sampleIds[middle] >= cursor || sampleTimestamps[middle] >= toMillis) {
+					high = middle;
+				} else {
+					low = middle + 1;
+				}
+			}
+			return low < samples ? sampleIds[low] : head;
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.transfer.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.ledger")
+public class TransferLedgerProperties {
+
+	/**
+	 * Whether completed transfers are recorded and their history can be queried.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * Transfers per off-heap segment.
+	 */
+	private int segmentTransfers = 65_536;
+
+	/**
+	 * Full segments kept in direct memory; older ones are spilled to disk.
+	 */
+	private int residentSegments = 16;
+
+	/**
+	 * Where spilled segments are written. Defaults to the system temporary directory.
+	 */
+	private String spillDirectory = System.getProperty("java.io.tmpdir");
+
+}
@@ -0,0 +1,50 @@
+package com.db.awmd.challenge.transfer.schedule;
+
+import java.math.BigDecimal;
+
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+
+/**
+ * A pending scheduled transfer, linked into a bucket of the {@link TimerWheel} while it waits, due
+ * when the transfer runs next: the occurrence, or a retry of it. Kept small, since millions of them
+ * may be pending; everything but the transfer itself is guarded by the {@link TransferScheduler}.
+ */
+final class ScheduledTransfer extends TimerWheel.Timer {
+
+	final long id;
+
+	final String accountFromId;
+
+	final String accountToId;
+
+	final BigDecimal amount;
+
+	// Zero for a transfer that runs once.
+	final long intervalMillis;
+
+	// Occurrences left including the next one, or -1 until cancelled.
+	int remaining;
+
+	// When the current occurrence is due; retries do not move it.
+	long occurrenceMillis;
+
+	// Failed attempts of the current occurrence.
+	int attempts;
+
+	TransferStatus lastStatus;
+
+	boolean cancelled;
+
+	ScheduledTransfer(long id, String accountFromId, String accountToId, BigDecimal amount, long dueMillis,
+			long intervalMillis, int remaining) {
+		super(dueMillis);
+		this.id = id;
+		this.accountFromId = accountFromId;
+		this.accountToId = accountToId;
+		this.amount = amount;
+		this.occurrenceMillis = dueMillis;
+		this.intervalMillis = intervalMillis;
+		this.remaining = remaining;
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.db.awmd.challenge.transfer.schedule;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of {@link Timer}s, such as {@link ScheduledTransfer}s. Time advances in
+ * ticks of a fixed length, and every level has 64 buckets: a bucket of level 0 holds the timers due
+ * in one tick, a bucket of level {@code n} those due within 64<sup>n</sup> ticks. When the ticks of
+ * a level {@code n} bucket begin, its timers move down to the level below, so every timer is moved
+ * at most once per level. Adding and removing a timer takes constant time, and a tick costs the
+ * timers it expires or moves down, however many are pending.
+ * <p>
+ * Buckets are doubly linked lists through the timers themselves, so pending timers need no memory
+ * besides their own. Not thread-safe.
+ */
+public final class TimerWheel<T extends TimerWheel.Timer> {
+
+	/**
+	 * Something due at {@link #dueMillis}, linked into a bucket of the wheel while it waits.
+	 */
+	public abstract static class Timer {
+
+		protected long dueMillis;
+
+		// Bucket of the timer wheel, or -1 while not in the wheel.
+		int bucket = -1;
+
+		Timer previous;
+
+		Timer next;
+
+		protected Timer(long dueMillis) {
+			this.dueMillis = dueMillis;
+		}
+
+	}
+
+	private static final int SLOT_BITS = 6;
+
+	private static final int SLOTS = 1 << SLOT_BITS;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	// Six levels span 2^36 ticks, over two thousand years at one tick a second. Timers due even
+	// later wait in the top level, which sends them around again.
+	private static final int LEVELS = 6;
+
+	private final long tickMillis;
+
+	private final Timer[] buckets = new Timer[LEVELS * SLOTS];
+
+	// The last tick whose timers have expired.
+	private long currentTick;
+
+	private int size;
+
+	public TimerWheel(long tickMillis, long nowMillis) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("The tick must be positive");
+		}
+		this.tickMillis = tickMillis;
+		this.currentTick = nowMillis / tickMillis;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a timer to expire at the first tick not before its {@code dueMillis}, or at the next tick
+	 * if that has passed.
+	 */
+	public void add(T timer) {
+		place(timer, Math.max(deadlineOf(timer), currentTick + 1));
+		size++;
+	}
+
+	/**
+	 * Removes a timer that has been added and has not expired yet.
+	 */
+	public void remove(T timer) {
+		unlink(timer);
+		size--;
+	}
+
+	/**
+	 * Advances to the tick of {@code nowMillis}, removing the timers due by then and adding them to
+	 * {@code due}.
+	 */
+	public void advance(long nowMillis, List<T> due) {
+		long nowTick = nowMillis / tickMillis;
+		while (currentTick < nowTick) {
+			long tick = ++currentTick;
+			// Move down from the highest level whose bucket begins at this tick first, so timers
+			// reach the level 0 bucket expired below within the same tick.
+			int level = 0;
+			while (level + 1 < LEVELS && (tick & ((1L << (SLOT_BITS * (level + 1))) - 1)) == 0) {
+				level++;
+			}
+			for (; level > 0; level--) {
+				cascade(level, (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+			}
+			expire(tick, due);
+		}
+	}
+
+	private void cascade(int level, int slot) {
+		Timer timer = buckets[level * SLOTS + slot];
+		buckets[level * SLOTS + slot] = null;
+		while (timer != null) {
+			Timer next = timer.next;
+			place(timer, Math.max(deadlineOf(timer), currentTick));
+			timer = next;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expire(long tick, List<T> due) {
+		int bucket = (int) tick & SLOT_MASK;
+		Timer timer = buckets[bucket];
+		buckets[bucket] = null;
+		while (timer != null) {
+			Timer next = timer.next;
+			timer.previous = null;
+			timer.next = null;
+			timer.bucket = -1;
+			size--;
+			due.add((T) timer);
+			timer = next;
+		}
+	}
+
+	private long deadlineOf(Timer timer) {
+		return Math.floorDiv(timer.dueMillis + tickMillis - 1, tickMillis);
+	}
+
+	/**
+	 * Links the timer into the bucket of the lowest level that spans its deadline.
+	 */
+	private void place(Timer timer, long deadline) {
+		long delay = deadline - currentTick;
+		int level = 0;
+		while (level + 1 < LEVELS && delay >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+		if (delay >= 1L << (SLOT_BITS * LEVELS)) {
+			// Beyond the top level: the last bucket of its current round.
+			deadline = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+		}
+		int bucket = level * SLOTS + ((int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+		Timer head = buckets[bucket];
+		timer.previous = null;
+		timer.next = head;
+		if (head != null) {
+			head.previous = timer;
+		}
+		buckets[bucket] = timer;
+		timer.bucket = bucket;
+	}
+
+	private void unlink(Timer timer) {
+		if (timer.previous != null) {
+			timer.previous.next = timer.next;
+		} else {
+			buckets[timer.bucket] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.previous = timer.previous;
+		}
+		timer.previous = null;
+		timer.next = null;
+		timer.bucket = -1;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.db.awmd.challenge.transfer.schedule;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.schedule")
+public class TransferScheduleProperties {
+
+	/**
+	 * Resolution of the scheduler: transfers run at the first tick after they are due.
+	 */
+	private Duration tick = Duration.ofSeconds(1);
+
+	/**
+	 * Maximum number of due transfers executed in one batch.
+	 */
+	private int batchSize = 1000;
+
+	private final Retry retry = new Retry();
+
+	/**
+	 * Retries of a transfer rejected for insufficient balance. Other failures are not retried.
+	 */
+	@Data
+	public static class Retry {
+
+		/**
+		 * Attempts of an occurrence, including the first; once used up, the occurrence is skipped.
+		 */
+		private int maxAttempts = 3;
+
+		/**
+		 * Delay before the first retry.
+		 */
+		private Duration backoff = Duration.ofMinutes(1);
+
+		/**
+		 * Factor the delay grows by with every further retry.
+		 */
+		private double multiplier = 2;
+
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.db.awmd.challenge.transfer.schedule;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.PendingTransfer;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs future-dated and recurring transfers. Pending transfers wait in a {@link TimerWheel}; every
+ * tick a background thread takes the transfers due and executes them in batches through
+ * {@link AccountsService#transferBatch}, so they are journaled, recorded and notified like any
+ * other transfer. An occurrence rejected for insufficient balance is retried after a growing
+ * backoff, up to {@code transfers.schedule.retry.max-attempts} attempts, and then skipped; a
+ * recurring transfer goes on with its next occurrence either way.
+ * <p>
+ * Pending transfers are kept in memory only and do not survive a restart.
+ */
+@Service
+@Slf4j
+public class TransferScheduler implements DisposableBean {
+
+	private final AccountsService accountsService;
+
+	private final Clock clock;
+
+	private final long tickMillis;
+
+	private final int batchSize;
+
+	private final int maxAttempts;
+
+	private final long backoffMillis;
+
+	private final double backoffMultiplier;
+
+	// Guarded by this, as are the mutable fields of every pending transfer.
+	private final TimerWheel<ScheduledTransfer> wheel;
+
+	private final Map<Long, ScheduledTransfer> pending = new HashMap<>();
+
+	private long lastId;
+
+	// Serializes runs, which execute transfers without holding this.
+	private final Object runLock = new Object();
+
+	private final ScheduledExecutorService executor;
+
+	@Autowired
+	public TransferScheduler(AccountsService accountsService, TransferScheduleProperties properties) {
+		this(accountsService, properties, Clock.systemUTC());
+		long tick = properties.getTick().toMillis();
+		executor.scheduleWithFixedDelay(this::runDueSafely, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates a scheduler that runs due transfers only when {@link #runDue()} is called.
+	 */
+	public TransferScheduler(AccountsService accountsService, TransferScheduleProperties properties, Clock clock) {
+		if (properties.getBatchSize() <= 0 || properties.getRetry().getMaxAttempts() <= 0
+				|| properties.getRetry().getBackoff().isNegative() || properties.getRetry().getMultiplier() < 1) {
+			throw new IllegalArgumentException("Invalid transfer schedule settings " + properties);
+		}
+		this.accountsService = accountsService;
+		this.clock = clock;
+		this.tickMillis = properties.getTick().toMillis();
+		this.batchSize = properties.getBatchSize();
+		this.maxAttempts = properties.getRetry().getMaxAttempts();
+		this.backoffMillis = properties.getRetry().getBackoff().toMillis();
+		this.backoffMultiplier = properties.getRetry().getMultiplier();
+		this.wheel = new TimerWheel<>(tickMillis, clock.millis());
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "accounts-transfer-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Schedules a transfer at {@code executeAt}, or as soon as possible if that has passed.
+	 *
+	 * @param interval time between occurrences of a recurring transfer, or {@code null} to run once
+	 * @param occurrences number of occurrences of a recurring transfer, or {@code null} to run until
+	 *            cancelled
+	 * @throws com.db.awmd.challenge.account.exception.AccountNotFoundException if either account does
+	 *             not exist
+	 * @throws IllegalArgumentException if the interval is shorter than a tick, or there is more than
+	 *             one occurrence without an interval
+	 */
+	public PendingTransfer schedule(String accountFromId, String accountToId, BigDecimal amount, Instant executeAt,
+			Duration interval, Integer occurrences) {
+		if (interval != null && interval.toMillis() < tickMillis) {
+			throw new IllegalArgumentException("The interval must be at least " + Duration.ofMillis(tickMillis));
+		}
+		if (occurrences != null && (occurrences <= 0 || (interval == null && occurrences > 1))) {
+			throw new IllegalArgumentException("More than one occurrence needs an interval");
+		}
+		accountsService.getAccount(accountFromId);
+		accountsService.getAccount(accountToId);
+		int remaining = interval == null ? 1 : occurrences == null ? -1 : occurrences;
+		synchronized (this) {
+			ScheduledTransfer transfer = new ScheduledTransfer(++lastId, accountFromId, accountToId, amount,
+					executeAt.toEpochMilli(), interval == null ? 0 : interval.toMillis(), remaining);
+			pending.put(transfer.id, transfer);
+			wheel.add(transfer);
+			return toPending(transfer);
+		}
+	}
+
+	/**
+	 * Returns the pending transfer, or {@code null} once it ran for the last time or was cancelled.
+	 */
+	public synchronized PendingTransfer getPending(long id) {
+		ScheduledTransfer transfer = pending.get(id);
+		return transfer == null ? null : toPending(transfer);
+	}
+
+	/**
+	 * Cancels every further occurrence of a transfer. An occurrence already executing completes.
+	 *
+	 * @return whether the transfer was pending
+	 */
+	public synchronized boolean cancel(long id) {
+		ScheduledTransfer transfer = pending.remove(id);
+		if (transfer == null) {
+			return false;
+		}
+		transfer.cancelled = true;
+		if (transfer.bucket >= 0) {
+			wheel.remove(transfer);
+		}
+		return true;
+	}
+
+	public synchronized int countPending() {
+		return pending.size();
+	}
+
+	/**
+	 * Executes the transfers due by now.
+	 *
+	 * @return the number of transfers executed
+	 */
+	public int runDue() {
+		synchronized (runLock) {
+			List<ScheduledTransfer> due = new ArrayList<>();
+			synchronized (this) {
+				wheel.advance(clock.millis(), due);
+			}
+			for (int start = 0; start < due.size(); start += batchSize) {
+				execute(due.subList(start, Math.min(start + batchSize, due.size())));
+			}
+			return due.size();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private void runDueSafely() {
+		try {
+			runDue();
+		} catch (RuntimeException e) {
+			log.error("Failed to run scheduled transfers", e);
+		}
+	}
+
+	private void execute(List<ScheduledTransfer> batch) {
+		List<Transfer> transfers = new ArrayList<>(batch.size());
+		for (ScheduledTransfer transfer : batch) {
+			transfers.add(Transfer.builder()
+					.accountFromId(transfer.accountFromId)
+					.accountToId(transfer.accountToId)
+					.amount(transfer.amount)
+					.build());
+		}
+		List<TransferResult> results;
+		try {
+			results = accountsService.transferBatch(transfers, BatchMode.BEST_EFFORT);
+		} catch (RuntimeException e) {
+			// Whether any of them was applied is unknown, so none is retried.
+			log.error("Failed to execute {} scheduled transfers", batch.size(), e);
+			results = null;
+		}
+		long now = clock.millis();
+		synchronized (this) {
+			for (int i = 0; i < batch.size(); i++) {
+				executed(batch.get(i), results == null ? null : results.get(i).getStatus(), now);
+			}
+		}
+	}
+
+	/**
+	 * Reschedules or removes a transfer after an attempt, whose status is {@code null} if unknown.
+	 */
+	private void executed(ScheduledTransfer transfer, TransferStatus status, long now) {
+		if (transfer.cancelled) {
+			return;
+		}
+		transfer.lastStatus = status;
+		if (status == TransferStatus.INSUFFICIENT_BALANCE && transfer.attempts + 1 < maxAttempts) {
+			transfer.dueMillis = now + (long) (backoffMillis * Math.pow(backoffMultiplier, transfer.attempts));
+			transfer.attempts++;
+			wheel.add(transfer);
+			return;
+		}
+		if (status != TransferStatus.COMPLETED) {
+			log.warn("Scheduled transfer {} from {} to {} failed: {}", transfer.id, transfer.accountFromId,
+					transfer.accountToId, status);
+		}
+		if (transfer.remaining == 1) {
+			pending.remove(transfer.id);
+			return;
+		}
+		if (transfer.remaining > 0) {
+			transfer.remaining--;
+		}
+		transfer.attempts = 0;
+		transfer.occurrenceMillis += transfer.intervalMillis;
+		transfer.dueMillis = transfer.occurrenceMillis;
+		wheel.add(transfer);
+	}
+
+	private static PendingTransfer toPending(ScheduledTransfer transfer) {
+		return new PendingTransfer(transfer.id, transfer.accountFromId, transfer.accountToId, transfer.amount,
+				Instant.ofEpochMilli(transfer.dueMillis),
+				transfer.intervalMillis == 0 ? null : Duration.ofMillis(transfer.intervalMillis),
+				transfer.intervalMillis == 0 || transfer.remaining < 0 ? null : transfer.remaining, transfer.attempts,
+				transfer.lastStatus);
+	}
+
+}
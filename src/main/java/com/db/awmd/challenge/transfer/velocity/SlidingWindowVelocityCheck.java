@@ -0,0 +1,396 @@
+package com.db.awmd.challenge.transfer.velocity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.util.Stripes;
+
+/**
+ * {@link VelocityCheck} that counts the transfers out of every account in sliding windows, one per
+ * rule. A window is a ring of time buckets with a running total: moving it on clears the buckets
+ * that fell out and subtracts them from the total, so counting a transfer and checking a rule take
+ * constant time. The window slides a bucket at a time and counts the whole of its oldest bucket,
+ * so a rule may reject up to one bucket early, never late.
+ * <p>
+ * Accounts are kept in stripes by account id, each an open-addressing table guarded by its own
+ * lock, with the windows of an account stored inline in two {@code long} arrays: the current bucket
+ * and total of every window next to each other in one, the older buckets in the other. A transfer
+ * that does not start a new bucket touches the slot of its account id and a few adjacent values of
+ * the first only, which keeps the values touched for every transfer small. An account idle for the
+ * longest window has only empty windows; idle accounts are dropped when a stripe grows or is full,
+ * and a full stripe with none forgets the least recently counted of a few neighbouring accounts
+ * instead, which errs on the side of passing transfers.
+ */
+public class SlidingWindowVelocityCheck implements VelocityCheck {
+
+	// Amounts are counted in ten-thousandths, rounded up.
+	private static final int UNITS_SCALE = 4;
+
+	// Accounts compared when a full stripe has to forget one that is not idle.
+	private static final int EVICTION_SAMPLE = 8;
+
+	private final VelocityRule[] rules;
+
+	private final int buckets;
+
+	private final long[] bucketMillis;
+
+	// Per rule: the most transfers, or units of amount, its window may hold.
+	private final long[] limits;
+
+	// Per rule: whether it counts units of amount rather than transfers.
+	private final boolean[] amounts;
+
+	private final boolean countsAmount;
+
+	private final long idleMillis;
+
+	// Header values per account: when it is idle, then the end of the current bucket, total and value
+	// of the current bucket of every rule.
+	private final int headerStride;
+
+	// Ring values per account: the older buckets of every rule.
+	private final int ringStride;
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	private final int stripeBits;
+
+	private final Clock clock;
+
+	/**
+	 * @param buckets buckets every window is split into
+	 * @param stripes number of independently locked stripes, rounded up to a power of two
+	 * @param maxAccounts maximum number of accounts counted, split evenly between the stripes
+	 */
+	public SlidingWindowVelocityCheck(List<VelocityRule> rules, int buckets, int stripes, int maxAccounts,
+			Clock clock) {
+		if (rules.isEmpty() || buckets <= 0 || stripes <= 0 || maxAccounts < stripes) {
+			throw new IllegalArgumentException(
+					"Rules, buckets and stripes must not be empty and max accounts at least the stripes");
+		}
+		this.rules = rules.toArray(new VelocityRule[0]);
+		this.buckets = buckets;
+		this.bucketMillis = new long[this.rules.length];
+		this.limits = new long[this.rules.length];
+		this.amounts = new boolean[this.rules.length];
+		boolean countsAmount = false;
+		long longestWindow = 0;
+		for (int r = 0; r < this.rules.length; r++) {
+			VelocityRule rule = this.rules[r];
+			bucketMillis[r] = Math.max(1, rule.getWindow().toMillis() / buckets);
+			longestWindow = Math.max(longestWindow, bucketMillis[r] * buckets);
+			if (rule.getMaxAmount() != null) {
+				limits[r] = units(rule.getMaxAmount());
+				amounts[r] = true;
+				countsAmount = true;
+			} else {
+				limits[r] = rule.getMaxTransfers();
+			}
+		}
+		this.countsAmount = countsAmount;
+		this.idleMillis = longestWindow;
+		this.headerStride = 1 + 3 * this.rules.length;
+		this.ringStride = buckets * this.rules.length;
+		int size = Stripes.roundUp(stripes);
+		this.stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			// Idle accounts are looked for at most once a bucket of the longest window.
+			this.stripes[i] = new Stripe(Math.max(1, maxAccounts / size), longestWindow / buckets);
+		}
+		this.mask = size - 1;
+		this.stripeBits = Integer.numberOfTrailingZeros(size);
+		this.clock = clock;
+	}
+
+	@Override
+	public TransferResult reserve(String accountFromId, BigDecimal amount) {
+		long units = countsAmount ? units(amount) : 0;
+		long now = clock.millis();
+		int hash = Stripes.spread(accountFromId);
+		Stripe stripe = stripes[hash & mask];
+		stripe.lock.lock();
+		try {
+			int slot = stripe.find(accountFromId, hash);
+			for (int r = 0; r < rules.length; r++) {
+				long total = slot >= 0 ? advance(stripe, slot, r, now) : 0;
+				if (value(r, units) > limits[r] - total) {
+					return TransferResult.velocityLimitExceeded(accountFromId, rules[r]);
+				}
+			}
+			if (slot < 0) {
+				slot = stripe.add(accountFromId, hash, now);
+				for (int r = 0; r < rules.length; r++) {
+					stripe.headers[slot * headerStride + 1 + 3 * r] = (now / bucketMillis[r] + 1) * bucketMillis[r];
+				}
+			}
+			add(stripe.headers, slot * headerStride, units, 1);
+			stripe.headers[slot * headerStride] = now + idleMillis;
+			return null;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Subtracts the transfer from the current buckets, which are those it was counted in unless a
+	 * bucket ended in between. Then the count is low until the current bucket falls out too.
+	 */
+	@Override
+	public void release(String accountFromId, BigDecimal amount) {
+		long units = countsAmount ? units(amount) : 0;
+		long now = clock.millis();
+		int hash = Stripes.spread(accountFromId);
+		Stripe stripe = stripes[hash & mask];
+		stripe.lock.lock();
+		try {
+			int slot = stripe.find(accountFromId, hash);
+			if (slot < 0) {
+				return;
+			}
+			for (int r = 0; r < rules.length; r++) {
+				advance(stripe, slot, r, now);
+			}
+			add(stripe.headers, slot * headerStride, units, -1);
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Number of accounts counted, including idle ones not yet dropped.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				size += stripe.size;
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Moves the window of rule {@code r} of the account in {@code slot} on to the bucket of
+	 * {@code now} and returns its total. The value of the bucket that ends is stored in the ring,
+	 * and the buckets that fall out of the window are cleared and subtracted from the total. Within
+	 * the current bucket, that is a comparison with its end.
+	 */
+	private long advance(Stripe stripe, int slot, int r, long now) {
+		long[] headers = stripe.headers;
+		int header = slot * headerStride + 1 + 3 * r;
+		if (now >= headers[header]) {
+			long bucket = now / bucketMillis[r];
+			long current = headers[header] / bucketMillis[r] - 1;
+			long[] rings = stripe.rings;
+			int ring = slot * ringStride + r * buckets;
+			rings[ring + (int) (current % buckets)] = headers[header + 2];
+			headers[header + 2] = 0;
+			long steps = Math.min(bucket - current, buckets);
+			for (long step = 1; step <= steps; step++) {
+				int i = ring + (int) ((current + step) % buckets);
+				headers[header + 1] -= rings[i];
+				rings[i] = 0;
+			}
+			headers[header] = (bucket + 1) * bucketMillis[r];
+		}
+		return headers[header + 1];
+	}
+
+	private void add(long[] headers, int at, long units, int sign) {
+		for (int r = 0; r < rules.length; r++) {
+			int header = at + 1 + 3 * r;
+			long value = sign * value(r, units);
+			headers[header + 1] += value;
+			headers[header + 2] += value;
+		}
+	}
+
+	private long value(int r, long units) {
+		return amounts[r] ? units : 1;
+	}
+
+	/**
+	 * Amounts too large to count exceed every amount rule. Scaling before rounding leaves a whole
+	 * number in a compact {@link BigDecimal}, which converts to a {@code long} without allocating.
+	 */
+	private static long units(BigDecimal amount) {
+		try {
+			return amount.scaleByPowerOfTen(UNITS_SCALE).setScale(0, RoundingMode.CEILING).longValueExact();
+		} catch (ArithmeticException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Account ids probed linearly from their hash, less the bits that chose the stripe, with the
+	 * values of the account in {@code headers} and {@code rings} at its slot times their stride. At
+	 * most three quarters of the slots are used, so every probe ends at an empty slot. Probes compare
+	 * account ids only where the hashes match, so they do not read the ids of other accounts. Guarded
+	 * by {@link #lock}.
+	 */
+	private class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		final int capacity;
+
+		final int maxSlots;
+
+		final long sweepMillis;
+
+		String[] keys;
+
+		// Per slot: the hash of its account id with the lowest bit set, or zero if the slot is empty.
+		int[] hashes;
+
+		long[] headers;
+
+		long[] rings;
+
+		int size;
+
+		// No account is idle, or it is too soon to look again, before then.
+		long sweepAtMillis = Long.MIN_VALUE;
+
+		Stripe(int capacity, long sweepMillis) {
+			this.capacity = capacity;
+			this.maxSlots = Integer.highestOneBit(Math.max(2, (capacity * 4 + 2) / 3) - 1) << 1;
+			this.sweepMillis = sweepMillis;
+			this.keys = new String[Math.min(16, maxSlots)];
+			this.hashes = new int[keys.length];
+			this.headers = new long[keys.length * headerStride];
+			this.rings = new long[keys.length * ringStride];
+		}
+
+		int find(String accountId, int hash) {
+			int[] hashes = this.hashes;
+			int slots = hashes.length - 1;
+			for (int i = (hash >>> stripeBits) & slots;; i = (i + 1) & slots) {
+				int slotHash = hashes[i];
+				if (slotHash == 0) {
+					return -1;
+				}
+				if (slotHash == (hash | 1) && keys[i].equals(accountId)) {
+					return i;
+				}
+			}
+		}
+
+		/**
+		 * Adds an account with empty windows and returns its slot. Idle accounts are dropped, the
+		 * table grown or an account forgotten first if there is no room.
+		 */
+		int add(String accountId, int hash, long now) {
+			if (size >= capacity || (size + 1) * 4 > keys.length * 3) {
+				if (now >= sweepAtMillis) {
+					sweepAtMillis = Math.max(rehash(keys.length, now), now + sweepMillis);
+				}
+				if ((size + 1) * 4 > keys.length * 3 && keys.length < maxSlots) {
+					rehash(keys.length * 2, Long.MIN_VALUE);
+				}
+				if (size >= capacity) {
+					remove(leastRecent(hash));
+				}
+			}
+			int slots = keys.length - 1;
+			int i = (hash >>> stripeBits) & slots;
+			while (hashes[i] != 0) {
+				i = (i + 1) & slots;
+			}
+			keys[i] = accountId;
+			hashes[i] = hash | 1;
+			Arrays.fill(headers, i * headerStride, (i + 1) * headerStride, 0);
+			Arrays.fill(rings, i * ringStride, (i + 1) * ringStride, 0);
+			size++;
+			return i;
+		}
+
+		/**
+		 * Copies the accounts not idle at {@code now} into a table of {@code length} slots and
+		 * returns the earliest time one of them may be idle.
+		 */
+		long rehash(int length, long now) {
+			String[] oldKeys = keys;
+			int[] oldHashes = hashes;
+			long[] oldHeaders = headers;
+			long[] oldRings = rings;
+			keys = new String[length];
+			hashes = new int[length];
+			headers = new long[length * headerStride];
+			rings = new long[length * ringStride];
+			size = 0;
+			long idleAt = Long.MAX_VALUE;
+			for (int j = 0; j < oldKeys.length; j++) {
+				long accountIdleAt = oldHeaders[j * headerStride];
+				if (oldHashes[j] == 0 || accountIdleAt <= now) {
+					continue;
+				}
+				int i = (Stripes.spread(oldKeys[j]) >>> stripeBits) & (length - 1);
+				while (hashes[i] != 0) {
+					i = (i + 1) & (length - 1);
+				}
+				keys[i] = oldKeys[j];
+				hashes[i] = oldHashes[j];
+				System.arraycopy(oldHeaders, j * headerStride, headers, i * headerStride, headerStride);
+				System.arraycopy(oldRings, j * ringStride, rings, i * ringStride, ringStride);
+				size++;
+				idleAt = Math.min(idleAt, accountIdleAt);
+			}
+			return idleAt;
+		}
+
+		/**
+		 * Slot of the account counted least recently among the first few from the home slot of
+		 * {@code hash}, which is as good as a random place to start.
+		 */
+		int leastRecent(int hash) {
+			int slots = keys.length - 1;
+			int found = -1;
+			int sampled = 0;
+			for (int i = (hash >>> stripeBits) & slots, probes = 0; sampled < EVICTION_SAMPLE
+					&& probes < keys.length; i = (i + 1) & slots, probes++) {
+				if (hashes[i] != 0) {
+					if (found < 0 || headers[i * headerStride] < headers[found * headerStride]) {
+						found = i;
+					}
+					sampled++;
+				}
+			}
+			return found;
+		}
+
+		/**
+		 * Empties the slot and moves back the accounts after it that would no longer be found.
+		 */
+		void remove(int slot) {
+			int slots = keys.length - 1;
+			int hole = slot;
+			for (int i = (hole + 1) & slots; hashes[i] != 0; i = (i + 1) & slots) {
+				int home = (Stripes.spread(keys[i]) >>> stripeBits) & slots;
+				if (((i - home) & slots) >= ((i - hole) & slots)) {
+					keys[hole] = keys[i];
+					hashes[hole] = hashes[i];
+					System.arraycopy(headers, i * headerStride, headers, hole * headerStride, headerStride);
+					System.arraycopy(rings, i * ringStride, rings, hole * ringStride, ringStride);
+					hole = i;
+				}
+			}
+			keys[hole] = null;
+			hashes[hole] = 0;
+			size--;
+		}
+
+	}
+
+}
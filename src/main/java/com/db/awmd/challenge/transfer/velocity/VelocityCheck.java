@@ -0,0 +1,42 @@
+package com.db.awmd.challenge.transfer.velocity;
+
+import java.math.BigDecimal;
+
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+/**
+ * Rules on how fast money may leave an account, checked before a transfer is applied. A transfer
+ * that passes is counted at once, so concurrent transfers from the same account cannot pass
+ * together what would fail one after the other; one that is then not applied must be released.
+ */
+public interface VelocityCheck {
+
+	/**
+	 * Check that passes every transfer and counts nothing.
+	 */
+	VelocityCheck NONE = new VelocityCheck() {
+
+		@Override
+		public TransferResult reserve(String accountFromId, BigDecimal amount) {
+			return null;
+		}
+
+		@Override
+		public void release(String accountFromId, BigDecimal amount) {
+		}
+
+	};
+
+	/**
+	 * Counts a transfer of {@code amount} from the account if it passes every rule.
+	 *
+	 * @return {@code null} if the transfer passed, otherwise the result it is rejected with
+	 */
+	TransferResult reserve(String accountFromId, BigDecimal amount);
+
+	/**
+	 * Takes back a transfer that passed {@link #reserve} but was not applied.
+	 */
+	void release(String accountFromId, BigDecimal amount);
+
+}
@@ -0,0 +1,26 @@
+package com.db.awmd.challenge.transfer.velocity;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class VelocityConfiguration {
+
+	@Bean
+	public VelocityCheck velocityCheck(VelocityProperties properties) {
+		if (!properties.isEnabled() || properties.getRules().isEmpty()) {
+			return VelocityCheck.NONE;
+		}
+		List<VelocityRule> rules = new ArrayList<>();
+		for (VelocityProperties.Rule rule : properties.getRules()) {
+			rules.add(rule.toVelocityRule());
+		}
+		return new SlidingWindowVelocityCheck(rules, properties.getBuckets(), properties.getStripes(),
+				properties.getMaxAccounts(), Clock.systemUTC());
+	}
+
+}
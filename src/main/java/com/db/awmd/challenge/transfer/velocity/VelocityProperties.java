@@ -0,0 +1,70 @@
+package com.db.awmd.challenge.transfer.velocity;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "transfers.velocity")
+public class VelocityProperties {
+
+	/**
+	 * Whether transfers are checked against the velocity rules of their source account.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Rules every source account is held to, each with a window and either {@code max-transfers}
+	 * or {@code max-amount}.
+	 */
+	private List<Rule> rules = new ArrayList<>(List.of(new Rule(Duration.ofMinutes(5), null, new BigDecimal("10000")),
+			new Rule(Duration.ofMinutes(1), 10L, null)));
+
+	/**
+	 * Buckets a window is split into; windows slide a bucket at a time.
+	 */
+	private int buckets = 10;
+
+	/**
+	 * Maximum number of accounts whose recent transfers are counted; those idle longest are
+	 * forgotten first.
+	 */
+	private int maxAccounts = 1_000_000;
+
+	private int stripes = 64;
+
+	@Data
+	public static class Rule {
+
+		private Duration window;
+
+		private Long maxTransfers;
+
+		private BigDecimal maxAmount;
+
+		public Rule() {
+		}
+
+		public Rule(Duration window, Long maxTransfers, BigDecimal maxAmount) {
+			this.window = window;
+			this.maxTransfers = maxTransfers;
+			this.maxAmount = maxAmount;
+		}
+
+		VelocityRule toVelocityRule() {
+			if (window == null || (maxTransfers == null) == (maxAmount == null)) {
+				throw new IllegalArgumentException(
+						"A velocity rule needs a window and either max-transfers or max-amount: " + this);
+			}
+			return maxTransfers != null ? VelocityRule.maxTransfers(window, maxTransfers)
+					: VelocityRule.maxAmount(window, maxAmount);
+		}
+
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.db.awmd.challenge.transfer.velocity;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import lombok.Getter;
+
+/**
+ * Limit on the transfers out of one account within a sliding time window: either on their number
+ * or on the amount they take out, in the currency of the account.
+ */
+@Getter
+public final class VelocityRule {
+
+	private final Duration window;
+
+	private final long maxTransfers;
+
+	// Null for a limit on the number of transfers.
+	private final BigDecimal maxAmount;
+
+	private VelocityRule(Duration window, long maxTransfers, BigDecimal maxAmount) {
+		if (window.isNegative() || window.isZero()) {
+			throw new IllegalArgumentException("The window of a velocity rule must be positive");
+		}
+		this.window = window;
+		this.maxTransfers = maxTransfers;
+		this.maxAmount = maxAmount;
+	}
+
+	/**
+	 * At most {@code maxTransfers} transfers out of an account within {@code window}.
+	 */
+	public static VelocityRule maxTransfers(Duration window, long maxTransfers) {
+		if (maxTransfers < 0) {
+			throw new IllegalArgumentException("The maximum number of transfers must not be negative");
+		}
+		return new VelocityRule(window, maxTransfers, null);
+	}
+
+	/**
+	 * At most {@code maxAmount} taken out of an account within {@code window}.
+	 */
+	public static VelocityRule maxAmount(Duration window, BigDecimal maxAmount) {
+		if (maxAmount.signum() < 0) {
+			throw new IllegalArgumentException("The maximum amount must not be negative");
+		}
+		return new VelocityRule(window, 0, maxAmount);
+	}
+
+	@Override
+	public String toString() {
+		return (maxAmount != null ? maxAmount + " out" : maxTransfers + " transfers") + " in " + window;
+	}
+
+}
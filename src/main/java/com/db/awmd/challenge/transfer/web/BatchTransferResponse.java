@@ -0,0 +1,38 @@
+package com.db.awmd.challenge.transfer.web;
+
+import java.util.List;
+
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+
+	private BatchMode mode;
+
+	private int completed;
+
+	private int failed;
+
+	/**
+	 * One result per requested transfer, in request order.
+	 */
+	private List<TransferResult> results;
+
+	public static BatchTransferResponse of(BatchMode mode, List<TransferResult> results) {
+		int completed = 0;
+		for (TransferResult result : results) {
+			if (result.isCompleted()) {
+				completed++;
+			}
+		}
+		return new BatchTransferResponse(mode, completed, results.size() - completed, results);
+	}
+
+}
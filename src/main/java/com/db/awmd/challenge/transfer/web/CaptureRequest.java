@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.transfer.web;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.DecimalMin;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaptureRequest {
+
+	/**
+	 * Amount to transfer, at most the amount held; omitted to capture the whole hold. The rest of
+	 * the hold is released.
+	 */
+	@DecimalMin(value = "0", inclusive = false, message = "Capture amount must be greater than zero")
+	private BigDecimal amount;
+}
@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.transfer.web;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldRequest {
+
+	@NotEmpty
+	private String accountFromId;
+	@NotEmpty
+	private String accountToId;
+	@NotNull
+	@DecimalMin(value = "0", inclusive = false, message = "Hold amount must be greater than zero")
+	private BigDecimal amount;
+	/**
+	 * ISO 8601 duration after which the hold is released unless captured, e.g. {@code P7D};
+	 * omitted for the default.
+	 */
+	private Duration expiresIn;
+}
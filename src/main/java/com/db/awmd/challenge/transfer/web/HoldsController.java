@@ -0,0 +1,88 @@
+package com.db.awmd.challenge.transfer.web;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.transfer.domain.BalanceHold;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
+import com.db.awmd.challenge.transfer.exception.SameAccountTransferException;
+import com.db.awmd.challenge.transfer.hold.BalanceHolds;
+
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/v1/accounts/holds")
+@Slf4j
+public class HoldsController {
+
+	private final BalanceHolds balanceHolds;
+
+	@Autowired
+	public HoldsController(BalanceHolds balanceHolds) {
+		this.balanceHolds = balanceHolds;
+	}
+
+	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Object> authorize(@RequestBody @Valid HoldRequest request) {
+		log.info("Authorizing hold {}", request);
+		try {
+			return new ResponseEntity<>(balanceHolds.authorize(request.getAccountFromId(), request.getAccountToId(),
+					request.getAmount(), request.getExpiresIn()), HttpStatus.CREATED);
+		} catch (AccountNotFoundException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+		} catch (InsufficientBalanceException | InvalidTransferAmountException | SameAccountTransferException
+				| IllegalArgumentException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch (UnsupportedOperationException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+		}
+	}
+
+	@GetMapping("/{id}")
+	public ResponseEntity<Object> getHold(@PathVariable long id) {
+		BalanceHold hold = balanceHolds.getHold(id);
+		if (hold == null) {
+			return new ResponseEntity<>("Hold " + id + " is not active", HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(hold);
+	}
+
+	@PostMapping("/{id}/capture")
+	public ResponseEntity<Object> capture(@PathVariable long id,
+			@RequestBody(required = false) @Valid CaptureRequest request) {
+		log.info("Capturing hold {} {}", id, request);
+		TransferResult result = balanceHolds.capture(id, request == null ? null : request.getAmount());
+		if (result == null) {
+			return new ResponseEntity<>("Hold " + id + " is not active", HttpStatus.NOT_FOUND);
+		}
+		if (result.isCompleted()) {
+			return ResponseEntity.ok(result.getMessage());
+		}
+		return new ResponseEntity<>(result.getMessage(),
+				result.getStatus() == TransferStatus.ACCOUNT_NOT_FOUND ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST);
+	}
+
+	@DeleteMapping("/{id}")
+	public ResponseEntity<Object> release(@PathVariable long id) {
+		if (!balanceHolds.release(id)) {
+			return new ResponseEntity<>("Hold " + id + " is not active", HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.db.awmd.challenge.transfer.web;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledTransferRequest {
+
+	@NotEmpty
+	private String accountFromId;
+	@NotEmpty
+	private String accountToId;
+	@NotNull
+	@DecimalMin(value = "0", inclusive = false, message = "Transfer amount must be greater than zero")
+	private BigDecimal amount;
+	@NotNull
+	private Instant executeAt;
+	/**
+	 * ISO 8601 duration between occurrences, e.g. {@code P1D}; omitted for a transfer that runs once.
+	 */
+	private Duration interval;
+	/**
+	 * Number of occurrences of a recurring transfer; omitted to run until cancelled.
+	 */
+	@Min(1)
+	private Integer occurrences;
+}
@@ -0,0 +1,66 @@
+package com.db.awmd.challenge.transfer.web;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.transfer.domain.PendingTransfer;
+import com.db.awmd.challenge.transfer.schedule.TransferScheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/v1/accounts/transfers/scheduled")
+@Slf4j
+public class ScheduledTransfersController {
+
+	private final TransferScheduler transferScheduler;
+
+	@Autowired
+	public ScheduledTransfersController(TransferScheduler transferScheduler) {
+		this.transferScheduler = transferScheduler;
+	}
+
+	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Object> schedule(@RequestBody @Valid ScheduledTransferRequest request) {
+		log.info("Scheduling transfer {}", request);
+		try {
+			return new ResponseEntity<>(transferScheduler.schedule(request.getAccountFromId(),
+					request.getAccountToId(), request.getAmount(), request.getExecuteAt(), request.getInterval(),
+					request.getOccurrences()), HttpStatus.CREATED);
+		} catch (AccountNotFoundException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	@GetMapping("/{id}")
+	public ResponseEntity<Object> getPending(@PathVariable long id) {
+		PendingTransfer pending = transferScheduler.getPending(id);
+		if (pending == null) {
+			return new ResponseEntity<>("Scheduled transfer " + id + " is not pending", HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(pending);
+	}
+
+	@DeleteMapping("/{id}")
+	public ResponseEntity<Object> cancel(@PathVariable long id) {
+		if (!transferScheduler.cancel(id)) {
+			return new ResponseEntity<>("Scheduled transfer " + id + " is not pending", HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+}
@@ -4,6 +4,8 @@ import java.math.BigDecimal;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,6 +20,13 @@ public class TransferRequest {
 	private String accountFromId;
 	@NotEmpty
 	private String accountToId;
+	@NotNull
 	@Min(value = 0, message = "Transfer value must be positive.")
 	private BigDecimal amount;
+	/**
+	 * ISO 4217 code of the currency of the amount. Optional; amounts are always in the currency of
+	 * the source account, and a transfer naming another currency is rejected.
+	 */
+	@Pattern(regexp = "[A-Z]{3}", message = "Currency must be a three-letter ISO 4217 code.")
+	private String currency;
 }
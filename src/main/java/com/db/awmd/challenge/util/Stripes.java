@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helpers shared by the structures split into independently locked stripes by key hash. Their
+ * stripe counts are rounded up to a power of two, so a stripe is picked by masking the hash.
+ */
+public final class Stripes {
+
+	private Stripes() {
+	}
+
+	/**
+	 * Returns {@code count} rounded up to a power of two.
+	 */
+	public static int roundUp(int count) {
+		int size = Integer.highestOneBit(count);
+		return size < count ? size << 1 : size;
+	}
+
+	/**
+	 * Returns the hash of {@code key} with its high bits spread into the low ones, which masks keep.
+	 */
+	public static int spread(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the stripe of {@code key}, out of {@code mask + 1}.
+	 */
+	public static int indexOf(Object key, int mask) {
+		return spread(key) & mask;
+	}
+
+	/**
+	 * Returns a map in access order that drops its least recently used entry once it holds more
+	 * than {@code capacity}.
+	 */
+	public static <K, V> LinkedHashMap<K, V> lruMap(int capacity) {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > capacity;
+			}
+
+		};
+	}
+
+}
@@ -1,13 +1,20 @@
 package com.db.awmd.challenge.account;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -17,6 +24,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.context.WebApplicationContext;
@@ -24,6 +32,8 @@ import org.springframework.web.context.WebApplicationContext;
 import com.db.awmd.challenge.account.domain.Account;
 import com.db.awmd.challenge.account.service.AccountsService;
 
+import com.jayway.jsonpath.JsonPath;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 class AccountsControllerTest {
@@ -94,6 +104,59 @@ class AccountsControllerTest {
 				.content("{\"accountId\":\"\",\"balance\":1000}")).andExpect(status().isBadRequest());
 	}
 
+	@Test
+	void importAccounts() throws Exception {
+		this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountId\":\"Id-1\",\"balance\":1000}")).andExpect(status().isCreated());
+
+		String body = "{\"accountId\":\"Id-1\",\"balance\":5}\n" + "{\"accountId\":\"Id-2\",\"balance\":20}\n" + "\n"
+				+ "{\"accountId\":\"Id-3\",\"balance\":-1}\n" + "{\"accountId\":\"Id-4\"\n"
+				+ "{\"accountId\":\"Id-5\",\"balance\":30.5}";
+		this.mockMvc.perform(post("/v1/accounts/import").contentType(MediaType.APPLICATION_NDJSON).content(body))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.created").value(2))
+				.andExpect(jsonPath("$.duplicates").value(1)).andExpect(jsonPath("$.duplicateAccountIds[0]").value("Id-1"))
+				.andExpect(jsonPath("$.invalid").value(2))
+				.andExpect(jsonPath("$.errors[0]").value("Line 4: balance Initial balance must be positive."));
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("1000");
+		assertThat(accountsService.getAccount("Id-5").getBalance()).isEqualByComparingTo("30.5");
+		assertThat(accountsService.getAccountsRepository().countAccounts()).isEqualTo(3);
+	}
+
+	@Test
+	void scanAccounts() throws Exception {
+		for (int i = 1; i <= 3; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+		}
+
+		String first = this.mockMvc.perform(get("/v1/accounts").param("limit", "2").param("consistent", "true"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.accounts.length()").value(2))
+				.andReturn().getResponse().getContentAsString();
+		String cursor = JsonPath.read(first, "$.nextCursor");
+		String second = this.mockMvc.perform(get("/v1/accounts").param("limit", "2").param("cursor", cursor))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.accounts.length()").value(1))
+				.andExpect(jsonPath("$.nextCursor").doesNotExist()).andReturn().getResponse().getContentAsString();
+
+		List<String> accountIds = new ArrayList<>(JsonPath.read(first, "$.accounts[*].accountId"));
+		accountIds.addAll(JsonPath.read(second, "$.accounts[*].accountId"));
+		assertThat(accountIds).containsExactlyInAnyOrder("Id-1", "Id-2", "Id-3");
+		this.mockMvc.perform(get("/v1/accounts").param("cursor", cursor)).andExpect(status().isGone());
+		this.mockMvc.perform(get("/v1/accounts").param("limit", "0")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void exportAccounts() throws Exception {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("10.5")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("20")));
+
+		String body = this.mockMvc.perform(get("/v1/accounts/export").param("consistent", "true"))
+				.andExpect(status().isOk()).andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(body.split("\n")).containsExactlyInAnyOrder("{\"accountId\":\"Id-1\",\"balance\":10.5}",
+				"{\"accountId\":\"Id-2\",\"balance\":20}");
+	}
+
 	@Test
 	void getAccount() throws Exception {
 		String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -103,6 +166,22 @@ class AccountsControllerTest {
 				.andExpect(content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45}"));
 	}
 	
+	@Test
+	void getAccountNotModified() throws Exception {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+		String eTag = this.mockMvc.perform(get("/v1/accounts/Id-1")).andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		this.mockMvc.perform(get("/v1/accounts/Id-1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified()).andExpect(content().string(""));
+
+		accountsService.transfer("Id-1", "Id-2", BigDecimal.TEN);
+		this.mockMvc.perform(get("/v1/accounts/Id-1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk()).andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+				.andExpect(content().string("{\"accountId\":\"Id-1\",\"balance\":90}"));
+	}
+
 	@Test
 	void getAccountNotFound() throws Exception {
 		String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -178,6 +257,57 @@ class AccountsControllerTest {
 		assertThat(updatedDestinationAccount.getBalance()).isEqualByComparingTo("700");
 	}
 
+	@Test
+	void transferBetweenCurrencies() throws Exception {
+		this.mockMvc.perform(put("/v1/fx/rates").contentType(MediaType.APPLICATION_JSON).content("{\"USD\":1.5}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.baseCurrency").value("EUR"))
+				.andExpect(jsonPath("$.rates.USD").value(1.5));
+		this.mockMvc.perform(put("/v1/fx/rates").contentType(MediaType.APPLICATION_JSON).content("{\"USD\":0}"))
+				.andExpect(status().isBadRequest());
+		accountsService.createAccount(new Account("eurAccountId", new BigDecimal("100")));
+		this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountId\":\"usdAccountId\",\"balance\":0,\"currency\":\"USD\"}"))
+				.andExpect(status().isCreated());
+
+		this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"accountFromId\":\"eurAccountId\",\"accountToId\":\"usdAccountId\",\"amount\":10,\"currency\":\"USD\"}"))
+				.andExpect(status().isBadRequest());
+		this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"accountFromId\":\"eurAccountId\",\"accountToId\":\"usdAccountId\",\"amount\":10,\"currency\":\"EUR\"}"))
+				.andExpect(status().isOk());
+
+		this.mockMvc.perform(get("/v1/accounts/usdAccountId"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.balance").value(15))
+				.andExpect(jsonPath("$.currency").value("USD"));
+		this.mockMvc.perform(get("/v1/accounts/eurAccountId"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.currency").doesNotExist());
+	}
+
+	@Test
+	void transferRetriedWithIdempotencyKey() throws Exception {
+		accountsService.createAccount(new Account("sourceAccountId", new BigDecimal("1000")));
+		accountsService.createAccount(new Account("destinationAccountId", new BigDecimal("500")));
+		// The cache outlives clearAccounts(), so use a key no other test run has sent.
+		String key = "transfer-" + System.nanoTime();
+		String transfer = "{\"accountFromId\":\"sourceAccountId\",\"accountToId\":\"destinationAccountId\",\"amount\":200}";
+
+		for (int i = 0; i < 3; i++) {
+			this.mockMvc.perform(post("/v1/accounts/transfer").header("Idempotency-Key", key)
+					.contentType(MediaType.APPLICATION_JSON).content(transfer))
+					.andExpect(status().isOk())
+					.andExpect(content().string("Transfer completed successfully"));
+		}
+		this.mockMvc.perform(post("/v1/accounts/transfer").header("Idempotency-Key", key)
+				.contentType(MediaType.APPLICATION_JSON).content(transfer.replace("200", "300")))
+				.andExpect(status().isUnprocessableEntity());
+
+		assertThat(accountsService.getAccount("sourceAccountId").getBalance()).isEqualByComparingTo("800");
+		assertThat(accountsService.getAccount("destinationAccountId").getBalance()).isEqualByComparingTo("700");
+	}
+
 	@Test
 	void testSimultaneousTransfers() throws Exception {
 		// Create source and destination accounts
@@ -226,4 +356,173 @@ class AccountsControllerTest {
 		assertThat(updatedDestinationAccount.getBalance()).isEqualByComparingTo("400");
 	}
 
-}
\ No newline at end of file
+	@Test
+	void transferBatchBestEffort() throws Exception {
+		accountsService.createAccount(new Account("id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("id-2", new BigDecimal("0")));
+
+		this.mockMvc.perform(post("/v1/accounts/transfers/batch").contentType(MediaType.APPLICATION_JSON).content(
+				"[{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":60},"
+						+ "{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":60},"
+						+ "{\"accountFromId\":\"id-1\",\"accountToId\":\"id-3\",\"amount\":10}]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.completed").value(1))
+				.andExpect(jsonPath("$.results[0].status").value("COMPLETED"))
+				.andExpect(jsonPath("$.results[1].status").value("INSUFFICIENT_BALANCE"))
+				.andExpect(jsonPath("$.results[2].status").value("ACCOUNT_NOT_FOUND"));
+
+		assertThat(accountsService.getAccount("id-1").getBalance()).isEqualByComparingTo("40");
+		assertThat(accountsService.getAccount("id-2").getBalance()).isEqualByComparingTo("60");
+
+		this.mockMvc.perform(post("/v1/accounts/transfers/batch").contentType(MediaType.APPLICATION_JSON).content(
+				"[{\"accountFromId\":\"id-3\",\"accountToId\":\"id-1\",\"amount\":10,\"currency\":\"EUR\"},"
+						+ "{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":10}]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.completed").value(1))
+				.andExpect(jsonPath("$.results[0].status").value("ACCOUNT_NOT_FOUND"))
+				.andExpect(jsonPath("$.results[1].status").value("COMPLETED"));
+
+		this.mockMvc.perform(post("/v1/accounts/transfers/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void transferBatchAllOrNothing() throws Exception {
+		accountsService.createAccount(new Account("id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("id-2", new BigDecimal("0")));
+
+		this.mockMvc.perform(post("/v1/accounts/transfers/batch?mode=ALL_OR_NOTHING")
+				.contentType(MediaType.APPLICATION_JSON).content(
+						"[{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":60},"
+								+ "{\"accountFromId\":\"id-2\",\"accountToId\":\"id-1\",\"amount\":10},"
+								+ "{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":60}]"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.completed").value(0))
+				.andExpect(jsonPath("$.results[0].status").value("NOT_APPLIED"))
+				.andExpect(jsonPath("$.results[2].status").value("INSUFFICIENT_BALANCE"));
+
+		assertThat(accountsService.getAccount("id-1").getBalance()).isEqualByComparingTo("100");
+		assertThat(accountsService.getAccount("id-2").getBalance()).isEqualByComparingTo("0");
+
+		this.mockMvc.perform(post("/v1/accounts/transfers/batch?mode=ALL_OR_NOTHING")
+				.contentType(MediaType.APPLICATION_JSON).content(
+						"[{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":60},"
+								+ "{\"accountFromId\":\"id-2\",\"accountToId\":\"id-1\",\"amount\":10},"
+								+ "{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":50}]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.completed").value(3));
+
+		assertThat(accountsService.getAccount("id-1").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsService.getAccount("id-2").getBalance()).isEqualByComparingTo("100");
+	}
+
+	@Test
+	void scheduleTransfer() throws Exception {
+		accountsService.createAccount(new Account("id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("id-2", new BigDecimal("0")));
+
+		String pending = this.mockMvc.perform(post("/v1/accounts/transfers/scheduled")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":10,"
+						+ "\"executeAt\":\"2100-01-01T09:00:00Z\",\"interval\":\"P7D\",\"occurrences\":4}"))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.nextExecution").value("2100-01-01T09:00:00Z"))
+				.andExpect(jsonPath("$.interval").value("PT168H"))
+				.andExpect(jsonPath("$.remainingOccurrences").value(4))
+				.andReturn().getResponse().getContentAsString();
+		int id = JsonPath.read(pending, "$.id");
+
+		this.mockMvc.perform(get("/v1/accounts/transfers/scheduled/" + id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.accountFromId").value("id-1"));
+		this.mockMvc.perform(delete("/v1/accounts/transfers/scheduled/" + id)).andExpect(status().isNoContent());
+		this.mockMvc.perform(get("/v1/accounts/transfers/scheduled/" + id)).andExpect(status().isNotFound());
+		this.mockMvc.perform(delete("/v1/accounts/transfers/scheduled/" + id)).andExpect(status().isNotFound());
+
+		this.mockMvc.perform(post("/v1/accounts/transfers/scheduled").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"unknown\",\"amount\":10,"
+						+ "\"executeAt\":\"2100-01-01T09:00:00Z\"}"))
+				.andExpect(status().isNotFound());
+		this.mockMvc.perform(post("/v1/accounts/transfers/scheduled").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":10,"
+						+ "\"executeAt\":\"2100-01-01T09:00:00Z\",\"occurrences\":2}"))
+				.andExpect(status().isBadRequest());
+		this.mockMvc.perform(post("/v1/accounts/transfers/scheduled").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":-1,"
+						+ "\"executeAt\":\"2100-01-01T09:00:00Z\"}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void holdAndCapture() throws Exception {
+		accountsService.createAccount(new Account("id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("id-2", new BigDecimal("0")));
+
+		String hold = this.mockMvc.perform(post("/v1/accounts/holds").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":80,\"expiresIn\":\"PT1H\"}"))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.amount").value(80))
+				.andReturn().getResponse().getContentAsString();
+		int id = JsonPath.read(hold, "$.id");
+
+		this.mockMvc.perform(get("/v1/accounts/holds/" + id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.accountToId").value("id-2"));
+		this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":30}"))
+				.andExpect(status().isBadRequest());
+		this.mockMvc.perform(post("/v1/accounts/holds").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":30}"))
+				.andExpect(status().isBadRequest());
+
+		this.mockMvc.perform(post("/v1/accounts/holds/" + id + "/capture").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"amount\":90}")).andExpect(status().isBadRequest());
+		this.mockMvc.perform(post("/v1/accounts/holds/" + id + "/capture").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"amount\":50}")).andExpect(status().isOk());
+		this.mockMvc.perform(post("/v1/accounts/holds/" + id + "/capture")).andExpect(status().isNotFound());
+		this.mockMvc.perform(delete("/v1/accounts/holds/" + id)).andExpect(status().isNotFound());
+		assertThat(accountsService.getAccount("id-1").getBalance()).isEqualByComparingTo("50");
+		assertThat(accountsService.getAccount("id-2").getBalance()).isEqualByComparingTo("50");
+
+		this.mockMvc.perform(post("/v1/accounts/holds").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"unknown\",\"amount\":10}"))
+				.andExpect(status().isNotFound());
+		this.mockMvc.perform(post("/v1/accounts/holds").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFromId\":\"id-1\",\"accountToId\":\"id-2\",\"amount\":10,\"expiresIn\":\"P365D\"}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void getTransferHistory() throws Exception {
+		// The ledger outlives clearAccounts(), so use ids no other test has transferred with.
+		String from = "history-" + System.nanoTime();
+		String to = from + "-to";
+		accountsService.createAccount(new Account(from, new BigDecimal("100")));
+		accountsService.createAccount(new Account(to, new BigDecimal("0")));
+		for (int i = 1; i <= 3; i++) {
+			accountsService.transfer(from, to, BigDecimal.valueOf(i));
+		}
+
+		String page = this.mockMvc.perform(get("/v1/accounts/" + to + "/transfers?limit=2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.transfers.length()").value(2))
+				.andExpect(jsonPath("$.transfers[0].amount").value(3))
+				.andExpect(jsonPath("$.transfers[0].accountFromId").value(from))
+				.andExpect(jsonPath("$.transfers[1].amount").value(2))
+				.andReturn().getResponse().getContentAsString();
+		String cursor = page.replaceAll(".*\"nextCursor\":(\\d+).*", "$1");
+
+		this.mockMvc.perform(get("/v1/accounts/" + from + "/transfers?limit=2&cursor=" + cursor))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.transfers.length()").value(1))
+				.andExpect(jsonPath("$.transfers[0].amount").value(1))
+				.andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+		this.mockMvc.perform(get("/v1/accounts/" + from + "/transfers?to=2000-01-01T00:00:00Z"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.transfers.length()").value(0));
+		this.mockMvc.perform(get("/v1/accounts/" + from + "/transfers?limit=0")).andExpect(status().isBadRequest());
+		this.mockMvc.perform(get("/v1/accounts/unknown/transfers")).andExpect(status().isNotFound());
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.db.awmd.challenge.account;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryProperties;
+import com.db.awmd.challenge.account.repository.LockMetrics;
+import com.db.awmd.challenge.account.service.AccountsImportService;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.fx.ExchangeRates;
+import com.db.awmd.challenge.journal.AccountsJournal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class AccountsImportServiceTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	@DisplayName("Lines are numbered across chunks whatever the chunk size")
+	void chunking() throws Exception {
+		for (int chunkSize = 1; chunkSize <= 2; chunkSize++) {
+			AccountsRepositoryInMemory repository = AccountsRepositoryInMemory.builder().lockStripes(16).build();
+			repository.createAccount(new Account("Id-3", BigDecimal.ONE));
+			AccountsImportService importService = new AccountsImportService(repository, objectMapper, chunkSize, 3);
+			try {
+				LineStream input = new LineStream(50);
+				AccountImportSummary summary = importService.importAccounts(input);
+
+				List<String> errors = new ArrayList<>();
+				for (int line = 7; line <= 50; line += 7) {
+					errors.add("Line " + line + ": balance Initial balance must be positive.");
+				}
+				assertThat(summary.getErrors()).containsExactlyInAnyOrderElementsOf(errors);
+				assertThat(summary.getDuplicateAccountIds()).containsExactly("Id-3");
+				// 50 lines, 5 of them blank, 7 invalid and 1 duplicate.
+				assertThat(summary.getCreated()).isEqualTo(37);
+				assertThat(repository.countAccounts()).isEqualTo(38);
+				assertThat(repository.getAccount("Id-48").getBalance()).isEqualByComparingTo("48");
+				assertThat(input.served).hasValue(50);
+			} finally {
+				importService.destroy();
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Reading stops while the chunks in flight are being created")
+	void boundedChunksInFlight() throws Exception {
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger creating = new AtomicInteger();
+		AtomicInteger maxCreating = new AtomicInteger();
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(new AccountsRepositoryProperties(),
+				AccountsJournal.NONE, LockMetrics.NONE, new ExchangeRateTable(ExchangeRates.DEFAULT_BASE_CURRENCY)) {
+
+			@Override
+			public int createAccounts(List<Account> newAccounts, AccountImportSummary summary) {
+				maxCreating.accumulateAndGet(creating.incrementAndGet(), Math::max);
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				creating.decrementAndGet();
+				return super.createAccounts(newAccounts, summary);
+			}
+
+		};
+		AccountsImportService importService = new AccountsImportService(repository, objectMapper, 1, 2);
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			LineStream input = new LineStream(1000);
+			Future<AccountImportSummary> summary = executorService.submit(() -> importService.importAccounts(input));
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			// Two chunks being created and two queued, then the line of the next chunk waits.
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (input.served.get() < 5 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(100);
+			assertThat(input.served.get()).isEqualTo(5);
+
+			release.countDown();
+			assertThat(summary.get(10, TimeUnit.SECONDS).getCreated()).isEqualTo(1000 - 100 - 128);
+			assertThat(maxCreating).hasValue(2);
+		} finally {
+			executorService.shutdown();
+			importService.destroy();
+		}
+	}
+
+	@Test
+	@DisplayName("A chunk that fails stops the import and is rethrown once the chunks in flight finish")
+	void failedChunk() throws Exception {
+		AtomicInteger creating = new AtomicInteger();
+		AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(new AccountsRepositoryProperties(),
+				AccountsJournal.NONE, LockMetrics.NONE, new ExchangeRateTable(ExchangeRates.DEFAULT_BASE_CURRENCY)) {
+
+			@Override
+			public int createAccounts(List<Account> newAccounts, AccountImportSummary summary) {
+				creating.incrementAndGet();
+				try {
+					if (newAccounts.stream().anyMatch(account -> account.getAccountId().equals("Id-5"))) {
+						throw new IllegalStateException("Repository unavailable");
+					}
+					return super.createAccounts(newAccounts, summary);
+				} finally {
+					creating.decrementAndGet();
+				}
+			}
+
+		};
+		AccountsImportService importService = new AccountsImportService(repository, objectMapper, 2, 2);
+		try {
+			LineStream input = new LineStream(10_000);
+			assertThatThrownBy(() -> importService.importAccounts(input)).isInstanceOf(IllegalStateException.class)
+					.hasMessage("Repository unavailable");
+			assertThat(creating).hasValue(0);
+			assertThat(input.served.get()).isLessThan(10_000);
+
+			repository.clearAccounts();
+			assertThat(importService.importAccounts(new LineStream(4)).getCreated()).isEqualTo(4);
+		} finally {
+			importService.destroy();
+		}
+	}
+
+	/**
+	 * Serves the lines of an import on demand, at most one per read, so the import reads no further
+	 * ahead than it needs. Every tenth line is blank and every seventh has a negative balance.
+	 */
+	private static class LineStream extends InputStream {
+
+		private final int lines;
+
+		private final AtomicInteger served = new AtomicInteger();
+
+		private byte[] line = new byte[0];
+
+		private int position;
+
+		LineStream(int lines) {
+			this.lines = lines;
+		}
+
+		@Override
+		public int read() {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (position == line.length) {
+				if (served.get() == lines) {
+					return -1;
+				}
+				int n = served.incrementAndGet();
+				String text = n % 10 == 0 ? ""
+						: "{\"accountId\":\"Id-" + n + "\",\"balance\":" + (n % 7 == 0 ? -n : n) + "}";
+				line = (text + "\n").getBytes(StandardCharsets.UTF_8);
+				position = 0;
+			}
+			int count = Math.min(len, line.length - position);
+			System.arraycopy(line, position, b, off, count);
+			position += count;
+			return count;
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.db.awmd.challenge.account;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.exception.InvalidBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryAtomic;
+import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
+
+class AccountsRepositoryAtomicTest {
+
+	private AccountsRepositoryAtomic repository;
+
+	@BeforeEach
+	void createRepository() {
+		this.repository = new AccountsRepositoryAtomic(2);
+	}
+
+	@Test
+	@DisplayName("Transfer updates balances exposed as BigDecimal")
+	void transferSuccess() {
+		repository.createAccount(new Account("Id-1", new BigDecimal("100.50")));
+		repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+		repository.transfer("Id-1", "Id-2", new BigDecimal("0.5"));
+
+		assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("100.00");
+		assertThat(repository.getAccount("Id-2").getBalance()).isEqualByComparingTo("0.50");
+	}
+
+	@Test
+	@DisplayName("Insufficient balance leaves both accounts untouched")
+	void transferInsufficientBalance() {
+		repository.createAccount(new Account("Id-1", BigDecimal.ONE));
+		repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+		assertThrows(InsufficientBalanceException.class, () -> repository.transfer("Id-1", "Id-2", BigDecimal.TEN));
+
+		assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("1");
+		assertThat(repository.getAccount("Id-2").getBalance()).isEqualByComparingTo("0");
+	}
+
+	@Test
+	@DisplayName("Amounts beyond the configured scale are rejected")
+	void rejectsExcessScale() {
+		repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+		repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+		assertThrows(InvalidBalanceException.class,
+				() -> repository.createAccount(new Account("Id-3", new BigDecimal("0.001"))));
+		assertThrows(InvalidTransferAmountException.class,
+				() -> repository.transfer("Id-1", "Id-2", new BigDecimal("0.001")));
+	}
+
+	@Test
+	@DisplayName("Credit overflow rolls back the debit")
+	void creditOverflowRollsBack() {
+		BigDecimal max = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+		repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+		repository.createAccount(new Account("Id-2", max));
+
+		assertThrows(InvalidTransferAmountException.class, () -> repository.transfer("Id-1", "Id-2", BigDecimal.ONE));
+
+		assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+		assertThat(repository.getAccount("Id-2").getBalance()).isEqualByComparingTo(max);
+	}
+}
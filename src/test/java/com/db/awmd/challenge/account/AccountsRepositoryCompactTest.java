@@ -0,0 +1,66 @@
+package com.db.awmd.challenge.account;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryCompact;
+
+class AccountsRepositoryCompactTest {
+
+	private AccountsRepositoryCompact repository;
+
+	@BeforeEach
+	void createRepository() {
+		this.repository = new AccountsRepositoryCompact(4, 2);
+	}
+
+	@Test
+	@DisplayName("Accounts are found again across table growth, including non-ASCII ids")
+	void findsAccountsAcrossGrowth() {
+		int accounts = 200_000;
+		for (int i = 0; i < accounts; i++) {
+			repository.createAccount(new Account("Id-" + i, BigDecimal.valueOf(i, 2)));
+		}
+		repository.createAccount(new Account("Cuenta-Ñandú", BigDecimal.ONE));
+		repository.createAccount(new Account("Cuenta-Ñandu", BigDecimal.TEN));
+
+		assertThat(repository.countAccounts()).isEqualTo(accounts + 2);
+		for (int i = 0; i < accounts; i += 997) {
+			assertThat(repository.getAccount("Id-" + i).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(i, 2));
+		}
+		assertThat(repository.getAccount("Cuenta-Ñandú").getBalance()).isEqualByComparingTo("1");
+		assertThat(repository.getAccount("Cuenta-Ñandu").getBalance()).isEqualByComparingTo("10");
+		assertThrows(AccountNotFoundException.class, () -> repository.getAccount("Id-" + accounts));
+		assertThrows(AccountNotFoundException.class, () -> repository.getAccount("Id-1 "));
+		assertThrows(DuplicateAccountIdException.class,
+				() -> repository.createAccount(new Account("Id-7", BigDecimal.ONE)));
+
+		repository.clearAccounts();
+		assertThat(repository.countAccounts()).isZero();
+		assertThrows(AccountNotFoundException.class, () -> repository.getAccount("Id-7"));
+	}
+
+	@Test
+	@DisplayName("Transfers update balances and insufficient balance leaves both untouched")
+	void transfers() {
+		repository.createAccount(new Account("Id-1", new BigDecimal("100.50")));
+		repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+		repository.transfer("Id-1", "Id-2", new BigDecimal("0.5"));
+		assertThrows(InsufficientBalanceException.class, () -> repository.transfer("Id-2", "Id-1", BigDecimal.ONE));
+		assertThrows(AccountNotFoundException.class, () -> repository.transfer("Id-1", "Id-3", BigDecimal.ONE));
+
+		assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("100.00");
+		assertThat(repository.getAccount("Id-2").getBalance()).isEqualByComparingTo("0.50");
+	}
+}
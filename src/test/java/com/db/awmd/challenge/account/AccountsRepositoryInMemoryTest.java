@@ -0,0 +1,333 @@
+package com.db.awmd.challenge.account;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.domain.AccountImportSummary;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountScan;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.journal.JournalException;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+
+class AccountsRepositoryInMemoryTest {
+
+	private static final int ACCOUNTS = 16;
+
+	private static final int THREADS = 8;
+
+	private static final int TRANSFERS_PER_THREAD = 20_000;
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000");
+
+	private AccountsRepositoryInMemory repository;
+
+	@BeforeEach
+	void createAccounts() {
+		// Few stripes on purpose, so unrelated accounts share locks as well.
+		this.repository = AccountsRepositoryInMemory.builder().lockStripes(4).build();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			repository.createAccount(new Account("Id-" + i, INITIAL_BALANCE));
+		}
+	}
+
+	@Test
+	@DisplayName("Concurrent random transfers conserve money and never overdraw")
+	void concurrentTransfersConserveMoney() throws Exception {
+		AtomicInteger rejected = new AtomicInteger();
+
+		List<Future<?>> workers = runConcurrently(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				int from = random.nextInt(ACCOUNTS);
+				int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+				try {
+					repository.transfer("Id-" + from, "Id-" + to, BigDecimal.valueOf(1 + random.nextInt(300)));
+				} catch (InsufficientBalanceException e) {
+					rejected.incrementAndGet();
+				}
+			}
+		});
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ACCOUNTS; i++) {
+			BigDecimal balance = repository.getAccount("Id-" + i).getBalance();
+			assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+			assertThat(repository.peekAccount("Id-" + i).getBalance()).isEqualByComparingTo(balance);
+			total = total.add(balance);
+		}
+		assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+		assertThat(rejected.get()).isLessThan(THREADS * TRANSFERS_PER_THREAD);
+	}
+
+	@Test
+	@DisplayName("Opposite-direction transfers on the same pair do not deadlock")
+	void oppositeTransfersDoNotDeadlock() {
+		assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+			List<Future<?>> workers = runConcurrently(() -> {
+				boolean forward = ThreadLocalRandom.current().nextBoolean();
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					if (forward) {
+						repository.transfer("Id-0", "Id-1", BigDecimal.ONE);
+					} else {
+						repository.transfer("Id-1", "Id-0", BigDecimal.ONE);
+					}
+					forward = !forward;
+				}
+			});
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		});
+
+		assertThat(repository.getAccount("Id-0").getBalance().add(repository.getAccount("Id-1").getBalance()))
+				.isEqualByComparingTo("2000");
+	}
+
+	@Test
+	@DisplayName("Accounts created in bulk keep the first of every id and skip the rest as duplicates")
+	void createAccountsInBulk() {
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(4)
+				.expectedAccounts(64)
+				.hotAccounts(Collections.singletonList("Id-1"), 4)
+				.build();
+		repository.createAccount(new Account("Id-0", INITIAL_BALANCE));
+		List<Account> accounts = new ArrayList<>();
+		for (int i = 0; i < 2 * ACCOUNTS; i++) {
+			accounts.add(new Account("Id-" + i % ACCOUNTS, BigDecimal.valueOf(i)));
+		}
+		AccountImportSummary summary = new AccountImportSummary();
+
+		assertThat(repository.createAccounts(accounts, summary)).isEqualTo(ACCOUNTS - 1);
+		assertThat(summary.getDuplicates()).isEqualTo(ACCOUNTS + 1);
+		assertThat(repository.countAccounts()).isEqualTo(ACCOUNTS);
+		assertThat(repository.getAccount("Id-0").getBalance()).isEqualByComparingTo(INITIAL_BALANCE);
+		for (int i = 1; i < ACCOUNTS; i++) {
+			assertThat(repository.getAccount("Id-" + i).getBalance()).isEqualByComparingTo(BigDecimal.valueOf(i));
+		}
+	}
+
+	@Test
+	@DisplayName("Hot accounts conserve money under concurrent transfers from and to them")
+	void hotAccountsConserveMoney() throws Exception {
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(4)
+				.hotAccounts(Arrays.asList("Id-0", "Id-1"), 4)
+				.build();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			repository.createAccount(new Account("Id-" + i, INITIAL_BALANCE));
+		}
+
+		List<Future<?>> workers = runConcurrently(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				// Half of the transfers involve one of the hot accounts.
+				int from = random.nextBoolean() ? random.nextInt(2) : random.nextInt(ACCOUNTS);
+				int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+				repository.tryTransfer("Id-" + from, "Id-" + to, BigDecimal.valueOf(1 + random.nextInt(300)));
+			}
+		});
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ACCOUNTS; i++) {
+			BigDecimal balance = repository.getAccount("Id-" + i).getBalance();
+			assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+			assertThat(repository.peekAccount("Id-" + i).getBalance()).isEqualByComparingTo(balance);
+			total = total.add(balance);
+		}
+		assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+	}
+
+	@Test
+	@DisplayName("A hot account can be drained in one debit that borrows across its sub-balances")
+	void hotAccountBorrowsAcrossSubBalances() throws Exception {
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(4)
+				.hotAccounts(Collections.singletonList("Treasury"), 8)
+				.build();
+		repository.createAccount(new Account("Treasury", BigDecimal.ZERO));
+		for (int i = 0; i < ACCOUNTS; i++) {
+			repository.createAccount(new Account("Id-" + i, INITIAL_BALANCE));
+		}
+		List<Future<?>> workers = runConcurrently(() -> {
+			for (int i = 0; i < ACCOUNTS; i++) {
+				repository.transfer("Id-" + i, "Treasury", BigDecimal.ONE);
+			}
+		});
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+		BigDecimal credited = BigDecimal.valueOf(THREADS * ACCOUNTS);
+		assertThat(repository.getAccount("Treasury").getBalance()).isEqualByComparingTo(credited);
+
+		assertThat(repository.transferBatch(Collections.singletonList(Transfer.builder().accountFromId("Treasury")
+				.accountToId("Id-0").amount(BigDecimal.TEN).build()), BatchMode.ALL_OR_NOTHING).get(0).isCompleted())
+				.isTrue();
+		assertThat(repository.tryTransfer("Treasury", "Id-0", credited).getStatus())
+				.isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(repository.tryTransfer("Treasury", "Id-0", credited.subtract(BigDecimal.TEN)).isCompleted())
+				.isTrue();
+		assertThat(repository.getAccount("Treasury").getBalance()).isEqualByComparingTo("0");
+		assertThat(repository.getAccount("Id-0").getBalance())
+				.isEqualByComparingTo(INITIAL_BALANCE.subtract(BigDecimal.valueOf(THREADS)).add(credited));
+	}
+
+	@Test
+	@DisplayName("A consistent scan adds up to the same total while transfers run and after a clear")
+	void consistentScanTotal() throws Exception {
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(4)
+				.hotAccounts(Collections.singletonList("Id-0"), 4)
+				.build();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			repository.createAccount(new Account("Id-" + i, INITIAL_BALANCE));
+		}
+
+		Set<String> accountIds = new HashSet<>();
+		BigDecimal total = BigDecimal.ZERO;
+		try (AccountScan scan = repository.openScan(true)) {
+			List<Future<?>> workers = runConcurrently(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					int from = random.nextInt(ACCOUNTS);
+					int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+					repository.tryTransfer("Id-" + from, "Id-" + to, BigDecimal.valueOf(1 + random.nextInt(300)));
+				}
+			});
+			repository.createAccount(new Account("Id-new", INITIAL_BALANCE));
+			List<Account> page = scan.next(5);
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+			repository.clearAccounts();
+			for (; !page.isEmpty(); page = scan.next(5)) {
+				for (Account account : page) {
+					accountIds.add(account.getAccountId());
+					total = total.add(account.getBalance());
+				}
+			}
+		}
+
+		assertThat(accountIds).hasSize(ACCOUNTS).doesNotContain("Id-new");
+		assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+		try (AccountScan scan = repository.openScan(false)) {
+			assertThat(scan.next(5)).isEmpty();
+		}
+	}
+
+	@Test
+	@DisplayName("Transfers between currencies credit the amount converted at the published rates")
+	void transfersBetweenCurrencies() {
+		ExchangeRateTable exchangeRates = new ExchangeRateTable("EUR");
+		exchangeRates.publish(Map.of("USD", new BigDecimal("1.10"), "JPY", new BigDecimal("160")));
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(4)
+				.hotAccounts(Collections.singletonList("Usd"), 4)
+				.exchangeRates(exchangeRates)
+				.build();
+		repository.createAccount(new Account("Eur", INITIAL_BALANCE));
+		repository.createAccount(new Account("Eur2", INITIAL_BALANCE));
+		repository.createAccount(new Account("Usd", INITIAL_BALANCE, "USD"));
+		repository.createAccount(new Account("Jpy", BigDecimal.ZERO, "JPY"));
+		repository.createAccount(new Account("Gbp", INITIAL_BALANCE, "GBP"));
+
+		TransferResult result = repository.tryTransfer("Eur", "Usd", new BigDecimal("100"));
+		assertThat(result.isCompleted()).isTrue();
+		assertThat(result.getCredited()).isEqualTo(new BigDecimal("110.00"));
+		assertThat(repository.tryTransfer("Eur", "Eur2", BigDecimal.ONE).getCredited()).isNull();
+		assertThat(repository.getAccount("Eur").getBalance()).isEqualByComparingTo("899");
+		assertThat(repository.getAccount("Usd").getBalance()).isEqualByComparingTo("1110");
+		assertThat(repository.getAccount("Usd").getCurrency()).isEqualTo("USD");
+
+		// 1.00 USD is 145.4545 JPY, rounded to whole yen.
+		assertThat(repository.tryTransfer("Usd", "Jpy", BigDecimal.ONE).isCompleted()).isTrue();
+		assertThat(repository.getAccount("Jpy").getBalance()).isEqualTo(new BigDecimal("145"));
+
+		assertThat(repository.transferBatch(Collections.singletonList(Transfer.builder().accountFromId("Jpy")
+				.accountToId("Eur").amount(new BigDecimal("16")).build()), BatchMode.ALL_OR_NOTHING).get(0).isCompleted())
+				.isTrue();
+		assertThat(repository.getAccount("Eur").getBalance()).isEqualByComparingTo("899.10");
+
+		assertThat(repository.tryTransfer("Eur", "Jpy", new BigDecimal("0.001")).getStatus())
+				.isEqualTo(TransferStatus.INVALID_AMOUNT);
+		assertThat(repository.tryTransfer("Gbp", "Eur", BigDecimal.ONE).getStatus())
+				.isEqualTo(TransferStatus.NO_EXCHANGE_RATE);
+		assertThat(repository.getAccount("Gbp").getBalance()).isEqualByComparingTo(INITIAL_BALANCE);
+	}
+
+	@Test
+	@DisplayName("Once the journal fails, reads and changes fail until the accounts are recovered from it")
+	void journalFailureFailsClosed() {
+		FailingJournal journal = new FailingJournal();
+		repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(4)
+				.hotAccounts(Collections.singletonList("Hot"), 4)
+				.journal(journal)
+				.build();
+		repository.createAccount(new Account("Id-1", INITIAL_BALANCE));
+		repository.createAccount(new Account("Hot", INITIAL_BALANCE));
+		assertThat(repository.tryTransfer("Id-1", "Hot", BigDecimal.ONE).isCompleted()).isTrue();
+
+		journal.failing = true;
+		assertThrows(JournalException.class, () -> repository.tryTransfer("Hot", "Id-1", BigDecimal.TEN));
+		journal.failing = false;
+		assertThrows(IllegalStateException.class, () -> repository.getAccount("Id-1"));
+		assertThrows(IllegalStateException.class, () -> repository.tryTransfer("Id-1", "Hot", BigDecimal.ONE));
+		assertThrows(IllegalStateException.class, () -> repository.transferBatch(Collections.singletonList(
+				Transfer.builder().accountFromId("Id-1").accountToId("Hot").amount(BigDecimal.ONE).build()),
+				BatchMode.ALL_OR_NOTHING));
+		assertThrows(IllegalStateException.class, () -> repository.createAccount(new Account("Id-2", BigDecimal.ONE)));
+		assertThrows(IllegalStateException.class, () -> repository.tryHold("Id-1", BigDecimal.ONE));
+		assertThrows(IllegalStateException.class, repository::countAccounts);
+		assertThat(journal.transfers).isEqualTo(1);
+	}
+
+	private List<Future<?>> runConcurrently(Runnable task) throws InterruptedException {
+		ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executorService.submit(() -> {
+				start.await();
+				task.run();
+				return null;
+			}));
+		}
+		start.countDown();
+		executorService.shutdown();
+		return futures;
+	}
+}
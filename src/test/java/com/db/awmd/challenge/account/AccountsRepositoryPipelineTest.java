@@ -0,0 +1,155 @@
+package com.db.awmd.challenge.account;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryPipeline;
+import com.db.awmd.challenge.journal.AccountsJournal;
+import com.db.awmd.challenge.journal.JournalException;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+
+class AccountsRepositoryPipelineTest {
+
+	private static final int ACCOUNTS = 16;
+
+	private AccountsRepositoryPipeline repository;
+
+	@BeforeEach
+	void createAccounts() {
+		// A small ring, so publishers wait for the slowest stage to free slots.
+		this.repository = new AccountsRepositoryPipeline(64, AccountsJournal.NONE);
+		for (int i = 0; i < ACCOUNTS; i++) {
+			repository.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+		}
+	}
+
+	@AfterEach
+	void stopPipeline() {
+		repository.destroy();
+	}
+
+	@Test
+	@DisplayName("Concurrent synchronous and asynchronous transfers conserve money")
+	void concurrentTransfersConserveMoney() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			boolean async = t % 2 == 0;
+			executorService.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+				for (int i = 0; i < 5_000; i++) {
+					int from = random.nextInt(ACCOUNTS);
+					int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+					BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(300));
+					if (async) {
+						futures.add(repository.tryTransferAsync("Id-" + from, "Id-" + to, amount));
+					} else {
+						repository.tryTransfer("Id-" + from, "Id-" + to, amount);
+					}
+				}
+				futures.forEach(CompletableFuture::join);
+			});
+		}
+		executorService.shutdown();
+		assertThat(executorService.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ACCOUNTS; i++) {
+			BigDecimal balance = repository.getAccount("Id-" + i).getBalance();
+			assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+			total = total.add(balance);
+		}
+		assertThat(total).isEqualByComparingTo(new BigDecimal(1000 * ACCOUNTS));
+	}
+
+	@Test
+	@DisplayName("Rejections and failures reach the caller")
+	void rejectionsReachCaller() {
+		assertThrows(DuplicateAccountIdException.class,
+				() -> repository.createAccount(new Account("Id-0", BigDecimal.ONE)));
+		assertThat(repository.tryTransferAsync("Id-0", "Id-1", new BigDecimal("1000.01")).join().getStatus())
+				.isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(repository.tryTransferAsync("Id-0", "Missing", BigDecimal.ONE).join().getStatus())
+				.isEqualTo(TransferStatus.ACCOUNT_NOT_FOUND);
+
+		repository.clearAccounts();
+		assertThat(repository.countAccounts()).isZero();
+	}
+
+	@Test
+	@DisplayName("Stopping fails the changes in flight and releases publishers waiting for a slot")
+	void stopDuringTransfers() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		List<Future<?>> publishers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			publishers.add(executorService.submit(() -> {
+				List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+				try {
+					while (true) {
+						futures.add(repository.tryTransferAsync("Id-0", "Id-1", BigDecimal.ONE));
+					}
+				} catch (IllegalStateException e) {
+					// Stopped.
+				}
+				for (CompletableFuture<TransferResult> future : futures) {
+					try {
+						future.join();
+					} catch (CompletionException e) {
+						assertThat(e).hasCauseInstanceOf(IllegalStateException.class);
+					}
+				}
+			}));
+		}
+		Thread.sleep(50);
+		repository.destroy();
+		for (Future<?> publisher : publishers) {
+			publisher.get(10, TimeUnit.SECONDS);
+		}
+		executorService.shutdown();
+
+		assertThrows(IllegalStateException.class, () -> repository.tryTransferAsync("Id-0", "Id-1", BigDecimal.ONE));
+		assertThrows(IllegalStateException.class, () -> repository.createAccount(new Account("Id-new", BigDecimal.ONE)));
+	}
+
+	@Test
+	@DisplayName("Once the journal fails, reads and changes fail until the accounts are recovered from it")
+	void journalFailureFailsClosed() {
+		FailingJournal journal = new FailingJournal();
+		AccountsRepositoryPipeline failing = new AccountsRepositoryPipeline(64, journal);
+		try {
+			failing.createAccount(new Account("Id-1", new BigDecimal("100")));
+			failing.createAccount(new Account("Id-2", new BigDecimal("100")));
+			assertThat(failing.tryTransfer("Id-1", "Id-2", BigDecimal.ONE).isCompleted()).isTrue();
+
+			journal.failing = true;
+			assertThrows(JournalException.class, () -> failing.tryTransfer("Id-1", "Id-2", BigDecimal.TEN));
+			journal.failing = false;
+			assertThrows(IllegalStateException.class, () -> failing.getAccount("Id-1"));
+			assertThrows(IllegalStateException.class, () -> failing.tryTransfer("Id-2", "Id-1", BigDecimal.ONE));
+			assertThrows(IllegalStateException.class, () -> failing.createAccount(new Account("Id-3", BigDecimal.ONE)));
+			assertThat(journal.transfers).isEqualTo(1);
+		} finally {
+			failing.destroy();
+		}
+	}
+
+}
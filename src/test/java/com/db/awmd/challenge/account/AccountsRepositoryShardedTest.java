@@ -0,0 +1,87 @@
+package com.db.awmd.challenge.account;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositorySharded;
+
+class AccountsRepositoryShardedTest {
+
+	private static final int ACCOUNTS = 32;
+
+	private AccountsRepositorySharded repository;
+
+	@BeforeEach
+	void createAccounts() {
+		this.repository = new AccountsRepositorySharded(4);
+		for (int i = 0; i < ACCOUNTS; i++) {
+			repository.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+		}
+	}
+
+	@AfterEach
+	void stopShards() {
+		repository.destroy();
+	}
+
+	@Test
+	@DisplayName("Concurrent same-shard and cross-shard transfers conserve money")
+	void concurrentTransfersConserveMoney() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			executorService.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < 5_000; i++) {
+					int from = random.nextInt(ACCOUNTS);
+					int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+					try {
+						repository.transfer("Id-" + from, "Id-" + to, BigDecimal.valueOf(1 + random.nextInt(300)));
+					} catch (InsufficientBalanceException e) {
+						// Expected under contention.
+					}
+				}
+			});
+		}
+		executorService.shutdown();
+		assertThat(executorService.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ACCOUNTS; i++) {
+			BigDecimal balance = repository.getAccount("Id-" + i).getBalance();
+			assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+			total = total.add(balance);
+		}
+		assertThat(total).isEqualByComparingTo(new BigDecimal(1000 * ACCOUNTS));
+	}
+
+	@Test
+	@DisplayName("Missing destination releases the reserved amount")
+	void missingDestinationReleasesReservation() {
+		assertThrows(AccountNotFoundException.class,
+				() -> repository.transfer("Id-0", "Missing", BigDecimal.TEN));
+
+		assertThat(repository.getAccount("Id-0").getBalance()).isEqualByComparingTo("1000");
+	}
+
+	@Test
+	@DisplayName("A shard count below one is rejected")
+	void invalidShards() {
+		assertThrows(IllegalArgumentException.class, () -> new AccountsRepositorySharded(0));
+		assertThrows(IllegalArgumentException.class, () -> new AccountsRepositorySharded(-1));
+	}
+
+}
@@ -4,8 +4,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 import java.math.BigDecimal;
 import java.util.concurrent.ExecutorService;
@@ -25,6 +28,8 @@ import com.db.awmd.challenge.account.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
 import com.db.awmd.challenge.account.service.AccountsService;
 import com.db.awmd.challenge.notification.NotificationService;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
 import com.db.awmd.challenge.transfer.exception.InvalidTransferAmountException;
 import com.db.awmd.challenge.transfer.exception.SameAccountTransferException;
 import com.db.awmd.challenge.transfer.exception.TransferException;
@@ -122,6 +127,27 @@ class AccountsServiceTest {
 		assertThrows(InsufficientBalanceException.class, () -> accountsService.transfer("Id-1123", "Id-212", amount));
 	}
 
+	@Test
+	@DisplayName("Rejected transfers are returned as results")
+	void tryTransferRejected() {
+		accountsService.createAccount(new Account("Id-31", new BigDecimal("10")));
+		accountsService.createAccount(new Account("Id-32", new BigDecimal("0")));
+
+		TransferResult insufficient = accountsService.tryTransfer("Id-31", "Id-32", new BigDecimal("11"));
+		assertThat(insufficient.getStatus()).isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(insufficient.getMessage()).isEqualTo("Account Id-31 has insufficient balance");
+		assertThat(accountsService.tryTransfer("Id-31", "Id-33", BigDecimal.ONE).getStatus())
+				.isEqualTo(TransferStatus.ACCOUNT_NOT_FOUND);
+		assertThat(accountsService.tryTransfer("Id-31", "Id-31", BigDecimal.ONE).getStatus())
+				.isEqualTo(TransferStatus.SAME_ACCOUNT);
+		assertThat(accountsService.tryTransfer("Id-31", "Id-32", BigDecimal.ZERO).getStatus())
+				.isEqualTo(TransferStatus.INVALID_AMOUNT);
+		verifyNoInteractions(notificationService);
+
+		assertThat(accountsService.tryTransfer("Id-31", "Id-32", new BigDecimal("10")).isCompleted()).isTrue();
+		assertThat(accountsService.getAccount("Id-32").getBalance()).isEqualByComparingTo("10");
+	}
+
 	@Test
 	@DisplayName("Successful transfer")
 	void transferSuccess() throws TransferException {
@@ -207,9 +233,11 @@ class AccountsServiceTest {
 		accountsService.transfer(accountFromId, accountToId, amount);
 
 		// Assert
-		verify(notificationService, times(1)).notifyAboutTransfer(accountFrom,
-				"Transfer completed - Sent 100.00 to accountTo");
-		verify(notificationService, times(1)).notifyAboutTransfer(accountTo,
-				"Transfer completed - Received 100.00 from accountFrom");
+		verify(notificationService, times(1)).notifyAboutTransfer(eq(accountFromId),
+				argThat(accounts -> accountFrom.equals(accounts.apply(accountFromId))),
+				eq("Transfer completed - Sent 100.00 to accountTo"));
+		verify(notificationService, times(1)).notifyAboutTransfer(eq(accountToId),
+				argThat(accounts -> accountTo.equals(accounts.apply(accountToId))),
+				eq("Transfer completed - Received 100.00 from accountFrom"));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.db.awmd.challenge.account;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import com.db.awmd.challenge.journal.AccountsJournal;
+import com.db.awmd.challenge.journal.JournalException;
+import com.db.awmd.challenge.journal.JournalRecordHandler;
+import com.db.awmd.challenge.journal.SnapshotWriter;
+
+/**
+ * Journal that records nothing but counts the transfers it accepts, and fails appends while
+ * {@code failing} is set.
+ */
+class FailingJournal implements AccountsJournal {
+
+	volatile boolean failing;
+
+	volatile int transfers;
+
+	@Override
+	public long appendAccountCreated(String accountId, BigDecimal balance) {
+		return append();
+	}
+
+	@Override
+	public long appendAccountCreated(String accountId, BigDecimal balance, String currency) {
+		return append();
+	}
+
+	@Override
+	public long appendTransfer(String accountFromId, String accountToId, BigDecimal amount) {
+		long sequence = append();
+		transfers++;
+		return sequence;
+	}
+
+	@Override
+	public long appendExchange(String accountFromId, String accountToId, BigDecimal debited,
+			BigDecimal credited) {
+		return append();
+	}
+
+	@Override
+	public long appendAccountsCleared() {
+		return append();
+	}
+
+	private long append() {
+		if (failing) {
+			throw new JournalException("Journal write failed");
+		}
+		return 0;
+	}
+
+	@Override
+	public long lastSequence() {
+		return 0;
+	}
+
+	@Override
+	public void awaitDurable(long sequence) {
+	}
+
+	@Override
+	public void writeSnapshot(long sequence, Consumer<SnapshotWriter> contents) {
+	}
+
+	@Override
+	public long replay(JournalRecordHandler handler) {
+		return 0;
+	}
+
+}
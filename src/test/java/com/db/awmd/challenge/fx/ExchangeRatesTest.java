@@ -0,0 +1,144 @@
+package com.db.awmd.challenge.fx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExchangeRatesTest {
+
+	private final ExchangeRates rates = ExchangeRates.of("EUR", Map.of("USD", new BigDecimal("1.10"), "JPY",
+			new BigDecimal("160"), "BHD", new BigDecimal("0.41")));
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Cross rates are derived from the rates against the base currency")
+	void crossRates() {
+		assertThat(rates.convert(new BigDecimal("100"), "EUR", "USD")).isEqualByComparingTo("110.00");
+		assertThat(rates.convert(new BigDecimal("110"), "USD", "EUR")).isEqualByComparingTo("100.00");
+		// 160 / 1.10 JPY per USD, and 0.41 / 1.10 BHD per USD.
+		assertThat(rates.convert(new BigDecimal("100"), "USD", "JPY")).isEqualByComparingTo("14545");
+		assertThat(rates.convert(new BigDecimal("100"), "USD", "BHD")).isEqualByComparingTo("37.273");
+		assertThat(rates.convert(new BigDecimal("1000"), "JPY", "EUR")).isEqualByComparingTo("6.25");
+		assertThat(rates.getRates()).containsOnlyKeys("BHD", "EUR", "JPY", "USD");
+	}
+
+	@Test
+	@DisplayName("Conversions round half-even to the minor unit of the target currency")
+	void rounding() {
+		assertThat(rates.convert(new BigDecimal("1"), "EUR", "JPY").scale()).isZero();
+		assertThat(rates.convert(new BigDecimal("1"), "EUR", "BHD").scale()).isEqualTo(3);
+		assertThat(rates.convert(new BigDecimal("1"), "JPY", "USD").scale()).isEqualTo(2);
+
+		ExchangeRates hundred = ExchangeRates.of("EUR", Map.of("JPY", new BigDecimal("100"), "BHD",
+				new BigDecimal("10")));
+		assertThat(hundred.convert(new BigDecimal("0.125"), "EUR", "JPY")).isEqualTo("12");
+		assertThat(hundred.convert(new BigDecimal("0.135"), "EUR", "JPY")).isEqualTo("14");
+		assertThat(hundred.convert(new BigDecimal("0.00025"), "EUR", "BHD")).isEqualTo("0.002");
+		assertThat(hundred.convert(new BigDecimal("0.00035"), "EUR", "BHD")).isEqualTo("0.004");
+	}
+
+	@Test
+	@DisplayName("The base currency stands in for null, and same-currency amounts are kept as they are")
+	void baseCurrency() {
+		BigDecimal amount = new BigDecimal("12.345");
+		assertThat(rates.getBaseCurrency()).isEqualTo("EUR");
+		assertThat(rates.currencyOf(null)).isEqualTo("EUR");
+		assertThat(rates.convert(amount, null, "EUR")).isSameAs(amount);
+		assertThat(rates.convert(amount, "USD", "USD")).isSameAs(amount);
+		assertThat(rates.convert(new BigDecimal("100"), null, "USD")).isEqualByComparingTo("110.00");
+		assertThat(ExchangeRates.of("USD", Map.of()).getRates()).containsExactly(Map.entry("USD", BigDecimal.ONE));
+	}
+
+	@Test
+	@DisplayName("Pairs without a rate convert to null, and invalid currencies or rates are rejected")
+	void missingAndInvalidRates() {
+		assertThat(rates.convert(BigDecimal.ONE, "EUR", "GBP")).isNull();
+		assertThat(rates.convert(BigDecimal.ONE, "GBP", "USD")).isNull();
+		assertThat(rates.convert(BigDecimal.ONE, "usd", "EUR")).isNull();
+
+		assertThatThrownBy(() -> ExchangeRates.of("EUR", Map.of("USD", BigDecimal.ZERO)))
+				.isInstanceOf(IllegalArgumentException.class).hasMessage("Rate of USD must be greater than zero");
+		assertThatThrownBy(() -> ExchangeRates.of("EUR", Map.of("EUR", new BigDecimal("2"))))
+				.isInstanceOf(IllegalArgumentException.class).hasMessage("Rate of the base currency EUR must be 1");
+		assertThatThrownBy(() -> ExchangeRates.of("EUR", Map.of("usd", BigDecimal.ONE)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ExchangeRates.of("EUR", Map.of("XYZ", BigDecimal.ONE)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	@DisplayName("A failed publish keeps the rates in effect")
+	void publish() {
+		ExchangeRateTable table = new ExchangeRateTable("EUR");
+		assertThat(table.current().convert(BigDecimal.ONE, "EUR", "USD")).isNull();
+		table.publish(Map.of("USD", new BigDecimal("1.10")));
+		assertThatThrownBy(() -> table.publish(Map.of("USD", new BigDecimal("-1"))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(table.current().convert(BigDecimal.ONE, "EUR", "USD")).isEqualByComparingTo("1.10");
+	}
+
+	@Test
+	@DisplayName("The rates file is reloaded when modified, and a file that fails to load keeps the rates in effect")
+	void fileReload() throws Exception {
+		Path file = directory.resolve("rates.properties");
+		write(file, "USD=1.10\nJPY=160\n", 1);
+		FxProperties properties = new FxProperties();
+		properties.setRatesFile(file);
+		properties.setReloadInterval(Duration.ofMillis(10));
+		ExchangeRateTable table = new ExchangeRateTable("EUR");
+		ExchangeRateFileLoader loader = new ExchangeRateFileLoader(table, properties);
+		try {
+			assertThat(table.current().getRates()).containsOnlyKeys("EUR", "JPY", "USD");
+
+			write(file, "USD=1.20\nGBP=0.85\n", 2);
+			awaitRate(table, "GBP", "0.85");
+			assertThat(table.current().getRates()).containsOnlyKeys("EUR", "GBP", "USD");
+			assertThat(table.current().convert(new BigDecimal("100"), "EUR", "USD")).isEqualByComparingTo("120.00");
+
+			write(file, "USD=one\n", 3);
+			Thread.sleep(100);
+			assertThat(table.current().getRates()).containsOnlyKeys("EUR", "GBP", "USD");
+
+			write(file, "USD=1.30\n", 4);
+			awaitRate(table, "USD", "1.30");
+		} finally {
+			loader.destroy();
+		}
+
+		Files.delete(file);
+		assertThatThrownBy(() -> new ExchangeRateFileLoader(table, properties)).hasMessageContaining("rates.properties");
+	}
+
+	/**
+	 * Writes the file with a distinct modification time, as writes within the file system's time
+	 * resolution may otherwise keep it.
+	 */
+	private static void write(Path file, String contents, int version) throws Exception {
+		Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, FileTime.from(version, TimeUnit.HOURS));
+	}
+
+	private static void awaitRate(ExchangeRateTable table, String currency, String rate) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!new BigDecimal(rate).equals(table.current().getRates().get(currency))
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(table.current().getRates()).containsEntry(currency, new BigDecimal(rate));
+	}
+
+}
@@ -0,0 +1,374 @@
+package com.db.awmd.challenge.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+
+class FileAccountsJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Records are replayed in order after reopening")
+	void replaysRecordsInOrder() throws IOException {
+		try (FileAccountsJournal journal = open()) {
+			journal.replay(new RecordingHandler());
+			journal.appendAccountCreated("Id-1", new BigDecimal("100.50"));
+			journal.appendAccountCreated("Id-2", BigDecimal.ZERO);
+			journal.awaitDurable(journal.appendTransfer("Id-1", "Id-2", new BigDecimal("0.25")));
+		}
+
+		RecordingHandler handler = new RecordingHandler();
+		try (FileAccountsJournal journal = open()) {
+			assertThat(journal.replay(handler)).isEqualTo(3);
+		}
+		assertThat(handler.records).containsExactly("1 created Id-1 100.50", "2 created Id-2 0",
+				"3 transferred Id-1 Id-2 0.25");
+	}
+
+	@Test
+	@DisplayName("A torn record at the end is discarded and appends continue after it")
+	void discardsTornTail() throws IOException {
+		try (FileAccountsJournal journal = open()) {
+			journal.replay(new RecordingHandler());
+			journal.appendAccountCreated("Id-1", BigDecimal.TEN);
+			journal.awaitDurable(journal.appendTransfer("Id-1", "Id-2", BigDecimal.ONE));
+		}
+		Path file = directory.resolve(FileAccountsJournal.segmentName(1));
+		long intact = Files.size(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.setLength(intact - 3);
+		}
+
+		try (FileAccountsJournal journal = open()) {
+			assertThat(journal.replay(new RecordingHandler())).isEqualTo(1);
+			assertThat(journal.appendAccountsCleared()).isEqualTo(2);
+			journal.awaitDurable(2);
+		}
+
+		RecordingHandler handler = new RecordingHandler();
+		try (FileAccountsJournal journal = open()) {
+			journal.replay(handler);
+		}
+		assertThat(handler.records).containsExactly("1 created Id-1 10", "2 cleared");
+	}
+
+	@Test
+	@DisplayName("Replay stops at a record whose checksum does not match")
+	void stopsAtCorruptRecord() throws IOException {
+		long firstRecordEnd;
+		try (FileAccountsJournal journal = open()) {
+			journal.replay(new RecordingHandler());
+			journal.awaitDurable(journal.appendAccountCreated("Id-1", BigDecimal.TEN));
+			firstRecordEnd = Files.size(directory.resolve(FileAccountsJournal.segmentName(1)));
+			journal.appendAccountCreated("Id-2", BigDecimal.TEN);
+			journal.awaitDurable(journal.appendAccountCreated("Id-3", BigDecimal.TEN));
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(directory.resolve(FileAccountsJournal.segmentName(1)).toFile(), "rw")) {
+			long position = firstRecordEnd + FileAccountsJournal.HEADER_BYTES + 12;
+			raf.seek(position);
+			int value = raf.read();
+			raf.seek(position);
+			raf.write(value ^ 0xff);
+		}
+
+		RecordingHandler handler = new RecordingHandler();
+		try (FileAccountsJournal journal = open()) {
+			assertThat(journal.replay(handler)).isEqualTo(1);
+		}
+		assertThat(handler.records).containsExactly("1 created Id-1 10");
+		assertThat(Files.size(directory.resolve(FileAccountsJournal.segmentName(1)))).isEqualTo(firstRecordEnd);
+	}
+
+	@Test
+	@DisplayName("A zero-filled tail left by a crash is discarded")
+	void discardsZeroFilledTail() throws IOException {
+		try (FileAccountsJournal journal = open()) {
+			journal.replay(new RecordingHandler());
+			journal.awaitDurable(journal.appendAccountCreated("Id-1", BigDecimal.TEN));
+		}
+		Path file = directory.resolve(FileAccountsJournal.segmentName(1));
+		Files.write(file, new byte[4096], StandardOpenOption.APPEND);
+
+		try (FileAccountsJournal journal = open()) {
+			assertThat(journal.replay(new RecordingHandler())).isEqualTo(1);
+		}
+	}
+
+	@Test
+	@DisplayName("The repository recovers its balances from the journal")
+	void repositoryRecoversBalances() throws IOException {
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			repository.createAccount(new Account("Id-1", new BigDecimal("100")));
+			repository.createAccount(new Account("Id-2", new BigDecimal("50")));
+			for (int i = 0; i < 10; i++) {
+				repository.transfer("Id-1", "Id-2", new BigDecimal("1.5"));
+			}
+		}
+
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("85");
+			assertThat(repository.getAccount("Id-2").getBalance()).isEqualByComparingTo("65");
+
+			repository.clearAccounts();
+		}
+
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			repository.createAccount(new Account("Id-1", BigDecimal.ONE));
+		}
+	}
+
+	@Test
+	@DisplayName("Transfers racing a clear are either journaled before it or not applied, so replay succeeds")
+	void clearDuringTransfersRecovers() throws Exception {
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			AtomicBoolean running = new AtomicBoolean(true);
+			ExecutorService executorService = Executors.newFixedThreadPool(2);
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < 2; t++) {
+				workers.add(executorService.submit(() -> {
+					while (running.get()) {
+						repository.tryTransfer("Id-1", "Id-2", BigDecimal.ONE);
+					}
+				}));
+			}
+			for (int i = 0; i < 200; i++) {
+				repository.createAccount(new Account("Id-1", new BigDecimal("1000")));
+				repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+				repository.clearAccounts();
+			}
+			running.set(false);
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+			executorService.shutdown();
+		}
+
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			assertThat(repository.countAccounts()).isZero();
+		}
+	}
+
+	@Test
+	@DisplayName("Replaying a transfer with an account that does not exist fails with a journal error")
+	void replayOfUnknownAccountFails() throws IOException {
+		try (FileAccountsJournal journal = open()) {
+			journal.replay(new RecordingHandler());
+			journal.appendAccountCreated("Id-1", BigDecimal.TEN);
+			journal.appendAccountsCleared();
+			journal.awaitDurable(journal.appendTransfer("Id-1", "Id-2", BigDecimal.ONE));
+		}
+
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			assertThatThrownBy(repository::recover).isInstanceOf(JournalException.class)
+					.hasMessageContaining("Journal record 3");
+		}
+	}
+
+	@Test
+	@DisplayName("A snapshot replaces the segments it covers and restores the same balances")
+	void snapshotCompactsSegments() throws IOException {
+		Map<String, BigDecimal> balances = new HashMap<>();
+		try (FileAccountsJournal journal = open(256)) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			for (int i = 0; i < 10; i++) {
+				repository.createAccount(new Account("Id-" + i, new BigDecimal("100")));
+			}
+			for (int i = 0; i < 100; i++) {
+				repository.transfer("Id-" + (i % 10), "Id-" + ((i + 3) % 10), new BigDecimal("7.25"));
+			}
+			assertThat(repository.snapshot()).isEqualTo(110);
+			for (int i = 0; i < 20; i++) {
+				repository.transfer("Id-" + (i % 10), "Id-" + ((i + 1) % 10), BigDecimal.ONE);
+			}
+			for (int i = 0; i < 10; i++) {
+				balances.put("Id-" + i, repository.getAccount("Id-" + i).getBalance());
+			}
+		}
+		assertThat(directory.resolve(SnapshotFile.name(110))).exists();
+		assertThat(directory.resolve(FileAccountsJournal.segmentName(1))).doesNotExist();
+
+		RecordingHandler handler = new RecordingHandler();
+		try (FileAccountsJournal journal = open(256)) {
+			assertThat(journal.replay(handler)).isEqualTo(30);
+		}
+		assertThat(handler.records.get(0)).startsWith("110 created ");
+
+		try (FileAccountsJournal journal = open(256)) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			balances.forEach((accountId, balance) ->
+					assertThat(repository.getAccount(accountId).getBalance()).isEqualByComparingTo(balance));
+			repository.transfer("Id-0", "Id-1", BigDecimal.ONE);
+		}
+	}
+
+	@Test
+	@DisplayName("Accounts in a currency and exchanges between them are recovered from records and snapshots")
+	void recoversCurrenciesAndExchanges() throws IOException {
+		ExchangeRateTable exchangeRates = new ExchangeRateTable("EUR");
+		exchangeRates.publish(Map.of("USD", new BigDecimal("1.25")));
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = AccountsRepositoryInMemory.builder()
+					.lockStripes(16)
+					.journal(journal)
+					.exchangeRates(exchangeRates)
+					.build();
+			repository.recover();
+			repository.createAccount(new Account("Eur", new BigDecimal("100")));
+			repository.createAccount(new Account("Usd", new BigDecimal("100"), "USD"));
+			repository.transfer("Eur", "Usd", new BigDecimal("10"));
+			repository.snapshot();
+			repository.transfer("Usd", "Eur", new BigDecimal("5"));
+		}
+
+		// Recovery replays the amounts credited, whatever the rates are now.
+		exchangeRates.publish(Map.of("USD", new BigDecimal("2")));
+		try (FileAccountsJournal journal = open()) {
+			AccountsRepositoryInMemory repository = AccountsRepositoryInMemory.builder()
+					.lockStripes(16)
+					.journal(journal)
+					.exchangeRates(exchangeRates)
+					.build();
+			repository.recover();
+			assertThat(repository.getAccount("Eur").getBalance()).isEqualByComparingTo("94");
+			assertThat(repository.getAccount("Eur").getCurrency()).isNull();
+			assertThat(repository.getAccount("Usd").getBalance()).isEqualByComparingTo("107.50");
+			assertThat(repository.getAccount("Usd").getCurrency()).isEqualTo("USD");
+		}
+	}
+
+	@Test
+	@DisplayName("Snapshots taken during concurrent transfers hold a consistent cut")
+	void snapshotDuringTransfersIsConsistent() throws Exception {
+		int accounts = 64;
+		BigDecimal total = new BigDecimal("1000").multiply(BigDecimal.valueOf(accounts));
+		try (FileAccountsJournal journal = open(4096)) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			for (int i = 0; i < accounts; i++) {
+				repository.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+			}
+
+			AtomicBoolean running = new AtomicBoolean(true);
+			ExecutorService executorService = Executors.newFixedThreadPool(4);
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				workers.add(executorService.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (running.get()) {
+						int from = random.nextInt(accounts);
+						int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+						try {
+							repository.transfer("Id-" + from, "Id-" + to, BigDecimal.valueOf(1 + random.nextInt(50)));
+						} catch (InsufficientBalanceException e) {
+							// Expected now and then.
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < 20; i++) {
+				long sequence = repository.snapshot();
+				BigDecimal[] snapshotTotal = { BigDecimal.ZERO };
+				long snapshotAccounts = SnapshotFile.read(directory.resolve(SnapshotFile.name(sequence)),
+						new RecordingHandler() {
+
+							@Override
+							public void accountCreated(long sequence, String accountId, BigDecimal balance) {
+								snapshotTotal[0] = snapshotTotal[0].add(balance);
+							}
+
+						});
+				assertThat(snapshotAccounts).isEqualTo(accounts);
+				assertThat(snapshotTotal[0]).isEqualByComparingTo(total);
+			}
+			running.set(false);
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+			executorService.shutdown();
+		}
+
+		try (FileAccountsJournal journal = open(4096)) {
+			AccountsRepositoryInMemory repository = repository(journal);
+			repository.recover();
+			BigDecimal recovered = BigDecimal.ZERO;
+			for (int i = 0; i < accounts; i++) {
+				recovered = recovered.add(repository.getAccount("Id-" + i).getBalance());
+			}
+			assertThat(recovered).isEqualByComparingTo(total);
+		}
+	}
+
+	private static AccountsRepositoryInMemory repository(AccountsJournal journal) {
+		return AccountsRepositoryInMemory.builder().lockStripes(16).journal(journal).build();
+	}
+
+	private FileAccountsJournal open(long segmentBytes) throws IOException {
+		return new FileAccountsJournal(directory, false, Duration.ZERO, 1024, segmentBytes);
+	}
+
+	private FileAccountsJournal open() throws IOException {
+		return new FileAccountsJournal(directory, false, Duration.ZERO, 1024);
+	}
+
+	private static class RecordingHandler implements JournalRecordHandler {
+
+		private final List<String> records = new ArrayList<>();
+
+		@Override
+		public void accountCreated(long sequence, String accountId, BigDecimal balance) {
+			records.add(sequence + " created " + accountId + " " + balance);
+		}
+
+		@Override
+		public void transferred(long sequence, String accountFromId, String accountToId, BigDecimal amount) {
+			records.add(sequence + " transferred " + accountFromId + " " + accountToId + " " + amount);
+		}
+
+		@Override
+		public void accountsCleared(long sequence) {
+			records.add(sequence + " cleared");
+		}
+
+	}
+
+}
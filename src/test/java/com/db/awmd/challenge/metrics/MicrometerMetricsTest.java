@@ -0,0 +1,112 @@
+package com.db.awmd.challenge.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.notification.AsyncNotificationService;
+import com.db.awmd.challenge.notification.NotificationDispatchProperties;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MicrometerMetricsTest {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private AccountsService accountsService;
+
+	@BeforeEach
+	void createService() {
+		AccountsRepositoryInMemory repository = AccountsRepositoryInMemory.builder()
+				.lockStripes(16)
+				.lockMetrics(new MicrometerLockMetrics(registry, 16))
+				.build();
+		accountsService = AccountsService.builder(repository, (account, message) -> {
+		}).transferMetrics(new MicrometerTransferMetrics(registry)).build();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+	}
+
+	@Test
+	@DisplayName("Transfers are timed by outcome and exception")
+	void transferOutcomes() {
+		accountsService.transfer("Id-1", "Id-2", BigDecimal.TEN);
+		accountsService.transfer("Id-1", "Id-2", BigDecimal.TEN);
+		assertThatThrownBy(() -> accountsService.transfer("Id-2", "Id-1", new BigDecimal("50")))
+				.isInstanceOf(InsufficientBalanceException.class);
+		assertThatThrownBy(() -> accountsService.transfer("Id-1", "Id-3", BigDecimal.TEN))
+				.isInstanceOf(AccountNotFoundException.class);
+
+		assertThat(transfers("COMPLETED", "None")).isEqualTo(2);
+		assertThat(transfers("INSUFFICIENT_BALANCE", "InsufficientBalanceException")).isEqualTo(1);
+		assertThat(transfers("ACCOUNT_NOT_FOUND", "AccountNotFoundException")).isEqualTo(1);
+		assertThat(transfers("SAME_ACCOUNT", "SameAccountTransferException")).isZero();
+		assertThat(transfers("NOT_APPLIED", "None")).isZero();
+		// Two account creations and the three transfers that reached the locks.
+		assertThat(registry.get("accounts.lock.hold").functionTimer().count()).isEqualTo(5);
+	}
+
+	@Test
+	@DisplayName("Batch transfers are counted by outcome")
+	void batchOutcomes() {
+		accountsService.transferBatch(Arrays.asList(transfer("Id-1", "Id-2", "60"), transfer("Id-1", "Id-2", "60")),
+				BatchMode.BEST_EFFORT);
+
+		assertThat(registry.get("accounts.transfer.batch").tag("outcome", "COMPLETED").counter().count()).isEqualTo(1);
+		assertThat(registry.get("accounts.transfer.batch").tag("outcome", "INSUFFICIENT_BALANCE").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Unexpected failures are timed under their own exception type")
+	void unexpectedFailure() {
+		MicrometerTransferMetrics metrics = new MicrometerTransferMetrics(registry);
+		metrics.failed(new IllegalStateException(), metrics.startTime());
+
+		assertThat(transfers("ERROR", "IllegalStateException")).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Asynchronous notifications export their queue depth, outcomes and drain times")
+	void notifications() throws Exception {
+		AsyncNotificationService notifications = new AsyncNotificationService((account, description) -> {
+			if (account.getAccountId().equals("Id-2")) {
+				throw new IllegalStateException("Mail server unavailable");
+			}
+		}, new NotificationDispatchProperties());
+		MetricsConfiguration.bindNotificationMetrics(notifications, registry);
+		accountsService = AccountsService.builder(accountsService.getAccountsRepository(), notifications).build();
+
+		accountsService.transfer("Id-1", "Id-2", BigDecimal.TEN);
+		notifications.destroy();
+
+		assertThat(registry.get("notifications").tag("outcome", "delivered").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("notifications").tag("outcome", "failed").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get("notifications.queue.depth").gauge().value()).isZero();
+		assertThat(registry.get("notifications.drain").functionTimer().count()).isPositive();
+		assertThat(registry.get("notifications.drain.last").timeGauge().value()).isPositive();
+	}
+
+	private long transfers(String outcome, String exception) {
+		return registry.get("accounts.transfer").tag("outcome", outcome).tag("exception", exception).timer().count();
+	}
+
+	private static Transfer transfer(String from, String to, String amount) {
+		return Transfer.builder().accountFromId(from).accountToId(to).amount(new BigDecimal(amount)).build();
+	}
+
+}
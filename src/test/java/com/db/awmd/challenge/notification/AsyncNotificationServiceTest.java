@@ -0,0 +1,153 @@
+package com.db.awmd.challenge.notification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+
+class AsyncNotificationServiceTest {
+
+	private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private AsyncNotificationService notificationService;
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		release.countDown();
+		notificationService.destroy();
+	}
+
+	@Test
+	@DisplayName("Notifications are delivered off the caller's thread")
+	void deliversAsynchronously() throws Exception {
+		String caller = Thread.currentThread().getName();
+		List<String> threads = new CopyOnWriteArrayList<>();
+		notificationService = new AsyncNotificationService((account, description) -> {
+			threads.add(Thread.currentThread().getName());
+			delivered.add(description);
+		}, properties(BackpressurePolicy.BLOCK, 10));
+
+		for (int i = 0; i < 100; i++) {
+			notificationService.notifyAboutTransfer(new Account("Id-1"), "n" + i);
+		}
+		notificationService.destroy();
+
+		assertThat(delivered).hasSize(100);
+		assertThat(threads).doesNotContain(caller);
+		assertThat(notificationService.getDeliveredCount()).isEqualTo(100);
+	}
+
+	@Test
+	@DisplayName("Drop-oldest keeps the newest notifications when the queue is full")
+	void dropOldest() throws Exception {
+		notificationService = new AsyncNotificationService(blockingDelegate(), properties(BackpressurePolicy.DROP_OLDEST, 2));
+
+		notificationService.notifyAboutTransfer(new Account("Id-1"), "in-flight");
+		awaitQueueDepth(0);
+		for (int i = 0; i < 5; i++) {
+			notificationService.notifyAboutTransfer(new Account("Id-1"), "n" + i);
+		}
+		assertThat(notificationService.getQueueDepth()).isEqualTo(2);
+		assertThat(notificationService.getDroppedCount()).isEqualTo(3);
+
+		release.countDown();
+		notificationService.destroy();
+		assertThat(delivered).containsExactly("in-flight", "n3", "n4");
+	}
+
+	@Test
+	@DisplayName("Spill keeps every notification when the queue is full")
+	void spill() throws Exception {
+		notificationService = new AsyncNotificationService(blockingDelegate(), properties(BackpressurePolicy.SPILL, 2));
+
+		notificationService.notifyAboutTransfer(new Account("Id-1"), "in-flight");
+		awaitQueueDepth(0);
+		for (int i = 0; i < 5; i++) {
+			notificationService.notifyAboutTransfer(new Account("Id-1"), "n" + i);
+		}
+		assertThat(notificationService.getQueueDepth()).isEqualTo(5);
+		assertThat(notificationService.getSpilledCount()).isEqualTo(3);
+
+		release.countDown();
+		notificationService.destroy();
+		assertThat(delivered).containsExactlyInAnyOrder("in-flight", "n0", "n1", "n2", "n3", "n4");
+	}
+
+	@Test
+	@DisplayName("Spilled notifications beyond the spill capacity are dropped")
+	void spillCapacity() throws Exception {
+		NotificationDispatchProperties properties = properties(BackpressurePolicy.SPILL, 2);
+		properties.setSpillCapacity(1);
+		notificationService = new AsyncNotificationService(blockingDelegate(), properties);
+
+		notificationService.notifyAboutTransfer(new Account("Id-1"), "in-flight");
+		awaitQueueDepth(0);
+		for (int i = 0; i < 5; i++) {
+			notificationService.notifyAboutTransfer(new Account("Id-1"), "n" + i);
+		}
+		assertThat(notificationService.getQueueDepth()).isEqualTo(3);
+		assertThat(notificationService.getSpilledCount()).isEqualTo(1);
+		assertThat(notificationService.getDroppedCount()).isEqualTo(2);
+
+		release.countDown();
+		notificationService.destroy();
+		assertThat(delivered).containsExactlyInAnyOrder("in-flight", "n0", "n1", "n2");
+	}
+
+	@Test
+	@DisplayName("Accounts notified by id are looked up on the dispatch thread")
+	void deferredLookup() throws Exception {
+		String caller = Thread.currentThread().getName();
+		List<String> threads = new CopyOnWriteArrayList<>();
+		notificationService = new AsyncNotificationService((account, description) -> delivered
+				.add(account.getAccountId() + " " + description), properties(BackpressurePolicy.BLOCK, 10));
+
+		notificationService.notifyAboutTransfer("Id-1", accountId -> {
+			threads.add(Thread.currentThread().getName());
+			return new Account(accountId);
+		}, "sent");
+		notificationService.notifyAboutTransfer("Id-2", accountId -> {
+			throw new IllegalStateException("Account id " + accountId + " not found");
+		}, "received");
+		notificationService.destroy();
+
+		assertThat(delivered).containsExactly("Id-1 sent");
+		assertThat(threads).hasSize(1).doesNotContain(caller);
+		assertThat(notificationService.getFailedCount()).isEqualTo(1);
+	}
+
+	private NotificationService blockingDelegate() {
+		return (account, description) -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			delivered.add(description);
+		};
+	}
+
+	private void awaitQueueDepth(int depth) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (notificationService.getQueueDepth() != depth && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	private static NotificationDispatchProperties properties(BackpressurePolicy backpressure, int capacity) {
+		NotificationDispatchProperties properties = new NotificationDispatchProperties();
+		properties.setBackpressure(backpressure);
+		properties.setQueueCapacity(capacity);
+		return properties;
+	}
+}
@@ -0,0 +1,51 @@
+package com.db.awmd.challenge.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+class VirtualThreadsConfigurationTest {
+
+	@Test
+	@DisplayName("Requests run on virtual threads from Java 21, and startup fails on older runtimes")
+	void virtualThreadExecutor() throws Exception {
+		if (Runtime.version().feature() < 21) {
+			assertThatThrownBy(VirtualThreadsConfiguration::newVirtualThreadPerTaskExecutor)
+					.isInstanceOf(IllegalStateException.class)
+					.hasMessageStartingWith("Virtual threads need Java 21");
+			return;
+		}
+		ExecutorService executor = VirtualThreadsConfiguration.newVirtualThreadPerTaskExecutor();
+		Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+				.get(5, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		assertThat(virtual).isEqualTo(true);
+	}
+
+	@Test
+	@DisplayName("Virtual threads are enabled by the application's own property only")
+	void enabledByOwnProperty() {
+		ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+				.withUserConfiguration(VirtualThreadsConfiguration.class);
+
+		contextRunner.withPropertyValues("spring.threads.virtual.enabled=true")
+				.run(context -> assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class));
+		contextRunner.withPropertyValues("accounts.virtual-threads.enabled=true").run(context -> {
+			if (Runtime.version().feature() < 21) {
+				assertThat(context).getFailure().hasRootCauseMessage(
+						"Virtual threads need Java 21 or later, running on " + Runtime.version());
+			} else {
+				assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,207 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.transfer.domain.BalanceHold;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.hold.BalanceHolds;
+import com.db.awmd.challenge.transfer.hold.HoldProperties;
+
+class BalanceHoldsTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	private final AccountsRepositoryInMemory repository = AccountsRepositoryInMemory.builder().lockStripes(4).build();
+
+	private final AccountsService accountsService = AccountsService.builder(repository, (account, description) -> {
+	}).build();
+
+	private final BalanceHolds holds = new BalanceHolds(accountsService, new HoldProperties(), clock);
+
+	@Test
+	@DisplayName("Transfers cannot spend what is held until the hold is released")
+	void hold() {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+
+		BalanceHold hold = holds.authorize("Id-1", "Id-2", new BigDecimal("70"), null);
+		assertThat(hold.getExpiresAt()).isEqualTo(Instant.ofEpochMilli(clock.millis).plus(Duration.ofDays(7)));
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("40")).getStatus())
+				.isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(accountsService.transferBatch(List.of(transfer("Id-1", "Id-2", "20"), transfer("Id-1", "Id-2", "20")),
+				BatchMode.ALL_OR_NOTHING)).extracting(r -> r.getStatus())
+				.containsExactly(TransferStatus.NOT_APPLIED, TransferStatus.INSUFFICIENT_BALANCE);
+		assertThatThrownBy(() -> holds.authorize("Id-1", "Id-2", new BigDecimal("31"), null))
+				.isInstanceOf(InsufficientBalanceException.class);
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("30")).isCompleted()).isTrue();
+
+		assertThat(holds.release(hold.getId())).isTrue();
+		assertThat(holds.release(hold.getId())).isFalse();
+		assertThat(holds.getHold(hold.getId())).isNull();
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("70")).isCompleted()).isTrue();
+	}
+
+	@Test
+	@DisplayName("A capture transfers at most the amount held and releases the rest")
+	void capture() {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+		long id = holds.authorize("Id-1", "Id-2", new BigDecimal("60"), Duration.ofHours(1)).getId();
+
+		assertThat(holds.capture(id, new BigDecimal("61")).getStatus()).isEqualTo(TransferStatus.INVALID_AMOUNT);
+		assertThat(holds.getHold(id)).isNotNull();
+		assertThat(holds.capture(id, new BigDecimal("45")).isCompleted()).isTrue();
+		assertThat(holds.capture(id, null)).isNull();
+		assertThat(holds.countHolds()).isZero();
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("55");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("45");
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("55")).isCompleted()).isTrue();
+	}
+
+	@Test
+	@DisplayName("Holds are released at the first tick after they expire, and a rejected capture keeps its hold")
+	void expiry() {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+		long first = holds.authorize("Id-1", "Id-2", new BigDecimal("40"), Duration.ofMinutes(1)).getId();
+		long second = holds.authorize("Id-1", "Id-2", new BigDecimal("50"), Duration.ofMinutes(2)).getId();
+		assertThatThrownBy(() -> holds.authorize("Id-1", "Id-2", BigDecimal.ONE, Duration.ofDays(31)))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		clock.millis = Duration.ofSeconds(59).toMillis();
+		assertThat(holds.expireDue()).isZero();
+		clock.millis = Duration.ofSeconds(61).toMillis();
+		assertThat(holds.expireDue()).isEqualTo(1);
+		assertThat(holds.getHold(first)).isNull();
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("51")).getStatus())
+				.isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("50")).isCompleted()).isTrue();
+
+		accountsService.getAccountsRepository().clearAccounts();
+		assertThat(holds.capture(second, null).getStatus()).isEqualTo(TransferStatus.ACCOUNT_NOT_FOUND);
+		assertThat(holds.getHold(second)).isNotNull();
+		clock.millis = Duration.ofMinutes(3).toMillis();
+		assertThat(holds.expireDue()).isEqualTo(1);
+		assertThat(holds.countHolds()).isZero();
+	}
+
+	@Test
+	@DisplayName("Concurrent holds, captures and transfers never spend more than the balance")
+	void concurrentHoldsAndTransfers() throws Exception {
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("1000")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("0")));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 2; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 500; i++) {
+						try {
+							long id = holds.authorize("Id-1", "Id-2", new BigDecimal("3"), null).getId();
+							if (i % 2 == 0) {
+								holds.capture(id, new BigDecimal("2"));
+							} else {
+								holds.release(id);
+							}
+						} catch (InsufficientBalanceException e) {
+							// Spent by the transfers.
+						}
+					}
+				}));
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 500; i++) {
+						accountsService.tryTransfer("Id-1", "Id-2", BigDecimal.ONE);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		BigDecimal balance = accountsService.getAccount("Id-1").getBalance();
+		assertThat(balance).isNotNegative();
+		assertThat(balance.add(accountsService.getAccount("Id-2").getBalance())).isEqualByComparingTo("1000");
+		assertThat(accountsService.getAccount("Id-1").getHeld()).isZero();
+		assertThat(holds.countHolds()).isZero();
+	}
+
+	@Test
+	@DisplayName("Hot accounts cannot be held, but captures can be credited to them")
+	void hotAccounts() {
+		AccountsService hotAccounts = AccountsService.builder(
+				AccountsRepositoryInMemory.builder().lockStripes(4).hotAccounts(List.of("Id-1"), 2).build(),
+				(account, description) -> {
+				}).build();
+		hotAccounts.createAccount(new Account("Id-1", new BigDecimal("100")));
+		hotAccounts.createAccount(new Account("Id-2", new BigDecimal("100")));
+		BalanceHolds hotHolds = new BalanceHolds(hotAccounts, new HoldProperties(), clock);
+
+		assertThatThrownBy(() -> hotHolds.authorize("Id-1", "Id-2", BigDecimal.ONE, null))
+				.isInstanceOf(UnsupportedOperationException.class);
+		long id = hotHolds.authorize("Id-2", "Id-1", BigDecimal.TEN, null).getId();
+		assertThat(hotHolds.capture(id, null).isCompleted()).isTrue();
+		assertThat(hotAccounts.getAccount("Id-1").getBalance()).isEqualByComparingTo("110");
+	}
+
+	private static Transfer transfer(String accountFromId, String accountToId, String amount) {
+		return Transfer.builder()
+				.accountFromId(accountFromId)
+				.accountToId(accountToId)
+				.amount(new BigDecimal(amount))
+				.build();
+	}
+
+	private static class MutableClock extends Clock {
+
+		long millis;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepository;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryPipeline;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.fx.ExchangeRateTable;
+import com.db.awmd.challenge.journal.AccountsJournal;
+import com.db.awmd.challenge.transfer.admission.LimitingTransferAdmission;
+import com.db.awmd.challenge.transfer.admission.TokenBuckets;
+import com.db.awmd.challenge.transfer.admission.TransferAdmission;
+import com.db.awmd.challenge.transfer.binary.BinaryTransferClient;
+import com.db.awmd.challenge.transfer.binary.BinaryTransferProperties;
+import com.db.awmd.challenge.transfer.binary.BinaryTransferServer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.exception.TransferProtocolException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+class BinaryTransferServerTest {
+
+	private AccountsService accountsService;
+
+	private BinaryTransferServer server;
+
+	private BinaryTransferClient client;
+
+	@BeforeEach
+	void startServer() throws Exception {
+		accountsService = AccountsService.builder(AccountsRepositoryInMemory.builder().lockStripes(4).build(),
+				(account, description) -> {
+				}).build();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("1000")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("1000")));
+		server = new BinaryTransferServer(accountsService, TransferAdmission.NONE,
+				new InetSocketAddress("localhost", 0), 256, 0);
+		client = BinaryTransferClient.connect("localhost", server.getPort());
+	}
+
+	@AfterEach
+	void stopServer() throws Exception {
+		client.close();
+		server.destroy();
+	}
+
+	@Test
+	@DisplayName("Pipelined transfers get the results of AccountsService")
+	void pipelinedTransfers() {
+		List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			futures.add(client.transferAsync("Id-1", "Id-2", new BigDecimal("0.50")));
+		}
+		for (CompletableFuture<TransferResult> future : futures) {
+			assertThat(future.join().isCompleted()).isTrue();
+		}
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("500");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("1500");
+
+		TransferResult insufficient = client.transfer("Id-1", "Id-2", new BigDecimal("500.01"));
+		assertThat(insufficient.getStatus()).isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(insufficient.getMessage()).isEqualTo("Account Id-1 has insufficient balance");
+		assertThat(client.transfer("Id-1", "Missing", BigDecimal.ONE).getStatus())
+				.isEqualTo(TransferStatus.ACCOUNT_NOT_FOUND);
+		assertThat(client.transfer("Id-1", "Id-1", BigDecimal.ONE).getStatus())
+				.isEqualTo(TransferStatus.SAME_ACCOUNT);
+		assertThat(client.transfer("Id-1", "Id-2", BigDecimal.ZERO).getStatus())
+				.isEqualTo(TransferStatus.INVALID_AMOUNT);
+	}
+
+	@Test
+	@DisplayName("Malformed requests fail, and frames out of bounds close the connection")
+	void malformedRequests() throws Exception {
+		assertThatThrownBy(() -> client.transfer("", "Id-2", BigDecimal.ONE))
+				.isInstanceOf(TransferProtocolException.class).hasMessage("Account ids must not be empty");
+		assertThat(client.transfer("Id-1", "Id-2", BigDecimal.ONE).isCompleted()).isTrue();
+
+		try (Socket socket = new Socket("localhost", server.getPort())) {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeInt(100_000);
+			out.flush();
+			assertThatThrownBy(() -> new DataInputStream(socket.getInputStream()).readInt())
+					.isInstanceOf(EOFException.class);
+		}
+	}
+
+	@Test
+	@DisplayName("Transfers between currencies carry the amount credited")
+	void creditedAmount() throws Exception {
+		ExchangeRateTable exchangeRates = new ExchangeRateTable("EUR");
+		exchangeRates.publish(Map.of("USD", new BigDecimal("1.25")));
+		AccountsService service = AccountsService.builder(
+				AccountsRepositoryInMemory.builder().lockStripes(4).exchangeRates(exchangeRates).build(),
+				(account, description) -> {
+				}).build();
+		service.createAccount(new Account("Id-1", new BigDecimal("1000"), "EUR"));
+		service.createAccount(new Account("Id-2", new BigDecimal("1000"), "USD"));
+		BinaryTransferServer fxServer = new BinaryTransferServer(service, TransferAdmission.NONE,
+				new InetSocketAddress("localhost", 0), 256, 0);
+		try (BinaryTransferClient fxClient = BinaryTransferClient.connect("localhost", fxServer.getPort())) {
+			TransferResult result = fxClient.transfer("Id-1", "Id-2", new BigDecimal("10.00"));
+
+			assertThat(result.isCompleted()).isTrue();
+			assertThat(result.getCredited()).isEqualByComparingTo(
+					service.getAccount("Id-2").getBalance().subtract(new BigDecimal("1000")));
+			assertThat(fxClient.transfer("Id-2", "Id-1", new BigDecimal("12.50")).getCredited()).isNotNull();
+		} finally {
+			fxServer.destroy();
+		}
+		assertThat(client.transfer("Id-1", "Id-2", BigDecimal.ONE).getCredited()).isNull();
+	}
+
+	@Test
+	@DisplayName("Transfers over the rate limit of their client are rejected with a retry delay")
+	void rateLimited() throws Exception {
+		TransferAdmission admission = new LimitingTransferAdmission(new TokenBuckets(0.01, 2, 1, 10), null, null);
+		BinaryTransferServer limitedServer = new BinaryTransferServer(accountsService, admission,
+				new InetSocketAddress("localhost", 0), 256, 0);
+		try (BinaryTransferClient limitedClient = BinaryTransferClient.connect("localhost", limitedServer.getPort())) {
+			assertThat(limitedClient.transfer("Id-1", "Id-2", BigDecimal.ONE).isCompleted()).isTrue();
+			assertThat(limitedClient.transfer("Id-1", "Id-2", BigDecimal.ONE).isCompleted()).isTrue();
+
+			assertThatThrownBy(() -> limitedClient.transfer("Id-1", "Id-2", BigDecimal.ONE))
+					.isInstanceOfSatisfying(TransferRejectedException.class,
+							e -> assertThat(e.getRetryAfter()).isPositive())
+					.hasMessage("Too many transfers from client 127.0.0.1");
+		} finally {
+			limitedServer.destroy();
+		}
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("998");
+	}
+
+	@Test
+	@DisplayName("By default transfers run on worker threads, except with the pipeline repository")
+	void defaultWorkerThreads() throws Exception {
+		assertThat(notifyingThread(AccountsRepositoryInMemory.builder().lockStripes(4).build()))
+				.startsWith("accounts-binary-worker-");
+		AccountsRepositoryPipeline pipeline = new AccountsRepositoryPipeline(64, AccountsJournal.NONE);
+		try {
+			assertThat(notifyingThread(pipeline)).isEqualTo("accounts-pipeline-publish");
+		} finally {
+			pipeline.destroy();
+		}
+	}
+
+	/**
+	 * Returns the thread that notified a transfer made over a server configured with the defaults.
+	 */
+	private static String notifyingThread(AccountsRepository accountsRepository) throws Exception {
+		ConcurrentLinkedQueue<String> threads = new ConcurrentLinkedQueue<>();
+		AccountsService service = AccountsService.builder(accountsRepository,
+				(account, description) -> threads.add(Thread.currentThread().getName())).build();
+		service.createAccount(new Account("Id-1", new BigDecimal("1000")));
+		service.createAccount(new Account("Id-2", new BigDecimal("1000")));
+		BinaryTransferProperties properties = new BinaryTransferProperties();
+		properties.setAddress("localhost");
+		properties.setPort(0);
+		BinaryTransferServer defaultServer = new BinaryTransferServer(service, TransferAdmission.NONE, properties);
+		try (BinaryTransferClient defaultClient = BinaryTransferClient.connect("localhost", defaultServer.getPort())) {
+			assertThat(defaultClient.transfer("Id-1", "Id-2", BigDecimal.ONE).isCompleted()).isTrue();
+		} finally {
+			defaultServer.destroy();
+		}
+		return threads.peek();
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.exception.InsufficientBalanceException;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+import com.db.awmd.challenge.transfer.idempotency.StripedIdempotencyCache;
+
+class StripedIdempotencyCacheTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	private final AtomicInteger executions = new AtomicInteger();
+
+	@Test
+	@DisplayName("A repeated key returns the first result without running the transfer again")
+	void repeatedKey() {
+		StripedIdempotencyCache cache = new StripedIdempotencyCache(4, 100, Duration.ofMinutes(1), clock);
+
+		TransferResult first = cache.execute("key-1", "transfer-1", this::failingTransfer);
+		TransferResult second = cache.execute("key-1", "transfer-1", this::failingTransfer);
+
+		assertThat(executions).hasValue(1);
+		assertThat(second).isSameAs(first);
+		assertThat(second.getStatus()).isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThatThrownBy(() -> cache.execute("key-1", "transfer-2", this::failingTransfer))
+				.isInstanceOf(IdempotencyKeyReusedException.class);
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	@DisplayName("A different request whose hash collides with the first is still detected as key reuse")
+	void collidingRequests() {
+		StripedIdempotencyCache cache = new StripedIdempotencyCache(4, 100, Duration.ofMinutes(1), clock);
+		assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+		cache.execute("key-1", "Aa", this::completedTransfer);
+
+		assertThatThrownBy(() -> cache.execute("key-1", "BB", this::completedTransfer))
+				.isInstanceOf(IdempotencyKeyReusedException.class);
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	@DisplayName("Results are forgotten after their TTL or when the cache is full")
+	void eviction() {
+		StripedIdempotencyCache cache = new StripedIdempotencyCache(1, 2, Duration.ofMinutes(1), clock);
+
+		cache.execute("key-1", "transfer-1", this::completedTransfer);
+		clock.millis = Duration.ofSeconds(59).toMillis();
+		cache.execute("key-1", "transfer-1", this::completedTransfer);
+		assertThat(executions).hasValue(1);
+
+		clock.millis = Duration.ofSeconds(60).toMillis();
+		cache.execute("key-1", "transfer-1", this::completedTransfer);
+		assertThat(executions).hasValue(2);
+
+		cache.execute("key-2", "transfer-1", this::completedTransfer);
+		cache.execute("key-3", "transfer-1", this::completedTransfer);
+		assertThat(cache.size()).isEqualTo(2);
+		cache.execute("key-1", "transfer-1", this::completedTransfer);
+		assertThat(executions).hasValue(5);
+	}
+
+	@Test
+	@DisplayName("A full stripe evicts completed results but never a transfer still in flight")
+	void fullStripeKeepsPendingTransfers() throws Exception {
+		StripedIdempotencyCache cache = new StripedIdempotencyCache(1, 2, Duration.ofMinutes(1), clock);
+		StripedIdempotencyCache single = new StripedIdempotencyCache(1, 1, Duration.ofMinutes(1), clock);
+		CountDownLatch running = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		Future<TransferResult> inFlight = executorService
+				.submit(() -> cache.execute("key-1", "transfer-1", () -> blockedTransfer(running, release)));
+		Future<TransferResult> singleInFlight = executorService
+				.submit(() -> single.execute("key-1", "transfer-1", () -> blockedTransfer(running, release)));
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+		cache.execute("key-2", "transfer-2", this::completedTransfer);
+		cache.execute("key-3", "transfer-3", this::completedTransfer);
+		assertThat(cache.size()).isEqualTo(2);
+		cache.execute("key-2", "transfer-2", this::completedTransfer);
+		assertThat(executions).hasValue(3);
+		assertThatThrownBy(() -> single.execute("key-2", "transfer-2", this::completedTransfer))
+				.isInstanceOf(TransferRejectedException.class);
+
+		release.countDown();
+		assertThat(inFlight.get(5, TimeUnit.SECONDS).isCompleted()).isTrue();
+		assertThat(singleInFlight.get(5, TimeUnit.SECONDS).isCompleted()).isTrue();
+		executorService.shutdown();
+		cache.execute("key-1", "transfer-1", this::completedTransfer);
+		single.execute("key-1", "transfer-1", this::completedTransfer);
+		assertThat(executions).hasValue(5);
+	}
+
+	@Test
+	@DisplayName("A transfer that throws is not remembered")
+	void failedExecution() {
+		StripedIdempotencyCache cache = new StripedIdempotencyCache(4, 100, Duration.ofMinutes(1), clock);
+
+		assertThatThrownBy(() -> cache.execute("key-1", "transfer-1", () -> {
+			throw new IllegalStateException("Repository unavailable");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(cache.execute("key-1", "transfer-1", this::completedTransfer).isCompleted()).isTrue();
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	@DisplayName("Concurrent requests with the same key run the transfer once")
+	void concurrentDuplicates() throws Exception {
+		StripedIdempotencyCache cache = new StripedIdempotencyCache(4, 100, Duration.ofMinutes(1), clock);
+		int threads = 8;
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		List<Future<TransferResult>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			results.add(executorService.submit(() -> cache.execute("key-1", "transfer-1", () -> {
+				running.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return completedTransfer();
+			})));
+		}
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+		release.countDown();
+		for (Future<TransferResult> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS).isCompleted()).isTrue();
+		}
+		executorService.shutdown();
+
+		assertThat(executions).hasValue(1);
+	}
+
+	private TransferResult completedTransfer() {
+		executions.incrementAndGet();
+		return TransferResult.completed();
+	}
+
+	private TransferResult blockedTransfer(CountDownLatch running, CountDownLatch release) {
+		running.countDown();
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return completedTransfer();
+	}
+
+	private TransferResult failingTransfer() {
+		executions.incrementAndGet();
+		return TransferResult.failed(new InsufficientBalanceException("Insufficient balance in account Id-1"));
+	}
+
+	private static class MutableClock extends Clock {
+
+		long millis;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.db.awmd.challenge.transfer.admission.AdaptiveConcurrencyLimit;
+import com.db.awmd.challenge.transfer.admission.ClientIdentifier;
+import com.db.awmd.challenge.transfer.admission.LimitingTransferAdmission;
+import com.db.awmd.challenge.transfer.admission.TokenBuckets;
+import com.db.awmd.challenge.transfer.admission.TransferAdmission;
+import com.db.awmd.challenge.transfer.exception.TransferRejectedException;
+
+class TransferAdmissionTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(50);
+
+	@Test
+	@DisplayName("A bucket admits its burst, then refills at its rate")
+	void tokenBucket() {
+		TokenBuckets buckets = new TokenBuckets(10, 5, 4, 100);
+		long now = 1000 * SECOND;
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(buckets.tryAcquire("Id-1", 1, now)).isZero();
+		}
+		assertThat(buckets.tryAcquire("Id-1", 1, now)).isEqualTo(SECOND / 10);
+		assertThat(buckets.tryAcquire("Id-2", 1, now)).isZero();
+
+		now += SECOND / 10;
+		assertThat(buckets.tryAcquire("Id-1", 1, now)).isZero();
+		assertThat(buckets.tryAcquire("Id-1", 1, now)).isPositive();
+		now += 10 * SECOND;
+		assertThat(buckets.tryAcquire("Id-1", 3, now)).isZero();
+		assertThat(buckets.tryAcquire("Id-1", 3, now)).isEqualTo(SECOND / 10);
+	}
+
+	@Test
+	@DisplayName("More permits than the burst are taken from a full bucket and paid back before the next")
+	void tokenBucketDebt() {
+		TokenBuckets buckets = new TokenBuckets(10, 5, 4, 100);
+		long now = 1000 * SECOND;
+
+		assertThat(buckets.tryAcquire("client", 20, now)).isZero();
+		assertThat(buckets.tryAcquire("client", 1, now)).isEqualTo(16 * SECOND / 10);
+		assertThat(buckets.tryAcquire("client", 1, now + 16 * SECOND / 10)).isZero();
+	}
+
+	@Test
+	@DisplayName("Buckets are dropped once they have refilled, or the least recently used when full")
+	void tokenBucketEviction() {
+		TokenBuckets buckets = new TokenBuckets(10, 5, 1, 3);
+		long now = 1000 * SECOND;
+
+		buckets.tryAcquire("Id-1", 1, now);
+		buckets.tryAcquire("Id-2", 5, now);
+		assertThat(buckets.size()).isEqualTo(2);
+		buckets.tryAcquire("Id-3", 1, now + SECOND / 10);
+		assertThat(buckets.size()).isEqualTo(2);
+
+		buckets.tryAcquire("Id-4", 1, now + SECOND / 10);
+		buckets.tryAcquire("Id-5", 1, now + SECOND / 10);
+		assertThat(buckets.size()).isEqualTo(3);
+		buckets.tryAcquire("Id-6", 1, now + SECOND);
+		assertThat(buckets.size()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("The concurrency limit falls once per target latency while transfers are slow and grows back")
+	void adaptiveConcurrencyLimit() {
+		long now = 1000 * SECOND;
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(Duration.ofMillis(50), 10, 2, 20, 0.5, now);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(limit.tryAcquire()).isTrue();
+		}
+		assertThat(limit.tryAcquire()).isFalse();
+		assertThat(limit.getInFlight()).isEqualTo(10);
+
+		limit.release(2 * TARGET, now);
+		limit.release(2 * TARGET, now + 1);
+		assertThat(limit.getLimit()).isEqualTo(5);
+		limit.release(2 * TARGET, now + TARGET);
+		assertThat(limit.getLimit()).isEqualTo(2);
+		limit.release(2 * TARGET, now + 2 * TARGET);
+		assertThat(limit.getLimit()).isEqualTo(2);
+		assertThat(limit.getInFlight()).isEqualTo(6);
+		assertThat(limit.tryAcquire()).isFalse();
+
+		// Fast transfers raise the limit while it is at least half used.
+		for (int i = 0; i < 6; i++) {
+			limit.release(TARGET / 2, now + 3 * TARGET);
+		}
+		assertThat(limit.getInFlight()).isZero();
+		assertThat(limit.getLimit()).isEqualTo(3);
+		for (int i = 0; i < 100; i++) {
+			limit.tryAcquire();
+			limit.release(TARGET / 2, now + 3 * TARGET);
+		}
+		assertThat(limit.getLimit()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Requests are rejected by client, then by account, then when too many are in flight")
+	void limitingAdmission() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(Duration.ofSeconds(10), 2, 1, 2, 0.5,
+				System.nanoTime());
+		TransferAdmission admission = new LimitingTransferAdmission(new TokenBuckets(0.01, 2, 4, 100),
+				new TokenBuckets(0.01, 2, 4, 100), limit);
+
+		admission.release(admission.admit("client-1", "Id-1", 1));
+		admission.release(admission.admit("client-1", "Id-1", 1));
+		assertThatThrownBy(() -> admission.admit("client-2", "Id-1", 1))
+				.isInstanceOf(TransferRejectedException.class)
+				.hasMessage("Too many transfers from account Id-1")
+				.satisfies(e -> assertThat(((TransferRejectedException) e).getRetryAfter())
+						.isEqualTo(Duration.ofSeconds(100)));
+		assertThatThrownBy(() -> admission.admit("client-1", "Id-2", 1))
+				.isInstanceOf(TransferRejectedException.class)
+				.hasMessage("Too many transfers from client client-1");
+
+		admission.admit("client-3", "Id-3", 1);
+		admission.admit("client-4", null, 1);
+		assertThatThrownBy(() -> admission.admit("client-5", "Id-5", 1))
+				.isInstanceOf(TransferRejectedException.class)
+				.hasMessage("Too many transfers in progress, try again later");
+		assertThat(limit.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("A request rejected by a later limit gets back the tokens it took from the earlier ones")
+	void rejectedRequestsReleaseTokens() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(Duration.ofSeconds(10), 1, 1, 1, 0.5,
+				System.nanoTime());
+		TokenBuckets clients = new TokenBuckets(0.01, 2, 4, 100);
+		TokenBuckets accounts = new TokenBuckets(0.01, 2, 4, 100);
+		TransferAdmission admission = new LimitingTransferAdmission(clients, accounts, limit);
+
+		long admittedAt = admission.admit("client-1", "Id-1", 1);
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> admission.admit("client-2", "Id-2", 1))
+					.hasMessage("Too many transfers in progress, try again later");
+		}
+		admission.release(admittedAt);
+		admission.release(admission.admit("client-1", "Id-1", 1));
+		assertThatThrownBy(() -> admission.admit("client-2", "Id-1", 1))
+				.hasMessage("Too many transfers from account Id-1");
+		admission.release(admission.admit("client-2", "Id-2", 1));
+		admission.release(admission.admit("client-2", "Id-2", 1));
+		assertThatThrownBy(() -> admission.admit("client-2", "Id-3", 1))
+				.hasMessage("Too many transfers from client client-2");
+		assertThat(accounts.tryAcquire("Id-3", 2, System.nanoTime())).isZero();
+	}
+
+	@Test
+	@DisplayName("A batch counts against each of its source accounts and is rejected whole if any is over its limit")
+	void batchAdmission() {
+		TokenBuckets clients = new TokenBuckets(0.01, 10, 4, 100);
+		TokenBuckets accounts = new TokenBuckets(0.01, 3, 4, 100);
+		TransferAdmission admission = new LimitingTransferAdmission(clients, accounts, null);
+
+		admission.admitBatch("client-1", Map.of("Id-1", 2, "Id-2", 1), 3);
+		assertThatThrownBy(() -> admission.admitBatch("client-1", Map.of("Id-1", 2, "Id-3", 1), 3))
+				.isInstanceOf(TransferRejectedException.class)
+				.hasMessage("Too many transfers from account Id-1");
+		assertThat(accounts.tryAcquire("Id-3", 3, System.nanoTime())).isZero();
+		assertThat(accounts.tryAcquire("Id-2", 2, System.nanoTime())).isZero();
+		assertThat(clients.tryAcquire("client-1", 7, System.nanoTime())).isZero();
+	}
+
+	@Test
+	@DisplayName("Clients are told apart by address, unless a trusted proxy names them")
+	void clientIdentifier() {
+		ClientIdentifier identifier = new ClientIdentifier(List.of("10.0.0.1"));
+
+		assertThat(identifier.clientOf(request("10.0.0.2", null))).isEqualTo("10.0.0.2");
+		assertThat(identifier.clientOf(request("10.0.0.2", "client-1"))).isEqualTo("10.0.0.2");
+		assertThat(identifier.clientOf(request("10.0.0.1", "client-1"))).isEqualTo("client-1");
+		assertThat(identifier.clientOf(request("10.0.0.1", null))).isEqualTo("10.0.0.1");
+	}
+
+	private static MockHttpServletRequest request(String remoteAddress, String clientId) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr(remoteAddress);
+		if (clientId != null) {
+			request.addHeader(ClientIdentifier.CLIENT_ID_HEADER, clientId);
+		}
+		return request;
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.db.awmd.challenge.transfer.domain.TransferHistoryPage;
+import com.db.awmd.challenge.transfer.domain.TransferRecord;
+import com.db.awmd.challenge.transfer.repository.TransferLedgerOffHeap;
+
+class TransferLedgerOffHeapTest {
+
+	@TempDir
+	Path directory;
+
+	private final MutableClock clock = new MutableClock();
+
+	private TransferLedgerOffHeap ledger;
+
+	@AfterEach
+	void closeLedger() {
+		ledger.close();
+	}
+
+	@Test
+	@DisplayName("History pages through an account's transfers newest first")
+	void pagesNewestFirst() throws IOException {
+		ledger = new TransferLedgerOffHeap(directory, 1024, 4, clock);
+		for (int i = 1; i <= 250; i++) {
+			ledger.append(i % 2 == 0 ? "Id-1" : "Id-2", i % 2 == 0 ? "Id-3" : "Id-1", BigDecimal.valueOf(i, 2));
+		}
+		ledger.append("Id-2", "Id-3", BigDecimal.TEN);
+
+		List<Long> ids = new ArrayList<>();
+		long cursor = Long.MAX_VALUE;
+		do {
+			TransferHistoryPage page = ledger.history("Id-1", Instant.MIN, Instant.MAX, cursor, 100);
+			page.getTransfers().forEach(transfer -> ids.add(transfer.getId()));
+			cursor = page.getNextCursor() != null ? page.getNextCursor() : 0;
+		} while (cursor > 0);
+
+		assertThat(ids).hasSize(250).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+		TransferRecord newest = ledger.history("Id-1", Instant.MIN, Instant.MAX, Long.MAX_VALUE, 1).getTransfers().get(0);
+		assertThat(newest.getId()).isEqualTo(250);
+		assertThat(newest.getAccountFromId()).isEqualTo("Id-1");
+		assertThat(newest.getAccountToId()).isEqualTo("Id-3");
+		assertThat(newest.getAmount()).isEqualByComparingTo("2.50");
+	}
+
+	@Test
+	@DisplayName("History is limited to the requested time range")
+	void filtersByTime() throws IOException {
+		ledger = new TransferLedgerOffHeap(directory, 1024, 4, clock);
+		for (int i = 0; i < 1000; i++) {
+			clock.millis = 1_000 * i;
+			ledger.append("Id-1", "Id-" + (2 + i % 5), BigDecimal.ONE);
+		}
+
+		TransferHistoryPage page = ledger.history("Id-1", Instant.ofEpochSecond(100), Instant.ofEpochSecond(400),
+				Long.MAX_VALUE, 1000);
+
+		assertThat(page.getTransfers()).hasSize(300);
+		assertThat(page.getTransfers().get(0).getTimestamp()).isEqualTo(Instant.ofEpochSecond(399));
+		assertThat(page.getTransfers().get(299).getTimestamp()).isEqualTo(Instant.ofEpochSecond(100));
+		assertThat(page.getNextCursor()).isNull();
+		assertThat(ledger.history("Id-3", Instant.ofEpochSecond(100), Instant.ofEpochSecond(400), Long.MAX_VALUE, 1000)
+				.getTransfers()).hasSize(60);
+	}
+
+	@Test
+	@DisplayName("Spilled segments remain readable")
+	void readsSpilledSegments() throws Exception {
+		ledger = new TransferLedgerOffHeap(directory, 16, 1, clock);
+		for (int i = 1; i <= 200; i++) {
+			ledger.append("Id-1", "Id-2", BigDecimal.valueOf(i));
+		}
+		// A large amount does not fit the record and is kept aside.
+		ledger.append("Id-1", "Id-2", new BigDecimal("123456789012345678901234567890.12"));
+
+		List<TransferRecord> transfers = ledger.history("Id-2", Instant.MIN, Instant.MAX, Long.MAX_VALUE, 1000)
+				.getTransfers();
+
+		assertThat(transfers).hasSize(201);
+		assertThat(transfers.get(0).getAmount()).isEqualByComparingTo("123456789012345678901234567890.12");
+		assertThat(transfers.get(200).getAmount()).isEqualByComparingTo("1");
+	}
+
+	@Test
+	@DisplayName("Concurrent appends are all recorded in each account's history")
+	void concurrentAppends() throws Exception {
+		ledger = new TransferLedgerOffHeap(directory, 256, 2, Clock.systemUTC());
+		int threads = 8;
+		int transfersPerThread = 5_000;
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			String account = "Id-" + t;
+			workers.add(executorService.submit(() -> {
+				start.await();
+				for (int i = 0; i < transfersPerThread; i++) {
+					ledger.append(account, "Id-shared", BigDecimal.ONE);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+		executorService.shutdown();
+
+		List<Long> shared = ledger.history("Id-shared", Instant.MIN, Instant.MAX, Long.MAX_VALUE, 1000).getTransfers()
+				.stream().map(TransferRecord::getId).collect(Collectors.toList());
+		assertThat(shared).hasSize(1000).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+		assertThat(shared.get(0)).isEqualTo((long) threads * transfersPerThread);
+		for (int t = 0; t < threads; t++) {
+			long count = 0;
+			long cursor = Long.MAX_VALUE;
+			while (cursor > 0) {
+				TransferHistoryPage page = ledger.history("Id-" + t, Instant.MIN, Instant.MAX, cursor, 1000);
+				count += page.getTransfers().size();
+				cursor = page.getNextCursor() != null ? page.getNextCursor() : 0;
+			}
+			assertThat(count).isEqualTo(transfersPerThread);
+		}
+	}
+
+	private static class MutableClock extends Clock {
+
+		long millis;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+	}
+
+}
@@ -0,0 +1,214 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.exception.AccountNotFoundException;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.transfer.domain.PendingTransfer;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.schedule.TransferScheduleProperties;
+import com.db.awmd.challenge.transfer.schedule.TransferScheduler;
+
+class TransferSchedulerTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	private final TransferScheduleProperties properties = new TransferScheduleProperties();
+
+	private AccountsService accountsService;
+
+	private TransferScheduler scheduler;
+
+	@BeforeEach
+	void createScheduler() {
+		accountsService = AccountsService.builder(AccountsRepositoryInMemory.builder().lockStripes(4).build(),
+				(account, description) -> {
+				}).build();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2"));
+		scheduler = new TransferScheduler(accountsService, properties, clock);
+	}
+
+	@AfterEach
+	void destroyScheduler() {
+		scheduler.destroy();
+	}
+
+	@Test
+	@DisplayName("A future-dated transfer runs at the first tick after it is due")
+	void futureDated() {
+		PendingTransfer transfer = scheduler.schedule("Id-1", "Id-2", new BigDecimal("10"), at(Duration.ofSeconds(90)),
+				null, null);
+
+		clock.millis = Duration.ofSeconds(89).toMillis();
+		assertThat(scheduler.runDue()).isZero();
+		assertThat(scheduler.getPending(transfer.getId()).getNextExecution()).isEqualTo(at(Duration.ofSeconds(90)));
+
+		clock.millis = Duration.ofSeconds(90).toMillis();
+		assertThat(scheduler.runDue()).isEqualTo(1);
+		assertThat(scheduler.getPending(transfer.getId())).isNull();
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("10");
+		assertThat(scheduler.runDue()).isZero();
+	}
+
+	@Test
+	@DisplayName("A recurring transfer runs every interval until its occurrences are used up")
+	void recurring() {
+		PendingTransfer transfer = scheduler.schedule("Id-1", "Id-2", new BigDecimal("1"), at(Duration.ofSeconds(5)),
+				Duration.ofDays(1), 3);
+
+		for (int day = 0; day < 3; day++) {
+			clock.millis = Duration.ofDays(day).plusSeconds(5).toMillis();
+			assertThat(scheduler.runDue()).isEqualTo(1);
+		}
+		assertThat(scheduler.getPending(transfer.getId())).isNull();
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("3");
+
+		clock.millis = Duration.ofDays(30).toMillis();
+		assertThat(scheduler.runDue()).isZero();
+		assertThat(scheduler.countPending()).isZero();
+	}
+
+	@Test
+	@DisplayName("An occurrence short of funds is retried with a growing backoff and then skipped")
+	void retry() {
+		PendingTransfer transfer = scheduler.schedule("Id-2", "Id-1", new BigDecimal("5"), at(Duration.ofSeconds(10)),
+				Duration.ofDays(1), 2);
+
+		clock.millis = Duration.ofSeconds(10).toMillis();
+		scheduler.runDue();
+		PendingTransfer pending = scheduler.getPending(transfer.getId());
+		assertThat(pending.getAttempts()).isEqualTo(1);
+		assertThat(pending.getLastStatus()).isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(pending.getNextExecution()).isEqualTo(at(Duration.ofSeconds(70)));
+
+		clock.millis = Duration.ofSeconds(70).toMillis();
+		scheduler.runDue();
+		assertThat(scheduler.getPending(transfer.getId()).getNextExecution()).isEqualTo(at(Duration.ofSeconds(190)));
+
+		accountsService.transfer("Id-1", "Id-2", new BigDecimal("5"));
+		clock.millis = Duration.ofSeconds(190).toMillis();
+		scheduler.runDue();
+		pending = scheduler.getPending(transfer.getId());
+		assertThat(pending.getAttempts()).isZero();
+		assertThat(pending.getLastStatus()).isEqualTo(TransferStatus.COMPLETED);
+		assertThat(pending.getRemainingOccurrences()).isEqualTo(1);
+		assertThat(pending.getNextExecution()).isEqualTo(at(Duration.ofDays(1).plusSeconds(10)));
+
+		// The last occurrence fails three times and the transfer is done.
+		clock.millis = Duration.ofDays(1).plusSeconds(10).toMillis();
+		scheduler.runDue();
+		clock.millis += Duration.ofMinutes(1).toMillis();
+		scheduler.runDue();
+		assertThat(scheduler.getPending(transfer.getId())).isNotNull();
+		clock.millis += Duration.ofMinutes(2).toMillis();
+		scheduler.runDue();
+		assertThat(scheduler.getPending(transfer.getId())).isNull();
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+	}
+
+	@Test
+	@DisplayName("A cancelled transfer does not run")
+	void cancel() {
+		PendingTransfer transfer = scheduler.schedule("Id-1", "Id-2", new BigDecimal("1"), at(Duration.ofMinutes(1)),
+				Duration.ofMinutes(1), null);
+
+		assertThat(scheduler.cancel(transfer.getId())).isTrue();
+		assertThat(scheduler.cancel(transfer.getId())).isFalse();
+		clock.millis = Duration.ofHours(1).toMillis();
+		assertThat(scheduler.runDue()).isZero();
+		assertThat(scheduler.getPending(transfer.getId())).isNull();
+	}
+
+	@Test
+	@DisplayName("Scheduling fails for unknown accounts and inconsistent recurrences")
+	void invalidSchedule() {
+		Instant executeAt = at(Duration.ofMinutes(1));
+
+		assertThatThrownBy(() -> scheduler.schedule("Id-1", "Id-3", BigDecimal.ONE, executeAt, null, null))
+				.isInstanceOf(AccountNotFoundException.class);
+		assertThatThrownBy(() -> scheduler.schedule("Id-1", "Id-2", BigDecimal.ONE, executeAt, null, 2))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(
+				() -> scheduler.schedule("Id-1", "Id-2", BigDecimal.ONE, executeAt, Duration.ofMillis(10), null))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(scheduler.countPending()).isZero();
+	}
+
+	@Test
+	@DisplayName("Transfers due from seconds to years ahead each run at their own tick")
+	void manyDeadlines() {
+		properties.setTick(Duration.ofMinutes(1));
+		scheduler.destroy();
+		scheduler = new TransferScheduler(accountsService, properties, clock);
+		accountsService.createAccount(new Account("Id-3", new BigDecimal("1000000")));
+		Random random = new Random(42);
+		List<PendingTransfer> transfers = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			long due = (long) (Math.pow(random.nextDouble(), 3) * Duration.ofDays(3 * 365).toMillis());
+			transfers.add(scheduler.schedule("Id-3", "Id-1", BigDecimal.ONE, Instant.ofEpochMilli(due), null, null));
+		}
+
+		long tick = Duration.ofMinutes(1).toMillis();
+		int executed = 0;
+		while (executed < transfers.size()) {
+			clock.millis += (long) (random.nextDouble() * Duration.ofDays(20).toMillis());
+			executed += scheduler.runDue();
+			for (PendingTransfer transfer : transfers) {
+				boolean due = transfer.getNextExecution().toEpochMilli() <= clock.millis / tick * tick;
+				assertThat(scheduler.getPending(transfer.getId()) == null).isEqualTo(due);
+			}
+		}
+		assertThat(executed).isEqualTo(transfers.size());
+		assertThat(scheduler.countPending()).isZero();
+	}
+
+	private static Instant at(Duration sinceEpoch) {
+		return Instant.EPOCH.plus(sinceEpoch);
+	}
+
+	private static class MutableClock extends Clock {
+
+		long millis;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+	}
+
+}
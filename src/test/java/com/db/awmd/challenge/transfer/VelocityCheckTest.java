@@ -0,0 +1,158 @@
+package com.db.awmd.challenge.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.db.awmd.challenge.account.domain.Account;
+import com.db.awmd.challenge.account.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.account.service.AccountsService;
+import com.db.awmd.challenge.transfer.domain.BatchMode;
+import com.db.awmd.challenge.transfer.domain.Transfer;
+import com.db.awmd.challenge.transfer.domain.TransferResult;
+import com.db.awmd.challenge.transfer.domain.TransferStatus;
+import com.db.awmd.challenge.transfer.velocity.SlidingWindowVelocityCheck;
+import com.db.awmd.challenge.transfer.velocity.VelocityRule;
+
+class VelocityCheckTest {
+
+	private final MutableClock clock = new MutableClock();
+
+	@Test
+	@DisplayName("A limit on the number of transfers slides with its window a bucket at a time")
+	void maxTransfers() {
+		SlidingWindowVelocityCheck check = new SlidingWindowVelocityCheck(
+				List.of(VelocityRule.maxTransfers(Duration.ofMinutes(1), 3)), 6, 4, 100, clock);
+
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNull();
+		clock.millis = Duration.ofSeconds(30).toMillis();
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNull();
+		clock.millis = Duration.ofSeconds(50).toMillis();
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNull();
+		TransferResult rejected = check.reserve("Id-1", BigDecimal.ONE);
+		assertThat(rejected.getStatus()).isEqualTo(TransferStatus.VELOCITY_LIMIT_EXCEEDED);
+		assertThat(rejected.getMessage())
+				.isEqualTo("Transfer would exceed the limit of 3 transfers in PT1M for account Id-1");
+		assertThat(check.reserve("Id-2", BigDecimal.ONE)).isNull();
+
+		clock.millis = Duration.ofSeconds(59).toMillis();
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNotNull();
+		clock.millis = Duration.ofSeconds(60).toMillis();
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNull();
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNotNull();
+	}
+
+	@Test
+	@DisplayName("A limit on the amount counts what passed, less what was released")
+	void maxAmount() {
+		SlidingWindowVelocityCheck check = new SlidingWindowVelocityCheck(
+				List.of(VelocityRule.maxAmount(Duration.ofMinutes(5), new BigDecimal("100"))), 10, 4, 100, clock);
+
+		assertThat(check.reserve("Id-1", new BigDecimal("60"))).isNull();
+		assertThat(check.reserve("Id-1", new BigDecimal("40.00001")).getMessage())
+				.isEqualTo("Transfer would exceed the limit of 100 out in PT5M for account Id-1");
+		assertThat(check.reserve("Id-1", new BigDecimal("40"))).isNull();
+		check.release("Id-1", new BigDecimal("40"));
+		assertThat(check.reserve("Id-1", new BigDecimal("39.99"))).isNull();
+		assertThat(check.reserve("Id-1", new BigDecimal("0.02"))).isNotNull();
+		assertThat(check.reserve("Id-2", new BigDecimal("1e30"))).isNotNull();
+
+		clock.millis = Duration.ofMinutes(5).toMillis();
+		assertThat(check.reserve("Id-1", new BigDecimal("100"))).isNull();
+	}
+
+	@Test
+	@DisplayName("Accounts are forgotten once their windows are empty, or the least recently counted when full")
+	void eviction() {
+		SlidingWindowVelocityCheck check = new SlidingWindowVelocityCheck(
+				List.of(VelocityRule.maxTransfers(Duration.ofMinutes(1), 1),
+						VelocityRule.maxTransfers(Duration.ofMinutes(10), 5)),
+				10, 1, 3, clock);
+
+		for (int i = 1; i <= 4; i++) {
+			clock.millis = Duration.ofSeconds(i).toMillis();
+			check.reserve("Id-" + i, BigDecimal.ONE);
+		}
+		assertThat(check.size()).isEqualTo(3);
+		assertThat(check.reserve("Id-2", BigDecimal.ONE)).isNotNull();
+		assertThat(check.reserve("Id-1", BigDecimal.ONE)).isNull();
+
+		clock.millis = Duration.ofMinutes(11).toMillis();
+		check.reserve("Id-5", BigDecimal.ONE);
+		assertThat(check.size()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Transfers rejected by the velocity rules or by the repository do not count")
+	void accountsService() {
+		AccountsService accountsService = AccountsService.builder(
+				AccountsRepositoryInMemory.builder().lockStripes(4).build(), (account, description) -> {
+				})
+				.velocityCheck(new SlidingWindowVelocityCheck(
+						List.of(VelocityRule.maxAmount(Duration.ofMinutes(5), new BigDecimal("100"))), 10, 4, 100,
+						clock))
+				.build();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("1000")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("10")));
+
+		assertThat(accountsService.tryTransfer("Id-2", "Id-1", new BigDecimal("50")).getStatus())
+				.isEqualTo(TransferStatus.INSUFFICIENT_BALANCE);
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("90")).isCompleted()).isTrue();
+		assertThat(accountsService.tryTransfer("Id-1", "Id-2", new BigDecimal("20")).getStatus())
+				.isEqualTo(TransferStatus.VELOCITY_LIMIT_EXCEEDED);
+
+		List<TransferResult> results = accountsService.transferBatch(List.of(transfer("Id-2", "Id-1", "50"),
+				transfer("Id-1", "Id-2", "20")), BatchMode.ALL_OR_NOTHING);
+		assertThat(results).extracting(TransferResult::getStatus)
+				.containsExactly(TransferStatus.NOT_APPLIED, TransferStatus.VELOCITY_LIMIT_EXCEEDED);
+		results = accountsService.transferBatch(List.of(transfer("Id-2", "Id-1", "100"),
+				transfer("Id-1", "Id-2", "10"), transfer("Id-1", "Id-2", "1")), BatchMode.BEST_EFFORT);
+		assertThat(results).extracting(TransferResult::getStatus).containsExactly(TransferStatus.COMPLETED,
+				TransferStatus.COMPLETED, TransferStatus.VELOCITY_LIMIT_EXCEEDED);
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("1000");
+	}
+
+	private static Transfer transfer(String accountFromId, String accountToId, String amount) {
+		return Transfer.builder()
+				.accountFromId(accountFromId)
+				.accountToId(accountToId)
+				.amount(new BigDecimal(amount))
+				.build();
+	}
+
+	private static class MutableClock extends Clock {
+
+		long millis;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+	}
+
+}